@@ -0,0 +1,339 @@
+package io.leavesfly.jtrade.agents.analysts;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.prompt.PromptManager;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.dataflow.model.NewsData;
+import io.leavesfly.jtrade.dataflow.provider.AsOfContext;
+import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 批量分析师
+ * 
+ * 用于大范围初筛：把多只股票的精简新闻/情绪数据打包进一次请求，由模型按
+ * "### 股票代码" 分段输出，再拆回各股票的报告。同一批次共享一份系统提示，
+ * 请求数与固定的单次请求延迟按批次大小摊薄。
+ * 
+ * 各批次的新闻/情绪数据在有界线程池中并发获取，不阻塞调用线程。
+ * 分段解析失败或缺失的股票回退为单股票请求。
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class BatchAnalyst {
+    
+    /**
+     * 分段标题，例如 "### AAPL"（允许模型额外加粗或冒号）
+     */
+    private static final Pattern SECTION_HEADER =
+            Pattern.compile("(?m)^\\s*#{1,4}\\s*\\**\\s*([A-Za-z0-9.\\-^=]+)\\s*\\**\\s*[:：]?\\s*$");
+    
+    /**
+     * 批量分析模式
+     */
+    public enum Mode {
+        NEWS(AgentType.NEWS_ANALYST, "analyst.news", "新闻分析师"),
+        SOCIAL(AgentType.SOCIAL_MEDIA_ANALYST, "analyst.social", "社交媒体分析师");
+        
+        private final AgentType agentType;
+        private final String promptKey;
+        private final String displayName;
+        
+        Mode(AgentType agentType, String promptKey, String displayName) {
+            this.agentType = agentType;
+            this.promptKey = promptKey;
+            this.displayName = displayName;
+        }
+        
+        public AgentType getAgentType() {
+            return agentType;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private final Map<Mode, LlmClient> clients = new EnumMap<>(Mode.class);
+    private final DataAggregator dataAggregator;
+    private final PromptManager promptManager;
+    private final AppConfig appConfig;
+    private final ExecutorService fetchExecutor;
+    
+    public BatchAnalyst(LlmClient llmClient, DataAggregator dataAggregator, PromptManager promptManager,
+                        AppConfig appConfig, ModelSelector modelSelector) {
+        for (Mode mode : Mode.values()) {
+            clients.put(mode, modelSelector.bind(llmClient, mode.agentType));
+        }
+        this.dataAggregator = dataAggregator;
+        this.promptManager = promptManager;
+        this.appConfig = appConfig;
+        this.fetchExecutor = Executors.newFixedThreadPool(
+                Math.max(1, appConfig.getScreening().getFetchConcurrency()),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-batch-fetch-%d").setDaemon(true).build());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+    
+    /**
+     * 对一组股票执行新闻与社交媒体批量分析
+     * 
+     * @param symbols 股票代码列表
+     * @param date 分析日期
+     * @return 各股票的状态（与输入顺序一致），分析师报告依次为新闻、社交媒体
+     */
+    public List<AgentState> screen(List<String> symbols, LocalDate date) {
+        CompletableFuture<Map<String, String>> news = analyzeAsync(Mode.NEWS, symbols);
+        CompletableFuture<Map<String, String>> social = analyzeAsync(Mode.SOCIAL, symbols);
+        Map<String, String> newsReports = news.join();
+        Map<String, String> socialReports = social.join();
+        
+        List<AgentState> states = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            states.add(AgentState.builder()
+                    .company(symbol)
+                    .date(date)
+                    .build()
+                    .addAnalystReport(newsReports.get(symbol))
+                    .addAnalystReport(socialReports.get(symbol)));
+        }
+        return states;
+    }
+    
+    /**
+     * 批量分析
+     * 
+     * @return 股票代码到报告的映射（与输入顺序一致）
+     */
+    public Map<String, String> analyze(Mode mode, List<String> symbols) {
+        return analyzeAsync(mode, symbols).join();
+    }
+    
+    /**
+     * 异步批量分析，各批次并发提交，由LLM客户端的限流与并发控制节流
+     */
+    public CompletableFuture<Map<String, String>> analyzeAsync(Mode mode, List<String> symbols) {
+        List<String> distinct = symbols.stream().distinct().collect(Collectors.toList());
+        int batchSize = Math.max(1, appConfig.getScreening().getBatchSize());
+        
+        List<CompletableFuture<Map<String, String>>> batches = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            List<String> batch = distinct.subList(from, Math.min(from + batchSize, distinct.size()));
+            batches.add(analyzeBatch(mode, batch));
+        }
+        log.info("{}批量分析: {} 个股票，{} 个批次", mode.displayName, distinct.size(), batches.size());
+        
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<String, String> merged = new LinkedHashMap<>();
+            batches.forEach(batch -> merged.putAll(batch.join()));
+            Map<String, String> ordered = new LinkedHashMap<>();
+            for (String symbol : symbols) {
+                ordered.put(symbol, merged.get(symbol));
+            }
+            return ordered;
+        });
+    }
+    
+    /**
+     * 分析一个批次，缺失的股票回退为单股票请求
+     */
+    private CompletableFuture<Map<String, String>> analyzeBatch(Mode mode, List<String> batch) {
+        return fetchData(mode, batch).thenCompose(data -> analyzeBatch(mode, batch, data));
+    }
+    
+    /**
+     * 在数据线程池中并发获取批次内各股票的精简数据，保持回测截止日
+     */
+    private CompletableFuture<Map<String, String>> fetchData(Mode mode, List<String> batch) {
+        LocalDate asOf = AsOfContext.current();
+        List<CompletableFuture<String>> blocks = new ArrayList<>(batch.size());
+        for (String symbol : batch) {
+            blocks.add(CompletableFuture.supplyAsync(() -> asOf == null
+                    ? compactData(mode, symbol)
+                    : AsOfContext.with(asOf, () -> compactData(mode, symbol)), fetchExecutor));
+        }
+        return CompletableFuture.allOf(blocks.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<String, String> data = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                data.put(batch.get(i), blocks.get(i).join());
+            }
+            return data;
+        });
+    }
+    
+    private CompletableFuture<Map<String, String>> analyzeBatch(Mode mode, List<String> batch,
+                                                                Map<String, String> data) {
+        if (batch.size() == 1) {
+            String symbol = batch.get(0);
+            return requestSingle(mode, symbol, data.get(symbol))
+                    .thenApply(section -> format(mode, Map.of(symbol, section)));
+        }
+        
+        CompletableFuture<Map<String, String>> parsed = request(mode, data)
+                .thenApply(content -> parseSections(content, batch))
+                .exceptionally(e -> {
+                    log.warn("{}批量请求失败，回退为单股票请求: {}", mode.displayName, e.getMessage());
+                    return new LinkedHashMap<>();
+                });
+        
+        return parsed.thenCompose(sections -> {
+            List<String> missing = batch.stream()
+                    .filter(symbol -> !sections.containsKey(symbol))
+                    .collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(format(mode, sections));
+            }
+            log.info("{}批量结果缺少 {} 个股票，回退为单股票请求: {}", mode.displayName, missing.size(), missing);
+            List<CompletableFuture<Void>> singles = new ArrayList<>();
+            Map<String, String> result = new LinkedHashMap<>(sections);
+            for (String symbol : missing) {
+                singles.add(requestSingle(mode, symbol, data.get(symbol))
+                        .thenAccept(section -> {
+                            synchronized (result) {
+                                result.put(symbol, section);
+                            }
+                        }));
+            }
+            return CompletableFuture.allOf(singles.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(v -> format(mode, result));
+        });
+    }
+    
+    /**
+     * 单股票请求：整段回复即为该股票的报告
+     */
+    private CompletableFuture<String> requestSingle(Mode mode, String symbol, String data) {
+        return request(mode, Map.of(symbol, data))
+                .thenApply(content -> {
+                    String section = parseSections(content, List.of(symbol)).get(symbol);
+                    return section != null ? section : content.trim();
+                })
+                .exceptionally(e -> {
+                    log.error("{}单股票分析失败: {}", mode.displayName, symbol, e);
+                    return "分析失败: " + e.getMessage();
+                });
+    }
+    
+    private CompletableFuture<String> request(Mode mode, Map<String, String> data) {
+        List<LlmMessage> messages = List.of(
+                LlmMessage.system(promptManager.getSystemPrompt(mode.promptKey)),
+                LlmMessage.user(buildPrompt(mode, data)));
+        ModelConfig config = ModelConfig.builder()
+                .temperature(0.3)
+                .maxTokens(appConfig.getScreening().getMaxTokensPerSymbol() * data.size())
+                .build();
+        return clients.get(mode).chatAsync(messages, config).thenApply(LlmResponse::getContent);
+    }
+    
+    private String buildPrompt(Mode mode, Map<String, String> data) {
+        StringBuilder symbolData = new StringBuilder();
+        data.forEach((symbol, block) ->
+                symbolData.append("=== ").append(symbol).append(" ===\n").append(block).append("\n"));
+        
+        Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("count", String.valueOf(data.size()));
+        variables.put("symbolData", symbolData.toString());
+        variables.put("focus", promptManager.getPrompt("analyst.batch." + mode.name().toLowerCase(Locale.ROOT) + ".focus"));
+        return promptManager.render("analyst.batch.prompt", variables);
+    }
+    
+    /**
+     * 构建单只股票的精简数据
+     */
+    private String compactData(Mode mode, String symbol) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            if (mode == Mode.NEWS) {
+                List<NewsData> newsList = dataAggregator.getNewsData(symbol, appConfig.getScreening().getNewsPerSymbol());
+                for (NewsData news : newsList) {
+                    sb.append("- ").append(news.getTitle());
+                    if (news.getSentimentScore() != null) {
+                        sb.append("（情绪 ").append(news.getSentimentScore()).append("）");
+                    }
+                    sb.append("\n");
+                }
+            } else {
+                dataAggregator.getSocialMediaSentiment(symbol).forEach((key, value) -> {
+                    if (!"symbol".equals(key)) {
+                        sb.append("- ").append(key).append(": ").append(value).append("\n");
+                    }
+                });
+            }
+            return sb.length() > 0 ? sb.toString() : "- 无数据\n";
+        } catch (Exception e) {
+            log.warn("获取 {} 的{}数据失败", symbol, mode.displayName, e);
+            return "- 无数据\n";
+        }
+    }
+    
+    /**
+     * 按 "### 股票代码" 拆分回复，只保留本批次内且内容非空的分段
+     * 
+     * 只有本批次股票代码的标题才开始新分段，其他标题（如 "### Summary"）归入当前分段
+     */
+    private static Map<String, String> parseSections(String content, List<String> batch) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (content == null || content.isBlank()) {
+            return result;
+        }
+        Map<String, String> expected = new LinkedHashMap<>();
+        batch.forEach(symbol -> expected.put(symbol.toUpperCase(Locale.ROOT), symbol));
+        
+        Matcher matcher = SECTION_HEADER.matcher(content);
+        String current = null;
+        int start = 0;
+        while (matcher.find()) {
+            String symbol = expected.get(matcher.group(1).toUpperCase(Locale.ROOT));
+            if (symbol == null) {
+                continue;
+            }
+            putSection(result, current, content.substring(start, matcher.start()));
+            current = symbol;
+            start = matcher.end();
+        }
+        putSection(result, current, content.substring(start));
+        return result;
+    }
+    
+    private static void putSection(Map<String, String> result, String symbol, String text) {
+        String section = text.trim();
+        if (symbol != null && !section.isEmpty() && !result.containsKey(symbol)) {
+            result.put(symbol, section);
+        }
+    }
+    
+    private Map<String, String> format(Mode mode, Map<String, String> sections) {
+        Map<String, String> reports = new LinkedHashMap<>();
+        sections.forEach((symbol, section) ->
+                reports.put(symbol, "【" + mode.displayName + "（批量）】\n" + section));
+        return reports;
+    }
+}
@@ -6,6 +6,7 @@ import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
 import io.leavesfly.jtrade.llm.model.ModelConfig;
@@ -31,8 +32,9 @@ public class MarketAnalyst extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public MarketAnalyst(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public MarketAnalyst(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                         ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.MARKET_ANALYST), dataAggregator, appConfig);
     }
     
     @Override
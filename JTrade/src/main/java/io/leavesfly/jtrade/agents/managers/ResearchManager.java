@@ -3,8 +3,10 @@ package io.leavesfly.jtrade.agents.managers;
 import io.leavesfly.jtrade.agents.base.BaseRecAgent;
 import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -29,8 +31,9 @@ public class ResearchManager extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public ResearchManager(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public ResearchManager(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                           ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.RESEARCH_MANAGER), dataAggregator, appConfig);
     }
     
     @Override
@@ -55,7 +58,7 @@ public class ResearchManager extends BaseRecAgent {
         return String.format(
                 "请综合以下研究员观点，客观权衡并给出最终投资决策（BUY/SELL/HOLD），在最终答案中明确建议与依据。\n股票代码：%s\n观点汇总：\n%s",
                 symbol, allViewpoints
-        );
+        ) + SituationMemory.promptSection(state);
     }
     
     @Override
@@ -6,6 +6,7 @@ import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -30,8 +31,9 @@ public class RiskManager extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public RiskManager(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public RiskManager(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                       ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.RISK_MANAGER), dataAggregator, appConfig);
     }
     
     @Override
@@ -57,8 +59,8 @@ public class RiskManager extends BaseRecAgent {
         RiskDebateState riskDebate = state.getRiskDebate();
         String tradingPlan = state.getTradingPlan();
         return String.format(
-                "请基于交易计划与风险辩论内容进行风险评估，做出最终决策（APPROVE/REJECT/MODIFY），并明确最终交易信号（BUY/SELL/HOLD）。\n股票代码：%s\n交易计划：\n%s\n风险辩论：%s",
-                symbol, tradingPlan, riskDebate != null ? riskDebate.toString() : "N/A"
+                "请基于交易计划与风险辩论内容进行风险评估，做出最终决策（APPROVE/REJECT/MODIFY），并明确最终交易信号（BUY/SELL/HOLD）。\n股票代码：%s\n交易计划：\n%s\n风险辩论记录：\n%s",
+                symbol, tradingPlan, riskDebate != null ? riskDebate.toTranscript() : "N/A"
         );
     }
     
@@ -4,7 +4,9 @@ import io.leavesfly.jtrade.agents.base.BaseRecAgent;
 import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.InvestDebateState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -31,8 +33,9 @@ public class BullResearcher extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public BullResearcher(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public BullResearcher(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                          ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.BULL_RESEARCHER), dataAggregator, appConfig);
     }
     
     @Override
@@ -52,10 +55,19 @@ public class BullResearcher extends BaseRecAgent {
     protected String buildInitialUserPrompt(AgentState state) {
         String allReports = String.join("\n\n", state.getAnalystReports());
         String symbol = state.getCompany();
-        return String.format(
+        String prompt = String.format(
                 "请从看涨角度综合以下分析师报告，提出买入观点与论据，并最终给出建议（BUY/SELL/HOLD）。\n报告汇总：\n%s\n\n股票代码：%s",
                 allReports, symbol
         );
+        
+        // 反驳轮：回应空头研究员的最新论点
+        InvestDebateState debate = state.getInvestDebate();
+        if (debate != null && !debate.getBearArguments().isEmpty()) {
+            List<String> opposing = debate.getBearArguments();
+            prompt += String.format("\n\n空头研究员的最新观点：\n%s\n\n请逐条回应并反驳上述观点，同时补充新的论据。",
+                    opposing.get(opposing.size() - 1));
+        }
+        return prompt;
     }
     
     @Override
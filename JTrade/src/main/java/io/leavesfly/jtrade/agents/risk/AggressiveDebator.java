@@ -6,6 +6,7 @@ import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -13,8 +14,6 @@ import io.leavesfly.jtrade.llm.model.ModelConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
 
@@ -32,23 +31,19 @@ public class AggressiveDebator extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public AggressiveDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public AggressiveDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                             ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.AGGRESSIVE_DEBATER), dataAggregator, appConfig);
     }
     
     @Override
     public AgentState execute(AgentState state) {
         ReactResult result = performReact(state);
         String argument = "【激进观点】" + result.finalAnswer;
-        RiskDebateState currentDebate = state.getRiskDebate();
-        RiskDebateState newDebate = RiskDebateState.builder()
-                .currentRound(currentDebate.getCurrentRound())
-                .maxRounds(currentDebate.getMaxRounds())
-                .aggressiveStrategies(addToList(currentDebate.getAggressiveStrategies(), argument))
-                .conservativeStrategies(currentDebate.getConservativeStrategies())
-                .neutralStrategies(currentDebate.getNeutralStrategies())
-                .lastSpeaker("AGGRESSIVE")
-                .build();
+        RiskDebateState currentDebate = state.getRiskDebate() != null
+                ? state.getRiskDebate() : RiskDebateState.builder().build();
+        // 只复制本方的策略列表，其余字段沿用当前辩论状态
+        RiskDebateState newDebate = currentDebate.addAggressiveStrategy(argument);
         AgentState updated = state.toBuilder().riskDebate(newDebate).build();
         return updated.putMetadata("aggressive_trace", result.trace);
     }
@@ -64,17 +59,11 @@ public class AggressiveDebator extends BaseRecAgent {
         String tradingPlan = state.getTradingPlan();
         RiskDebateState debate = state.getRiskDebate();
         return String.format(
-                "基于交易计划与当前辩论内容，从激进角度提出高收益策略与论据，直接回应对手观点，最终给出你的主张。\n交易计划：\n%s\n辩论：%s",
-                tradingPlan, debate != null ? debate.toString() : "N/A"
+                "基于交易计划与当前辩论内容，从激进角度提出高收益策略与论据，直接回应对手观点，最终给出你的主张。\n交易计划：\n%s\n辩论记录：\n%s",
+                tradingPlan, debate != null ? debate.toTranscript() : "N/A"
         );
     }
     
-    private List<String> addToList(List<String> list, String item) {
-        List<String> newList = new ArrayList<>(list);
-        newList.add(item);
-        return newList;
-    }
-    
     @Override
     public String getName() {
         return "激进风险辩论者";
@@ -117,6 +106,6 @@ public class AggressiveDebator extends BaseRecAgent {
     
     @Override
     public AgentType getType() {
-        return AgentType.RISK_MANAGER;
+        return AgentType.AGGRESSIVE_DEBATER;
     }
 }
@@ -6,6 +6,7 @@ import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -32,23 +33,19 @@ public class ConservativeDebator extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public ConservativeDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public ConservativeDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                               ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.CONSERVATIVE_DEBATER), dataAggregator, appConfig);
     }
     
     @Override
     public AgentState execute(AgentState state) {
         ReactResult result = performReact(state);
         String argument = "【保守观点】" + result.finalAnswer;
-        RiskDebateState currentDebate = state.getRiskDebate();
-        RiskDebateState newDebate = RiskDebateState.builder()
-                .currentRound(currentDebate.getCurrentRound())
-                .maxRounds(currentDebate.getMaxRounds())
-                .aggressiveStrategies(currentDebate.getAggressiveStrategies())
-                .conservativeStrategies(addToList(currentDebate.getConservativeStrategies(), argument))
-                .neutralStrategies(currentDebate.getNeutralStrategies())
-                .lastSpeaker("CONSERVATIVE")
-                .build();
+        RiskDebateState currentDebate = state.getRiskDebate() != null
+                ? state.getRiskDebate() : RiskDebateState.builder().build();
+        // 只复制本方的策略列表，其余字段沿用当前辩论状态
+        RiskDebateState newDebate = currentDebate.addConservativeStrategy(argument);
         AgentState updated = state.toBuilder().riskDebate(newDebate).build();
         return updated.putMetadata("conservative_trace", result.trace);
     }
@@ -64,17 +61,11 @@ public class ConservativeDebator extends BaseRecAgent {
         String tradingPlan = state.getTradingPlan();
         RiskDebateState debate = state.getRiskDebate();
         return String.format(
-                "基于交易计划与当前辩论内容，从保守角度提出风险识别与保护策略，直接回应对手观点，最终给出你的主张。\n交易计划：\n%s\n辩论：%s",
-                tradingPlan, debate != null ? debate.toString() : "N/A"
+                "基于交易计划与当前辩论内容，从保守角度提出风险识别与保护策略，直接回应对手观点，最终给出你的主张。\n交易计划：\n%s\n辩论记录：\n%s",
+                tradingPlan, debate != null ? debate.toTranscript() : "N/A"
         );
     }
     
-    private List<String> addToList(List<String> list, String item) {
-        List<String> newList = new ArrayList<>(list);
-        newList.add(item);
-        return newList;
-    }
-    
     @Override
     public String getName() {
         return "保守风险辩论者";
@@ -121,6 +112,6 @@ public class ConservativeDebator extends BaseRecAgent {
     
     @Override
     public AgentType getType() {
-        return AgentType.RISK_MANAGER;
+        return AgentType.CONSERVATIVE_DEBATER;
     }
 }
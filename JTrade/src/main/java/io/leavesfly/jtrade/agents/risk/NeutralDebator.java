@@ -6,6 +6,7 @@ import io.leavesfly.jtrade.agents.base.AgentType;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -13,8 +14,6 @@ import io.leavesfly.jtrade.llm.model.ModelConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
 
@@ -32,23 +31,19 @@ public class NeutralDebator extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public NeutralDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public NeutralDebator(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                          ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.NEUTRAL_DEBATER), dataAggregator, appConfig);
     }
     
     @Override
     public AgentState execute(AgentState state) {
         ReactResult result = performReact(state);
         String argument = "【中立观点】" + result.finalAnswer;
-        RiskDebateState currentDebate = state.getRiskDebate();
-        RiskDebateState newDebate = RiskDebateState.builder()
-                .currentRound(currentDebate.getCurrentRound())
-                .maxRounds(currentDebate.getMaxRounds())
-                .aggressiveStrategies(currentDebate.getAggressiveStrategies())
-                .conservativeStrategies(currentDebate.getConservativeStrategies())
-                .neutralStrategies(addToList(currentDebate.getNeutralStrategies(), argument))
-                .lastSpeaker("NEUTRAL")
-                .build();
+        RiskDebateState currentDebate = state.getRiskDebate() != null
+                ? state.getRiskDebate() : RiskDebateState.builder().build();
+        // 只复制本方的策略列表，其余字段沿用当前辩论状态
+        RiskDebateState newDebate = currentDebate.addNeutralStrategy(argument);
         AgentState updated = state.toBuilder().riskDebate(newDebate).build();
         return updated.putMetadata("neutral_trace", result.trace);
     }
@@ -64,17 +59,11 @@ public class NeutralDebator extends BaseRecAgent {
         String tradingPlan = state.getTradingPlan();
         RiskDebateState debate = state.getRiskDebate();
         return String.format(
-                "基于交易计划与当前辩论内容，从中立角度综合双方观点，提出折中策略，并最终给出你的主张。\n交易计划：\n%s\n辩论：%s",
-                tradingPlan, debate != null ? debate.toString() : "N/A"
+                "基于交易计划与当前辩论内容，从中立角度综合双方观点，提出折中策略，并最终给出你的主张。\n交易计划：\n%s\n辩论记录：\n%s",
+                tradingPlan, debate != null ? debate.toTranscript() : "N/A"
         );
     }
     
-    private List<String> addToList(List<String> list, String item) {
-        List<String> newList = new ArrayList<>(list);
-        newList.add(item);
-        return newList;
-    }
-    
     @Override
     public String getName() {
         return "中立风险辩论者";
@@ -121,6 +110,6 @@ public class NeutralDebator extends BaseRecAgent {
     
     @Override
     public AgentType getType() {
-        return AgentType.RISK_MANAGER;
+        return AgentType.NEUTRAL_DEBATER;
     }
 }
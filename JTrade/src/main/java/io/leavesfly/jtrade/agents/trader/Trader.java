@@ -3,8 +3,10 @@ package io.leavesfly.jtrade.agents.trader;
 import io.leavesfly.jtrade.agents.base.BaseRecAgent;
 import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
@@ -31,8 +33,9 @@ public class Trader extends BaseRecAgent {
     // Deleted: moved to BaseRecAgent
     // Deleted: moved to BaseRecAgent
     
-    public Trader(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig) {
-        super(llmClient, dataAggregator, appConfig);
+    public Trader(LlmClient llmClient, DataAggregator dataAggregator, AppConfig appConfig,
+                  ModelSelector modelSelector) {
+        super(modelSelector.bind(llmClient, AgentType.TRADER), dataAggregator, appConfig);
     }
     
     @Override
@@ -57,7 +60,7 @@ public class Trader extends BaseRecAgent {
         return String.format(
                 "基于研究经理的决策，为 %s 制定可执行的交易计划（方向/时机/仓位/入场条件/止损止盈等），并在最终答案中给出完整计划文本。\n研究经理决策：\n%s",
                 symbol, managerDecision
-        );
+        ) + SituationMemory.promptSection(state);
     }
     
     @Override
@@ -0,0 +1,191 @@
+package io.leavesfly.jtrade.api;
+
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.service.AnalysisJob;
+import io.leavesfly.jtrade.service.AnalysisJobService;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析任务 REST 接口
+ * 
+ * POST /api/jobs                    提交任务（202；队列已满时 429，服务关闭时 503）
+ * GET  /api/jobs/{id}?waitSeconds=N 查询任务状态，N > 0 时长轮询直到任务结束或超时
+ * GET  /api/jobs/{id}/result        读取各股票的最终状态
+ * GET  /api/jobs/{id}/events        以 SSE 推送各阶段进度，先回放已有事件
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/jobs")
+public class AnalysisController {
+    
+    private final AnalysisJobService jobService;
+    
+    public AnalysisController(AnalysisJobService jobService) {
+        this.jobService = jobService;
+    }
+    
+    /**
+     * 任务提交请求，symbol 与 symbols 可任选其一或同时使用
+     */
+    @Data
+    public static class JobRequest {
+        private String symbol;
+        private List<String> symbols;
+        
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate date;
+    }
+    
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submit(@RequestBody JobRequest request) {
+        List<String> symbols = new ArrayList<>();
+        if (request.getSymbol() != null) {
+            symbols.add(request.getSymbol());
+        }
+        if (request.getSymbols() != null) {
+            symbols.addAll(request.getSymbols());
+        }
+        
+        try {
+            AnalysisJob job = jobService.submit(symbols, request.getDate());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getId()))
+                    .body(job.summary());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> body = error("分析任务队列已满，请稍后重试");
+            body.put("queuedJobs", jobService.getQueuedJobs());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "30")
+                    .body(body);
+        }
+    }
+    
+    /**
+     * 查询任务状态；waitSeconds > 0 时异步等待任务结束，不占用请求线程
+     */
+    @GetMapping("/{id}")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> status(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int waitSeconds) {
+        Optional<AnalysisJob> found = jobService.get(id);
+        if (found.isEmpty()) {
+            return completed(notFound(id));
+        }
+        AnalysisJob job = found.get();
+        int wait = Math.min(Math.max(0, waitSeconds), jobService.getConfig().getMaxWaitSeconds());
+        if (wait == 0 || job.getStatus().isFinished()) {
+            return completed(ResponseEntity.ok(job.summary()));
+        }
+        
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait));
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(job.summary())));
+        job.getCompletion().thenAccept(done -> result.setResult(ResponseEntity.ok(done.summary())));
+        return result;
+    }
+    
+    /**
+     * 读取任务结果
+     * 
+     * 元数据中保存的是流程内部的中间数据（行情数据、相似情境等），不随结果返回；
+     * 任务尚未结束时返回 202 与当前状态
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Map<String, Object>> result(@PathVariable String id) {
+        Optional<AnalysisJob> found = jobService.get(id);
+        if (found.isEmpty()) {
+            return notFound(id);
+        }
+        AnalysisJob job = found.get();
+        if (!job.getStatus().isFinished()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.summary());
+        }
+        
+        Map<String, AgentState> states = new LinkedHashMap<>();
+        job.getResults().forEach((symbol, state) ->
+                states.put(symbol, state.toBuilder().metadata(Map.of()).build()));
+        Map<String, Object> body = job.summary();
+        body.put("results", states);
+        return ResponseEntity.ok(body);
+    }
+    
+    /**
+     * 以 SSE 推送任务进度，事件名为事件类型，事件 ID 为事件序号；任务结束后关闭连接
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        Optional<AnalysisJob> found = jobService.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        AnalysisJob job = found.get();
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(jobService.getConfig().getSseTimeoutSeconds()));
+        
+        Runnable unsubscribe = job.subscribe(event -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getSeq()))
+                        .name(event.getType())
+                        .data(event, MediaType.APPLICATION_JSON));
+                if (event.isTerminal()) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // 客户端已断开，抛出后由任务移除该订阅者
+                throw new UncheckedIOException(e);
+            }
+        }, emitter::completeWithError);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private static <T> DeferredResult<T> completed(T value) {
+        DeferredResult<T> result = new DeferredResult<>();
+        result.setResult(value);
+        return result;
+    }
+    
+    private static ResponseEntity<Map<String, Object>> notFound(String id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error("任务不存在或已过期: " + id));
+    }
+    
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return body;
+    }
+}
@@ -0,0 +1,133 @@
+package io.leavesfly.jtrade.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回测结果
+ * 
+ * 收益按“当日收盘发出信号、持有到下一交易日收盘”计算，不含交易成本
+ * 
+ * @author 山泽
+ */
+@Data
+@Builder
+public class BacktestResult {
+    
+    /**
+     * 股票代码
+     */
+    private String symbol;
+    
+    /**
+     * 回测开始日期
+     */
+    private LocalDate startDate;
+    
+    /**
+     * 回测结束日期
+     */
+    private LocalDate endDate;
+    
+    /**
+     * 每个交易日的明细（按日期升序）
+     */
+    @Builder.Default
+    private List<DailyResult> days = new ArrayList<>();
+    
+    /**
+     * 各信号出现次数
+     */
+    @Builder.Default
+    private Map<String, Integer> signalCounts = new LinkedHashMap<>();
+    
+    /**
+     * 未产生有效信号（ERROR 或缺失）的交易日数，这些日期沿用前一日仓位
+     */
+    private int errorCount;
+    
+    /**
+     * 策略累计收益率
+     */
+    private double totalReturn;
+    
+    /**
+     * 同期买入持有收益率
+     */
+    private double benchmarkReturn;
+    
+    /**
+     * 最大回撤（0~1）
+     */
+    private double maxDrawdown;
+    
+    /**
+     * 胜率：持仓且次日价格有变动的交易日中盈利的比例
+     */
+    private double hitRate;
+    
+    /**
+     * 换手：仓位变化绝对值之和（空仓到满仓计 1）
+     */
+    private double turnover;
+    
+    /**
+     * 调仓次数
+     */
+    private int tradeCount;
+    
+    /**
+     * 回测耗时（毫秒）
+     */
+    private long elapsedMs;
+    
+    /**
+     * 交易日数量
+     */
+    public int getTradingDays() {
+        return days.size();
+    }
+    
+    /**
+     * 单个交易日的回测明细
+     */
+    @Data
+    @Builder
+    public static class DailyResult {
+        /**
+         * 交易日期
+         */
+        private LocalDate date;
+        
+        /**
+         * 交易图给出的最终信号
+         */
+        private String signal;
+        
+        /**
+         * 收盘后的仓位（1 多头，0 空仓，-1 空头）
+         */
+        private int position;
+        
+        /**
+         * 当日收盘价（优先使用复权价）
+         */
+        private double close;
+        
+        /**
+         * 当日仓位在下一交易日的收益率，没有下一交易日时为 NaN
+         */
+        private double pnl;
+        
+        /**
+         * 当日仓位结算后的净值
+         */
+        private double equity;
+    }
+}
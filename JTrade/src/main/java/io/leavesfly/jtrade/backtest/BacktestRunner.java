@@ -0,0 +1,289 @@
+package io.leavesfly.jtrade.backtest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import io.leavesfly.jtrade.dataflow.provider.AsOfContext;
+import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
+import io.leavesfly.jtrade.graph.GraphPropagator;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 回测执行器
+ * 
+ * 在日期区间内的每个交易日回放一次 TradingGraph.replay，初始状态中的截止日使各智能体
+ * 只能看到当日及之前的数据，回放不写入记忆；收集各日的最终信号后按本地行情计算收益、胜率、回撤和换手。
+ * 各交易日的交易图互不依赖，在 backtest.max-concurrency 限制内并行执行
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class BacktestRunner {
+    
+    /**
+     * 结束日期之后多取的自然日，用于结算最后一个交易日的次日收益
+     */
+    private static final int SETTLEMENT_LOOKAHEAD_DAYS = 10;
+    
+    private final TradingGraph tradingGraph;
+    private final DataAggregator dataAggregator;
+    private final AppConfig appConfig;
+    
+    public BacktestRunner(TradingGraph tradingGraph, DataAggregator dataAggregator, AppConfig appConfig) {
+        this.tradingGraph = tradingGraph;
+        this.dataAggregator = dataAggregator;
+        this.appConfig = appConfig;
+    }
+    
+    /**
+     * 回测单个股票
+     * 
+     * @param symbol 股票代码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 回测结果
+     */
+    public BacktestResult run(String symbol, LocalDate startDate, LocalDate endDate) {
+        return run(symbol, startDate, endDate, new GraphPropagator());
+    }
+    
+    /**
+     * 回测单个股票，并把每个交易日的最终状态记录到 propagator
+     * 
+     * @param symbol 股票代码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param propagator 状态历史记录
+     * @return 回测结果
+     */
+    public BacktestResult run(String symbol, LocalDate startDate, LocalDate endDate, GraphPropagator propagator) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("结束日期不能早于开始日期: " + startDate + " ~ " + endDate);
+        }
+        
+        long startTime = System.currentTimeMillis();
+        AppConfig.BacktestConfig config = appConfig.getBacktest();
+        
+        BarSeries bars = dataAggregator.getStoredBarSeries(symbol, startDate,
+                endDate.plusDays(SETTLEMENT_LOOKAHEAD_DAYS));
+        List<LocalDate> dates = tradingDates(bars, startDate, endDate);
+        if (dates.isEmpty()) {
+            log.warn("{} 在 {} 至 {} 没有可用的行情数据，无法回测", symbol, startDate, endDate);
+            return evaluate(symbol, startDate, endDate, bars, Map.of(), config.isAllowShort());
+        }
+        
+        int concurrency = Math.max(1, Math.min(config.getMaxConcurrency(), dates.size()));
+        log.info("开始回测 {}：{} 至 {}，共 {} 个交易日，并发: {}",
+                symbol, startDate, endDate, dates.size(), concurrency);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+                new ThreadFactoryBuilder().setNameFormat("jtrade-backtest-%d").setDaemon(true).build());
+        
+        Map<LocalDate, String> signals = new TreeMap<>();
+        try {
+            List<CompletableFuture<AgentState>> futures = new ArrayList<>();
+            for (LocalDate date : dates) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    AgentState state = replay(symbol, date);
+                    propagator.logState(date, state);
+                    log.info("回测 {} {} -> {}", symbol, date, state.getFinalSignal());
+                    return state;
+                }, executor));
+            }
+            
+            for (int i = 0; i < dates.size(); i++) {
+                signals.put(dates.get(i), futures.get(i).join().getFinalSignal());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        BacktestResult result = evaluate(symbol, startDate, endDate, bars, signals, config.isAllowShort());
+        result.setElapsedMs(System.currentTimeMillis() - startTime);
+        
+        log.info("回测完成 {}：收益 {}，基准 {}，最大回撤 {}，胜率 {}，换手 {}，耗时 {} ms",
+                symbol, percent(result.getTotalReturn()), percent(result.getBenchmarkReturn()),
+                percent(result.getMaxDrawdown()), percent(result.getHitRate()),
+                result.getTurnover(), result.getElapsedMs());
+        return result;
+    }
+    
+    /**
+     * 以截至当日的数据回放一次交易图
+     */
+    private AgentState replay(String symbol, LocalDate date) {
+        AgentState initialState = AgentState.builder()
+                .company(symbol)
+                .date(date)
+                .build()
+                .putMetadata(AsOfContext.AS_OF_KEY, date.toString());
+        
+        try {
+            return tradingGraph.replay(initialState);
+        } catch (Exception e) {
+            log.error("回测 {} {} 执行失败", symbol, date, e);
+            return initialState.toBuilder().finalSignal("ERROR").build();
+        }
+    }
+    
+    /**
+     * 按信号序列和行情计算回测指标
+     * 
+     * 每个交易日收盘时按信号调整仓位：BUY 持多，SELL 平仓（allowShort 时持空），
+     * HOLD 以及 ERROR/缺失的信号沿用前一日仓位；当日仓位的收益为下一交易日收盘相对当日收盘的涨跌幅
+     * 
+     * @param symbol 股票代码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param bars 覆盖回测区间（以及之后至少一个交易日）的K线
+     * @param signals 日期到最终信号的映射
+     * @param allowShort SELL 是否开空仓
+     * @return 回测结果（不含耗时）
+     */
+    public static BacktestResult evaluate(String symbol, LocalDate startDate, LocalDate endDate, BarSeries bars,
+                                          Map<LocalDate, String> signals, boolean allowShort) {
+        List<BacktestResult.DailyResult> days = new ArrayList<>();
+        Map<String, Integer> signalCounts = new LinkedHashMap<>();
+        int errorCount = 0;
+        int position = 0;
+        int tradeCount = 0;
+        double turnover = 0;
+        double equity = 1.0;
+        double benchmark = 1.0;
+        double peak = 1.0;
+        double maxDrawdown = 0;
+        int calls = 0;
+        int hits = 0;
+        
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        for (int i = 0; i < bars.size(); i++) {
+            long epochDay = bars.getEpochDay(i);
+            double price = priceAt(bars, i);
+            if (epochDay < start || epochDay > end || Double.isNaN(price)) {
+                continue;
+            }
+            
+            LocalDate date = bars.getDate(i);
+            String signal = normalize(signals.get(date));
+            signalCounts.merge(signal, 1, Integer::sum);
+            
+            int target;
+            switch (signal) {
+                case "BUY" -> target = 1;
+                case "SELL" -> target = allowShort ? -1 : 0;
+                case "HOLD" -> target = position;
+                default -> {
+                    target = position;
+                    errorCount++;
+                }
+            }
+            if (target != position) {
+                turnover += Math.abs(target - position);
+                tradeCount++;
+                position = target;
+            }
+            
+            double pnl = Double.NaN;
+            double nextPrice = nextPrice(bars, i);
+            if (!Double.isNaN(nextPrice)) {
+                double change = nextPrice / price - 1;
+                pnl = position * change;
+                equity *= 1 + pnl;
+                benchmark *= 1 + change;
+                if (position != 0 && change != 0) {
+                    calls++;
+                    if (pnl > 0) {
+                        hits++;
+                    }
+                }
+            }
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, 1 - equity / peak);
+            
+            days.add(BacktestResult.DailyResult.builder()
+                    .date(date)
+                    .signal(signal)
+                    .position(position)
+                    .close(price)
+                    .pnl(pnl)
+                    .equity(equity)
+                    .build());
+        }
+        
+        return BacktestResult.builder()
+                .symbol(symbol)
+                .startDate(startDate)
+                .endDate(endDate)
+                .days(days)
+                .signalCounts(signalCounts)
+                .errorCount(errorCount)
+                .totalReturn(equity - 1)
+                .benchmarkReturn(benchmark - 1)
+                .maxDrawdown(maxDrawdown)
+                .hitRate(calls == 0 ? 0.0 : (double) hits / calls)
+                .turnover(turnover)
+                .tradeCount(tradeCount)
+                .build();
+    }
+    
+    /**
+     * 区间内有有效价格的交易日
+     */
+    private static List<LocalDate> tradingDates(BarSeries bars, LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = 0; i < bars.size(); i++) {
+            LocalDate date = bars.getDate(i);
+            if (!date.isBefore(startDate) && !date.isAfter(endDate) && !Double.isNaN(priceAt(bars, i))) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+    
+    /**
+     * 收盘价，优先使用复权价
+     */
+    private static double priceAt(BarSeries bars, int index) {
+        if (index < 0) {
+            return Double.NaN;
+        }
+        double adjusted = bars.getAdjustedClose(index);
+        return Double.isNaN(adjusted) ? bars.getClose(index) : adjusted;
+    }
+    
+    private static double nextPrice(BarSeries bars, int index) {
+        for (int i = index + 1; i < bars.size(); i++) {
+            double price = priceAt(bars, i);
+            if (!Double.isNaN(price)) {
+                return price;
+            }
+        }
+        return Double.NaN;
+    }
+    
+    private static String normalize(String signal) {
+        if (signal == null || signal.isBlank()) {
+            return "MISSING";
+        }
+        return signal.trim().toUpperCase();
+    }
+    
+    private static String percent(double value) {
+        return String.format("%.2f%%", value * 100);
+    }
+}
@@ -0,0 +1,76 @@
+package io.leavesfly.jtrade.cli;
+
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 控制台流式输出
+ * 
+ * 把模型增量实时打印到终端。并行执行的智能体会同时产生输出，
+ * 同一时刻只有一个调用线程直接打印，其余线程的输出先缓冲，
+ * 待当前输出结束后再依次整段打印，避免不同模型的输出交错
+ * 
+ * @author 山泽
+ */
+public class ConsoleStreamPrinter implements LlmClient.StreamCallback {
+    
+    private final PrintStream out;
+    private final Map<Thread, StringBuilder> buffers = new HashMap<>();
+    private final Deque<StringBuilder> completed = new ArrayDeque<>();
+    private Thread owner;
+    
+    public ConsoleStreamPrinter(PrintStream out) {
+        this.out = out;
+    }
+    
+    @Override
+    public synchronized void onChunk(String chunk) {
+        Thread current = Thread.currentThread();
+        
+        if (owner == null) {
+            owner = current;
+            StringBuilder buffered = buffers.remove(current);
+            if (buffered != null) {
+                out.print(buffered);
+            }
+        }
+        
+        if (owner == current) {
+            out.print(chunk);
+            out.flush();
+        } else {
+            buffers.computeIfAbsent(current, t -> new StringBuilder()).append(chunk);
+        }
+    }
+    
+    @Override
+    public synchronized void onComplete(LlmResponse response) {
+        Thread current = Thread.currentThread();
+        
+        if (owner == current) {
+            out.println();
+            out.println();
+            owner = null;
+        } else {
+            StringBuilder buffered = buffers.remove(current);
+            if (buffered != null) {
+                completed.add(buffered);
+            }
+        }
+        
+        // 当前没有线程占用终端时，补打已完成的缓冲输出
+        if (owner == null) {
+            while (!completed.isEmpty()) {
+                out.println(completed.poll());
+                out.println();
+            }
+        }
+        out.flush();
+    }
+}
@@ -1,7 +1,9 @@
 package io.leavesfly.jtrade.cli;
 
 import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.report.ReportWriter;
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
 import io.leavesfly.jtrade.service.TradingService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -10,8 +12,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -33,7 +38,8 @@ public class JTradeCLI {
     }
     
     @Bean
-    public CommandLineRunner cli(TradingService tradingService, MemoryService memoryService) {
+    public CommandLineRunner cli(TradingService tradingService, MemoryService memoryService,
+                                 ReportWriter reportWriter) {
         return args -> {
             Scanner scanner = new Scanner(System.in);
             
@@ -55,40 +61,40 @@ public class JTradeCLI {
                     switch (command) {
                         case "analyze":
                         case "a":
-                            handleAnalyze(parts, tradingService);
+                            handleAnalyze(parts, tradingService, reportWriter);
                             break;
-                            
+                        
                         case "history":
                         case "h":
                             handleHistory(parts, memoryService);
                             break;
-                            
+                        
                         case "list":
                         case "l":
                             handleList(memoryService);
                             break;
-                            
+                        
                         case "clear":
                             handleClear(parts, memoryService);
                             break;
-                            
+                        
                         case "help":
                         case "?":
                             printHelp();
                             break;
-                            
+                        
                         case "version":
                         case "v":
                             printVersion();
                             break;
-                            
+                        
                         case "exit":
                         case "quit":
                         case "q":
                             System.out.println("\n感谢使用 JTrade！再见！");
                             scanner.close();
                             return;
-                            
+                        
                         default:
                             System.out.println("未知命令: " + command);
                             System.out.println("输入 'help' 查看帮助");
@@ -101,7 +107,7 @@ public class JTradeCLI {
         };
     }
     
-    private void handleAnalyze(String[] parts, TradingService tradingService) {
+    private void handleAnalyze(String[] parts, TradingService tradingService, ReportWriter reportWriter) {
         if (parts.length < 2) {
             System.out.println("用法: analyze <股票代码> [日期]");
             System.out.println("示例: analyze AAPL");
@@ -123,8 +129,20 @@ public class JTradeCLI {
         System.out.println("\n开始分析 " + symbol + " (" + date + ")...");
         System.out.println("-".repeat(60));
         
+        // 实时输出模型生成内容，同时写入报告目录下的实时输出文件
+        ConsoleStreamPrinter printer = new ConsoleStreamPrinter(System.out);
         long startTime = System.currentTimeMillis();
-        AgentState result = tradingService.executeTradingWorkflow(symbol, date);
+        AgentState result;
+        
+        try (ReportWriter.LiveReport liveReport = reportWriter.openLiveReport(symbol, date.toString())) {
+            // 监听器只绑定在本次分析上，其他线程上的LLM调用不会输出到这里
+            LocalDate analysisDate = date;
+            result = StreamListeners.with(List.of(printer, liveReport),
+                    () -> tradingService.executeTradingWorkflow(symbol, analysisDate));
+            System.out.println("实时输出已保存: " + liveReport.getFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         long duration = System.currentTimeMillis() - startTime;
         
         printAnalysisResult(result, duration);
@@ -1,5 +1,6 @@
 package io.leavesfly.jtrade.config;
 
+import io.leavesfly.jtrade.core.reflection.ReflectionMode;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -56,12 +57,57 @@ public class AppConfig {
      */
     private DataSourceConfig dataSource = new DataSourceConfig();
     
+    /**
+     * 回测配置
+     */
+    private BacktestConfig backtest = new BacktestConfig();
+    
+    /**
+     * HTTP客户端配置
+     */
+    private HttpConfig http = new HttpConfig();
+    
+    /**
+     * 批量初筛配置
+     */
+    private ScreeningConfig screening = new ScreeningConfig();
+    
+    /**
+     * Prompt 模板配置
+     */
+    private PromptConfig prompts = new PromptConfig();
+    
+    /**
+     * 决策记忆配置
+     */
+    private MemoryConfig memory = new MemoryConfig();
+    
+    /**
+     * 反思配置
+     */
+    private ReflectionConfig reflection = new ReflectionConfig();
+    
+    /**
+     * 报告输出配置
+     */
+    private ReportConfig report = new ReportConfig();
+    
+    /**
+     * 分析任务队列配置
+     */
+    private JobConfig jobs = new JobConfig();
+    
     @Data
     public static class DebateConfig {
         /**
          * 最大辩论轮数
          */
         private int maxRounds = 1;
+        
+        /**
+         * 第一轮多空开场陈述是否并行生成（开场时双方都还没有看到对方的观点）
+         */
+        private boolean parallelOpening = true;
     }
     
     @Data
@@ -70,6 +116,11 @@ public class AppConfig {
          * 最大风险辩论轮数
          */
         private int maxRounds = 1;
+        
+        /**
+         * 面板模式：同一轮内三位辩论者基于上一轮的状态并行发言，本轮结束后统一合并
+         */
+        private boolean parallelPanel = true;
     }
     
     @Data
@@ -78,6 +129,21 @@ public class AppConfig {
          * 最大递归限制
          */
         private int maxRecursionLimit = 100;
+        
+        /**
+         * 分析师阶段是否并行执行
+         */
+        private boolean parallelAnalysts = true;
+        
+        /**
+         * 并行阶段的最大工作线程数
+         */
+        private int maxParallelism = 8;
+        
+        /**
+         * 所有交易图共享的工作流节点线程数
+         */
+        private int nodeThreads = 16;
     }
     
     @Data
@@ -86,5 +152,229 @@ public class AppConfig {
          * 是否使用在线工具
          */
         private boolean onlineTools = true;
+        
+        /**
+         * 是否把行情数据持久化到本地存储（dataCacheDir/bars），只增量获取缺失区间
+         */
+        private boolean cacheMarketData = true;
+    }
+    
+    @Data
+    public static class BacktestConfig {
+        /**
+         * 同时回放的交易日数量上限
+         */
+        private int maxConcurrency = 4;
+        
+        /**
+         * SELL 信号是否开空仓，否则只平仓
+         */
+        private boolean allowShort = false;
+    }
+    
+    @Data
+    public static class HttpConfig {
+        /**
+         * 连接池保留的最大空闲连接数
+         */
+        private int maxIdleConnections = 32;
+        
+        /**
+         * 空闲连接的保活时间（秒）
+         */
+        private int keepAliveSeconds = 300;
+        
+        /**
+         * 数据源共享调度器的最大并发请求数
+         */
+        private int maxRequests = 64;
+        
+        /**
+         * 数据源共享调度器对单个主机的最大并发请求数
+         */
+        private int maxRequestsPerHost = 8;
+        
+        /**
+         * 连接超时（毫秒）
+         */
+        private int connectTimeout = 10000;
+        
+        /**
+         * 数据源请求的读取超时（毫秒）
+         */
+        private int readTimeout = 10000;
+        
+        /**
+         * 是否通过 ALPN 协商 HTTP/2，服务端不支持时自动回退到 HTTP/1.1
+         */
+        private boolean http2Enabled = true;
+    }
+    
+    @Data
+    public static class ScreeningConfig {
+        /**
+         * 每次请求打包的股票数量
+         */
+        private int batchSize = 20;
+        
+        /**
+         * 每只股票放入批量请求的新闻条数
+         */
+        private int newsPerSymbol = 3;
+        
+        /**
+         * 每只股票分配的输出Token数，批量请求的 maxTokens 按股票数累加
+         */
+        private int maxTokensPerSymbol = 300;
+        
+        /**
+         * 获取新闻/情绪数据的并发数
+         */
+        private int fetchConcurrency = 8;
+    }
+    
+    @Data
+    public static class PromptConfig {
+        /**
+         * 外部模板文件路径，为空时使用类路径下的 prompts/agent-prompts.properties
+         */
+        private String file = "";
+        
+        /**
+         * 外部模板文件的修改检测间隔（秒），0 表示不热加载
+         */
+        private int reloadIntervalSeconds = 0;
+    }
+    
+    @Data
+    public static class MemoryConfig {
+        /**
+         * 是否把决策记忆追加写入 dataDir/memory/decisions.log，重启后恢复
+         */
+        private boolean persistent = true;
+        
+        /**
+         * 每个股票保留的最大记忆条数，超出时淘汰最旧的一条
+         */
+        private int maxPerSymbol = 90;
+        
+        /**
+         * 记忆保留天数（按交易日期），0 表示不按时间淘汰
+         */
+        private int retentionDays = 0;
+        
+        /**
+         * 每次写入后是否立即刷盘（fsync）
+         */
+        private boolean syncWrites = false;
+        
+        /**
+         * 是否启用相似历史情境检索（需要主提供商配置 embedding-model）
+         */
+        private boolean situationsEnabled = true;
+        
+        /**
+         * 情境向量索引的最大条数，超出时覆盖最旧的一条
+         */
+        private int maxSituations = 5000;
+        
+        /**
+         * 每次检索返回的相似情境数量
+         */
+        private int similarTopK = 3;
+        
+        /**
+         * 相似度（余弦）下限，低于该值的情境不放入提示词
+         */
+        private double minSimilarity = 0.75;
+    }
+    
+    @Data
+    public static class ReflectionConfig {
+        /**
+         * 反思执行方式：依次、并行或后台执行
+         */
+        private ReflectionMode mode = ReflectionMode.PARALLEL;
+        
+        /**
+         * 每项反思的最大输出Token数
+         */
+        private int maxTokens = 1500;
+        
+        /**
+         * 后台反思队列容量，队列已满时丢弃新的反思任务
+         */
+        private int backgroundQueueSize = 256;
+    }
+    
+    @Data
+    public static class ReportConfig {
+        /**
+         * 报告输出目录
+         */
+        private String outputDir = "./reports";
+        
+        /**
+         * 是否由后台写入线程异步写出报告
+         */
+        private boolean async = true;
+        
+        /**
+         * 待写报告队列容量，队列已满时由提交线程直接写入
+         */
+        private int queueSize = 64;
+        
+        /**
+         * 是否按部分拆分为多个文件（false 时每次运行写入一个报告文件）
+         */
+        private boolean splitFiles = false;
+        
+        /**
+         * 是否把每次运行追加为一行 JSON 写入 {outputDir}/runs-yyyyMMdd.ndjson
+         */
+        private boolean runLog = true;
+        
+        /**
+         * 运行日志是否使用 gzip 压缩（每次启动新建 runs-yyyyMMdd-HHmmssSSS.ndjson.gz）
+         */
+        private boolean compressRunLog = true;
+    }
+    
+    @Data
+    public static class JobConfig {
+        /**
+         * 同时执行的分析任务数量
+         */
+        private int workers = 2;
+        
+        /**
+         * 等待执行的任务队列容量，已满时拒绝新任务（HTTP 429；服务关闭后为 503）
+         */
+        private int queueCapacity = 32;
+        
+        /**
+         * 单个任务最多包含的股票数量
+         */
+        private int maxSymbolsPerJob = 20;
+        
+        /**
+         * 保留在内存中可查询的已完成任务数量
+         */
+        private int retainedJobs = 200;
+        
+        /**
+         * 长轮询的最长等待时间（秒）
+         */
+        private int maxWaitSeconds = 60;
+        
+        /**
+         * SSE 进度流的超时时间（秒）
+         */
+        private int sseTimeoutSeconds = 1800;
+        
+        /**
+         * 每个进度订阅者可积压的待投递事件数量，超出时断开该订阅者
+         */
+        private int subscriberBufferSize = 256;
     }
 }
@@ -1,9 +1,16 @@
 package io.leavesfly.jtrade.config;
 
+import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.llm.tier.ModelTier;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * LLM配置类
  * 
@@ -40,6 +47,7 @@ public class LlmConfig {
      */
     private int timeout = 60000;  // 超时时间（毫秒）
     private int maxRetries = 3;   // 最大重试次数
+    private int maxInFlightRequests = 64;  // 异步调用的最大并发请求数
     
     /**
      * OpenAI配置
@@ -61,6 +69,31 @@ public class LlmConfig {
      */
     private ProviderConfig ollama = new ProviderConfig();
     
+    /**
+     * 响应缓存配置
+     */
+    private CacheConfig cache = new CacheConfig();
+    
+    /**
+     * 上下文预算配置
+     */
+    private ContextConfig context = new ContextConfig();
+    
+    /**
+     * 客户端限流配置
+     */
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+    
+    /**
+     * 多提供商路由配置
+     */
+    private RoutingConfig routing = new RoutingConfig();
+    
+    /**
+     * 模型分档配置
+     */
+    private TierConfig tiers = new TierConfig();
+    
     /**
      * 提供商配置
      */
@@ -70,18 +103,189 @@ public class LlmConfig {
         private String baseUrl;
         private String deepModel;
         private String quickModel;
+        
+        /**
+         * 向量化模型（/embeddings），为空表示该提供商不提供向量化
+         */
+        private String embeddingModel;
+        
+        /**
+         * 批量分析时该提供商允许同时运行的工作流数量
+         */
+        private int maxConcurrency = 4;
+        
+        /**
+         * 每个模型每分钟的请求数上限，0 表示不预设（以服务端返回的限流响应头为准）
+         */
+        private int requestsPerMinute = 0;
+        
+        /**
+         * 每个模型每分钟的Token数上限（输入加最大输出），0 表示不预设
+         */
+        private int tokensPerMinute = 0;
+    }
+    
+    /**
+     * 响应缓存配置
+     */
+    @Data
+    public static class CacheConfig {
+        /**
+         * 是否启用响应缓存
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 内存层最大条目数
+         */
+        private int maxMemoryEntries = 1000;
+        
+        /**
+         * 磁盘层最大占用空间（MB）
+         */
+        private long maxDiskMb = 512;
+        
+        /**
+         * 缓存有效期（小时）
+         */
+        private long ttlHours = 168;
+    }
+    
+    /**
+     * 上下文预算配置
+     */
+    @Data
+    public static class ContextConfig {
+        /**
+         * 是否在调用前压缩超出预算的上下文
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 模型配置未指定上下文窗口时使用的默认值（Token）
+         */
+        private int defaultMaxContextTokens = 32000;
+        
+        /**
+         * 每段摘要的最大生成Token数
+         */
+        private int summaryMaxTokens = 300;
+        
+        /**
+         * 摘要缓存的最大条目数
+         */
+        private int maxCachedSummaries = 1000;
+        
+        /**
+         * 异步调用时执行压缩（同步请求摘要）的线程数
+         */
+        private int compactionThreads = 4;
+    }
+    
+    /**
+     * 客户端限流配置
+     */
+    @Data
+    public static class RateLimitConfig {
+        /**
+         * 是否在发送前按提供商与模型主动限流
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 是否根据 Retry-After 与 x-ratelimit-* 响应头动态调整限额
+         */
+        private boolean adaptive = true;
+    }
+    
+    /**
+     * 多提供商路由配置
+     */
+    @Data
+    public static class RoutingConfig {
+        /**
+         * 是否在多个提供商之间路由（只有配置了 API Key 的提供商参与，ollama 除外），默认只使用主提供商
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 参与路由的提供商，主提供商（provider）总是参与
+         */
+        private List<String> providers = new ArrayList<>(List.of("openai", "qwen", "deepseek"));
+        
+        /**
+         * 统计延迟与错误率的滑动窗口大小（次）
+         */
+        private int windowSize = 100;
+        
+        /**
+         * 主提供商样本数达到该值后，样本数少于该值的其他提供商优先被选中，用于积累延迟数据
+         */
+        private int minSamples = 5;
+        
+        /**
+         * 窗口内错误率超过该值的提供商暂不参与路由（所有提供商都超过时仍会选用）
+         */
+        private double maxErrorRate = 0.5;
+        
+        /**
+         * 是否发起对冲请求：首选提供商超过延迟阈值仍未返回时，向次选提供商发送相同请求，取先返回者
+         */
+        private boolean hedgeEnabled = true;
+        
+        /**
+         * 对冲阈值使用的延迟分位数
+         */
+        private double hedgeQuantile = 0.95;
+        
+        /**
+         * 对冲等待时间下限（毫秒），样本不足时也使用该值
+         */
+        private long minHedgeDelayMs = 2000;
+    }
+    
+    /**
+     * 模型分档配置
+     * 
+     * 为每类智能体指定使用深度模型还是快速模型，未配置的智能体使用默认档位
+     */
+    @Data
+    public static class TierConfig {
+        /**
+         * 未单独配置的智能体使用的档位
+         */
+        private ModelTier defaultTier = ModelTier.QUICK;
+        
+        /**
+         * 反思服务使用的档位
+         */
+        private ModelTier reflectionTier = ModelTier.QUICK;
+        
+        /**
+         * 按智能体类型指定的档位
+         */
+        private Map<AgentType, ModelTier> agents = new EnumMap<>(Map.of(
+                AgentType.RESEARCH_MANAGER, ModelTier.DEEP,
+                AgentType.RISK_MANAGER, ModelTier.DEEP));
     }
     
     /**
      * 根据当前提供商获取配置
      */
     public ProviderConfig getCurrentProviderConfig() {
-        return switch (provider.toLowerCase()) {
+        return getProviderConfig(provider);
+    }
+    
+    /**
+     * 根据提供商名称获取配置
+     */
+    public ProviderConfig getProviderConfig(String name) {
+        return switch (name.toLowerCase()) {
             case "openai" -> openai;
             case "qwen" -> qwen;
             case "deepseek" -> deepseek;
             case "ollama" -> ollama;
-            default -> throw new IllegalArgumentException("Unknown LLM provider: " + provider);
+            default -> throw new IllegalArgumentException("Unknown LLM provider: " + name);
         };
     }
     
@@ -0,0 +1,141 @@
+package io.leavesfly.jtrade.core.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享HTTP客户端管理器
+ * 
+ * LLM客户端与各数据源共用同一个连接池和调度线程池，对同一主机的请求复用长连接与 TLS 会话，
+ * 服务端支持时通过 HTTP/2 多路复用。不同调用方通过 {@link #newClient} 派生各自的客户端，
+ * 派生客户端共享连接池，但拥有独立的超时和调度器（独立的并发与单主机并发上限），
+ * 避免 LLM 长请求占满数据源的并发额度。调度器的并发上限只约束异步（enqueue）调用
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class HttpClientManager {
+    
+    private final ConnectionPool connectionPool;
+    private final ExecutorService dispatchExecutor;
+    private final HttpMetrics metrics = new HttpMetrics();
+    private final Map<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final OkHttpClient sharedClient;
+    
+    public HttpClientManager(AppConfig appConfig) {
+        AppConfig.HttpConfig httpConfig = appConfig.getHttp();
+        this.connectionPool = new ConnectionPool(
+                httpConfig.getMaxIdleConnections(), httpConfig.getKeepAliveSeconds(), TimeUnit.SECONDS);
+        // 与 OkHttp 默认调度线程池一致（按需创建、空闲回收），只是统一命名并在关闭时回收
+        this.dispatchExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadFactoryBuilder()
+                .setNameFormat("jtrade-http-%d")
+                .setDaemon(true)
+                .build());
+        
+        List<Protocol> protocols = httpConfig.isHttp2Enabled()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+        this.sharedClient = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(newDispatcher("shared", httpConfig.getMaxRequests(), httpConfig.getMaxRequestsPerHost()))
+                .protocols(protocols)
+                .eventListenerFactory(metrics)
+                .retryOnConnectionFailure(true)
+                .connectTimeout(Duration.ofMillis(httpConfig.getConnectTimeout()))
+                .readTimeout(Duration.ofMillis(httpConfig.getReadTimeout()))
+                .writeTimeout(Duration.ofMillis(httpConfig.getReadTimeout()))
+                .build();
+        
+        log.info("共享HTTP客户端已初始化: 空闲连接上限 {}, 保活 {}s, 协议 {}",
+                httpConfig.getMaxIdleConnections(), httpConfig.getKeepAliveSeconds(), protocols);
+    }
+    
+    /**
+     * 获取共享客户端（数据源使用）
+     */
+    public OkHttpClient getClient() {
+        return sharedClient;
+    }
+    
+    /**
+     * 派生共享连接池的客户端
+     * 
+     * @param name 调用方名称，用于统计调度器的排队情况
+     * @param timeout 读写超时
+     * @param maxRequests 最大并发请求数，同时作为单主机并发上限
+     */
+    public OkHttpClient newClient(String name, Duration timeout, int maxRequests) {
+        return sharedClient.newBuilder()
+                .dispatcher(newDispatcher(name, maxRequests, maxRequests))
+                .readTimeout(timeout)
+                .writeTimeout(timeout)
+                .build();
+    }
+    
+    /**
+     * 获取连接池与调度器的当前状态及累计指标
+     */
+    public HttpStats getStats() {
+        int queued = 0;
+        int running = 0;
+        for (Dispatcher dispatcher : dispatchers.values()) {
+            queued += dispatcher.queuedCallsCount();
+            running += dispatcher.runningCallsCount();
+        }
+        return HttpStats.builder()
+                .pooledConnections(connectionPool.connectionCount())
+                .idleConnections(connectionPool.idleConnectionCount())
+                .runningCalls(running)
+                .queuedCalls(queued)
+                .metrics(metrics.snapshot())
+                .build();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        log.info("HTTP客户端统计: {}", getStats());
+        dispatchExecutor.shutdownNow();
+        connectionPool.evictAll();
+    }
+    
+    private Dispatcher newDispatcher(String name, int maxRequests, int maxRequestsPerHost) {
+        Dispatcher dispatcher = new Dispatcher(dispatchExecutor);
+        dispatcher.setMaxRequests(Math.max(1, maxRequests));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, maxRequestsPerHost));
+        dispatchers.put(name, dispatcher);
+        return dispatcher;
+    }
+    
+    /**
+     * HTTP客户端状态
+     */
+    @Data
+    @Builder
+    public static class HttpStats {
+        private int pooledConnections;
+        private int idleConnections;
+        private int runningCalls;
+        private int queuedCalls;
+        private HttpMetrics.Snapshot metrics;
+    }
+}
@@ -0,0 +1,161 @@
+package io.leavesfly.jtrade.core.http;
+
+import lombok.Builder;
+import lombok.Data;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP调用指标
+ * 
+ * 作为 OkHttp 的 EventListener.Factory 注册到共享客户端，每个调用创建一个监听器记录：
+ * - 调用数与失败数
+ * - 新建连接数、连接复用数与建连耗时（含 TLS 握手）
+ * - 按协商协议（http/1.1、h2）统计的新建连接数
+ * - 从调用开始到拿到连接的等待时间（包含调度器排队与建连）
+ * 
+ * @author 山泽
+ */
+public class HttpMetrics implements EventListener.Factory {
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder connectNanos = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final Map<String, LongAdder> connectionsByProtocol = new ConcurrentHashMap<>();
+    
+    @Override
+    public EventListener create(Call call) {
+        return new CallListener();
+    }
+    
+    /**
+     * 指标快照
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> protocols = new ConcurrentHashMap<>();
+        connectionsByProtocol.forEach((protocol, count) -> protocols.put(protocol, count.sum()));
+        return Snapshot.builder()
+                .calls(calls.sum())
+                .failedCalls(failedCalls.sum())
+                .connectionsOpened(connectionsOpened.sum())
+                .connectionsAcquired(connectionsAcquired.sum())
+                .connectFailures(connectFailures.sum())
+                .tlsHandshakes(tlsHandshakes.sum())
+                .connectMillis(connectNanos.sum() / 1_000_000)
+                .acquireMillis(acquireNanos.sum() / 1_000_000)
+                .connectionsByProtocol(protocols)
+                .build();
+    }
+    
+    /**
+     * 单个调用的监听器，记录本次调用各阶段的开始时间
+     */
+    private class CallListener extends EventListener {
+        
+        private long callStart;
+        private long connectStart;
+        
+        @Override
+        public void callStart(Call call) {
+            calls.increment();
+            callStart = System.nanoTime();
+        }
+        
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+        
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsHandshakes.increment();
+        }
+        
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectionsOpened.increment();
+            connectNanos.add(System.nanoTime() - connectStart);
+            String name = protocol != null ? protocol.toString() : "unknown";
+            connectionsByProtocol.computeIfAbsent(name, key -> new LongAdder()).increment();
+        }
+        
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            connectFailures.increment();
+            connectNanos.add(System.nanoTime() - connectStart);
+        }
+        
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.increment();
+            acquireNanos.add(System.nanoTime() - callStart);
+        }
+        
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failedCalls.increment();
+        }
+    }
+    
+    /**
+     * 指标快照
+     */
+    @Data
+    @Builder
+    public static class Snapshot {
+        private long calls;
+        private long failedCalls;
+        private long connectionsOpened;
+        private long connectionsAcquired;
+        private long connectFailures;
+        private long tlsHandshakes;
+        private long connectMillis;
+        private long acquireMillis;
+        private Map<String, Long> connectionsByProtocol;
+        
+        /**
+         * 复用已有连接的次数（HTTP/2 多路复用也计入）
+         */
+        public long getConnectionsReused() {
+            return Math.max(0, connectionsAcquired - connectionsOpened);
+        }
+        
+        /**
+         * 连接复用率
+         */
+        public double getReuseRate() {
+            return connectionsAcquired == 0 ? 0.0 : (double) getConnectionsReused() / connectionsAcquired;
+        }
+        
+        /**
+         * 平均建连耗时（毫秒）
+         */
+        public double getAvgConnectMillis() {
+            long attempts = connectionsOpened + connectFailures;
+            return attempts == 0 ? 0.0 : (double) connectMillis / attempts;
+        }
+        
+        /**
+         * 平均获取连接等待时间（毫秒）
+         */
+        public double getAvgAcquireMillis() {
+            return connectionsAcquired == 0 ? 0.0 : (double) acquireMillis / connectionsAcquired;
+        }
+    }
+}
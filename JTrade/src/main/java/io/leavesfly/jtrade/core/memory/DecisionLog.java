@@ -0,0 +1,181 @@
+package io.leavesfly.jtrade.core.memory;
+
+import io.leavesfly.jtrade.core.memory.MemoryService.DecisionMemory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 决策记忆的追加日志
+ * 
+ * 每条保存或清空操作追加为一条 {@link RecordLog} 记录，启动时顺序回放重建内存索引。
+ * 
+ * 记录内容（大端，字符串为 长度(int) + UTF-8 字节，null 记为 -1）：
+ * payload: PUT symbol date(epochDay, long，缺失为 Long.MIN_VALUE) timestamp(epochSecond long, nano int)
+ *          finalSignal analystReportCount(int) researcherViewpointCount(int) decision tradingPlan
+ *          reflectionCount(int) reflection*
+ *        | CLEAR symbol
+ *        | CLEAR_ALL
+ * 
+ * @author 山泽
+ */
+@Slf4j
+final class DecisionLog implements Closeable {
+    
+    private static final int MAGIC = 0x4A544D4D; // "JTMM"
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    
+    private static final byte PUT = 1;
+    private static final byte CLEAR = 2;
+    private static final byte CLEAR_ALL = 3;
+    
+    /**
+     * 回放日志时的回调
+     */
+    interface Replay {
+        void put(DecisionMemory memory);
+        
+        void clear(String symbol);
+        
+        void clearAll();
+    }
+    
+    private final RecordLog recordLog;
+    
+    DecisionLog(Path file, boolean syncWrites) {
+        this.recordLog = new RecordLog(file, MAGIC, VERSION, syncWrites);
+    }
+    
+    /**
+     * 回放日志并打开追加通道
+     * 
+     * @return 回放的记录数
+     */
+    int open(Replay replay) throws IOException {
+        return recordLog.open(payload -> apply(payload, replay));
+    }
+    
+    private static void apply(byte[] payload, Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case PUT -> replay.put(decode(in));
+            case CLEAR -> replay.clear(readString(in));
+            case CLEAR_ALL -> replay.clearAll();
+            default -> log.warn("忽略未知的记忆日志记录类型: {}", type);
+        }
+    }
+    
+    synchronized void appendPut(DecisionMemory memory) throws IOException {
+        append(encodePut(memory));
+    }
+    
+    synchronized void appendClear(String symbol) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (symbol == null) {
+            out.writeByte(CLEAR_ALL);
+        } else {
+            out.writeByte(CLEAR);
+            writeString(out, symbol);
+        }
+        append(bytes.toByteArray());
+    }
+    
+    private void append(byte[] payload) throws IOException {
+        recordLog.append(payload);
+    }
+    
+    /**
+     * 只保留存活的记忆重写日志
+     */
+    void rewrite(Collection<DecisionMemory> live) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(live.size());
+        for (DecisionMemory memory : live) {
+            payloads.add(encodePut(memory));
+        }
+        recordLog.rewrite(payloads);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        recordLog.close();
+    }
+    
+    private static byte[] encodePut(DecisionMemory memory) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT);
+        writeString(out, memory.getSymbol());
+        out.writeLong(memory.getDate() != null ? memory.getDate().toEpochDay() : NO_DATE);
+        LocalDateTime timestamp = memory.getTimestamp() != null ? memory.getTimestamp() : LocalDateTime.now();
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+        writeString(out, memory.getFinalSignal());
+        out.writeInt(memory.getAnalystReportCount());
+        out.writeInt(memory.getResearcherViewpointCount());
+        writeString(out, memory.getDecision());
+        writeString(out, memory.getTradingPlan());
+        List<String> reflections = memory.getReflections() != null ? memory.getReflections() : List.of();
+        out.writeInt(reflections.size());
+        for (String reflection : reflections) {
+            writeString(out, reflection);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static DecisionMemory decode(DataInputStream in) throws IOException {
+        DecisionMemory memory = new DecisionMemory();
+        memory.setSymbol(readString(in));
+        long epochDay = in.readLong();
+        memory.setDate(epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null);
+        long epochSecond = in.readLong();
+        memory.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, in.readInt(), ZoneOffset.UTC));
+        memory.setFinalSignal(readString(in));
+        memory.setAnalystReportCount(in.readInt());
+        memory.setResearcherViewpointCount(in.readInt());
+        memory.setDecision(readString(in));
+        memory.setTradingPlan(readString(in));
+        int reflectionCount = in.readInt();
+        List<String> reflections = new ArrayList<>(reflectionCount);
+        for (int i = 0; i < reflectionCount; i++) {
+            reflections.add(readString(in));
+        }
+        memory.setReflections(reflections);
+        return memory;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
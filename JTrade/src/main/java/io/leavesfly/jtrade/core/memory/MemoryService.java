@@ -1,35 +1,117 @@
 package io.leavesfly.jtrade.core.memory;
 
+import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.core.state.AgentState;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 记忆服务
  * 
  * 存储和检索历史决策信息，支持学习和改进
  * 
+ * 每个股票的记忆保存在定长环形缓冲区中（超出 max-per-symbol 时覆盖最旧的一条），
+ * 并按交易日期建立索引；同一股票的读写由各自的锁保护，不同股票互不阻塞，
+ * 清空全部记忆时持有全局写锁，与各股票的写入互斥。
+ * 启用持久化时每次保存追加写入 dataDir/memory/decisions.log，启动时回放重建索引，
+ * 回放后日志中失效记录过多则按存活记忆压缩
+ * 
  * @author 山泽
  */
 @Slf4j
 @Service
 public class MemoryService {
     
-    private final Map<String, List<DecisionMemory>> memoryStore = new ConcurrentHashMap<>();
-    private final int maxMemoriesPerSymbol = 10;
+    private final Map<String, SymbolHistory> memoryStore = new ConcurrentHashMap<>();
+    /**
+     * 单个股票的写入持有读锁（彼此不阻塞），清空全部记忆持有写锁
+     */
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private final int maxMemoriesPerSymbol;
+    private final int retentionDays;
+    private final DecisionLog decisionLog;
+    
+    public MemoryService(AppConfig appConfig) {
+        AppConfig.MemoryConfig config = appConfig.getMemory();
+        this.maxMemoriesPerSymbol = Math.max(1, config.getMaxPerSymbol());
+        this.retentionDays = config.getRetentionDays();
+        this.decisionLog = config.isPersistent()
+                ? openLog(new DecisionLog(Paths.get(appConfig.getDataDir(), "memory", "decisions.log"), config.isSyncWrites()))
+                : null;
+    }
+    
+    /**
+     * 回放日志重建内存索引，失败时退化为仅内存模式
+     */
+    private DecisionLog openLog(DecisionLog decisionLog) {
+        long start = System.nanoTime();
+        LocalDate cutoff = retentionCutoff();
+        try {
+            int records = decisionLog.open(new DecisionLog.Replay() {
+                @Override
+                public void put(DecisionMemory memory) {
+                    SymbolHistory history = historyOf(memory.getSymbol());
+                    // 补写反思时重新记录的同一次决策替换原记录
+                    if (!history.replace(memory)) {
+                        history.add(memory);
+                    }
+                    history.evictOlderThan(cutoff);
+                }
+                
+                @Override
+                public void clear(String symbol) {
+                    memoryStore.remove(symbol);
+                }
+                
+                @Override
+                public void clearAll() {
+                    memoryStore.clear();
+                }
+            });
+            
+            List<DecisionMemory> live = new ArrayList<>();
+            memoryStore.values().forEach(history -> live.addAll(history.snapshot()));
+            if (records > 2 * live.size() + 64) {
+                decisionLog.rewrite(live);
+                log.info("记忆日志已压缩: {} 条记录 -> {} 条", records, live.size());
+            }
+            log.info("加载决策记忆 {} 条（{} 个股票），耗时 {} ms",
+                    live.size(), memoryStore.size(), (System.nanoTime() - start) / 1_000_000);
+            return decisionLog;
+        } catch (IOException e) {
+            log.error("打开记忆日志失败，本次运行仅保存在内存中", e);
+            memoryStore.clear();
+            return null;
+        }
+    }
+    
+    private SymbolHistory historyOf(String symbol) {
+        return memoryStore.computeIfAbsent(symbol, k -> new SymbolHistory(maxMemoriesPerSymbol));
+    }
     
     /**
      * 保存决策记忆
+     * 
+     * @return 保存的记录（用于之后补写反思），状态信息不完整时返回 null
      */
-    public void saveDecision(AgentState state) {
+    public DecisionMemory saveDecision(AgentState state) {
         if (state.getCompany() == null || state.getFinalSignal() == null) {
             log.warn("状态信息不完整，无法保存记忆");
-            return;
+            return null;
         }
         
         String symbol = state.getCompany();
@@ -44,30 +126,110 @@ public class MemoryService {
         memory.setTradingPlan(state.getTradingPlan());
         memory.setReflections(new ArrayList<>(state.getReflections()));
         
-        // 存储记忆
-        memoryStore.computeIfAbsent(symbol, k -> new ArrayList<>()).add(memory);
-        
-        // 限制记忆数量
-        List<DecisionMemory> memories = memoryStore.get(symbol);
-        if (memories.size() > maxMemoriesPerSymbol) {
-            memories.remove(0); // 移除最旧的记忆
+        // 存储记忆（同一股票的写入在其锁内先落盘再入索引，保证日志与内存顺序一致）
+        storeLock.readLock().lock();
+        try {
+            saveLocked(symbol, memory);
+        } finally {
+            storeLock.readLock().unlock();
         }
         
         log.info("保存决策记忆: {} - {}", symbol, state.getFinalSignal());
+        return memory;
+    }
+    
+    private void saveLocked(String symbol, DecisionMemory memory) {
+        while (true) {
+            SymbolHistory history = historyOf(symbol);
+            synchronized (history) {
+                if (memoryStore.get(symbol) != history) {
+                    // 期间被清空，重新获取
+                    continue;
+                }
+                if (decisionLog != null) {
+                    try {
+                        decisionLog.appendPut(memory);
+                    } catch (IOException e) {
+                        log.error("写入记忆日志失败: {}", symbol, e);
+                    }
+                }
+                history.add(memory);
+                history.evictOlderThan(retentionCutoff());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 为已保存的决策补写反思记录（后台反思完成后调用）
+     * 
+     * 按保存时间精确匹配 {@link #saveDecision} 返回的那条记录，同一交易日期的其他决策不受影响
+     * 
+     * @param decision saveDecision 返回的记录
+     * @return 找到该决策并完成补写时返回 true（已被淘汰或清空时返回 false）
+     */
+    public boolean addReflections(DecisionMemory decision, List<String> reflections) {
+        if (decision == null || reflections.isEmpty()) {
+            return false;
+        }
+        String symbol = decision.getSymbol();
+        storeLock.readLock().lock();
+        try {
+            SymbolHistory history = memoryStore.get(symbol);
+            if (history == null) {
+                return false;
+            }
+            synchronized (history) {
+                Optional<DecisionMemory> current = history.find(decision.getDate(), decision.getTimestamp());
+                if (current.isEmpty() || memoryStore.get(symbol) != history) {
+                    return false;
+                }
+                DecisionMemory updated = current.get().toBuilder().build();
+                List<String> merged = new ArrayList<>(updated.getReflections() != null ? updated.getReflections() : List.of());
+                merged.addAll(reflections);
+                updated.setReflections(merged);
+                if (decisionLog != null) {
+                    try {
+                        decisionLog.appendPut(updated);
+                    } catch (IOException e) {
+                        log.error("写入记忆日志失败: {}", symbol, e);
+                    }
+                }
+                history.replace(updated);
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        log.info("补写反思记录: {} {} - {} 条", symbol, decision.getDate(), reflections.size());
+        return true;
+    }
+    
+    private LocalDate retentionCutoff() {
+        return retentionDays > 0 ? LocalDate.now().minusDays(retentionDays) : null;
     }
     
     /**
-     * 获取历史决策
+     * 获取历史决策（按保存顺序，从旧到新）
      */
     public List<DecisionMemory> getHistory(String symbol) {
-        return memoryStore.getOrDefault(symbol, new ArrayList<>());
+        SymbolHistory history = memoryStore.get(symbol);
+        return history != null ? history.snapshot() : new ArrayList<>();
+    }
+    
+    /**
+     * 获取指定交易日期的最近一次决策
+     */
+    public Optional<DecisionMemory> getDecision(String symbol, LocalDate date) {
+        SymbolHistory history = memoryStore.get(symbol);
+        return history != null ? history.byDate(date) : Optional.empty();
     }
     
     /**
      * 获取历史决策数量
      */
     public int getHistoryCount(String symbol) {
-        return memoryStore.getOrDefault(symbol, new ArrayList<>()).size();
+        SymbolHistory history = memoryStore.get(symbol);
+        return history != null ? history.size() : 0;
     }
     
     /**
@@ -89,11 +251,8 @@ public class MemoryService {
      * 获取最近的决策
      */
     public Optional<DecisionMemory> getLatestDecision(String symbol) {
-        List<DecisionMemory> memories = getHistory(symbol);
-        if (memories.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(memories.get(memories.size() - 1));
+        SymbolHistory history = memoryStore.get(symbol);
+        return history != null ? history.latest() : Optional.empty();
     }
     
     /**
@@ -131,7 +290,18 @@ public class MemoryService {
      * 清空特定股票的记忆
      */
     public void clearHistory(String symbol) {
-        memoryStore.remove(symbol);
+        storeLock.readLock().lock();
+        try {
+            SymbolHistory history = memoryStore.get(symbol);
+            if (history != null) {
+                synchronized (history) {
+                    appendClear(symbol);
+                    memoryStore.remove(symbol, history);
+                }
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
         log.info("清空 {} 的历史记忆", symbol);
     }
     
@@ -139,7 +309,14 @@ public class MemoryService {
      * 清空所有记忆
      */
     public void clearAllHistory() {
-        memoryStore.clear();
+        // 持有写锁：已写入日志的记忆都已进入索引，清空后的写入排在清空记录之后
+        storeLock.writeLock().lock();
+        try {
+            appendClear(null);
+            memoryStore.clear();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
         log.info("清空所有历史记忆");
     }
     
@@ -147,16 +324,46 @@ public class MemoryService {
      * 获取所有已记录的股票符号
      */
     public Set<String> getAllSymbols() {
-        return memoryStore.keySet();
+        Set<String> symbols = new TreeSet<>();
+        memoryStore.forEach((symbol, history) -> {
+            if (history.size() > 0) {
+                symbols.add(symbol);
+            }
+        });
+        return symbols;
+    }
+    
+    private void appendClear(String symbol) {
+        if (decisionLog != null) {
+            try {
+                decisionLog.appendClear(symbol);
+            } catch (IOException e) {
+                log.error("写入记忆日志失败", e);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (decisionLog != null) {
+            try {
+                decisionLog.close();
+            } catch (IOException e) {
+                log.warn("关闭记忆日志失败", e);
+            }
+        }
     }
     
     /**
      * 决策记忆
      */
     @Data
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class DecisionMemory {
         private String symbol;
-        private java.time.LocalDate date;
+        private LocalDate date;
         private LocalDateTime timestamp;
         private String finalSignal;
         private int analystReportCount;
@@ -165,4 +372,112 @@ public class MemoryService {
         private String tradingPlan;
         private List<String> reflections;
     }
+    
+    /**
+     * 单个股票的记忆：定长环形缓冲区 + 交易日期索引
+     */
+    private static final class SymbolHistory {
+        private final DecisionMemory[] ring;
+        private final Map<LocalDate, DecisionMemory> byDate = new HashMap<>();
+        private int head;
+        private int size;
+        
+        SymbolHistory(int capacity) {
+            this.ring = new DecisionMemory[capacity];
+        }
+        
+        synchronized void add(DecisionMemory memory) {
+            if (size == ring.length) {
+                evictOldest();
+            }
+            ring[(head + size) % ring.length] = memory;
+            size++;
+            if (memory.getDate() != null) {
+                byDate.put(memory.getDate(), memory);
+            }
+        }
+        
+        /**
+         * 用同一次决策（交易日期与保存时间相同）的新版本替换原记录
+         * 
+         * @return 找到原记录时返回 true
+         */
+        synchronized boolean replace(DecisionMemory memory) {
+            int index = indexOf(memory.getDate(), memory.getTimestamp());
+            if (index < 0) {
+                return false;
+            }
+            DecisionMemory existing = ring[index];
+            ring[index] = memory;
+            if (byDate.get(memory.getDate()) == existing) {
+                byDate.put(memory.getDate(), memory);
+            }
+            return true;
+        }
+        
+        /**
+         * 查找交易日期与保存时间都相同的记录
+         */
+        synchronized Optional<DecisionMemory> find(LocalDate date, LocalDateTime timestamp) {
+            int index = indexOf(date, timestamp);
+            return index >= 0 ? Optional.of(ring[index]) : Optional.empty();
+        }
+        
+        private int indexOf(LocalDate date, LocalDateTime timestamp) {
+            // 该日期没有任何记录时无需遍历
+            if (date == null || !byDate.containsKey(date)) {
+                return -1;
+            }
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) % ring.length;
+                if (date.equals(ring[index].getDate()) && Objects.equals(timestamp, ring[index].getTimestamp())) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * 淘汰早于截止日期的记忆（从最旧一端开始）
+         */
+        synchronized void evictOlderThan(LocalDate cutoff) {
+            while (cutoff != null && size > 0 && dateOf(ring[head]).isBefore(cutoff)) {
+                evictOldest();
+            }
+        }
+        
+        private void evictOldest() {
+            DecisionMemory oldest = ring[head];
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            if (oldest.getDate() != null) {
+                byDate.remove(oldest.getDate(), oldest);
+            }
+        }
+        
+        private static LocalDate dateOf(DecisionMemory memory) {
+            return memory.getDate() != null ? memory.getDate() : memory.getTimestamp().toLocalDate();
+        }
+        
+        synchronized List<DecisionMemory> snapshot() {
+            List<DecisionMemory> memories = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                memories.add(ring[(head + i) % ring.length]);
+            }
+            return memories;
+        }
+        
+        synchronized Optional<DecisionMemory> latest() {
+            return size > 0 ? Optional.of(ring[(head + size - 1) % ring.length]) : Optional.empty();
+        }
+        
+        synchronized Optional<DecisionMemory> byDate(LocalDate date) {
+            return Optional.ofNullable(byDate.get(date));
+        }
+        
+        synchronized int size() {
+            return size;
+        }
+    }
 }
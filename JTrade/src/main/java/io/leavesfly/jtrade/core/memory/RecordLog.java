@@ -0,0 +1,193 @@
+package io.leavesfly.jtrade.core.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 带校验的追加记录文件
+ * 
+ * 每条记录为 length(int) crc32(int) payload[length]，文件以 magic(int) version(int) 开头（大端）。
+ * 加载时顺序回放，遇到残缺或校验失败的记录即停止并截断其后的内容；
+ * 文件头不匹配时整个文件移至 .corrupt-时间戳 后重新开始
+ * 
+ * @author 山泽
+ */
+@Slf4j
+final class RecordLog implements Closeable {
+    
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    
+    /**
+     * 回放记录的回调
+     */
+    interface RecordHandler {
+        void accept(byte[] payload) throws IOException;
+    }
+    
+    private final Path file;
+    private final int magic;
+    private final int version;
+    private final boolean syncWrites;
+    private FileChannel channel;
+    
+    RecordLog(Path file, int magic, int version, boolean syncWrites) {
+        this.file = file;
+        this.magic = magic;
+        this.version = version;
+        this.syncWrites = syncWrites;
+    }
+    
+    /**
+     * 回放所有记录并打开追加通道
+     * 
+     * @return 回放的记录数
+     */
+    synchronized int open(RecordHandler handler) throws IOException {
+        Files.createDirectories(file.getParent());
+        int records = 0;
+        long validBytes = 0;
+        
+        if (Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                if (in.readInt() != magic || in.readInt() != version) {
+                    in.close();
+                    Path corrupt = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+                    Files.move(file, corrupt);
+                    log.error("记录文件格式不兼容，已移至 {}", corrupt);
+                    return openChannel(0, 0);
+                }
+                validBytes = HEADER_BYTES;
+                CRC32 crc = new CRC32();
+                byte[] payload;
+                while ((payload = readRecord(in, crc)) != null) {
+                    try {
+                        handler.accept(payload);
+                    } catch (IOException e) {
+                        log.warn("跳过无法解析的记录: {}", e.getMessage());
+                    }
+                    validBytes += 8 + payload.length;
+                    records++;
+                }
+            }
+        }
+        return openChannel(validBytes, records);
+    }
+    
+    private int openChannel(long validBytes, int records) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validBytes) {
+            if (validBytes > 0) {
+                log.warn("{} 末尾存在 {} 字节残缺记录，已截断", file.getFileName(), channel.size() - validBytes);
+            }
+            channel.truncate(validBytes);
+        }
+        if (validBytes == 0) {
+            writeFully(ByteBuffer.allocate(HEADER_BYTES).putInt(magic).putInt(version).flip(), 0);
+        }
+        channel.position(channel.size());
+        return records;
+    }
+    
+    /**
+     * 读取一条记录，到达末尾或记录残缺时返回 null
+     */
+    private static byte[] readRecord(DataInputStream in, CRC32 crc) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+            return null;
+        }
+        try {
+            int checksum = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 追加一条记录
+     */
+    synchronized void append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        writeFully(record, channel.position());
+        if (syncWrites) {
+            channel.force(false);
+        }
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    /**
+     * 用给定记录重写文件（写临时文件后原子替换）
+     */
+    synchronized void rewrite(Iterable<byte[]> payloads) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(magic);
+                out.writeInt(version);
+                CRC32 crc = new CRC32();
+                for (byte[] payload : payloads) {
+                    crc.reset();
+                    crc.update(payload);
+                    out.writeInt(payload.length);
+                    out.writeInt((int) crc.getValue());
+                    out.write(payload);
+                }
+            }
+            channel.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // 替换失败时原文件保持不变，重新打开后继续追加
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package io.leavesfly.jtrade.core.memory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 相似历史情境记忆
+ * 
+ * 把每次决策的分析师报告向量化（LlmClient.embedText），连同最终信号与决策摘要存入索引，
+ * 新一轮分析时按余弦相似度跨股票检索最接近的历史情境，供研究经理与交易员参考。
+ * 
+ * 向量归一化后按行存放在一个连续的 float[] 矩阵中，检索时顺序扫描求点积并用小顶堆保留前 k 个；
+ * 达到 max-situations 后覆盖最旧的一行，同一股票同一日期重复记录时原位替换。
+ * 启用持久化时每条情境追加写入 dataDir/memory/situations-<向量化模型>.bin，
+ * 更换模型即使用新的索引文件，避免不同维度或语义空间的向量混用
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class SituationMemory {
+    
+    /**
+     * 相似情境文本在状态元数据中的键
+     */
+    public static final String SIMILAR_SITUATIONS_KEY = "similar_situations";
+    
+    private static final int MAGIC = 0x4A54534D; // "JTSM"
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int MAX_REPORT_CHARS = 1500;
+    private static final int MAX_SUMMARY_CHARS = 300;
+    private static final int VECTOR_CACHE_SIZE = 64;
+    
+    private final LlmClient llmClient;
+    private final int capacity;
+    private final int topK;
+    private final double minSimilarity;
+    private final RecordLog recordLog;
+    private final ExecutorService executor;
+    private volatile boolean enabled;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private float[] matrix = new float[0];
+    private int dimension;
+    private Situation[] rows = new Situation[0];
+    private int size;
+    private int next;
+    private final Map<String, Integer> rowByKey = new HashMap<>();
+    
+    // 同一份分析师报告在检索与记录时只向量化一次
+    private final Map<String, float[]> vectorCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+            return size() > VECTOR_CACHE_SIZE;
+        }
+    };
+    
+    public SituationMemory(LlmClient llmClient, AppConfig appConfig, LlmConfig llmConfig) {
+        AppConfig.MemoryConfig config = appConfig.getMemory();
+        String model = llmConfig.getProviderConfig(llmConfig.getProvider()).getEmbeddingModel();
+        this.llmClient = llmClient;
+        this.capacity = Math.max(1, config.getMaxSituations());
+        this.topK = Math.max(1, config.getSimilarTopK());
+        this.minSimilarity = config.getMinSimilarity();
+        this.enabled = config.isSituationsEnabled() && model != null && !model.isBlank();
+        if (config.isSituationsEnabled() && !enabled) {
+            log.info("主提供商 {} 未配置 embedding-model，相似情境检索未启用", llmConfig.getProvider());
+        }
+        
+        this.recordLog = enabled && config.isPersistent()
+                ? openLog(new RecordLog(Paths.get(appConfig.getDataDir(), "memory",
+                        "situations-" + model.replaceAll("[^A-Za-z0-9._-]", "_") + ".bin"),
+                        MAGIC, VERSION, config.isSyncWrites()))
+                : null;
+        this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jtrade-situation-%d").setDaemon(true).build());
+    }
+    
+    /**
+     * 回放索引文件重建向量矩阵，失败时退化为仅内存模式
+     */
+    private RecordLog openLog(RecordLog recordLog) {
+        long start = System.nanoTime();
+        try {
+            int records = recordLog.open(payload -> add(decode(payload)));
+            if (records > 2 * size + 64) {
+                List<byte[]> live = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    int row = size < capacity ? i : (next + i) % capacity;
+                    live.add(encode(rows[row], vectorAt(row)));
+                }
+                recordLog.rewrite(live);
+                log.info("情境索引已压缩: {} 条记录 -> {} 条", records, size);
+            }
+            log.info("加载历史情境 {} 条（维度 {}），耗时 {} ms", size, dimension, (System.nanoTime() - start) / 1_000_000);
+            return recordLog;
+        } catch (IOException e) {
+            log.error("打开情境索引失败，本次运行仅保存在内存中", e);
+            clear();
+            return null;
+        }
+    }
+    
+    /**
+     * 检索相似历史情境并写入状态元数据（工作流节点）
+     */
+    public AgentState attachSimilar(AgentState state) {
+        List<SimilarSituation> similar = findSimilar(state, topK);
+        if (similar.isEmpty()) {
+            return state;
+        }
+        log.info("检索到相似历史情境 {} 条，最高相似度 {}", similar.size(),
+                String.format("%.3f", similar.get(0).getScore()));
+        return state.putMetadata(SIMILAR_SITUATIONS_KEY, format(similar));
+    }
+    
+    /**
+     * 按分析师报告检索最相似的历史情境
+     * 
+     * 只返回交易日期早于当前状态的情境（回测时不会看到未来），按相似度从高到低排列
+     * 
+     * @param state 包含分析师报告的状态
+     * @param k 返回数量上限
+     * @return 相似情境列表
+     */
+    public List<SimilarSituation> findSimilar(AgentState state, int k) {
+        if (!enabled || state.getAnalystReports().isEmpty()) {
+            return List.of();
+        }
+        float[] query = embed(situationText(state));
+        if (query == null) {
+            return List.of();
+        }
+        
+        String selfKey = key(state.getCompany(), state.getDate());
+        PriorityQueue<SimilarSituation> heap = new PriorityQueue<>(Comparator.comparingDouble(SimilarSituation::getScore));
+        lock.readLock().lock();
+        try {
+            if (query.length != dimension) {
+                return List.of();
+            }
+            float[] m = matrix;
+            for (int row = 0; row < size; row++) {
+                Situation situation = rows[row];
+                if (!isBefore(situation, state.getDate()) || selfKey.equals(key(situation.symbol, situation.date))) {
+                    continue;
+                }
+                double score = dot(query, m, row * dimension);
+                if (score < minSimilarity || (heap.size() == k && score <= heap.peek().getScore())) {
+                    continue;
+                }
+                heap.add(new SimilarSituation(situation.symbol, situation.date, situation.signal, situation.summary, score));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<SimilarSituation> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(SimilarSituation::getScore).reversed());
+        return result;
+    }
+    
+    private static boolean isBefore(Situation situation, LocalDate date) {
+        return date == null || (situation.date != null && situation.date.isBefore(date));
+    }
+    
+    /**
+     * 点积（向量已归一化，即余弦相似度），四路累加便于 JIT 展开与向量化
+     */
+    private static double dot(float[] query, float[] m, int offset) {
+        int n = query.length;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += query[i] * m[offset + i];
+            s1 += query[i + 1] * m[offset + i + 1];
+            s2 += query[i + 2] * m[offset + i + 2];
+            s3 += query[i + 3] * m[offset + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += query[i] * m[offset + i];
+        }
+        return (double) s0 + s1 + s2 + s3;
+    }
+    
+    /**
+     * 在后台线程中记录本次决策的情境
+     */
+    public void recordAsync(AgentState state) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> record(state));
+        } catch (RuntimeException e) {
+            log.warn("提交情境记录失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 记录本次决策的情境（分析师报告向量 + 最终信号与决策摘要）
+     */
+    public void record(AgentState state) {
+        if (!enabled || state.getCompany() == null || state.getFinalSignal() == null
+                || state.getAnalystReports().isEmpty()) {
+            return;
+        }
+        float[] vector = embed(situationText(state));
+        if (vector == null) {
+            return;
+        }
+        Situation situation = new Situation(state.getCompany(), state.getDate(), state.getFinalSignal(),
+                truncate(state.getResearchManagerDecision(), MAX_SUMMARY_CHARS));
+        situation.vector = vector;
+        
+        lock.writeLock().lock();
+        try {
+            if (!add(situation)) {
+                return;
+            }
+            if (recordLog != null) {
+                try {
+                    recordLog.append(encode(situation, vector));
+                } catch (IOException e) {
+                    log.error("写入情境索引失败: {}", situation.symbol, e);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("记录历史情境: {} {} - {}", situation.symbol, situation.date, situation.signal);
+    }
+    
+    /**
+     * 放入矩阵：同一股票同一日期原位替换，已满时覆盖最旧的一行
+     * 
+     * @return 维度与索引不一致时返回 false
+     */
+    private boolean add(Situation situation) {
+        float[] vector = situation.vector;
+        situation.vector = null;
+        if (size == 0) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            log.warn("忽略维度不一致的情境向量: {} != {}", vector.length, dimension);
+            return false;
+        }
+        
+        String key = key(situation.symbol, situation.date);
+        Integer existing = rowByKey.get(key);
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else if (size < capacity) {
+            row = size++;
+            ensureCapacity(size);
+        } else {
+            row = next;
+            next = (next + 1) % capacity;
+            rowByKey.remove(key(rows[row].symbol, rows[row].date));
+        }
+        rows[row] = situation;
+        rowByKey.put(key, row);
+        System.arraycopy(vector, 0, matrix, row * dimension, dimension);
+        return true;
+    }
+    
+    private void ensureCapacity(int required) {
+        if (rows.length >= required) {
+            return;
+        }
+        int grown = (int) Math.min(capacity, Math.max(16L, rows.length * 2L));
+        rows = Arrays.copyOf(rows, grown);
+        matrix = Arrays.copyOf(matrix, grown * dimension);
+    }
+    
+    private float[] vectorAt(int row) {
+        return Arrays.copyOfRange(matrix, row * dimension, (row + 1) * dimension);
+    }
+    
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            matrix = new float[0];
+            rows = new Situation[0];
+            rowByKey.clear();
+            size = 0;
+            next = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 向量化并归一化，提供商不支持时关闭检索
+     */
+    private float[] embed(String text) {
+        synchronized (vectorCache) {
+            float[] cached = vectorCache.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            double[] raw = llmClient.embedText(text);
+            double norm = 0;
+            for (double v : raw) {
+                norm += v * v;
+            }
+            if (raw.length == 0 || norm == 0) {
+                return null;
+            }
+            norm = Math.sqrt(norm);
+            float[] vector = new float[raw.length];
+            for (int i = 0; i < raw.length; i++) {
+                vector[i] = (float) (raw[i] / norm);
+            }
+            synchronized (vectorCache) {
+                vectorCache.put(text, vector);
+            }
+            return vector;
+        } catch (UnsupportedOperationException e) {
+            enabled = false;
+            log.warn("LLM客户端不支持向量化，相似情境检索已关闭: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            log.warn("情境向量化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 用于向量化的情境文本：各分析师报告截断后拼接
+     */
+    private static String situationText(AgentState state) {
+        StringBuilder text = new StringBuilder();
+        for (String report : state.getAnalystReports()) {
+            text.append(truncate(report, MAX_REPORT_CHARS)).append("\n\n");
+        }
+        return text.toString();
+    }
+    
+    private static String truncate(String text, int maxChars) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "...";
+    }
+    
+    private static String key(String symbol, LocalDate date) {
+        return symbol + "|" + date;
+    }
+    
+    /**
+     * 格式化为提示词文本
+     */
+    private static String format(List<SimilarSituation> similar) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < similar.size(); i++) {
+            SimilarSituation situation = similar.get(i);
+            text.append(i + 1).append(". ").append(situation.getSymbol()).append(' ').append(situation.getDate())
+                    .append(String.format("（相似度 %.2f）", situation.getScore()))
+                    .append(" 最终信号: ").append(situation.getSignal()).append('\n');
+            if (!situation.getSummary().isEmpty()) {
+                text.append("   决策摘要: ").append(situation.getSummary().replace('\n', ' ')).append('\n');
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * 相似情境的提示词片段，状态中没有检索结果时返回空字符串
+     */
+    public static String promptSection(AgentState state) {
+        Object similar = state.getMetadata().get(SIMILAR_SITUATIONS_KEY);
+        if (similar == null) {
+            return "";
+        }
+        return "\n\n历史相似情境（仅供参考，市场环境可能已变化）：\n" + similar;
+    }
+    
+    /**
+     * 当前索引中的情境数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("情境记录线程未在10秒内结束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (recordLog != null) {
+            try {
+                recordLog.close();
+            } catch (IOException e) {
+                log.warn("关闭情境索引失败", e);
+            }
+        }
+    }
+    
+    private static byte[] encode(Situation situation, float[] vector) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + vector.length * 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(situation.symbol);
+        out.writeLong(situation.date != null ? situation.date.toEpochDay() : NO_DATE);
+        out.writeUTF(situation.signal);
+        byte[] summary = situation.summary.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(summary.length);
+        out.write(summary);
+        out.writeInt(vector.length);
+        for (float v : vector) {
+            out.writeFloat(v);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static Situation decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String symbol = in.readUTF();
+        long epochDay = in.readLong();
+        String signal = in.readUTF();
+        byte[] summary = new byte[in.readInt()];
+        in.readFully(summary);
+        float[] vector = new float[in.readInt()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = in.readFloat();
+        }
+        Situation situation = new Situation(symbol, epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null,
+                signal, new String(summary, StandardCharsets.UTF_8));
+        situation.vector = vector;
+        return situation;
+    }
+    
+    /**
+     * 索引中的一行（向量只在放入矩阵前暂存）
+     */
+    private static final class Situation {
+        final String symbol;
+        final LocalDate date;
+        final String signal;
+        final String summary;
+        float[] vector;
+        
+        Situation(String symbol, LocalDate date, String signal, String summary) {
+            this.symbol = symbol;
+            this.date = date;
+            this.signal = signal;
+            this.summary = summary;
+        }
+    }
+    
+    /**
+     * 相似情境检索结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SimilarSituation {
+        private String symbol;
+        private LocalDate date;
+        private String signal;
+        private String summary;
+        private double score;
+    }
+}
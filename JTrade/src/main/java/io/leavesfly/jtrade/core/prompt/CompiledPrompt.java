@@ -0,0 +1,162 @@
+package io.leavesfly.jtrade.core.prompt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预编译的 Prompt 模板
+ * 
+ * 加载时把模板拆分为文本段与占位符段，渲染时一次遍历写入预估容量的 StringBuilder，
+ * 不再按变量逐个 String.replace。占位符形如 {symbol}，名称由字母、数字、下划线和点组成；
+ * 其他花括号（例如示例 JSON）按原文保留。
+ * 
+ * @author 山泽
+ */
+public final class CompiledPrompt {
+    
+    /**
+     * 变量值的预估长度，用于预分配渲染缓冲区
+     */
+    private static final int ESTIMATED_VALUE_LENGTH = 64;
+    
+    private final String source;
+    
+    /**
+     * 文本段，比占位符多一个（首尾文本可能为空串）
+     */
+    private final String[] literals;
+    
+    private final String[] placeholders;
+    private final int literalLength;
+    private final Set<String> variables;
+    
+    private CompiledPrompt(String source, List<String> literals, List<String> placeholders) {
+        this.source = source;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+        this.variables = Collections.unmodifiableSet(new LinkedHashSet<>(placeholders));
+    }
+    
+    /**
+     * 解析模板
+     */
+    public static CompiledPrompt compile(String template) {
+        String source = template != null ? template : "";
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        
+        int literalStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            if (source.charAt(i) == '{') {
+                int end = scanPlaceholder(source, i + 1);
+                if (end > 0) {
+                    literals.add(source.substring(literalStart, i));
+                    placeholders.add(source.substring(i + 1, end));
+                    literalStart = end + 1;
+                    i = literalStart;
+                    continue;
+                }
+            }
+            i++;
+        }
+        literals.add(source.substring(literalStart));
+        return new CompiledPrompt(source, literals, placeholders);
+    }
+    
+    /**
+     * 返回占位符结束的 '}' 位置，不是合法占位符时返回 -1
+     */
+    private static int scanPlaceholder(String source, int start) {
+        int i = start;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '}') {
+                return i > start ? i : -1;
+            }
+            boolean valid = Character.isLetter(c) || c == '_'
+                    || i > start && (Character.isDigit(c) || c == '.');
+            if (!valid) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+    
+    /**
+     * 渲染模板，缺失的变量保留原占位符
+     */
+    public String render(Map<String, String> values) {
+        return render(values, false);
+    }
+    
+    /**
+     * 渲染模板，缺失任一变量时抛出 IllegalArgumentException
+     */
+    public String renderStrict(Map<String, String> values) {
+        return render(values, true);
+    }
+    
+    private String render(Map<String, String> values, boolean strict) {
+        if (placeholders.length == 0) {
+            return source;
+        }
+        if (strict) {
+            List<String> missing = missingVariables(values);
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Prompt 模板缺少变量: " + missing);
+            }
+        }
+        
+        StringBuilder sb = new StringBuilder(literalLength + placeholders.length * ESTIMATED_VALUE_LENGTH);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]);
+            String value = values.get(placeholders[i]);
+            if (value != null) {
+                sb.append(value);
+            } else {
+                sb.append('{').append(placeholders[i]).append('}');
+            }
+        }
+        sb.append(literals[placeholders.length]);
+        return sb.toString();
+    }
+    
+    /**
+     * 获取未提供的变量名称
+     */
+    public List<String> missingVariables(Map<String, String> values) {
+        List<String> missing = new ArrayList<>();
+        for (String variable : variables) {
+            if (values.get(variable) == null) {
+                missing.add(variable);
+            }
+        }
+        return missing;
+    }
+    
+    /**
+     * 获取模板中的变量名称（按首次出现的顺序）
+     */
+    public Set<String> getVariables() {
+        return variables;
+    }
+    
+    /**
+     * 获取模板原文
+     */
+    public String getSource() {
+        return source;
+    }
+    
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -1,53 +1,152 @@
 package io.leavesfly.jtrade.core.prompt;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Prompt 管理器
  * 
  * 从配置文件加载和管理所有智能体的 Prompt 模板
  * 
+ * 模板在加载时预编译为 {@link CompiledPrompt}，渲染只需一次遍历。加载结果保存在不可变快照中，
+ * 重新加载时整体替换，并发读取的调用方不会看到新旧模板混杂的状态。
+ * 配置了外部模板文件（jtrade.prompts.file）时以其为准，并可按 reload-interval-seconds 检测修改后热加载。
+ * 
  * @author 山泽
  */
 @Slf4j
 @Component
 public class PromptManager {
     
-    private final Properties prompts = new Properties();
-    private final Map<String, String> cache = new HashMap<>();
+    private static final String CLASSPATH_PROMPTS = "prompts/agent-prompts.properties";
+    
+    private final AppConfig.PromptConfig config;
+    private volatile Snapshot snapshot;
+    private volatile FileTime lastModified;
+    private ScheduledExecutorService reloadScheduler;
     
     public PromptManager() {
-        loadPrompts();
+        this(new AppConfig());
+    }
+    
+    @Autowired
+    public PromptManager(AppConfig appConfig) {
+        this.config = appConfig.getPrompts();
+        this.snapshot = load();
+        startWatching();
+    }
+    
+    /**
+     * 重新加载 Prompt 配置文件
+     * 
+     * 加载失败时保留当前模板
+     * 
+     * @return 是否加载成功
+     */
+    public boolean reload() {
+        Snapshot loaded = load();
+        if (loaded.isEmpty() && !snapshot.isEmpty()) {
+            log.warn("重新加载 Prompt 失败，继续使用当前 {} 个模板", snapshot.size());
+            return false;
+        }
+        snapshot = loaded;
+        log.info("Prompt 模板已重新加载: {} 个", loaded.size());
+        return true;
     }
     
     /**
-     * 加载 Prompt 配置文件
+     * 加载 Prompt 配置文件并预编译
      */
-    private void loadPrompts() {
+    private Snapshot load() {
+        Properties properties = new Properties();
+        Path external = externalFile();
         try {
-            ClassPathResource resource = new ClassPathResource("prompts/agent-prompts.properties");
-            try (InputStream is = resource.getInputStream()) {
-                prompts.load(is);
-                log.info("成功加载 {} 个 Prompt 模板", prompts.size());
+            if (external != null) {
+                lastModified = Files.getLastModifiedTime(external);
+                try (Reader reader = Files.newBufferedReader(external, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else {
+                ClassPathResource resource = new ClassPathResource(CLASSPATH_PROMPTS);
+                try (InputStream is = resource.getInputStream();
+                     Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
             }
+            log.info("成功加载 {} 个 Prompt 模板", properties.size());
         } catch (IOException e) {
             log.error("加载 Prompt 配置文件失败", e);
         }
+        return new Snapshot(properties);
+    }
+    
+    private Path externalFile() {
+        String file = config.getFile();
+        return file != null && !file.isBlank() ? Paths.get(file) : null;
+    }
+    
+    /**
+     * 定时检测外部模板文件的修改时间，变化后热加载
+     */
+    private void startWatching() {
+        Path external = externalFile();
+        if (external == null || config.getReloadIntervalSeconds() <= 0) {
+            return;
+        }
+        reloadScheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jtrade-prompt-reload-%d").setDaemon(true).build());
+        long interval = config.getReloadIntervalSeconds();
+        reloadScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                FileTime modified = Files.getLastModifiedTime(external);
+                if (!modified.equals(lastModified)) {
+                    log.info("检测到 Prompt 文件变化: {}", external);
+                    reload();
+                }
+            } catch (IOException e) {
+                log.warn("检测 Prompt 文件失败: {}", e.getMessage());
+            } catch (Exception e) {
+                log.error("热加载 Prompt 失败", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        log.info("已启用 Prompt 热加载: {}，检测间隔 {} 秒", external, interval);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (reloadScheduler != null) {
+            reloadScheduler.shutdownNow();
+        }
     }
     
     /**
      * 获取 Prompt 模板
      */
     public String getPrompt(String key) {
-        return prompts.getProperty(key, "");
+        return snapshot.raw.getOrDefault(key, "");
     }
     
     /**
@@ -64,135 +163,122 @@ public class PromptManager {
         return getPrompt(agentType + ".prompt");
     }
     
+    /**
+     * 获取预编译的 Prompt 模板，键不存在时返回空模板
+     */
+    public CompiledPrompt getCompiled(String key) {
+        return snapshot.compiled(key);
+    }
+    
+    /**
+     * 按键渲染 Prompt 模板，缺失的变量保留原占位符
+     */
+    public String render(String key, Map<String, String> variables) {
+        return getCompiled(key).render(variables);
+    }
+    
     /**
      * 构建完整的 Prompt（替换变量）
+     * 
+     * 传入的模板来自本管理器时直接使用预编译结果，否则临时编译
      */
     public String buildPrompt(String template, Map<String, String> variables) {
-        String result = template;
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            result = result.replace("{" + entry.getKey() + "}", entry.getValue());
-        }
-        return result;
+        CompiledPrompt compiled = snapshot.byText.get(template);
+        return (compiled != null ? compiled : CompiledPrompt.compile(template)).render(variables);
+    }
+    
+    /**
+     * 获取智能体的系统提示与用户提示模板（同一快照内复用同一实例）
+     */
+    public PromptTemplate getTemplate(String agentType) {
+        Snapshot current = snapshot;
+        return current.templates.computeIfAbsent(agentType, type -> new PromptTemplate(
+                current.raw.getOrDefault(type + ".system", ""),
+                current.compiled(type + ".prompt")));
     }
     
     /**
      * 获取市场分析师提示
      */
     public PromptTemplate getMarketAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("analyst.market"),
-            getUserPrompt("analyst.market")
-        );
+        return getTemplate("analyst.market");
     }
     
     /**
      * 获取基本面分析师提示
      */
     public PromptTemplate getFundamentalsAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("analyst.fundamentals"),
-            getUserPrompt("analyst.fundamentals")
-        );
+        return getTemplate("analyst.fundamentals");
     }
     
     /**
      * 获取新闻分析师提示
      */
     public PromptTemplate getNewsAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("analyst.news"),
-            getUserPrompt("analyst.news")
-        );
+        return getTemplate("analyst.news");
     }
     
     /**
      * 获取社交媒体分析师提示
      */
     public PromptTemplate getSocialMediaAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("analyst.social"),
-            getUserPrompt("analyst.social")
-        );
+        return getTemplate("analyst.social");
     }
     
     /**
      * 获取多头研究员提示
      */
     public PromptTemplate getBullResearcherPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("researcher.bull"),
-            getUserPrompt("researcher.bull")
-        );
+        return getTemplate("researcher.bull");
     }
     
     /**
      * 获取空头研究员提示
      */
     public PromptTemplate getBearResearcherPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("researcher.bear"),
-            getUserPrompt("researcher.bear")
-        );
+        return getTemplate("researcher.bear");
     }
     
     /**
      * 获取研究经理提示
      */
     public PromptTemplate getResearchManagerPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("manager.research"),
-            getUserPrompt("manager.research")
-        );
+        return getTemplate("manager.research");
     }
     
     /**
      * 获取交易员提示
      */
     public PromptTemplate getTraderPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("trader"),
-            getUserPrompt("trader")
-        );
+        return getTemplate("trader");
     }
     
     /**
      * 获取风险管理器提示
      */
     public PromptTemplate getRiskManagerPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("manager.risk"),
-            getUserPrompt("manager.risk")
-        );
+        return getTemplate("manager.risk");
     }
     
     /**
      * 获取分析反思提示
      */
     public PromptTemplate getAnalysisReflectionPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("reflection.analysis"),
-            getUserPrompt("reflection.analysis")
-        );
+        return getTemplate("reflection.analysis");
     }
     
     /**
      * 获取决策反思提示
      */
     public PromptTemplate getDecisionReflectionPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("reflection.decision"),
-            getUserPrompt("reflection.decision")
-        );
+        return getTemplate("reflection.decision");
     }
     
     /**
      * 获取综合反思提示
      */
     public PromptTemplate getComprehensiveReflectionPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("reflection.comprehensive"),
-            getUserPrompt("reflection.comprehensive")
-        );
+        return getTemplate("reflection.comprehensive");
     }
     
     // ========== ReAct 工具智能体提示 ==========
@@ -201,120 +287,84 @@ public class PromptManager {
      * 获取通用 ReAct 提示
      */
     public PromptTemplate getReactCommonPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.common"),
-            getUserPrompt("react.common")
-        );
+        return getTemplate("react.common");
     }
     
     /**
      * 获取市场分析师 ReAct 提示
      */
     public PromptTemplate getReactMarketAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.analyst.market"),
-            getUserPrompt("react.analyst.market")
-        );
+        return getTemplate("react.analyst.market");
     }
     
     /**
      * 获取基本面分析师 ReAct 提示
      */
     public PromptTemplate getReactFundamentalsAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.analyst.fundamentals"),
-            getUserPrompt("react.analyst.fundamentals")
-        );
+        return getTemplate("react.analyst.fundamentals");
     }
     
     /**
      * 获取新闻分析师 ReAct 提示
      */
     public PromptTemplate getReactNewsAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.analyst.news"),
-            getUserPrompt("react.analyst.news")
-        );
+        return getTemplate("react.analyst.news");
     }
     
     /**
      * 获取社交媒体分析师 ReAct 提示
      */
     public PromptTemplate getReactSocialMediaAnalystPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.analyst.social"),
-            getUserPrompt("react.analyst.social")
-        );
+        return getTemplate("react.analyst.social");
     }
     
     /**
      * 获取多头研究员 ReAct 提示
      */
     public PromptTemplate getReactBullResearcherPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.researcher.bull"),
-            getUserPrompt("react.researcher.bull")
-        );
+        return getTemplate("react.researcher.bull");
     }
     
     /**
      * 获取空头研究员 ReAct 提示
      */
     public PromptTemplate getReactBearResearcherPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.researcher.bear"),
-            getUserPrompt("react.researcher.bear")
-        );
+        return getTemplate("react.researcher.bear");
     }
     
     /**
      * 获取交易员 ReAct 提示
      */
     public PromptTemplate getReactTraderPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.trader"),
-            getUserPrompt("react.trader")
-        );
+        return getTemplate("react.trader");
     }
     
     /**
      * 获取风险管理器 ReAct 提示
      */
     public PromptTemplate getReactRiskManagerPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.manager.risk"),
-            getUserPrompt("react.manager.risk")
-        );
+        return getTemplate("react.manager.risk");
     }
     
     /**
      * 获取激进辩论者 ReAct 提示
      */
     public PromptTemplate getReactAggressiveDebatorPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.debator.aggressive"),
-            getUserPrompt("react.debator.aggressive")
-        );
+        return getTemplate("react.debator.aggressive");
     }
     
     /**
      * 获取保守辩论者 ReAct 提示
      */
     public PromptTemplate getReactConservativeDebatorPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.debator.conservative"),
-            getUserPrompt("react.debator.conservative")
-        );
+        return getTemplate("react.debator.conservative");
     }
     
     /**
      * 获取中立辩论者 ReAct 提示
      */
     public PromptTemplate getReactNeutralDebatorPrompt() {
-        return new PromptTemplate(
-            getSystemPrompt("react.debator.neutral"),
-            getUserPrompt("react.debator.neutral")
-        );
+        return getTemplate("react.debator.neutral");
     }
     
     /**
@@ -322,9 +372,13 @@ public class PromptManager {
      */
     public static class PromptTemplate {
         private final String systemPrompt;
-        private final String userPrompt;
+        private final CompiledPrompt userPrompt;
         
         public PromptTemplate(String systemPrompt, String userPrompt) {
+            this(systemPrompt, CompiledPrompt.compile(userPrompt));
+        }
+        
+        PromptTemplate(String systemPrompt, CompiledPrompt userPrompt) {
             this.systemPrompt = systemPrompt;
             this.userPrompt = userPrompt;
         }
@@ -334,18 +388,55 @@ public class PromptManager {
         }
         
         public String getUserPrompt() {
-            return userPrompt;
+            return userPrompt.getSource();
         }
         
         /**
          * 构建用户提示（替换变量）
          */
         public String buildUserPrompt(Map<String, String> variables) {
-            String result = userPrompt;
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                result = result.replace("{" + entry.getKey() + "}", entry.getValue());
+            return userPrompt.render(variables);
+        }
+    }
+    
+    /**
+     * 一次加载的模板快照，创建后不再修改（PromptTemplate 缓存除外）
+     */
+    private static final class Snapshot {
+        private static final CompiledPrompt EMPTY = CompiledPrompt.compile("");
+        
+        private final Map<String, String> raw;
+        private final Map<String, CompiledPrompt> compiled;
+        private final Map<String, CompiledPrompt> byText;
+        private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+        
+        Snapshot(Properties properties) {
+            Map<String, String> rawMap = new HashMap<>();
+            Map<String, CompiledPrompt> compiledMap = new HashMap<>();
+            Map<String, CompiledPrompt> byTextMap = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                String value = properties.getProperty(key);
+                CompiledPrompt prompt = CompiledPrompt.compile(value);
+                rawMap.put(key, value);
+                compiledMap.put(key, prompt);
+                byTextMap.putIfAbsent(value, prompt);
             }
-            return result;
+            this.raw = Collections.unmodifiableMap(rawMap);
+            this.compiled = Collections.unmodifiableMap(compiledMap);
+            this.byText = Collections.unmodifiableMap(byTextMap);
+        }
+        
+        CompiledPrompt compiled(String key) {
+            CompiledPrompt prompt = compiled.get(key);
+            return prompt != null ? prompt : EMPTY;
+        }
+        
+        boolean isEmpty() {
+            return raw.isEmpty();
+        }
+        
+        int size() {
+            return raw.size();
         }
     }
 }
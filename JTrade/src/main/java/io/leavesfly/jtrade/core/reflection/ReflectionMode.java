@@ -0,0 +1,24 @@
+package io.leavesfly.jtrade.core.reflection;
+
+/**
+ * 反思执行方式
+ * 
+ * @author 山泽
+ */
+public enum ReflectionMode {
+    
+    /**
+     * 分析反思、决策反思、综合反思依次调用
+     */
+    SEQUENTIAL,
+    
+    /**
+     * 三项反思互不依赖，同时发起调用后按固定顺序合并
+     */
+    PARALLEL,
+    
+    /**
+     * 反思移出决策路径，由后台队列执行，完成后补写到决策记忆
+     */
+    BACKGROUND
+}
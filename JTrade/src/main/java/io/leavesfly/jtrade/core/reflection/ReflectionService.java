@@ -1,163 +1,250 @@
 package io.leavesfly.jtrade.core.reflection;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.llm.client.LlmClient;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
 import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 反思服务
  * 
  * 对分析结果进行反思和自我批评，提高决策质量
  * 
+ * 分析反思、决策反思与综合反思互不依赖：并行模式下同时发起三次调用，按固定顺序合并；
+ * 后台模式下反思不占用决策路径，提交到有界队列执行，结果由调用方补写到决策记忆
+ * 
  * @author 山泽
  */
 @Slf4j
 @Service
 public class ReflectionService {
     
+    private static final String ANALYSIS = "分析反思";
+    private static final String DECISION = "决策反思";
+    private static final String COMPREHENSIVE = "综合反思";
+    
     private final LlmClient llmClient;
     private final ModelConfig reflectionConfig;
+    private final ReflectionMode mode;
+    private final ThreadPoolExecutor backgroundExecutor;
     
-    public ReflectionService(LlmClient llmClient) {
-        this.llmClient = llmClient;
+    public ReflectionService(LlmClient llmClient, ModelSelector modelSelector, AppConfig appConfig) {
+        AppConfig.ReflectionConfig config = appConfig.getReflection();
+        // 未指定模型，由模型选择策略按反思档位填入
+        this.llmClient = modelSelector.bindReflection(llmClient);
         this.reflectionConfig = ModelConfig.builder()
                 .temperature(0.6)
-                .maxTokens(1500)
+                .maxTokens(config.getMaxTokens())
                 .build();
+        this.mode = config.getMode() != null ? config.getMode() : ReflectionMode.PARALLEL;
+        this.backgroundExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, config.getBackgroundQueueSize())),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-reflection-%d").setDaemon(true).build());
+    }
+    
+    /**
+     * 当前的反思执行方式
+     */
+    public ReflectionMode getMode() {
+        return mode;
     }
     
     /**
      * 对分析师报告进行反思
      */
     public AgentState reflectOnAnalysis(AgentState state) {
-        log.info("开始对分析结果进行反思");
-        
-        if (state.getAnalystReports().isEmpty()) {
-            log.warn("没有分析报告，跳过反思");
-            return state;
-        }
-        
-        try {
-            String allReports = String.join("\n\n", state.getAnalystReports());
-            String prompt = buildAnalysisReflectionPrompt(state.getCompany(), allReports);
-            
-            List<LlmMessage> messages = new ArrayList<>();
-            messages.add(LlmMessage.system(
-                "你是一位经验丰富的分析审查专家，擅长发现分析中的盲点、偏见和不足之处。"
-            ));
-            messages.add(LlmMessage.user(prompt));
-            
-            LlmResponse response = llmClient.chat(messages, reflectionConfig);
-            String reflection = response.getContent();
-            
-            log.info("分析反思完成，反思长度: {} 字符", reflection.length());
-            
-            return state.addReflection("【分析反思】\n" + reflection);
-            
-        } catch (Exception e) {
-            log.error("分析反思失败", e);
-            return state;
-        }
+        return reflectOne(state, ANALYSIS, analysisMessages(state));
     }
     
     /**
      * 对交易决策进行反思
      */
     public AgentState reflectOnDecision(AgentState state) {
-        log.info("开始对交易决策进行反思");
-        
-        if (state.getResearchManagerDecision() == null) {
-            log.warn("没有交易决策，跳过反思");
-            return state;
+        return reflectOne(state, DECISION, decisionMessages(state));
+    }
+    
+    /**
+     * 综合反思
+     */
+    public AgentState comprehensiveReflection(AgentState state) {
+        return reflectOne(state, COMPREHENSIVE, comprehensiveMessages(state));
+    }
+    
+    /**
+     * 执行全部三项反思
+     * 
+     * 依次模式下逐项调用，其余模式同时发起调用；结果总是按分析、决策、综合的顺序追加
+     */
+    public AgentState reflect(AgentState state) {
+        if (mode == ReflectionMode.SEQUENTIAL) {
+            state = reflectOnAnalysis(state);
+            state = reflectOnDecision(state);
+            return comprehensiveReflection(state);
         }
         
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<LlmResponse>> pending = new LinkedHashMap<>();
+        requests(state).forEach((label, messages) -> {
+            log.info("开始{}", label);
+            pending.put(label, llmClient.chatAsync(messages, reflectionConfig));
+        });
+        for (Map.Entry<String, CompletableFuture<LlmResponse>> entry : pending.entrySet()) {
+            try {
+                state = addReflection(state, entry.getKey(), entry.getValue().join());
+            } catch (Exception e) {
+                log.error("{}失败", entry.getKey(), e);
+            }
+        }
+        log.info("并行反思完成: {} 项，耗时 {} ms", pending.size(), (System.nanoTime() - start) / 1_000_000);
+        return state;
+    }
+    
+    /**
+     * 在后台队列中执行全部三项反思
+     * 
+     * 队列已满时放弃本次反思，返回的 Future 以空列表完成
+     * 
+     * @param state 决策完成后的状态
+     * @return 完成时携带新增反思记录的 Future
+     */
+    public CompletableFuture<List<String>> reflectInBackground(AgentState state) {
+        int before = state.getReflections().size();
         try {
-            String prompt = buildDecisionReflectionPrompt(
-                state.getCompany(),
-                state.getResearchManagerDecision(),
-                state.getTradingPlan()
-            );
-            
-            List<LlmMessage> messages = new ArrayList<>();
-            messages.add(LlmMessage.system(
-                "你是一位风险管理专家，擅长审视交易决策中的潜在风险和问题。"
-            ));
-            messages.add(LlmMessage.user(prompt));
-            
-            LlmResponse response = llmClient.chat(messages, reflectionConfig);
-            String reflection = response.getContent();
-            
-            log.info("决策反思完成，反思长度: {} 字符", reflection.length());
-            
-            return state.addReflection("【决策反思】\n" + reflection);
-            
-        } catch (Exception e) {
-            log.error("决策反思失败", e);
-            return state;
+            return CompletableFuture.supplyAsync(() -> ModelSelector.withRunOverrides(state, () -> {
+                List<String> reflections = reflect(state).getReflections();
+                return List.copyOf(reflections.subList(before, reflections.size()));
+            }), backgroundExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("后台反思队列已满，跳过 {} 的反思", state.getCompany());
+            return CompletableFuture.completedFuture(List.of());
         }
     }
     
     /**
-     * 综合反思
+     * 后台队列中等待执行的反思任务数
      */
-    public AgentState comprehensiveReflection(AgentState state) {
-        log.info("开始综合反思");
-        
+    public int getPendingBackgroundReflections() {
+        return backgroundExecutor.getQueue().size() + backgroundExecutor.getActiveCount();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        backgroundExecutor.shutdown();
         try {
-            // 汇总所有信息
-            StringBuilder context = new StringBuilder();
-            context.append("股票代码: ").append(state.getCompany()).append("\n\n");
-            
-            if (!state.getAnalystReports().isEmpty()) {
-                context.append("分析师报告:\n");
-                state.getAnalystReports().forEach(r -> context.append(r).append("\n\n"));
-            }
-            
-            if (!state.getResearcherViewpoints().isEmpty()) {
-                context.append("研究员观点:\n");
-                state.getResearcherViewpoints().forEach(v -> context.append(v).append("\n\n"));
-            }
-            
-            if (state.getResearchManagerDecision() != null) {
-                context.append("研究经理决策:\n").append(state.getResearchManagerDecision()).append("\n\n");
+            if (!backgroundExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("后台反思未在60秒内完成，剩余 {} 项被放弃", backgroundExecutor.shutdownNow().size());
             }
-            
-            if (state.getTradingPlan() != null) {
-                context.append("交易计划:\n").append(state.getTradingPlan()).append("\n\n");
-            }
-            
-            if (state.getFinalSignal() != null) {
-                context.append("最终信号: ").append(state.getFinalSignal()).append("\n\n");
-            }
-            
-            String prompt = buildComprehensiveReflectionPrompt(context.toString());
-            
-            List<LlmMessage> messages = new ArrayList<>();
-            messages.add(LlmMessage.system(
-                "你是一位资深的投资顾问，负责对整个决策流程进行最终审视和总结。"
-            ));
-            messages.add(LlmMessage.user(prompt));
-            
-            LlmResponse response = llmClient.chat(messages, reflectionConfig);
-            String reflection = response.getContent();
-            
-            log.info("综合反思完成，反思长度: {} 字符", reflection.length());
-            
-            return state.addReflection("【综合反思】\n" + reflection);
-            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 当前状态下需要执行的反思请求（按合并顺序）
+     */
+    private Map<String, List<LlmMessage>> requests(AgentState state) {
+        Map<String, List<LlmMessage>> requests = new LinkedHashMap<>();
+        List<LlmMessage> analysis = analysisMessages(state);
+        if (analysis != null) {
+            requests.put(ANALYSIS, analysis);
+        }
+        List<LlmMessage> decision = decisionMessages(state);
+        if (decision != null) {
+            requests.put(DECISION, decision);
+        }
+        requests.put(COMPREHENSIVE, comprehensiveMessages(state));
+        return requests;
+    }
+    
+    private AgentState reflectOne(AgentState state, String label, List<LlmMessage> messages) {
+        if (messages == null) {
+            return state;
+        }
+        log.info("开始{}", label);
+        try {
+            return addReflection(state, label, llmClient.chat(messages, reflectionConfig));
         } catch (Exception e) {
-            log.error("综合反思失败", e);
+            log.error("{}失败", label, e);
             return state;
         }
     }
     
+    private AgentState addReflection(AgentState state, String label, LlmResponse response) {
+        String reflection = response.getContent();
+        log.info("{}完成，反思长度: {} 字符", label, reflection.length());
+        return state.addReflection("【" + label + "】\n" + reflection);
+    }
+    
+    private List<LlmMessage> analysisMessages(AgentState state) {
+        if (state.getAnalystReports().isEmpty()) {
+            log.warn("没有分析报告，跳过反思");
+            return null;
+        }
+        String allReports = String.join("\n\n", state.getAnalystReports());
+        return List.of(
+                LlmMessage.system("你是一位经验丰富的分析审查专家，擅长发现分析中的盲点、偏见和不足之处。"),
+                LlmMessage.user(buildAnalysisReflectionPrompt(state.getCompany(), allReports)));
+    }
+    
+    private List<LlmMessage> decisionMessages(AgentState state) {
+        if (state.getResearchManagerDecision() == null) {
+            log.warn("没有交易决策，跳过反思");
+            return null;
+        }
+        return List.of(
+                LlmMessage.system("你是一位风险管理专家，擅长审视交易决策中的潜在风险和问题。"),
+                LlmMessage.user(buildDecisionReflectionPrompt(
+                        state.getCompany(), state.getResearchManagerDecision(), state.getTradingPlan())));
+    }
+    
+    private List<LlmMessage> comprehensiveMessages(AgentState state) {
+        // 汇总所有信息
+        StringBuilder context = new StringBuilder();
+        context.append("股票代码: ").append(state.getCompany()).append("\n\n");
+        
+        if (!state.getAnalystReports().isEmpty()) {
+            context.append("分析师报告:\n");
+            state.getAnalystReports().forEach(r -> context.append(r).append("\n\n"));
+        }
+        
+        if (!state.getResearcherViewpoints().isEmpty()) {
+            context.append("研究员观点:\n");
+            state.getResearcherViewpoints().forEach(v -> context.append(v).append("\n\n"));
+        }
+        
+        if (state.getResearchManagerDecision() != null) {
+            context.append("研究经理决策:\n").append(state.getResearchManagerDecision()).append("\n\n");
+        }
+        
+        if (state.getTradingPlan() != null) {
+            context.append("交易计划:\n").append(state.getTradingPlan()).append("\n\n");
+        }
+        
+        if (state.getFinalSignal() != null) {
+            context.append("最终信号: ").append(state.getFinalSignal()).append("\n\n");
+        }
+        
+        return List.of(
+                LlmMessage.system("你是一位资深的投资顾问，负责对整个决策流程进行最终审视和总结。"),
+                LlmMessage.user(buildComprehensiveReflectionPrompt(context.toString())));
+    }
+    
     private String buildAnalysisReflectionPrompt(String symbol, String reports) {
         return String.format(
             "请审视以下对 %s 的分析报告，识别潜在的问题：\n\n" +
@@ -1,17 +1,43 @@
 package io.leavesfly.jtrade.core.report;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 报告写入器
@@ -19,6 +45,12 @@ import java.util.List;
  * 负责将分析结果写入特定目录
  * 支持按股票代码组织目录结构
  * 
+ * 各部分内容直接写入带缓冲的输出流，默认每次运行生成一个报告文件（摘要在前、各部分在后），
+ * 也可按部分拆分为多个文件；异步提交的报告由后台写入线程通过有界队列依次写出，
+ * 队列已满时由提交线程直接写入。启用运行日志时每次运行另追加一行 JSON 到
+ * {输出目录}/runs-yyyyMMdd.ndjson，便于批量统计；压缩时每次打开新建
+ * runs-yyyyMMdd-HHmmssSSS.ndjson.gz，异常退出只影响当次进程写入的文件
+ * 
  * @author 山泽
  */
 @Slf4j
@@ -28,15 +60,43 @@ public class ReportWriter {
     private static final String DEFAULT_OUTPUT_DIR = "./reports";
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter RUN_LOG_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter RUN_LOG_OPENED_FORMAT = DateTimeFormatter.ofPattern("HHmmssSSS");
+    private static final int BUFFER_SIZE = 1 << 16;
     
     private final String baseOutputDir;
+    private final AppConfig.ReportConfig config;
+    private final ThreadPoolExecutor writerExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // 已提交、尚未写完的报告，供 flush 等待
+    private final Set<CompletableFuture<Path>> pendingWrites = ConcurrentHashMap.newKeySet();
+    
+    // 当前运行日志（按写入日期滚动），由 runLogLock 保护
+    private final Object runLogLock = new Object();
+    private Writer runLog;
+    private LocalDate runLogDate;
     
     public ReportWriter() {
-        this.baseOutputDir = DEFAULT_OUTPUT_DIR;
+        this(DEFAULT_OUTPUT_DIR, new AppConfig.ReportConfig());
     }
     
     public ReportWriter(String baseOutputDir) {
+        this(baseOutputDir, new AppConfig.ReportConfig());
+    }
+    
+    @Autowired
+    public ReportWriter(AppConfig appConfig) {
+        this(appConfig.getReport().getOutputDir(), appConfig.getReport());
+    }
+    
+    public ReportWriter(String baseOutputDir, AppConfig.ReportConfig config) {
         this.baseOutputDir = baseOutputDir;
+        this.config = config;
+        this.writerExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueSize())),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-report-writer-%d").setDaemon(true).build(),
+                // 队列已满或已关闭时在提交线程写入，报告不会丢失
+                (task, executor) -> task.run());
     }
     
     /**
@@ -46,40 +106,81 @@ public class ReportWriter {
      * @return 报告目录路径
      */
     public Path writeFullReport(AgentState state) {
+        return write(state, LocalDateTime.now());
+    }
+    
+    /**
+     * 提交报告到后台写入线程
+     * 
+     * 未启用异步写入、队列已满或写入线程已关闭时在当前线程写入
+     * 
+     * @param state 智能体状态
+     * @return 写入完成时携带报告目录路径的 Future
+     */
+    public CompletableFuture<Path> submit(AgentState state) {
+        LocalDateTime time = LocalDateTime.now();
+        if (!config.isAsync()) {
+            return CompletableFuture.completedFuture(write(state, time));
+        }
+        CompletableFuture<Path> future = CompletableFuture.supplyAsync(() -> write(state, time), writerExecutor);
+        pendingWrites.add(future);
+        future.whenComplete((path, error) -> pendingWrites.remove(future));
+        return future;
+    }
+    
+    /**
+     * 等待调用前已提交的报告全部写完（写入失败的报告同样视为完成）
+     */
+    public void flush() {
+        CompletableFuture<?>[] pending = pendingWrites.toArray(new CompletableFuture<?>[0]);
+        CompletableFuture.allOf(pending).exceptionally(error -> null).join();
+        synchronized (runLogLock) {
+            flushRunLog();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        writerExecutor.shutdown();
+        try {
+            if (!writerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("报告写入线程未在30秒内结束，剩余 {} 份报告未写入", writerExecutor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (runLogLock) {
+            closeRunLog();
+        }
+    }
+    
+    private Path write(AgentState state, LocalDateTime time) {
         try {
             // 创建目录结构: reports/{symbol}/{date}/
             Path reportDir = createReportDirectory(state.getCompany(), state.getDate().toString());
             
             // 生成时间戳
-            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
-            
-            // 1. 写入分析师报告
-            writeAnalystReports(reportDir, timestamp, state.getAnalystReports());
-            
-            // 2. 写入研究员辩论
-            writeResearcherDebate(reportDir, timestamp, state.getResearcherViewpoints());
-            
-            // 3. 写入研究经理决策
-            writeResearchManagerDecision(reportDir, timestamp, state.getResearchManagerDecision());
-            
-            // 4. 写入交易计划
-            writeTradingPlan(reportDir, timestamp, state.getTradingPlan());
-            
-            // 5. 写入风险辩论
-            writeRiskDebate(reportDir, timestamp, state.getRiskDebate());
+            String timestamp = time.format(TIMESTAMP_FORMAT);
             
-            // 6. 写入风险管理决策
-            writeRiskManagerDecision(reportDir, timestamp, state.getRiskManagerDecision());
-            
-            // 7. 写入反思记录
-            writeReflections(reportDir, timestamp, state.getReflections());
+            if (config.isSplitFiles()) {
+                writeSplitFiles(reportDir, timestamp, state, time);
+            } else {
+                Path file = reportDir.resolve(String.format("%s_report.txt", timestamp));
+                try (Writer out = open(file)) {
+                    writeFinalSummary(out, timestamp, state, time, false);
+                    writeSections(out, state);
+                    writeFooter(out);
+                }
+                log.debug("已写入报告: {}", file.getFileName());
+            }
             
-            // 8. 写入最终报告摘要
-            writeFinalSummary(reportDir, timestamp, state);
+            if (config.isRunLog()) {
+                appendRunLog(state, time);
+            }
             
             log.info("报告已写入: {}", reportDir.toAbsolutePath());
             return reportDir;
-            
+        
         } catch (IOException e) {
             log.error("写入报告失败", e);
             throw new RuntimeException("写入报告失败", e);
@@ -87,201 +188,297 @@ public class ReportWriter {
     }
     
     /**
-     * 创建报告目录
+     * 按部分拆分写入（每部分一个文件，与早期版本的目录结构一致）
      */
-    private Path createReportDirectory(String symbol, String date) throws IOException {
-        Path reportDir = Paths.get(baseOutputDir, symbol, date);
-        Files.createDirectories(reportDir);
-        return reportDir;
-    }
-    
-    /**
-     * 写入分析师报告
-     */
-    private void writeAnalystReports(Path reportDir, String timestamp, List<String> reports) throws IOException {
-        if (reports == null || reports.isEmpty()) {
-            return;
+    private void writeSplitFiles(Path reportDir, String timestamp, AgentState state, LocalDateTime time) throws IOException {
+        // 1. 写入分析师报告
+        if (hasItems(state.getAnalystReports())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_analyst_reports.txt", timestamp)))) {
+                writeAnalystReports(out, state.getAnalystReports());
+            }
         }
         
-        Path file = reportDir.resolve(String.format("%s_analyst_reports.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("分析师报告\n");
-        content.append("=" .repeat(80)).append("\n\n");
+        // 2. 写入研究员辩论
+        if (hasItems(state.getResearcherViewpoints())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_researcher_debate.txt", timestamp)))) {
+                writeResearcherDebate(out, state.getResearcherViewpoints());
+            }
+        }
         
-        for (int i = 0; i < reports.size(); i++) {
-            content.append(String.format("【分析师报告 %d】\n", i + 1));
-            content.append("-".repeat(80)).append("\n");
-            content.append(reports.get(i)).append("\n\n");
+        // 3. 写入研究经理决策
+        if (hasText(state.getResearchManagerDecision())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_research_manager_decision.txt", timestamp)))) {
+                writeSection(out, "研究经理决策", state.getResearchManagerDecision());
+            }
         }
         
-        Files.writeString(file, content.toString());
-        log.debug("已写入分析师报告: {}", file.getFileName());
-    }
-    
-    /**
-     * 写入研究员辩论
-     */
-    private void writeResearcherDebate(Path reportDir, String timestamp, List<String> viewpoints) throws IOException {
-        if (viewpoints == null || viewpoints.isEmpty()) {
-            return;
+        // 4. 写入交易计划
+        if (hasText(state.getTradingPlan())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_trading_plan.txt", timestamp)))) {
+                writeSection(out, "交易执行计划", state.getTradingPlan());
+            }
         }
         
-        Path file = reportDir.resolve(String.format("%s_researcher_debate.txt", timestamp));
-        StringBuilder content = new StringBuilder();
+        // 5. 写入风险辩论
+        if (state.getRiskDebate() != null) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_risk_debate.txt", timestamp)))) {
+                writeRiskDebate(out, state.getRiskDebate());
+            }
+        }
         
-        content.append("=" .repeat(80)).append("\n");
-        content.append("研究员辩论记录\n");
-        content.append("=" .repeat(80)).append("\n\n");
+        // 6. 写入风险管理决策
+        if (hasText(state.getRiskManagerDecision())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_risk_manager_decision.txt", timestamp)))) {
+                writeSection(out, "风险管理审批决策", state.getRiskManagerDecision());
+            }
+        }
         
-        for (int i = 0; i < viewpoints.size(); i++) {
-            String speaker = (i % 2 == 0) ? "多头研究员" : "空头研究员";
-            content.append(String.format("【第 %d 轮 - %s】\n", (i / 2) + 1, speaker));
-            content.append("-".repeat(80)).append("\n");
-            content.append(viewpoints.get(i)).append("\n\n");
+        // 7. 写入反思记录
+        if (hasItems(state.getReflections())) {
+            try (Writer out = open(reportDir.resolve(String.format("%s_reflections.txt", timestamp)))) {
+                writeReflections(out, state.getReflections());
+            }
         }
         
-        Files.writeString(file, content.toString());
-        log.debug("已写入研究员辩论: {}", file.getFileName());
+        // 8. 写入最终报告摘要
+        try (Writer out = open(reportDir.resolve(String.format("%s_FINAL_SUMMARY.txt", timestamp)))) {
+            writeFinalSummary(out, timestamp, state, time, true);
+        }
+        log.debug("已写入拆分报告: {}_*.txt", timestamp);
     }
     
     /**
-     * 写入研究经理决策
+     * 在单个报告文件中依次写入各部分
      */
-    private void writeResearchManagerDecision(Path reportDir, String timestamp, String decision) throws IOException {
-        if (decision == null || decision.isEmpty()) {
-            return;
+    private void writeSections(Writer out, AgentState state) throws IOException {
+        if (hasItems(state.getAnalystReports())) {
+            writeAnalystReports(out, state.getAnalystReports());
+        }
+        if (hasItems(state.getResearcherViewpoints())) {
+            writeResearcherDebate(out, state.getResearcherViewpoints());
+        }
+        if (hasText(state.getResearchManagerDecision())) {
+            writeSection(out, "研究经理决策", state.getResearchManagerDecision());
+        }
+        if (hasText(state.getTradingPlan())) {
+            writeSection(out, "交易执行计划", state.getTradingPlan());
+        }
+        if (state.getRiskDebate() != null) {
+            writeRiskDebate(out, state.getRiskDebate());
+        }
+        if (hasText(state.getRiskManagerDecision())) {
+            writeSection(out, "风险管理审批决策", state.getRiskManagerDecision());
+        }
+        if (hasItems(state.getReflections())) {
+            writeReflections(out, state.getReflections());
         }
-        
-        Path file = reportDir.resolve(String.format("%s_research_manager_decision.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("研究经理决策\n");
-        content.append("=" .repeat(80)).append("\n\n");
-        content.append(decision).append("\n");
-        
-        Files.writeString(file, content.toString());
-        log.debug("已写入研究经理决策: {}", file.getFileName());
+    }
+    
+    private static Writer open(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    
+    private static boolean hasItems(List<String> items) {
+        return items != null && !items.isEmpty();
+    }
+    
+    private static boolean hasText(String text) {
+        return text != null && !text.isEmpty();
     }
     
     /**
-     * 写入交易计划
+     * 追加一行运行记录到当日的运行日志
      */
-    private void writeTradingPlan(Path reportDir, String timestamp, String plan) throws IOException {
-        if (plan == null || plan.isEmpty()) {
-            return;
+    private void appendRunLog(AgentState state, LocalDateTime time) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("symbol", state.getCompany());
+        record.put("date", String.valueOf(state.getDate()));
+        record.put("timestamp", time.toString());
+        record.put("finalSignal", state.getFinalSignal());
+        record.put("analystReports", state.getAnalystReports());
+        record.put("researcherViewpoints", state.getResearcherViewpoints());
+        record.put("researchManagerDecision", state.getResearchManagerDecision());
+        record.put("tradingPlan", state.getTradingPlan());
+        RiskDebateState riskDebate = state.getRiskDebate();
+        if (riskDebate != null) {
+            Map<String, Object> debate = new LinkedHashMap<>();
+            debate.put("aggressive", riskDebate.getAggressiveStrategies());
+            debate.put("conservative", riskDebate.getConservativeStrategies());
+            debate.put("neutral", riskDebate.getNeutralStrategies());
+            record.put("riskDebate", debate);
+        }
+        record.put("riskManagerDecision", state.getRiskManagerDecision());
+        record.put("reflections", state.getReflections());
+        
+        synchronized (runLogLock) {
+            try {
+                LocalDate today = time.toLocalDate();
+                if (runLog == null || !today.equals(runLogDate)) {
+                    closeRunLog();
+                    runLog = openRunLog(today);
+                    runLogDate = today;
+                }
+                runLog.write(objectMapper.writeValueAsString(record));
+                runLog.write('\n');
+                // 队列中没有待写的报告时刷出，批量写入时攒满缓冲区再落盘
+                if (writerExecutor.getQueue().isEmpty()) {
+                    flushRunLog();
+                }
+            } catch (IOException e) {
+                log.warn("写入运行日志失败: {}", e.getMessage());
+                closeRunLog();
+            }
         }
-        
-        Path file = reportDir.resolve(String.format("%s_trading_plan.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("交易执行计划\n");
-        content.append("=" .repeat(80)).append("\n\n");
-        content.append(plan).append("\n");
-        
-        Files.writeString(file, content.toString());
-        log.debug("已写入交易计划: {}", file.getFileName());
     }
     
     /**
-     * 写入风险辩论
+     * 打开运行日志
+     * 
+     * 未压缩时按日期追加；压缩时每次打开新建一个文件，不向可能因异常退出而残缺的 gzip 文件追加
      */
-    private void writeRiskDebate(Path reportDir, String timestamp, RiskDebateState riskDebate) throws IOException {
-        if (riskDebate == null) {
-            return;
+    private Writer openRunLog(LocalDate date) throws IOException {
+        Files.createDirectories(Paths.get(baseOutputDir));
+        OutputStream out;
+        if (config.isCompressRunLog()) {
+            out = new GZIPOutputStream(createCompressedRunLog(date), BUFFER_SIZE, true);
+        } else {
+            out = Files.newOutputStream(Paths.get(baseOutputDir, "runs-" + date.format(RUN_LOG_FORMAT) + ".ndjson"),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
         }
-        
-        Path file = reportDir.resolve(String.format("%s_risk_debate.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("风险辩论记录\n");
-        content.append("=" .repeat(80)).append("\n\n");
-        
-        // 激进观点
-        if (riskDebate.getAggressiveStrategies() != null && !riskDebate.getAggressiveStrategies().isEmpty()) {
-            content.append("【激进风险分析】\n");
-            content.append("-".repeat(80)).append("\n");
-            for (String strategy : riskDebate.getAggressiveStrategies()) {
-                content.append(strategy).append("\n\n");
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    
+    private OutputStream createCompressedRunLog(LocalDate date) throws IOException {
+        String name = "runs-" + date.format(RUN_LOG_FORMAT) + "-" + LocalTime.now().format(RUN_LOG_OPENED_FORMAT);
+        for (int attempt = 0; ; attempt++) {
+            Path file = Paths.get(baseOutputDir, name + (attempt == 0 ? "" : "-" + attempt) + ".ndjson.gz");
+            try {
+                return Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                // 同一毫秒内重新打开（如写入失败后重试）时加序号
             }
         }
-        
-        // 保守观点
-        if (riskDebate.getConservativeStrategies() != null && !riskDebate.getConservativeStrategies().isEmpty()) {
-            content.append("【保守风险分析】\n");
-            content.append("-".repeat(80)).append("\n");
-            for (String strategy : riskDebate.getConservativeStrategies()) {
-                content.append(strategy).append("\n\n");
+    }
+    
+    private void flushRunLog() {
+        if (runLog != null) {
+            try {
+                runLog.flush();
+            } catch (IOException e) {
+                log.warn("刷新运行日志失败: {}", e.getMessage());
             }
         }
-        
-        // 中立观点
-        if (riskDebate.getNeutralStrategies() != null && !riskDebate.getNeutralStrategies().isEmpty()) {
-            content.append("【中立风险分析】\n");
-            content.append("-".repeat(80)).append("\n");
-            for (String strategy : riskDebate.getNeutralStrategies()) {
-                content.append(strategy).append("\n\n");
+    }
+    
+    private void closeRunLog() {
+        if (runLog != null) {
+            try {
+                runLog.close();
+            } catch (IOException e) {
+                log.warn("关闭运行日志失败: {}", e.getMessage());
             }
+            runLog = null;
+            runLogDate = null;
         }
-        
-        Files.writeString(file, content.toString());
-        log.debug("已写入风险辩论: {}", file.getFileName());
     }
     
     /**
-     * 写入风险管理决策
+     * 创建报告目录
      */
-    private void writeRiskManagerDecision(Path reportDir, String timestamp, String decision) throws IOException {
-        if (decision == null || decision.isEmpty()) {
-            return;
+    private Path createReportDirectory(String symbol, String date) throws IOException {
+        Path reportDir = Paths.get(baseOutputDir, symbol, date);
+        Files.createDirectories(reportDir);
+        return reportDir;
+    }
+    
+    private static void writeTitle(Writer out, String title) throws IOException {
+        out.write("=".repeat(80));
+        out.write("\n");
+        out.write(title);
+        out.write("\n");
+        out.write("=".repeat(80));
+        out.write("\n\n");
+    }
+    
+    private static void writeSubtitle(Writer out, String subtitle) throws IOException {
+        out.write(subtitle);
+        out.write("\n");
+        out.write("-".repeat(80));
+        out.write("\n");
+    }
+    
+    /**
+     * 写入单段文本部分（研究经理决策、交易计划、风险管理决策）
+     */
+    private void writeSection(Writer out, String title, String text) throws IOException {
+        writeTitle(out, title);
+        out.write(text);
+        out.write("\n\n");
+    }
+    
+    /**
+     * 写入分析师报告
+     */
+    private void writeAnalystReports(Writer out, List<String> reports) throws IOException {
+        writeTitle(out, "分析师报告");
+        for (int i = 0; i < reports.size(); i++) {
+            writeSubtitle(out, String.format("【分析师报告 %d】", i + 1));
+            out.write(reports.get(i));
+            out.write("\n\n");
         }
-        
-        Path file = reportDir.resolve(String.format("%s_risk_manager_decision.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("风险管理审批决策\n");
-        content.append("=" .repeat(80)).append("\n\n");
-        content.append(decision).append("\n");
-        
-        Files.writeString(file, content.toString());
-        log.debug("已写入风险管理决策: {}", file.getFileName());
     }
     
     /**
-     * 写入反思记录
+     * 写入研究员辩论
+     */
+    private void writeResearcherDebate(Writer out, List<String> viewpoints) throws IOException {
+        writeTitle(out, "研究员辩论记录");
+        for (int i = 0; i < viewpoints.size(); i++) {
+            String speaker = (i % 2 == 0) ? "多头研究员" : "空头研究员";
+            writeSubtitle(out, String.format("【第 %d 轮 - %s】", (i / 2) + 1, speaker));
+            out.write(viewpoints.get(i));
+            out.write("\n\n");
+        }
+    }
+    
+    /**
+     * 写入风险辩论
      */
-    private void writeReflections(Path reportDir, String timestamp, List<String> reflections) throws IOException {
-        if (reflections == null || reflections.isEmpty()) {
+    private void writeRiskDebate(Writer out, RiskDebateState riskDebate) throws IOException {
+        writeTitle(out, "风险辩论记录");
+        writeStrategies(out, "【激进风险分析】", riskDebate.getAggressiveStrategies());
+        writeStrategies(out, "【保守风险分析】", riskDebate.getConservativeStrategies());
+        writeStrategies(out, "【中立风险分析】", riskDebate.getNeutralStrategies());
+    }
+    
+    private void writeStrategies(Writer out, String subtitle, List<String> strategies) throws IOException {
+        if (!hasItems(strategies)) {
             return;
         }
-        
-        Path file = reportDir.resolve(String.format("%s_reflections.txt", timestamp));
-        StringBuilder content = new StringBuilder();
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("反思与学习记录\n");
-        content.append("=" .repeat(80)).append("\n\n");
-        
+        writeSubtitle(out, subtitle);
+        for (String strategy : strategies) {
+            out.write(strategy);
+            out.write("\n\n");
+        }
+    }
+    
+    /**
+     * 写入反思记录
+     */
+    private void writeReflections(Writer out, List<String> reflections) throws IOException {
+        writeTitle(out, "反思与学习记录");
         for (int i = 0; i < reflections.size(); i++) {
-            content.append(String.format("【反思 %d】\n", i + 1));
-            content.append("-".repeat(80)).append("\n");
-            content.append(reflections.get(i)).append("\n\n");
+            writeSubtitle(out, String.format("【反思 %d】", i + 1));
+            out.write(reflections.get(i));
+            out.write("\n\n");
         }
-        
-        Files.writeString(file, content.toString());
-        log.debug("已写入反思记录: {}", file.getFileName());
     }
     
     /**
      * 写入最终报告摘要
      */
-    private void writeFinalSummary(Path reportDir, String timestamp, AgentState state) throws IOException {
-        Path file = reportDir.resolve(String.format("%s_FINAL_SUMMARY.txt", timestamp));
+    private void writeFinalSummary(Writer out, String timestamp, AgentState state, LocalDateTime time,
+                                   boolean splitFiles) throws IOException {
         StringBuilder content = new StringBuilder();
         
         content.append("╔" + "═".repeat(78) + "╗\n");
@@ -293,7 +490,7 @@ public class ReportWriter {
         content.append("-".repeat(80)).append("\n");
         content.append(String.format("股票代码: %s\n", state.getCompany()));
         content.append(String.format("分析日期: %s\n", state.getDate().format(DATE_FORMAT)));
-        content.append(String.format("生成时间: %s\n", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))));
+        content.append(String.format("生成时间: %s\n", time.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))));
         content.append("\n");
         
         // 决策流程摘要
@@ -349,24 +546,31 @@ public class ReportWriter {
             content.append(truncate(state.getRiskManagerDecision(), 500)).append("\n\n");
         }
         
-        // 文件清单
-        content.append("【详细报告文件】\n");
-        content.append("-".repeat(80)).append("\n");
-        content.append(String.format("1. %s_analyst_reports.txt        - 分析师报告\n", timestamp));
-        content.append(String.format("2. %s_researcher_debate.txt      - 研究员辩论\n", timestamp));
-        content.append(String.format("3. %s_research_manager_decision.txt - 研究经理决策\n", timestamp));
-        content.append(String.format("4. %s_trading_plan.txt           - 交易计划\n", timestamp));
-        content.append(String.format("5. %s_risk_debate.txt            - 风险辩论\n", timestamp));
-        content.append(String.format("6. %s_risk_manager_decision.txt  - 风险管理决策\n", timestamp));
-        content.append(String.format("7. %s_reflections.txt            - 反思记录\n", timestamp));
-        content.append("\n");
-        
-        content.append("=" .repeat(80)).append("\n");
-        content.append("报告生成完成 | JTrade Multi-Agent Trading System\n");
-        content.append("=" .repeat(80)).append("\n");
+        // 文件清单（单文件模式下各部分紧随摘要之后）
+        if (splitFiles) {
+            content.append("【详细报告文件】\n");
+            content.append("-".repeat(80)).append("\n");
+            content.append(String.format("1. %s_analyst_reports.txt        - 分析师报告\n", timestamp));
+            content.append(String.format("2. %s_researcher_debate.txt      - 研究员辩论\n", timestamp));
+            content.append(String.format("3. %s_research_manager_decision.txt - 研究经理决策\n", timestamp));
+            content.append(String.format("4. %s_trading_plan.txt           - 交易计划\n", timestamp));
+            content.append(String.format("5. %s_risk_debate.txt            - 风险辩论\n", timestamp));
+            content.append(String.format("6. %s_risk_manager_decision.txt  - 风险管理决策\n", timestamp));
+            content.append(String.format("7. %s_reflections.txt            - 反思记录\n", timestamp));
+            content.append("\n");
+        }
         
-        Files.writeString(file, content.toString());
-        log.info("✓ 已生成最终摘要: {}", file.getFileName());
+        out.write(content.toString());
+        if (splitFiles) {
+            writeFooter(out);
+        }
+    }
+    
+    private static void writeFooter(Writer out) throws IOException {
+        out.write("=".repeat(80));
+        out.write("\n报告生成完成 | JTrade Multi-Agent Trading System\n");
+        out.write("=".repeat(80));
+        out.write("\n");
     }
     
     private String getSignalEmoji(String signal) {
@@ -390,6 +594,28 @@ public class ReportWriter {
         return " ".repeat(Math.max(0, padding)) + text + " ".repeat(Math.max(0, width - text.length() - padding));
     }
     
+    /**
+     * 打开实时输出文件
+     * 
+     * 返回的回调可注册为LLM流式监听器，模型增量会实时追加到
+     * reports/{symbol}/{date}/{timestamp}_live_output.txt，便于分析过程中查看部分结果
+     * 
+     * @param symbol 股票代码
+     * @param date 分析日期
+     * @return 实时输出写入器，使用完毕后需关闭
+     */
+    public LiveReport openLiveReport(String symbol, String date) {
+        try {
+            Path reportDir = createReportDirectory(symbol, date);
+            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+            Path file = reportDir.resolve(String.format("%s_live_output.txt", timestamp));
+            return new LiveReport(file, Files.newBufferedWriter(file));
+        } catch (IOException e) {
+            log.error("打开实时输出文件失败", e);
+            throw new RuntimeException("打开实时输出文件失败", e);
+        }
+    }
+    
     /**
      * 获取报告目录路径
      */
@@ -403,4 +629,48 @@ public class ReportWriter {
     public String getBaseOutputDir() {
         return baseOutputDir;
     }
+    
+    /**
+     * 实时输出写入器
+     * 
+     * 按到达顺序追加模型增量，每次响应结束时刷盘
+     */
+    public static class LiveReport implements LlmClient.StreamCallback, Closeable {
+        
+        private final Path file;
+        private final Writer writer;
+        
+        private LiveReport(Path file, Writer writer) {
+            this.file = file;
+            this.writer = writer;
+        }
+        
+        @Override
+        public synchronized void onChunk(String chunk) {
+            try {
+                writer.write(chunk);
+            } catch (IOException e) {
+                log.warn("写入实时输出失败: {}", e.getMessage());
+            }
+        }
+        
+        @Override
+        public synchronized void onComplete(LlmResponse response) {
+            try {
+                writer.write("\n\n" + "-".repeat(80) + "\n\n");
+                writer.flush();
+            } catch (IOException e) {
+                log.warn("写入实时输出失败: {}", e.getMessage());
+            }
+        }
+        
+        public Path getFile() {
+            return file;
+        }
+        
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
 }
@@ -4,10 +4,9 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 主状态容器
@@ -15,6 +14,9 @@ import java.util.Map;
  * 包含整个交易决策流程中的所有状态信息
  * 使用不可变对象模式确保状态安全性
  * 
+ * 列表与元数据默认使用持久化集合（PersistentVector/PersistentMap），
+ * 追加报告或写入元数据只复制一条路径，新旧状态共享其余部分
+ * 
  * @author 山泽
  */
 @Data
@@ -35,13 +37,13 @@ public class AgentState {
      * 分析师报告列表
      */
     @Builder.Default
-    private List<String> analystReports = new ArrayList<>();
+    private List<String> analystReports = PersistentVector.empty();
     
     /**
      * 研究员观点列表
      */
     @Builder.Default
-    private List<String> researcherViewpoints = new ArrayList<>();
+    private List<String> researcherViewpoints = PersistentVector.empty();
     
     /**
      * 投资辩论状态
@@ -77,47 +79,127 @@ public class AgentState {
      * 反思记录
      */
     @Builder.Default
-    private List<String> reflections = new ArrayList<>();
+    private List<String> reflections = PersistentVector.empty();
     
     /**
      * 扩展属性
      */
     @Builder.Default
-    private Map<String, Object> metadata = new HashMap<>();
+    private Map<String, Object> metadata = PersistentMap.empty();
     
     /**
      * 添加分析师报告
      */
     public AgentState addAnalystReport(String report) {
-        List<String> newReports = new ArrayList<>(this.analystReports);
-        newReports.add(report);
-        return this.toBuilder().analystReports(newReports).build();
+        return this.toBuilder().analystReports(PersistentVector.from(this.analystReports).plus(report)).build();
     }
     
     /**
      * 添加研究员观点
      */
     public AgentState addResearcherViewpoint(String viewpoint) {
-        List<String> newViewpoints = new ArrayList<>(this.researcherViewpoints);
-        newViewpoints.add(viewpoint);
-        return this.toBuilder().researcherViewpoints(newViewpoints).build();
+        return this.toBuilder()
+                .researcherViewpoints(PersistentVector.from(this.researcherViewpoints).plus(viewpoint))
+                .build();
     }
     
     /**
      * 添加反思记录
      */
     public AgentState addReflection(String reflection) {
-        List<String> newReflections = new ArrayList<>(this.reflections);
-        newReflections.add(reflection);
-        return this.toBuilder().reflections(newReflections).build();
+        return this.toBuilder().reflections(PersistentVector.from(this.reflections).plus(reflection)).build();
     }
     
     /**
      * 设置元数据
      */
     public AgentState putMetadata(String key, Object value) {
-        Map<String, Object> newMetadata = new HashMap<>(this.metadata);
-        newMetadata.put(key, value);
-        return this.toBuilder().metadata(newMetadata).build();
+        return this.toBuilder().metadata(PersistentMap.from(this.metadata).plus(key, value)).build();
+    }
+    
+    /**
+     * 合并分支状态
+     * 
+     * 各分支均从同一个 base 状态派生，按 branches 的顺序把每个分支新增的
+     * 报告、观点、反思与元数据追加回 base，保证合并结果与分支完成先后无关
+     * 
+     * @param base 分支派生前的公共状态
+     * @param branches 分支执行后的状态（按期望的合并顺序排列）
+     * @return 合并后的状态
+     */
+    public static AgentState merge(AgentState base, List<AgentState> branches) {
+        AgentState merged = base;
+        for (AgentState branch : branches) {
+            merged = applyChanges(merged, base, branch);
+        }
+        return merged;
+    }
+    
+    /**
+     * 将 before -> after 之间的变更应用到 target 上
+     * 
+     * 列表字段追加 after 相对 before 新增的元素，元数据与单值字段仅覆盖发生变化的部分
+     * 
+     * @param target 待应用变更的状态
+     * @param before 变更前的状态
+     * @param after 变更后的状态
+     * @return 应用变更后的新状态
+     */
+    public static AgentState applyChanges(AgentState target, AgentState before, AgentState after) {
+        PersistentVector<String> reports = appendNew(target.analystReports, before.analystReports, after.analystReports);
+        PersistentVector<String> viewpoints = appendNew(target.researcherViewpoints,
+                before.researcherViewpoints, after.researcherViewpoints);
+        PersistentVector<String> mergedReflections = appendNew(target.reflections, before.reflections, after.reflections);
+        PersistentMap<String, Object> mergedMetadata = PersistentMap.from(target.metadata);
+        AgentStateBuilder builder = target.toBuilder();
+        
+        if (after.metadata != before.metadata) {
+            for (Map.Entry<String, Object> entry : after.metadata.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                if (!before.metadata.containsKey(key) || !Objects.equals(before.metadata.get(key), value)) {
+                    mergedMetadata = mergedMetadata.plus(key, value);
+                }
+            }
+        }
+        
+        // 单值字段：改动过的才覆盖
+        if (!Objects.equals(after.investDebate, before.investDebate)) {
+            builder.investDebate(after.investDebate);
+        }
+        if (!Objects.equals(after.researchManagerDecision, before.researchManagerDecision)) {
+            builder.researchManagerDecision(after.researchManagerDecision);
+        }
+        if (!Objects.equals(after.tradingPlan, before.tradingPlan)) {
+            builder.tradingPlan(after.tradingPlan);
+        }
+        if (!Objects.equals(after.riskDebate, before.riskDebate)) {
+            builder.riskDebate(after.riskDebate);
+        }
+        if (!Objects.equals(after.riskManagerDecision, before.riskManagerDecision)) {
+            builder.riskManagerDecision(after.riskManagerDecision);
+        }
+        if (!Objects.equals(after.finalSignal, before.finalSignal)) {
+            builder.finalSignal(after.finalSignal);
+        }
+        
+        return builder
+                .analystReports(reports)
+                .researcherViewpoints(viewpoints)
+                .reflections(mergedReflections)
+                .metadata(mergedMetadata)
+                .build();
+    }
+    
+    /**
+     * 追加分支相对 base 新增的列表元素
+     */
+    private static PersistentVector<String> appendNew(List<String> target, List<String> baseList,
+                                                      List<String> branchList) {
+        PersistentVector<String> result = PersistentVector.from(target);
+        if (branchList.size() > baseList.size()) {
+            result = result.plusAll(branchList.subList(baseList.size(), branchList.size()));
+        }
+        return result;
     }
 }
@@ -3,7 +3,6 @@ package io.leavesfly.jtrade.core.state;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,13 +32,13 @@ public class InvestDebateState {
      * 多头观点列表
      */
     @Builder.Default
-    private List<String> bullArguments = new ArrayList<>();
+    private List<String> bullArguments = PersistentVector.empty();
     
     /**
      * 空头观点列表
      */
     @Builder.Default
-    private List<String> bearArguments = new ArrayList<>();
+    private List<String> bearArguments = PersistentVector.empty();
     
     /**
      * 辩论是否结束
@@ -52,18 +51,14 @@ public class InvestDebateState {
      * 添加多头观点
      */
     public InvestDebateState addBullArgument(String argument) {
-        List<String> newArguments = new ArrayList<>(this.bullArguments);
-        newArguments.add(argument);
-        return this.toBuilder().bullArguments(newArguments).build();
+        return this.toBuilder().bullArguments(PersistentVector.from(this.bullArguments).plus(argument)).build();
     }
     
     /**
      * 添加空头观点
      */
     public InvestDebateState addBearArgument(String argument) {
-        List<String> newArguments = new ArrayList<>(this.bearArguments);
-        newArguments.add(argument);
-        return this.toBuilder().bearArguments(newArguments).build();
+        return this.toBuilder().bearArguments(PersistentVector.from(this.bearArguments).plus(argument)).build();
     }
     
     /**
@@ -0,0 +1,289 @@
+package io.leavesfly.jtrade.core.state;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 持久化哈希表（结构共享的不可变映射）
+ * 
+ * 哈希数组映射前缀树（HAMT）：每层按哈希值的 5 位选择分支，节点用位图压缩存储；
+ * 写入只复制从根到目标位置的一条路径，其余节点与旧版本共享，读写均为 O(log32 n)。
+ * 不支持 null 键，值可以为 null；所有修改操作都返回新实例
+ * 
+ * @author 山泽
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    
+    private static final Object NOT_FOUND = new Object();
+    
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+    
+    private final Node root;
+    private final int size;
+    
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+    
+    /**
+     * 空映射
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+    
+    /**
+     * 由任意映射构建；已经是持久化映射时直接返回，不复制
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        }
+        PersistentMap<K, V> result = empty();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(0, hash(key), key) != NOT_FOUND;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Object value = root.find(0, hash(key), key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+    
+    /**
+     * 写入一个键值对，返回新映射
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        boolean[] added = new boolean[1];
+        Node newRoot = root.assoc(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+    
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+            
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<Map.Entry<K, V>> iterator() {
+                List<Map.Entry<Object, Object>> entries = new ArrayList<>(size);
+                root.collect(entries);
+                List<Map.Entry<K, V>> typed = (List<Map.Entry<K, V>>) (List<?>) entries;
+                return Collections.unmodifiableList(typed).iterator();
+            }
+        };
+    }
+    
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+    
+    /**
+     * 树节点
+     */
+    private interface Node {
+        Object find(int shift, int hash, Object key);
+        
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+        
+        void collect(List<Map.Entry<Object, Object>> out);
+    }
+    
+    /**
+     * 位图节点：array 中依次存放 [键, 值] 或 [null, 子节点]
+     */
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        
+        private final int bitmap;
+        private final Object[] array;
+        
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+        
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int index = indexOf(bit);
+            Object storedKey = array[index];
+            if (storedKey == null) {
+                return ((Node) array[index + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(storedKey) ? array[index + 1] : NOT_FOUND;
+        }
+        
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitFor(hash, shift);
+            int index = indexOf(bit);
+            
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            
+            Object storedKey = array[index];
+            Object storedValue = array[index + 1];
+            if (storedKey == null) {
+                Node child = (Node) storedValue;
+                Node newChild = child.assoc(shift + BITS, hash, key, value, added);
+                return newChild == child ? this : with(index, null, newChild);
+            }
+            if (key.equals(storedKey)) {
+                return storedValue == value ? this : with(index, storedKey, value);
+            }
+            
+            // 同一位置已有其他键：下沉为子节点
+            added[0] = true;
+            return with(index, null, createNode(shift + BITS, storedKey, storedValue, hash, key, value));
+        }
+        
+        @Override
+        public void collect(List<Map.Entry<Object, Object>> out) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).collect(out);
+                } else {
+                    out.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+                }
+            }
+        }
+        
+        private int indexOf(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+        
+        private BitmapNode with(int index, Object key, Object value) {
+            Object[] newArray = array.clone();
+            newArray[index] = key;
+            newArray[index + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+        
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, ignored)
+                    .assoc(shift, hash2, key2, value2, ignored);
+        }
+    }
+    
+    /**
+     * 哈希值完全相同的键，线性存放
+     */
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Object[] array;
+        
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+        
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : array[index + 1];
+        }
+        
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // 哈希不同：包一层位图节点后再写入
+                return new BitmapNode(bitFor(this.hash, shift), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+            
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+        
+        @Override
+        public void collect(List<Map.Entry<Object, Object>> out) {
+            for (int i = 0; i < array.length; i += 2) {
+                out.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+            }
+        }
+        
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
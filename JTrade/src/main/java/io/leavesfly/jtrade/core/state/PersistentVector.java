@@ -0,0 +1,148 @@
+package io.leavesfly.jtrade.core.state;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * 持久化向量（结构共享的不可变列表）
+ * 
+ * 32 叉前缀树加尾部缓冲：追加只复制尾部缓冲（最多 32 个元素）以及从根到新叶子的一条路径，
+ * 新旧版本共享其余节点，追加摊还 O(1)，按下标读取 O(log32 n)。
+ * 所有修改操作都返回新实例，原实例保持不变，可以在线程间安全共享
+ * 
+ * @author 山泽
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    
+    private static final PersistentVector<?> EMPTY =
+            new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+    
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+    
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+    
+    /**
+     * 空向量
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+    
+    /**
+     * 由任意集合构建；已经是持久化向量时直接返回，不复制
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> from(Collection<? extends E> items) {
+        if (items instanceof PersistentVector) {
+            return (PersistentVector<E>) items;
+        }
+        return PersistentVector.<E>empty().plusAll(items);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+    
+    /**
+     * 追加一个元素，返回新向量
+     */
+    public PersistentVector<E> plus(E item) {
+        // 尾部缓冲未满：只复制尾部
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = item;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        
+        // 尾部已满：把尾部作为叶子挂到树上，根节点放不下时树增高一层
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[]{item});
+    }
+    
+    /**
+     * 依次追加多个元素，返回新向量
+     */
+    public PersistentVector<E> plusAll(Collection<? extends E> items) {
+        PersistentVector<E> result = this;
+        for (E item : items) {
+            result = result.plus(item);
+        }
+        return result;
+    }
+    
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+    
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+    
+    /**
+     * 复制从根到插入位置的路径，把满的尾部挂到最右侧
+     */
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        Object[] inserted;
+        if (level == BITS) {
+            inserted = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            inserted = child != null
+                    ? pushTail(level - BITS, child, tailNode)
+                    : newPath(level - BITS, tailNode);
+        }
+        result[subIndex] = inserted;
+        return result;
+    }
+    
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+}
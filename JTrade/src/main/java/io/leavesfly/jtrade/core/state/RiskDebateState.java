@@ -3,7 +3,6 @@ package io.leavesfly.jtrade.core.state;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,19 +32,19 @@ public class RiskDebateState {
      * 激进策略列表
      */
     @Builder.Default
-    private List<String> aggressiveStrategies = new ArrayList<>();
+    private List<String> aggressiveStrategies = PersistentVector.empty();
     
     /**
      * 保守策略列表
      */
     @Builder.Default
-    private List<String> conservativeStrategies = new ArrayList<>();
+    private List<String> conservativeStrategies = PersistentVector.empty();
     
     /**
      * 中立策略列表
      */
     @Builder.Default
-    private List<String> neutralStrategies = new ArrayList<>();
+    private List<String> neutralStrategies = PersistentVector.empty();
     
     /**
      * 最后发言者
@@ -60,30 +59,33 @@ public class RiskDebateState {
     }
     
     /**
-     * 添加激进策略
+     * 添加激进策略，并记为最后发言者
      */
     public RiskDebateState addAggressiveStrategy(String strategy) {
-        List<String> newStrategies = new ArrayList<>(this.aggressiveStrategies);
-        newStrategies.add(strategy);
-        return this.toBuilder().aggressiveStrategies(newStrategies).build();
+        return this.toBuilder()
+                .aggressiveStrategies(PersistentVector.from(this.aggressiveStrategies).plus(strategy))
+                .lastSpeaker("AGGRESSIVE")
+                .build();
     }
     
     /**
-     * 添加保守策略
+     * 添加保守策略，并记为最后发言者
      */
     public RiskDebateState addConservativeStrategy(String strategy) {
-        List<String> newStrategies = new ArrayList<>(this.conservativeStrategies);
-        newStrategies.add(strategy);
-        return this.toBuilder().conservativeStrategies(newStrategies).build();
+        return this.toBuilder()
+                .conservativeStrategies(PersistentVector.from(this.conservativeStrategies).plus(strategy))
+                .lastSpeaker("CONSERVATIVE")
+                .build();
     }
     
     /**
-     * 添加中立策略
+     * 添加中立策略，并记为最后发言者
      */
     public RiskDebateState addNeutralStrategy(String strategy) {
-        List<String> newStrategies = new ArrayList<>(this.neutralStrategies);
-        newStrategies.add(strategy);
-        return this.toBuilder().neutralStrategies(newStrategies).build();
+        return this.toBuilder()
+                .neutralStrategies(PersistentVector.from(this.neutralStrategies).plus(strategy))
+                .lastSpeaker("NEUTRAL")
+                .build();
     }
     
     /**
@@ -92,4 +94,77 @@ public class RiskDebateState {
     public RiskDebateState nextRound() {
         return this.toBuilder().currentRound(this.currentRound + 1).build();
     }
+    
+    /**
+     * 按轮次排列的发言记录，每次发言单独成段，供提示词使用
+     * 
+     * 与 toString 不同，这里只包含发言内容，较早的发言排在前面，便于上下文压缩时优先折叠
+     */
+    public String toTranscript() {
+        int rounds = Math.max(aggressiveStrategies.size(),
+                Math.max(conservativeStrategies.size(), neutralStrategies.size()));
+        if (rounds == 0) {
+            return "（尚无发言）";
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rounds; i++) {
+            sb.append("第").append(i + 1).append("轮：\n");
+            appendTurn(sb, aggressiveStrategies, i);
+            appendTurn(sb, conservativeStrategies, i);
+            appendTurn(sb, neutralStrategies, i);
+        }
+        return sb.toString().trim();
+    }
+    
+    private static void appendTurn(StringBuilder sb, List<String> strategies, int index) {
+        if (index < strategies.size()) {
+            sb.append(strategies.get(index)).append("\n\n");
+        }
+    }
+    
+    /**
+     * 合并同一轮内并行发言的结果
+     * 
+     * 各分支均从 base 派生，按 branches 的顺序追加每个分支新增的策略，
+     * 最后一个有新增发言的分支记为最后发言者
+     * 
+     * @param base 本轮开始时的辩论状态
+     * @param branches 各辩论者发言后的辩论状态
+     * @return 合并后的辩论状态（轮次不变）
+     */
+    public static RiskDebateState merge(RiskDebateState base, List<RiskDebateState> branches) {
+        PersistentVector<String> aggressive = PersistentVector.from(base.aggressiveStrategies);
+        PersistentVector<String> conservative = PersistentVector.from(base.conservativeStrategies);
+        PersistentVector<String> neutral = PersistentVector.from(base.neutralStrategies);
+        String speaker = base.lastSpeaker;
+        
+        for (RiskDebateState branch : branches) {
+            int before = aggressive.size() + conservative.size() + neutral.size();
+            aggressive = appendNew(aggressive, base.aggressiveStrategies, branch.aggressiveStrategies);
+            conservative = appendNew(conservative, base.conservativeStrategies, branch.conservativeStrategies);
+            neutral = appendNew(neutral, base.neutralStrategies, branch.neutralStrategies);
+            if (aggressive.size() + conservative.size() + neutral.size() > before) {
+                speaker = branch.lastSpeaker;
+            }
+        }
+        
+        return base.toBuilder()
+                .aggressiveStrategies(aggressive)
+                .conservativeStrategies(conservative)
+                .neutralStrategies(neutral)
+                .lastSpeaker(speaker)
+                .build();
+    }
+    
+    /**
+     * 追加分支相对 base 新增的策略
+     */
+    private static PersistentVector<String> appendNew(PersistentVector<String> target, List<String> base,
+                                                      List<String> branch) {
+        if (branch.size() <= base.size()) {
+            return target;
+        }
+        return target.plusAll(branch.subList(base.size(), branch.size()));
+    }
 }
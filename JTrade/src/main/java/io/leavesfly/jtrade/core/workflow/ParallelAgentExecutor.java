@@ -0,0 +1,102 @@
+package io.leavesfly.jtrade.core.workflow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.agents.base.Agent;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.dataflow.provider.AsOfContext;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 并行智能体执行器
+ * 
+ * 将一组互不依赖的智能体从同一个输入状态分叉执行，
+ * 全部完成后按智能体列表顺序合并结果，合并顺序与完成先后无关
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class ParallelAgentExecutor {
+    
+    private final ExecutorService executor;
+    
+    public ParallelAgentExecutor(AppConfig appConfig) {
+        int threads = Math.max(1, appConfig.getWorkflow().getMaxParallelism());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("jtrade-agent-%d")
+                .setDaemon(true)
+                .build());
+        log.info("ParallelAgentExecutor initialized with {} threads", threads);
+    }
+    
+    /**
+     * 并行执行智能体并合并状态
+     * 
+     * @param state 公共输入状态
+     * @param agents 待执行的智能体（决定合并顺序）
+     * @return 合并后的状态
+     */
+    public AgentState executeAll(AgentState state, List<? extends Agent> agents) {
+        if (agents.size() <= 1) {
+            return agents.isEmpty() ? state : agents.get(0).execute(state);
+        }
+        
+        return AgentState.merge(state, forkAll(state, agents));
+    }
+    
+    /**
+     * 并行执行智能体，不合并结果
+     * 
+     * 调用方需要区分各分支的产出时使用（例如按发言者记录辩论论点）
+     * 
+     * @param state 公共输入状态
+     * @param agents 待执行的智能体
+     * @return 各智能体执行后的状态（与 agents 顺序一致）
+     */
+    public List<AgentState> forkAll(AgentState state, List<? extends Agent> agents) {
+        List<CompletableFuture<AgentState>> futures = new ArrayList<>();
+        for (Agent agent : agents) {
+            futures.add(CompletableFuture.supplyAsync(StreamListeners.propagate(() -> {
+                long start = System.currentTimeMillis();
+                AgentState result = ModelSelector.withRunOverrides(state,
+                        () -> AsOfContext.withState(state, () -> agent.execute(state)));
+                log.debug("{} 执行完成，耗时 {} ms", agent.getName(), System.currentTimeMillis() - start);
+                return result;
+            }), executor));
+        }
+        
+        List<AgentState> branches = new ArrayList<>();
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            for (CompletableFuture<AgentState> future : futures) {
+                branches.add(future.join());
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("并行执行智能体失败", cause);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("并行执行智能体失败", cause);
+        }
+        
+        return branches;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -2,19 +2,39 @@ package io.leavesfly.jtrade.core.workflow;
 
 import io.leavesfly.jtrade.agents.base.Agent;
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.dataflow.provider.AsOfContext;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 工作流引擎
  * 
  * 提供灵活的工作流编排能力，支持顺序执行、条件分支、循环等
  * 
+ * 节点可以声明读取（inputs）和写入（outputs）的状态字段，例如 analystReports、
+ * investDebate、tradingPlan。引擎据此构建 DAG：节点只依赖在它之前添加、且写入了
+ * 它所读取字段的节点，互不依赖的节点在执行器上并行运行。每个节点的输入状态由初始
+ * 状态叠加其全部上游节点的变更得到，变更按节点添加顺序应用，结果与完成先后无关。
+ * 
+ * 未声明读写字段的节点视为屏障：依赖之前的所有节点，之后的所有节点也依赖它，
+ * 因此只使用 addNode/addConditionalNode/addTransformNode 时行为与顺序执行一致。
+ * 
  * @author 山泽
  */
 @Slf4j
@@ -23,11 +43,32 @@ public class WorkflowEngine {
     
     private final List<WorkflowNode> nodes = new ArrayList<>();
     
+    private final Executor executor;
+    
+    private boolean failFast = false;
+    
+    private NodeListener listener;
+    
+    /**
+     * @param executor 并行节点使用的共享执行器，线程数由 workflow.nodeThreads 配置
+     */
+    public WorkflowEngine(WorkflowExecutor executor) {
+        this.executor = executor;
+    }
+    
     /**
      * 添加顺序执行节点
      */
     public WorkflowEngine addNode(String name, Agent agent) {
-        nodes.add(new WorkflowNode(name, agent, null, null));
+        nodes.add(new WorkflowNode(name, agent::execute, null, null, null, Collections.emptySet()));
+        return this;
+    }
+    
+    /**
+     * 添加声明读写字段的节点
+     */
+    public WorkflowEngine addNode(String name, Agent agent, Set<String> inputs, Set<String> outputs) {
+        nodes.add(new WorkflowNode(name, agent::execute, null, inputs, outputs, Collections.emptySet()));
         return this;
     }
     
@@ -35,7 +76,16 @@ public class WorkflowEngine {
      * 添加条件执行节点
      */
     public WorkflowEngine addConditionalNode(String name, Agent agent, Predicate<AgentState> condition) {
-        nodes.add(new WorkflowNode(name, agent, condition, null));
+        nodes.add(new WorkflowNode(name, agent::execute, condition, null, null, Collections.emptySet()));
+        return this;
+    }
+    
+    /**
+     * 添加声明读写字段的条件执行节点
+     */
+    public WorkflowEngine addConditionalNode(String name, Agent agent, Predicate<AgentState> condition,
+                                             Set<String> inputs, Set<String> outputs) {
+        nodes.add(new WorkflowNode(name, agent::execute, condition, inputs, outputs, Collections.emptySet()));
         return this;
     }
     
@@ -43,7 +93,48 @@ public class WorkflowEngine {
      * 添加转换节点（不执行Agent，只转换状态）
      */
     public WorkflowEngine addTransformNode(String name, Function<AgentState, AgentState> transformer) {
-        nodes.add(new WorkflowNode(name, null, null, transformer));
+        nodes.add(new WorkflowNode(name, transformer, null, null, null, Collections.emptySet()));
+        return this;
+    }
+    
+    /**
+     * 添加声明读写字段的转换节点
+     */
+    public WorkflowEngine addTransformNode(String name, Function<AgentState, AgentState> transformer,
+                                           Set<String> inputs, Set<String> outputs) {
+        nodes.add(new WorkflowNode(name, transformer, null, inputs, outputs, Collections.emptySet()));
+        return this;
+    }
+    
+    /**
+     * 添加汇合节点
+     * 
+     * 等待指定的上游节点全部完成，合并它们各自分叉出的状态；
+     * 汇合节点的输出字段为上游节点输出字段的并集，下游节点可依赖它作为同步点
+     */
+    public WorkflowEngine addJoinNode(String name, String... upstreamNodes) {
+        Set<String> outputs = new LinkedHashSet<>();
+        for (String upstream : upstreamNodes) {
+            outputs.addAll(findNode(upstream).getOutputs());
+        }
+        nodes.add(new WorkflowNode(name, Function.identity(), null, Collections.emptySet(), outputs,
+                new LinkedHashSet<>(Arrays.asList(upstreamNodes))));
+        return this;
+    }
+    
+    /**
+     * 设置节点执行进度监听器
+     */
+    public WorkflowEngine withListener(NodeListener listener) {
+        this.listener = listener;
+        return this;
+    }
+    
+    /**
+     * 设置节点失败时是否中断整个工作流
+     */
+    public WorkflowEngine failFast(boolean failFast) {
+        this.failFast = failFast;
         return this;
     }
     
@@ -53,37 +144,130 @@ public class WorkflowEngine {
     public AgentState execute(AgentState initialState) {
         log.info("开始执行工作流，初始状态: {}", initialState.getCompany());
         
-        AgentState currentState = initialState;
-        int nodeIndex = 0;
+        int size = nodes.size();
+        List<BitSet> ancestors = buildAncestors();
+        List<CompletableFuture<NodeResult>> futures = new ArrayList<>(size);
         
-        for (WorkflowNode node : nodes) {
-            nodeIndex++;
-            log.info("执行节点 [{}/{}]: {}", nodeIndex, nodes.size(), node.getName());
+        for (int i = 0; i < size; i++) {
+            WorkflowNode node = nodes.get(i);
+            int nodeIndex = i + 1;
+            BitSet nodeAncestors = ancestors.get(i);
             
-            try {
-                // 检查条件
-                if (node.getCondition() != null && !node.getCondition().test(currentState)) {
-                    log.info("节点 {} 条件不满足，跳过执行", node.getName());
-                    continue;
-                }
-                
-                // 执行节点
-                if (node.getAgent() != null) {
-                    currentState = node.getAgent().execute(currentState);
-                } else if (node.getTransformer() != null) {
-                    currentState = node.getTransformer().apply(currentState);
-                }
-                
-                log.info("节点 {} 执行成功", node.getName());
-                
-            } catch (Exception e) {
-                log.error("节点 {} 执行失败", node.getName(), e);
-                // 继续执行下一个节点，或者根据策略决定是否中断
+            CompletableFuture<?>[] upstream = nodeAncestors.stream()
+                    .mapToObj(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            
+            Supplier<NodeResult> task = StreamListeners.propagate(() -> {
+                AgentState input = applyResults(initialState, futures, nodeAncestors);
+                return runNode(node, nodeIndex, size, input);
+            });
+            CompletableFuture<NodeResult> future = CompletableFuture.allOf(upstream)
+                    .thenApplyAsync(ignored -> task.get(), executor);
+            futures.add(future);
+        }
+        
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
+            throw new IllegalStateException("工作流执行失败", cause);
         }
         
+        BitSet all = new BitSet(size);
+        all.set(0, size);
+        AgentState finalState = applyResults(initialState, futures, all);
+        
         log.info("工作流执行完成");
-        return currentState;
+        return finalState;
+    }
+    
+    /**
+     * 执行单个节点
+     */
+    private NodeResult runNode(WorkflowNode node, int nodeIndex, int total, AgentState input) {
+        log.info("执行节点 [{}/{}]: {}", nodeIndex, total, node.getName());
+        long start = System.nanoTime();
+        
+        try {
+            // 检查条件
+            if (node.getCondition() != null && !node.getCondition().test(input)) {
+                log.info("节点 {} 条件不满足，跳过执行", node.getName());
+                return new NodeResult(input, input);
+            }
+            
+            if (listener != null) {
+                listener.onNodeStart(node.getName(), nodeIndex, total);
+            }
+            AgentState output = ModelSelector.withRunOverrides(input,
+                    () -> AsOfContext.withState(input, () -> node.getAction().apply(input)));
+            log.info("节点 {} 执行成功", node.getName());
+            if (listener != null) {
+                listener.onNodeComplete(node.getName(), nodeIndex, total, output,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+            return new NodeResult(input, output);
+        
+        } catch (Exception e) {
+            log.error("节点 {} 执行失败", node.getName(), e);
+            if (listener != null) {
+                listener.onNodeFailed(node.getName(), nodeIndex, total, e);
+            }
+            if (failFast) {
+                throw e;
+            }
+            // 继续执行下游节点，失败节点不产生状态变更
+            return new NodeResult(input, input);
+        }
+    }
+    
+    /**
+     * 按节点添加顺序把选中节点的状态变更叠加到初始状态上
+     */
+    private AgentState applyResults(AgentState initialState, List<CompletableFuture<NodeResult>> futures,
+                                    BitSet selected) {
+        AgentState state = initialState;
+        for (int j = selected.nextSetBit(0); j >= 0; j = selected.nextSetBit(j + 1)) {
+            NodeResult result = futures.get(j).join();
+            state = AgentState.applyChanges(state, result.before(), result.after());
+        }
+        return state;
+    }
+    
+    /**
+     * 计算每个节点的传递上游节点集合
+     */
+    private List<BitSet> buildAncestors() {
+        List<BitSet> ancestors = new ArrayList<>(nodes.size());
+        
+        for (int i = 0; i < nodes.size(); i++) {
+            WorkflowNode node = nodes.get(i);
+            BitSet set = new BitSet(nodes.size());
+            
+            for (int j = 0; j < i; j++) {
+                WorkflowNode previous = nodes.get(j);
+                boolean dependent = node.isBarrier()
+                        || previous.isBarrier()
+                        || node.getDependsOn().contains(previous.getName())
+                        || !Collections.disjoint(node.getInputs(), previous.getOutputs());
+                if (dependent) {
+                    set.set(j);
+                    set.or(ancestors.get(j));
+                }
+            }
+            ancestors.add(set);
+        }
+        
+        return ancestors;
+    }
+    
+    private WorkflowNode findNode(String name) {
+        return nodes.stream()
+                .filter(node -> node.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未找到工作流节点: " + name));
     }
     
     /**
@@ -100,38 +284,83 @@ public class WorkflowEngine {
         return nodes.size();
     }
     
+    /**
+     * 节点执行进度监听器
+     * 
+     * 在执行节点的线程上回调，并行节点的回调可能来自不同线程
+     */
+    public interface NodeListener {
+        
+        default void onNodeStart(String node, int index, int total) {
+        }
+        
+        default void onNodeComplete(String node, int index, int total, AgentState output, long elapsedMs) {
+        }
+        
+        default void onNodeFailed(String node, int index, int total, Exception error) {
+        }
+    }
+    
+    /**
+     * 节点执行结果（执行前后的状态）
+     */
+    private record NodeResult(AgentState before, AgentState after) {
+    }
+    
     /**
      * 工作流节点
      */
     private static class WorkflowNode {
         private final String name;
-        private final Agent agent;
+        private final Function<AgentState, AgentState> action;
         private final Predicate<AgentState> condition;
-        private final Function<AgentState, AgentState> transformer;
+        private final Set<String> inputs;
+        private final Set<String> outputs;
+        private final Set<String> dependsOn;
         
-        public WorkflowNode(String name, Agent agent, 
+        public WorkflowNode(String name,
+                          Function<AgentState, AgentState> action,
                           Predicate<AgentState> condition,
-                          Function<AgentState, AgentState> transformer) {
+                          Set<String> inputs,
+                          Set<String> outputs,
+                          Set<String> dependsOn) {
             this.name = name;
-            this.agent = agent;
+            this.action = action;
             this.condition = condition;
-            this.transformer = transformer;
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.dependsOn = dependsOn;
         }
         
         public String getName() {
             return name;
         }
         
-        public Agent getAgent() {
-            return agent;
+        public Function<AgentState, AgentState> getAction() {
+            return action;
         }
         
         public Predicate<AgentState> getCondition() {
             return condition;
         }
         
-        public Function<AgentState, AgentState> getTransformer() {
-            return transformer;
+        public Set<String> getInputs() {
+            return inputs != null ? inputs : Collections.emptySet();
+        }
+        
+        public Set<String> getOutputs() {
+            return outputs != null ? outputs : Collections.emptySet();
+        }
+        
+        public Set<String> getDependsOn() {
+            return dependsOn;
+        }
+        
+        /**
+         * 未声明读写字段的节点按顺序屏障处理
+         */
+        public boolean isBarrier() {
+            return inputs == null && outputs == null;
         }
     }
 }
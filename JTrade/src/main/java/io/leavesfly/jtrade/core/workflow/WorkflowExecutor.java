@@ -0,0 +1,48 @@
+package io.leavesfly.jtrade.core.workflow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 工作流节点执行器
+ * 
+ * 所有交易图共享的固定大小线程池，限制并发运行的工作流节点总数；
+ * 并发的回测日与分析任务超出线程数时，就绪节点在队列中等待。
+ * 
+ * 与 {@link ParallelAgentExecutor} 使用不同的线程池：节点内会阻塞等待分叉的智能体完成，
+ * 共用同一个有界线程池可能耗尽线程而互相等待
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class WorkflowExecutor implements Executor {
+    
+    private final ExecutorService executor;
+    
+    public WorkflowExecutor(AppConfig appConfig) {
+        int threads = Math.max(1, appConfig.getWorkflow().getNodeThreads());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("jtrade-workflow-%d")
+                .setDaemon(true)
+                .build());
+        log.info("WorkflowExecutor initialized with {} threads", threads);
+    }
+    
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
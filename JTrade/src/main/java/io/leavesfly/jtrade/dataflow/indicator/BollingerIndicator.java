@@ -0,0 +1,55 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+/**
+ * 布林带
+ * 
+ * 中轨为 SMA，上下轨为中轨加减 numStdDev 倍的窗口总体标准差
+ * 
+ * @author 山泽
+ */
+public class BollingerIndicator implements RollingIndicator {
+    
+    private final SmaIndicator sma;
+    private final double numStdDev;
+    
+    public BollingerIndicator(int period, double numStdDev) {
+        this.sma = new SmaIndicator(period);
+        this.numStdDev = numStdDev;
+    }
+    
+    private BollingerIndicator(BollingerIndicator other) {
+        this.sma = other.sma.copy();
+        this.numStdDev = other.numStdDev;
+    }
+    
+    @Override
+    public void update(double value) {
+        sma.update(value);
+    }
+    
+    /**
+     * 中轨
+     */
+    @Override
+    public double value() {
+        return sma.value();
+    }
+    
+    public double upper() {
+        return sma.value() + numStdDev * sma.standardDeviation();
+    }
+    
+    public double lower() {
+        return sma.value() - numStdDev * sma.standardDeviation();
+    }
+    
+    @Override
+    public boolean isReady() {
+        return sma.isReady();
+    }
+    
+    @Override
+    public BollingerIndicator copy() {
+        return new BollingerIndicator(this);
+    }
+}
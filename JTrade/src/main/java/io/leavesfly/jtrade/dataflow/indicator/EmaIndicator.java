@@ -0,0 +1,59 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+/**
+ * 指数移动平均线（EMA）
+ * 
+ * 以前 period 个值的简单平均作为初值，之后按 2/(period+1) 的平滑系数递推
+ * 
+ * @author 山泽
+ */
+public class EmaIndicator implements RollingIndicator {
+    
+    private final int period;
+    private final double multiplier;
+    private int count;
+    private double seedSum;
+    private double ema;
+    
+    public EmaIndicator(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.period = period;
+        this.multiplier = 2.0 / (period + 1);
+    }
+    
+    private EmaIndicator(EmaIndicator other) {
+        this.period = other.period;
+        this.multiplier = other.multiplier;
+        this.count = other.count;
+        this.seedSum = other.seedSum;
+        this.ema = other.ema;
+    }
+    
+    @Override
+    public void update(double value) {
+        if (count < period) {
+            seedSum += value;
+            count++;
+            ema = seedSum / count;
+        } else {
+            ema = (value - ema) * multiplier + ema;
+        }
+    }
+    
+    @Override
+    public double value() {
+        return count == 0 ? Double.NaN : ema;
+    }
+    
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+    
+    @Override
+    public EmaIndicator copy() {
+        return new EmaIndicator(this);
+    }
+}
@@ -0,0 +1,161 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 增量技术指标引擎
+ * 
+ * 为单个股票维护 RSI(14)、SMA(20/50)、MACD(12,26,9) 和布林带(20,2) 的滚动状态，
+ * 每根新K线只做 O(1) 更新。引擎记录最后一根K线的日期，可以直接喂入整段序列，
+ * 已处理过的K线会被跳过
+ * 
+ * snapshot/restore 用于保存和回滚状态，例如尚未收盘的K线先在快照上试算，
+ * 收盘后再正式提交；回测时也可以从任意时点的快照继续推进
+ * 
+ * @author 山泽
+ */
+public class IndicatorEngine {
+    
+    private RsiIndicator rsi;
+    private SmaIndicator sma20;
+    private SmaIndicator sma50;
+    private MacdIndicator macd;
+    private BollingerIndicator bollinger;
+    private long lastEpochDay;
+    private int barCount;
+    
+    public IndicatorEngine() {
+        this.rsi = new RsiIndicator(14);
+        this.sma20 = new SmaIndicator(20);
+        this.sma50 = new SmaIndicator(50);
+        this.macd = new MacdIndicator(12, 26, 9);
+        this.bollinger = new BollingerIndicator(20, 2.0);
+        this.lastEpochDay = Long.MIN_VALUE;
+    }
+    
+    private IndicatorEngine(IndicatorEngine other) {
+        copyFrom(other);
+    }
+    
+    /**
+     * 由整段K线构建引擎
+     */
+    public static IndicatorEngine replay(BarSeries series) {
+        IndicatorEngine engine = new IndicatorEngine();
+        engine.update(series);
+        return engine;
+    }
+    
+    /**
+     * 输入一根K线的收盘价
+     */
+    public void update(long epochDay, double close) {
+        if (Double.isNaN(close)) {
+            return;
+        }
+        rsi.update(close);
+        sma20.update(close);
+        sma50.update(close);
+        macd.update(close);
+        bollinger.update(close);
+        lastEpochDay = epochDay;
+        barCount++;
+    }
+    
+    /**
+     * 输入序列中晚于最后已处理日期的K线
+     */
+    public void update(BarSeries series) {
+        for (int i = 0; i < series.size(); i++) {
+            long epochDay = series.getEpochDay(i);
+            if (epochDay > lastEpochDay) {
+                update(epochDay, series.getClose(i));
+            }
+        }
+    }
+    
+    /**
+     * 当前指标值，键名与 DataAggregator.getTechnicalIndicators 一致
+     */
+    public Map<String, Double> values() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("RSI", rsi.value());
+        values.put("SMA_20", sma20.value());
+        values.put("SMA_50", sma50.value());
+        values.put("MACD", macd.value());
+        values.put("MACD_Signal", macd.signal());
+        values.put("MACD_Histogram", macd.histogram());
+        values.put("BB_UPPER", bollinger.upper());
+        values.put("BB_MIDDLE", bollinger.value());
+        values.put("BB_LOWER", bollinger.lower());
+        return values;
+    }
+    
+    /**
+     * 保存当前状态
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(new IndicatorEngine(this));
+    }
+    
+    /**
+     * 恢复到快照时的状态
+     */
+    public void restore(Snapshot snapshot) {
+        copyFrom(snapshot.state);
+    }
+    
+    /**
+     * 复制出独立的引擎
+     */
+    public IndicatorEngine copy() {
+        return new IndicatorEngine(this);
+    }
+    
+    public long getLastEpochDay() {
+        return lastEpochDay;
+    }
+    
+    public int getBarCount() {
+        return barCount;
+    }
+    
+    /**
+     * 所有指标都已完成初始化
+     */
+    public boolean isReady() {
+        return rsi.isReady() && sma50.isReady() && macd.isReady() && bollinger.isReady();
+    }
+    
+    private void copyFrom(IndicatorEngine other) {
+        this.rsi = other.rsi.copy();
+        this.sma20 = other.sma20.copy();
+        this.sma50 = other.sma50.copy();
+        this.macd = other.macd.copy();
+        this.bollinger = other.bollinger.copy();
+        this.lastEpochDay = other.lastEpochDay;
+        this.barCount = other.barCount;
+    }
+    
+    /**
+     * 引擎状态快照（不可变）
+     */
+    public static final class Snapshot {
+        private final IndicatorEngine state;
+        
+        private Snapshot(IndicatorEngine state) {
+            this.state = state;
+        }
+        
+        public long getLastEpochDay() {
+            return state.lastEpochDay;
+        }
+        
+        public int getBarCount() {
+            return state.barCount;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+/**
+ * MACD 指标
+ * 
+ * MACD 线为快慢 EMA 之差，信号线为 MACD 线的 EMA，
+ * 慢线完成初始化后才开始向信号线输入数据
+ * 
+ * @author 山泽
+ */
+public class MacdIndicator implements RollingIndicator {
+    
+    private final EmaIndicator fast;
+    private final EmaIndicator slow;
+    private final EmaIndicator signal;
+    
+    public MacdIndicator(int fastPeriod, int slowPeriod, int signalPeriod) {
+        this.fast = new EmaIndicator(fastPeriod);
+        this.slow = new EmaIndicator(slowPeriod);
+        this.signal = new EmaIndicator(signalPeriod);
+    }
+    
+    private MacdIndicator(MacdIndicator other) {
+        this.fast = other.fast.copy();
+        this.slow = other.slow.copy();
+        this.signal = other.signal.copy();
+    }
+    
+    @Override
+    public void update(double value) {
+        fast.update(value);
+        slow.update(value);
+        if (slow.isReady()) {
+            signal.update(value());
+        }
+    }
+    
+    /**
+     * MACD 线
+     */
+    @Override
+    public double value() {
+        return slow.isReady() ? fast.value() - slow.value() : 0.0;
+    }
+    
+    /**
+     * 信号线
+     */
+    public double signal() {
+        return slow.isReady() ? signal.value() : 0.0;
+    }
+    
+    /**
+     * 柱状图（MACD 线 - 信号线）
+     */
+    public double histogram() {
+        return value() - signal();
+    }
+    
+    @Override
+    public boolean isReady() {
+        return signal.isReady();
+    }
+    
+    @Override
+    public MacdIndicator copy() {
+        return new MacdIndicator(this);
+    }
+}
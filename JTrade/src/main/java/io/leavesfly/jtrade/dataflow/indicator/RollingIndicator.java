@@ -0,0 +1,32 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+/**
+ * 滚动指标
+ * 
+ * 每到达一个新数据点调用一次 update，以 O(1) 的代价更新内部状态；
+ * copy 返回独立的状态副本，用于快照与回滚
+ * 
+ * @author 山泽
+ */
+public interface RollingIndicator {
+    
+    /**
+     * 输入一个新数据点
+     */
+    void update(double value);
+    
+    /**
+     * 当前指标值
+     */
+    double value();
+    
+    /**
+     * 是否已积累足够的数据点
+     */
+    boolean isReady();
+    
+    /**
+     * 复制当前状态
+     */
+    RollingIndicator copy();
+}
@@ -0,0 +1,82 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+/**
+ * 相对强弱指标（RSI，Wilder 平滑）
+ * 
+ * 前 period 个涨跌幅取简单平均作为初值，之后按 (avg*(period-1)+x)/period 平滑。
+ * 数据不足时返回中性值 50
+ * 
+ * @author 山泽
+ */
+public class RsiIndicator implements RollingIndicator {
+    
+    private final int period;
+    private double previous = Double.NaN;
+    private int changes;
+    private double averageGain;
+    private double averageLoss;
+    
+    public RsiIndicator(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.period = period;
+    }
+    
+    private RsiIndicator(RsiIndicator other) {
+        this.period = other.period;
+        this.previous = other.previous;
+        this.changes = other.changes;
+        this.averageGain = other.averageGain;
+        this.averageLoss = other.averageLoss;
+    }
+    
+    @Override
+    public void update(double value) {
+        if (Double.isNaN(previous)) {
+            previous = value;
+            return;
+        }
+        
+        double change = value - previous;
+        double gain = Math.max(change, 0.0);
+        double loss = Math.max(-change, 0.0);
+        previous = value;
+        
+        if (changes < period) {
+            // 初始化阶段：累加后取简单平均
+            averageGain += gain;
+            averageLoss += loss;
+            changes++;
+            if (changes == period) {
+                averageGain /= period;
+                averageLoss /= period;
+            }
+        } else {
+            averageGain = (averageGain * (period - 1) + gain) / period;
+            averageLoss = (averageLoss * (period - 1) + loss) / period;
+        }
+    }
+    
+    @Override
+    public double value() {
+        if (!isReady()) {
+            return 50.0;
+        }
+        if (averageLoss == 0) {
+            return 100.0;
+        }
+        double rs = averageGain / averageLoss;
+        return 100.0 - (100.0 / (1.0 + rs));
+    }
+    
+    @Override
+    public boolean isReady() {
+        return changes >= period;
+    }
+    
+    @Override
+    public RsiIndicator copy() {
+        return new RsiIndicator(this);
+    }
+}
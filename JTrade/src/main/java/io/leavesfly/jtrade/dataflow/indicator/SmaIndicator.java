@@ -0,0 +1,80 @@
+package io.leavesfly.jtrade.dataflow.indicator;
+
+import java.util.Arrays;
+
+/**
+ * 简单移动平均线（SMA）
+ * 
+ * 环形缓冲区保存最近 period 个值并维护累加和与平方和，
+ * 同时可给出窗口内的总体标准差。数据不足 period 个时按已有数据计算
+ * 
+ * @author 山泽
+ */
+public class SmaIndicator implements RollingIndicator {
+    
+    private final int period;
+    private final double[] window;
+    private int count;
+    private int next;
+    private double sum;
+    private double sumOfSquares;
+    
+    public SmaIndicator(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.period = period;
+        this.window = new double[period];
+    }
+    
+    private SmaIndicator(SmaIndicator other) {
+        this.period = other.period;
+        this.window = Arrays.copyOf(other.window, other.window.length);
+        this.count = other.count;
+        this.next = other.next;
+        this.sum = other.sum;
+        this.sumOfSquares = other.sumOfSquares;
+    }
+    
+    @Override
+    public void update(double value) {
+        if (count == period) {
+            double evicted = window[next];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        window[next] = value;
+        next = (next + 1) % period;
+        sum += value;
+        sumOfSquares += value * value;
+    }
+    
+    @Override
+    public double value() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+    
+    /**
+     * 窗口内的总体标准差
+     */
+    public double standardDeviation() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double mean = sum / count;
+        // 浮点误差可能使方差略小于0
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean));
+    }
+    
+    @Override
+    public boolean isReady() {
+        return count == period;
+    }
+    
+    @Override
+    public SmaIndicator copy() {
+        return new SmaIndicator(this);
+    }
+}
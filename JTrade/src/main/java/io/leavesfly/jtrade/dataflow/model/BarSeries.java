@@ -0,0 +1,426 @@
+package io.leavesfly.jtrade.dataflow.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列式K线序列
+ * 
+ * 按日期升序保存一个股票的行情，日期、价格和成交量分别存放在 int[]/double[]/long[] 列中。
+ * slice/tail 返回共享底层数组的视图，不复制数据；按下标读取价格不产生任何对象分配，
+ * 适合在技术指标计算中直接遍历
+ * 
+ * 缺失的价格记为 NaN，缺失的成交量记为 -1
+ * 
+ * @author 山泽
+ */
+public final class BarSeries {
+    
+    private static final BarSeries EMPTY = new BarSeries(null, new int[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], new long[0], 0, 0);
+    
+    private final String symbol;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] adjustedClose;
+    private final long[] volume;
+    private final int offset;
+    private final int length;
+    
+    private BarSeries(String symbol, int[] epochDays, double[] open, double[] high, double[] low,
+                      double[] close, double[] adjustedClose, long[] volume, int offset, int length) {
+        this.symbol = symbol;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.adjustedClose = adjustedClose;
+        this.volume = volume;
+        this.offset = offset;
+        this.length = length;
+    }
+    
+    /**
+     * 空序列
+     */
+    public static BarSeries empty(String symbol) {
+        return symbol == null ? EMPTY : EMPTY.withSymbol(symbol);
+    }
+    
+    /**
+     * 创建构建器
+     */
+    public static Builder builder(String symbol) {
+        return new Builder(symbol, 64);
+    }
+    
+    /**
+     * 创建预估容量的构建器
+     */
+    public static Builder builder(String symbol, int expectedSize) {
+        return new Builder(symbol, expectedSize);
+    }
+    
+    /**
+     * 由行情列表构建（列表无需有序，同一日期保留最后一条）
+     */
+    public static BarSeries fromMarketData(String symbol, List<MarketData> data) {
+        Builder builder = new Builder(symbol, data.size());
+        for (MarketData bar : data) {
+            builder.add(bar.getDate(),
+                    toDouble(bar.getOpen()),
+                    toDouble(bar.getHigh()),
+                    toDouble(bar.getLow()),
+                    toDouble(bar.getClose()),
+                    toDouble(bar.getAdjustedClose()),
+                    bar.getVolume() != null ? bar.getVolume() : -1);
+        }
+        return builder.build();
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public int size() {
+        return length;
+    }
+    
+    public boolean isEmpty() {
+        return length == 0;
+    }
+    
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(epochDays[offset + checkIndex(index)]);
+    }
+    
+    public long getEpochDay(int index) {
+        return epochDays[offset + checkIndex(index)];
+    }
+    
+    public double getOpen(int index) {
+        return open[offset + checkIndex(index)];
+    }
+    
+    public double getHigh(int index) {
+        return high[offset + checkIndex(index)];
+    }
+    
+    public double getLow(int index) {
+        return low[offset + checkIndex(index)];
+    }
+    
+    public double getClose(int index) {
+        return close[offset + checkIndex(index)];
+    }
+    
+    public double getAdjustedClose(int index) {
+        return adjustedClose[offset + checkIndex(index)];
+    }
+    
+    public long getVolume(int index) {
+        return volume[offset + checkIndex(index)];
+    }
+    
+    /**
+     * 最新收盘价
+     */
+    public double lastClose() {
+        return getClose(length - 1);
+    }
+    
+    public LocalDate getStartDate() {
+        return isEmpty() ? null : getDate(0);
+    }
+    
+    public LocalDate getEndDate() {
+        return isEmpty() ? null : getDate(length - 1);
+    }
+    
+    /**
+     * 截取 [from, to] 日期区间的视图
+     */
+    public BarSeries slice(LocalDate from, LocalDate to) {
+        int start = lowerBound(from.toEpochDay());
+        int end = lowerBound(to.toEpochDay() + 1);
+        return view(start, Math.max(start, end));
+    }
+    
+    /**
+     * 截取截至某日（含）的视图，用于按时点回放
+     */
+    public BarSeries asOf(LocalDate date) {
+        return view(0, lowerBound(date.toEpochDay() + 1));
+    }
+    
+    /**
+     * 最后 n 根K线的视图
+     */
+    public BarSeries tail(int n) {
+        return view(Math.max(0, length - n), length);
+    }
+    
+    /**
+     * 按下标截取 [fromIndex, toIndex) 的视图
+     */
+    public BarSeries view(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("view [" + fromIndex + ", " + toIndex + ") of " + length);
+        }
+        return new BarSeries(symbol, epochDays, open, high, low, close, adjustedClose, volume,
+                offset + fromIndex, toIndex - fromIndex);
+    }
+    
+    /**
+     * 以其他股票代码共享同一份数据
+     */
+    public BarSeries withSymbol(String newSymbol) {
+        return new BarSeries(newSymbol, epochDays, open, high, low, close, adjustedClose, volume, offset, length);
+    }
+    
+    /**
+     * 与更新的数据合并，同一日期以 newer 为准
+     */
+    public BarSeries merge(BarSeries newer) {
+        if (newer.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return newer.withSymbol(symbol != null ? symbol : newer.symbol);
+        }
+        
+        Builder builder = new Builder(symbol, length + newer.length);
+        int i = 0;
+        int j = 0;
+        while (i < length || j < newer.length) {
+            long left = i < length ? getEpochDay(i) : Long.MAX_VALUE;
+            long right = j < newer.length ? newer.getEpochDay(j) : Long.MAX_VALUE;
+            if (right <= left) {
+                builder.copy(newer, j++);
+                if (right == left) {
+                    i++;
+                }
+            } else {
+                builder.copy(this, i++);
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * 复制出独立的紧凑序列（视图不再引用原数组）
+     */
+    public BarSeries compact() {
+        if (offset == 0 && length == epochDays.length) {
+            return this;
+        }
+        return new BarSeries(symbol,
+                Arrays.copyOfRange(epochDays, offset, offset + length),
+                Arrays.copyOfRange(open, offset, offset + length),
+                Arrays.copyOfRange(high, offset, offset + length),
+                Arrays.copyOfRange(low, offset, offset + length),
+                Arrays.copyOfRange(close, offset, offset + length),
+                Arrays.copyOfRange(adjustedClose, offset, offset + length),
+                Arrays.copyOfRange(volume, offset, offset + length),
+                0, length);
+    }
+    
+    /**
+     * 转换为行情列表（兼容旧接口）
+     */
+    public List<MarketData> toMarketDataList() {
+        List<MarketData> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(MarketData.builder()
+                    .symbol(symbol)
+                    .date(getDate(i))
+                    .open(toDecimal(getOpen(i)))
+                    .high(toDecimal(getHigh(i)))
+                    .low(toDecimal(getLow(i)))
+                    .close(toDecimal(getClose(i)))
+                    .adjustedClose(toDecimal(getAdjustedClose(i)))
+                    .volume(getVolume(i) >= 0 ? getVolume(i) : null)
+                    .build());
+        }
+        return result;
+    }
+    
+    /**
+     * 第一个日期不早于 epochDay 的下标
+     */
+    private int lowerBound(long epochDay) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDays[offset + mid] < epochDay) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    private int checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + length);
+        }
+        return index;
+    }
+    
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+    
+    private static BigDecimal toDecimal(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+    
+    @Override
+    public String toString() {
+        return "BarSeries{" + symbol + ", " + length + " bars, " + getStartDate() + " ~ " + getEndDate() + "}";
+    }
+    
+    /**
+     * 构建器
+     * 
+     * 逐条追加K线，数组按需倍增。追加顺序为升序时不需要排序，
+     * 否则 build 时按日期排序，同一日期保留最后追加的一条
+     */
+    public static final class Builder {
+        private final String symbol;
+        private int[] epochDays;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private double[] adjustedClose;
+        private long[] volume;
+        private int size;
+        private boolean sorted = true;
+        
+        private Builder(String symbol, int capacity) {
+            this.symbol = symbol;
+            int initial = Math.max(capacity, 8);
+            this.epochDays = new int[initial];
+            this.open = new double[initial];
+            this.high = new double[initial];
+            this.low = new double[initial];
+            this.close = new double[initial];
+            this.adjustedClose = new double[initial];
+            this.volume = new long[initial];
+        }
+        
+        public Builder add(LocalDate date, double openPrice, double highPrice, double lowPrice,
+                           double closePrice, double adjustedClosePrice, long barVolume) {
+            ensureCapacity(size + 1);
+            int epochDay = (int) date.toEpochDay();
+            if (size > 0 && epochDay <= epochDays[size - 1]) {
+                sorted = false;
+            }
+            epochDays[size] = epochDay;
+            open[size] = openPrice;
+            high[size] = highPrice;
+            low[size] = lowPrice;
+            close[size] = closePrice;
+            adjustedClose[size] = adjustedClosePrice;
+            volume[size] = barVolume;
+            size++;
+            return this;
+        }
+        
+        private void copy(BarSeries source, int index) {
+            add(source.getDate(index), source.getOpen(index), source.getHigh(index), source.getLow(index),
+                    source.getClose(index), source.getAdjustedClose(index), source.getVolume(index));
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public BarSeries build() {
+            if (size == 0) {
+                return empty(symbol);
+            }
+            if (!sorted) {
+                sortAndDeduplicate();
+            }
+            return new BarSeries(symbol,
+                    Arrays.copyOf(epochDays, size),
+                    Arrays.copyOf(open, size),
+                    Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size),
+                    Arrays.copyOf(close, size),
+                    Arrays.copyOf(adjustedClose, size),
+                    Arrays.copyOf(volume, size),
+                    0, size);
+        }
+        
+        private void ensureCapacity(int required) {
+            if (required <= epochDays.length) {
+                return;
+            }
+            int capacity = Math.max(required, epochDays.length * 2);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            adjustedClose = Arrays.copyOf(adjustedClose, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+        
+        /**
+         * 按日期稳定排序后去重，同一日期保留最后一条
+         */
+        private void sortAndDeduplicate() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(epochDays[a], epochDays[b]));
+            
+            int[] days = new int[size];
+            double[] o = new double[size];
+            double[] h = new double[size];
+            double[] l = new double[size];
+            double[] c = new double[size];
+            double[] ac = new double[size];
+            long[] v = new long[size];
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int i = order[k];
+                // 稳定排序保证同一日期中后追加的排在后面，覆盖前一条
+                if (n > 0 && days[n - 1] == epochDays[i]) {
+                    n--;
+                }
+                days[n] = epochDays[i];
+                o[n] = open[i];
+                h[n] = high[i];
+                l[n] = low[i];
+                c[n] = close[i];
+                ac[n] = adjustedClose[i];
+                v[n] = volume[i];
+                n++;
+            }
+            
+            epochDays = days;
+            open = o;
+            high = h;
+            low = l;
+            close = c;
+            adjustedClose = ac;
+            volume = v;
+            size = n;
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.leavesfly.jtrade.dataflow.provider;
+
+import io.leavesfly.jtrade.core.state.AgentState;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * 数据截止日上下文
+ * 
+ * 回测回放某个交易日时，状态元数据中的 {@link #AS_OF_KEY} 标明截止日；工作流节点与并行智能体在执行前
+ * 把它绑定到当前线程，{@link DataAggregator} 的所有查询都不会返回晚于截止日的数据。
+ * 未绑定时按实时数据处理
+ * 
+ * @author 山泽
+ */
+public final class AsOfContext {
+    
+    /**
+     * 状态元数据中的截止日（ISO 日期字符串或 LocalDate）
+     */
+    public static final String AS_OF_KEY = "backtest_as_of";
+    
+    private static final ThreadLocal<LocalDate> CURRENT = new ThreadLocal<>();
+    
+    private AsOfContext() {
+    }
+    
+    /**
+     * 在状态携带的截止日下执行
+     * 
+     * 状态中没有截止日时沿用当前线程已有的绑定
+     */
+    public static <T> T withState(AgentState state, Supplier<T> action) {
+        LocalDate asOf = parse(state.getMetadata().get(AS_OF_KEY));
+        return asOf == null ? action.get() : with(asOf, action);
+    }
+    
+    /**
+     * 在给定截止日下执行
+     */
+    public static <T> T with(LocalDate asOf, Supplier<T> action) {
+        LocalDate previous = CURRENT.get();
+        CURRENT.set(asOf);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+    
+    /**
+     * 当前线程的截止日，实时运行时返回 null
+     */
+    public static LocalDate current() {
+        return CURRENT.get();
+    }
+    
+    /**
+     * 把日期限制在截止日之内
+     */
+    public static LocalDate clamp(LocalDate date) {
+        LocalDate asOf = CURRENT.get();
+        return asOf != null && date.isAfter(asOf) ? asOf : date;
+    }
+    
+    /**
+     * 查询数据时使用的“今天”：回测时为截止日
+     */
+    public static LocalDate today() {
+        LocalDate asOf = CURRENT.get();
+        return asOf != null ? asOf : LocalDate.now();
+    }
+    
+    private static LocalDate parse(Object value) {
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            return LocalDate.parse(text);
+        }
+        return null;
+    }
+}
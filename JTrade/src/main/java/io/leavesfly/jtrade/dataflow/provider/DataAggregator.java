@@ -2,9 +2,13 @@ package io.leavesfly.jtrade.dataflow.provider;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.dataflow.indicator.IndicatorEngine;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
 import io.leavesfly.jtrade.dataflow.model.FundamentalData;
 import io.leavesfly.jtrade.dataflow.model.MarketData;
 import io.leavesfly.jtrade.dataflow.model.NewsData;
+import io.leavesfly.jtrade.dataflow.store.MarketDataStore;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -15,13 +19,15 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 数据聚合器
  * 
- * 从多个数据源聚合数据，提供统一的数据访问接口
+ * 从多个数据源聚合数据，提供统一的数据访问接口。
+ * 当前线程绑定了截止日（见 {@link AsOfContext}）时，所有查询都不返回截止日之后的数据
  * 
  * @author 山泽
  */
@@ -29,19 +35,36 @@ import java.util.Map;
 @Component
 public class DataAggregator {
     
+    /**
+     * 技术指标的预热区间（自然日），保证 SMA50 与 MACD 信号线完成初始化
+     */
+    private static final int INDICATOR_LOOKBACK_DAYS = 180;
+    
+    /**
+     * 指标缓存的最大条目数（股票 × 截止日）
+     */
+    private static final int MAX_CACHED_INDICATORS = 1024;
+    
     private final List<DataProvider> dataProviders;
     private final FinnhubDataProvider finnhubDataProvider;
+    private final MarketDataStore marketDataStore;
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Map<String, Map<String, Double>> indicatorCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Double>> eldest) {
+            return size() > MAX_CACHED_INDICATORS;
+        }
+    };
     
     public DataAggregator(List<DataProvider> dataProviders, 
-                         FinnhubDataProvider finnhubDataProvider) {
+                         FinnhubDataProvider finnhubDataProvider,
+                         MarketDataStore marketDataStore,
+                         HttpClientManager httpClientManager) {
         this.dataProviders = dataProviders;
         this.finnhubDataProvider = finnhubDataProvider;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .build();
+        this.marketDataStore = marketDataStore;
+        this.httpClient = httpClientManager.getClient();
         this.objectMapper = new ObjectMapper();
     }
     
@@ -49,13 +72,53 @@ public class DataAggregator {
      * 获取市场数据
      */
     public List<MarketData> getMarketData(String symbol, LocalDate startDate, LocalDate endDate) {
+        return getBarSeries(symbol, startDate, endDate).toMarketDataList();
+    }
+    
+    /**
+     * 获取K线序列
+     * 
+     * 优先读取本地行情存储，只有缺失的日期区间才会请求数据源
+     */
+    public BarSeries getBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
+        endDate = AsOfContext.clamp(endDate);
+        if (endDate.isBefore(startDate)) {
+            return BarSeries.empty(symbol);
+        }
+        BarSeries series = getStoredBarSeries(symbol, startDate, endDate);
+        if (!series.isEmpty()) {
+            return series;
+        }
+        
+        log.warn("未能从任何数据源获取到市场数据，使用模拟数据");
+        return getFallbackBarSeries(symbol, startDate, endDate);
+    }
+    
+    /**
+     * 获取真实K线序列（本地存储或数据源），获取失败时返回空序列而不是模拟数据
+     * 
+     * 回测等依赖真实价格计算收益的场景使用
+     */
+    public BarSeries getStoredBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
+        endDate = AsOfContext.clamp(endDate);
+        if (endDate.isBefore(startDate)) {
+            return BarSeries.empty(symbol);
+        }
+        return marketDataStore.getBarSeries(symbol, startDate, endDate,
+                (from, to) -> fetchBarSeries(symbol, from, to));
+    }
+    
+    /**
+     * 依次从各数据源获取K线序列
+     */
+    private BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
         for (DataProvider provider : dataProviders) {
             if (provider.isEnabled()) {
                 try {
-                    List<MarketData> data = provider.fetchMarketData(symbol, startDate, endDate);
-                    if (!data.isEmpty()) {
+                    BarSeries series = provider.fetchBarSeries(symbol, startDate, endDate);
+                    if (!series.isEmpty()) {
                         log.info("从 {} 成功获取市场数据", provider.getProviderName());
-                        return data;
+                        return series;
                     }
                 } catch (Exception e) {
                     log.error("从 {} 获取数据失败", provider.getProviderName(), e);
@@ -63,8 +126,42 @@ public class DataAggregator {
             }
         }
         
-        log.warn("未能从任何数据源获取到市场数据");
-        return new ArrayList<>();
+        return BarSeries.empty(symbol);
+    }
+    
+    /**
+     * 备用的模拟市场数据（不写入本地存储）
+     */
+    private BarSeries getFallbackBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
+        log.info("使用模拟数据作为备用");
+        BarSeries.Builder builder = BarSeries.builder(symbol);
+        
+        // 生成基础价格
+        double basePrice = 150.0 + Math.random() * 50;
+        
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            // 跳过周末
+            if (date.getDayOfWeek().getValue() >= 6) {
+                continue;
+            }
+            
+            // 模拟价格波动
+            double dailyChange = (Math.random() - 0.5) * 10;
+            basePrice += dailyChange;
+            
+            double open = round2(basePrice + (Math.random() - 0.5) * 2);
+            double close = round2(basePrice + (Math.random() - 0.5) * 2);
+            double high = round2(Math.max(open, close) + Math.random() * 3);
+            double low = round2(Math.min(open, close) - Math.random() * 3);
+            
+            builder.add(date, open, high, low, close, close, (long) (1000000 + Math.random() * 5000000));
+        }
+        
+        return builder.build();
+    }
+    
+    private double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
     
     /**
@@ -73,6 +170,12 @@ public class DataAggregator {
     public FundamentalData getFundamentalData(String symbol) {
         log.info("获取 {} 的基本面数据", symbol);
         
+        if (AsOfContext.current() != null) {
+            // 接口只提供最新快照，回测时使用会引入未来信息
+            log.info("回测截至 {}，不请求实时基本面数据，使用模拟数据", AsOfContext.current());
+            return getFallbackFundamentalData(symbol);
+        }
+        
         try {
             // 使用Yahoo Finance API获取公司基本信息
             String url = String.format(
@@ -103,7 +206,7 @@ public class DataAggregator {
                 
                 return parseFundamentalData(symbol, result);
             }
-            
+        
         } catch (Exception e) {
             log.error("获取基本面数据失败", e);
             return getFallbackFundamentalData(symbol);
@@ -133,7 +236,7 @@ public class DataAggregator {
                     .industry(profile.path("industry").asText("N/A"))
                     .sector(profile.path("sector").asText("N/A"))
                     .build();
-                    
+        
         } catch (Exception e) {
             log.error("解析基本面数据失败", e);
             return getFallbackFundamentalData(symbol);
@@ -188,9 +291,9 @@ public class DataAggregator {
         // 先尝试使用Finnhub获取真实新闻
         if (finnhubDataProvider.isEnabled()) {
             try {
-                LocalDate toDate = LocalDate.now();
+                LocalDate toDate = AsOfContext.today();
                 LocalDate fromDate = toDate.minusDays(7); // 过去7天
-                List<NewsData> news = finnhubDataProvider.fetchNews(symbol, fromDate, toDate);
+                List<NewsData> news = publishedBy(finnhubDataProvider.fetchNews(symbol, fromDate, toDate), toDate);
                 
                 if (!news.isEmpty()) {
                     // 限制数量
@@ -212,7 +315,7 @@ public class DataAggregator {
                     .title(symbol + " 股价波动分析")
                     .source("财经新闻")
                     .url("https://example.com/news/" + i)
-                    .publishedAt(LocalDate.now().atStartOfDay())
+                    .publishedAt(AsOfContext.today().atStartOfDay())
                     .summary("这是一条关于 " + symbol + " 的模拟新闻")
                     .sentimentScore(0.5)
                     .build();
@@ -222,6 +325,18 @@ public class DataAggregator {
         return newsList;
     }
     
+    /**
+     * 去掉发布时间晚于截止日的新闻；回测时无法确认时间的新闻同样去掉
+     */
+    private List<NewsData> publishedBy(List<NewsData> news, LocalDate toDate) {
+        boolean backtest = AsOfContext.current() != null;
+        return news.stream()
+                .filter(item -> item.getPublishedAt() == null
+                        ? !backtest
+                        : !item.getPublishedAt().toLocalDate().isAfter(toDate))
+                .collect(java.util.stream.Collectors.toList());
+    }
+    
     /**
      * 获取社交媒体情绪数据（使用情绪分析）
      */
@@ -235,9 +350,9 @@ public class DataAggregator {
             // 尝试从Finnhub获取社交媒体情绪数据
             if (finnhubDataProvider.isEnabled()) {
                 // 获取新闻数据并分析情绪
-                LocalDate toDate = LocalDate.now();
+                LocalDate toDate = AsOfContext.today();
                 LocalDate fromDate = toDate.minusDays(7);
-                List<NewsData> newsList = finnhubDataProvider.fetchNews(symbol, fromDate, toDate);
+                List<NewsData> newsList = publishedBy(finnhubDataProvider.fetchNews(symbol, fromDate, toDate), toDate);
                 
                 if (!newsList.isEmpty()) {
                     // 基于新闻数据计算情绪
@@ -341,175 +456,63 @@ public class DataAggregator {
      * 获取技术指标数据（使用历史数据计算）
      */
     public Map<String, Double> getTechnicalIndicators(String symbol) {
-        log.info("获取 {} 的技术指标数据", symbol);
-        
-        Map<String, Double> indicators = new HashMap<>();
+        return getTechnicalIndicators(symbol, AsOfContext.today());
+    }
+    
+    /**
+     * 获取截至某日的技术指标数据
+     * 
+     * 指标总是在截止日之前固定长度的预热区间上计算，结果只取决于股票和截止日，
+     * 与此前查询过哪些日期无关；截止日已收盘时按（股票，截止日）缓存结果
+     */
+    public Map<String, Double> getTechnicalIndicators(String symbol, LocalDate asOfDate) {
+        asOfDate = AsOfContext.clamp(asOfDate);
+        log.info("获取 {} 截至 {} 的技术指标数据", symbol, asOfDate);
         
         try {
-            // 获取过60天的市场数据用于计算技术指标
-            LocalDate endDate = LocalDate.now();
-            LocalDate startDate = endDate.minusDays(60);
-            List<MarketData> marketData = getMarketData(symbol, startDate, endDate);
+            BarSeries marketData = marketDataStore.getBarSeries(symbol,
+                    asOfDate.minusDays(INDICATOR_LOOKBACK_DAYS), asOfDate,
+                    (from, to) -> fetchBarSeries(symbol, from, to));
             
             if (marketData.isEmpty()) {
                 log.warn("无法获取市场数据，返回模拟指标");
                 return getFallbackTechnicalIndicators();
             }
             
-            // 计算RSI (Relative Strength Index)
-            double rsi = calculateRSI(marketData, 14);
-            indicators.put("RSI", rsi);
-            
-            // 计算简单移动平均线 (SMA)
-            double sma20 = calculateSMA(marketData, 20);
-            double sma50 = calculateSMA(marketData, 50);
-            indicators.put("SMA_20", sma20);
-            indicators.put("SMA_50", sma50);
-            
-            // 计算MACD
-            Map<String, Double> macd = calculateMACD(marketData);
-            indicators.putAll(macd);
-            
-            // 计算布林带 (Bollinger Bands)
-            Map<String, Double> bb = calculateBollingerBands(marketData, 20, 2.0);
-            indicators.putAll(bb);
-            
-            log.info("成功计算技术指标: RSI={}, SMA20={}, SMA50={}", rsi, sma20, sma50);
-            
+            Map<String, Double> indicators = new HashMap<>(computeIndicators(symbol, marketData, asOfDate));
+            log.info("成功计算技术指标: RSI={}, SMA20={}, SMA50={}",
+                    indicators.get("RSI"), indicators.get("SMA_20"), indicators.get("SMA_50"));
+            return indicators;
+        
         } catch (Exception e) {
             log.error("计算技术指标失败", e);
             return getFallbackTechnicalIndicators();
         }
-        
-        return indicators;
     }
     
     /**
-     * 计算RSI指标
+     * 在预热区间上重放指标引擎
+     * 
+     * 当天的K线尚未收盘，结果不缓存
      */
-    private double calculateRSI(List<MarketData> data, int period) {
-        if (data.size() < period + 1) {
-            return 50.0; // 默认值
+    private Map<String, Double> computeIndicators(String symbol, BarSeries marketData, LocalDate asOfDate) {
+        if (!asOfDate.isBefore(LocalDate.now())) {
+            return IndicatorEngine.replay(marketData).values();
         }
         
-        double gainSum = 0.0;
-        double lossSum = 0.0;
-        
-        // 计算平均涨跌
-        for (int i = data.size() - period; i < data.size(); i++) {
-            double change = data.get(i).getClose().subtract(data.get(i - 1).getClose()).doubleValue();
-            if (change > 0) {
-                gainSum += change;
-            } else {
-                lossSum += Math.abs(change);
+        String key = symbol + "@" + asOfDate;
+        synchronized (indicatorCache) {
+            Map<String, Double> cached = indicatorCache.get(key);
+            if (cached != null) {
+                return cached;
             }
         }
         
-        double avgGain = gainSum / period;
-        double avgLoss = lossSum / period;
-        
-        if (avgLoss == 0) {
-            return 100.0;
-        }
-        
-        double rs = avgGain / avgLoss;
-        return 100.0 - (100.0 / (1.0 + rs));
-    }
-    
-    /**
-     * 计算简单移动平均线 (SMA)
-     */
-    private double calculateSMA(List<MarketData> data, int period) {
-        if (data.size() < period) {
-            period = data.size();
+        Map<String, Double> values = Map.copyOf(IndicatorEngine.replay(marketData).values());
+        synchronized (indicatorCache) {
+            indicatorCache.put(key, values);
         }
-        
-        double sum = 0.0;
-        for (int i = data.size() - period; i < data.size(); i++) {
-            sum += data.get(i).getClose().doubleValue();
-        }
-        
-        return sum / period;
-    }
-    
-    /**
-     * 计算MACD指标
-     */
-    private Map<String, Double> calculateMACD(List<MarketData> data) {
-        Map<String, Double> macd = new HashMap<>();
-        
-        if (data.size() < 26) {
-            macd.put("MACD", 0.0);
-            macd.put("MACD_Signal", 0.0);
-            macd.put("MACD_Histogram", 0.0);
-            return macd;
-        }
-        
-        // 计算EMA12和EMA26
-        double ema12 = calculateEMA(data, 12);
-        double ema26 = calculateEMA(data, 26);
-        double macdLine = ema12 - ema26;
-        
-        // 简化版本：使用MACD线的简单平均作为信号线
-        double signalLine = macdLine * 0.9; // 简化计算
-        
-        macd.put("MACD", macdLine);
-        macd.put("MACD_Signal", signalLine);
-        macd.put("MACD_Histogram", macdLine - signalLine);
-        
-        return macd;
-    }
-    
-    /**
-     * 计算指数移动平均线 (EMA)
-     */
-    private double calculateEMA(List<MarketData> data, int period) {
-        if (data.size() < period) {
-            return calculateSMA(data, data.size());
-        }
-        
-        double multiplier = 2.0 / (period + 1);
-        double ema = calculateSMA(data, period);
-        
-        // 从 period 位置开始计算 EMA
-        for (int i = data.size() - period; i < data.size(); i++) {
-            double price = data.get(i).getClose().doubleValue();
-            ema = (price - ema) * multiplier + ema;
-        }
-        
-        return ema;
-    }
-    
-    /**
-     * 计算布林带
-     */
-    private Map<String, Double> calculateBollingerBands(List<MarketData> data, int period, double numStdDev) {
-        Map<String, Double> bb = new HashMap<>();
-        
-        if (data.size() < period) {
-            double currentPrice = data.get(data.size() - 1).getClose().doubleValue();
-            bb.put("BB_UPPER", currentPrice * 1.05);
-            bb.put("BB_MIDDLE", currentPrice);
-            bb.put("BB_LOWER", currentPrice * 0.95);
-            return bb;
-        }
-        
-        // 计算中轨 (SMA)
-        double middle = calculateSMA(data, period);
-        
-        // 计算标准差
-        double sum = 0.0;
-        for (int i = data.size() - period; i < data.size(); i++) {
-            double diff = data.get(i).getClose().doubleValue() - middle;
-            sum += diff * diff;
-        }
-        double stdDev = Math.sqrt(sum / period);
-        
-        bb.put("BB_UPPER", middle + (numStdDev * stdDev));
-        bb.put("BB_MIDDLE", middle);
-        bb.put("BB_LOWER", middle - (numStdDev * stdDev));
-        
-        return bb;
+        return values;
     }
     
     /**
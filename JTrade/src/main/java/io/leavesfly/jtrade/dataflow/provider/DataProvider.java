@@ -1,5 +1,6 @@
 package io.leavesfly.jtrade.dataflow.provider;
 
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
 import io.leavesfly.jtrade.dataflow.model.MarketData;
 
 import java.time.LocalDate;
@@ -14,6 +15,16 @@ import java.util.List;
  */
 public interface DataProvider {
     
+    /**
+     * 获取K线序列
+     * 
+     * @param symbol 股票代码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 按日期升序的K线序列，获取失败时返回空序列
+     */
+    BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate);
+    
     /**
      * 获取市场数据
      * 
@@ -22,7 +33,9 @@ public interface DataProvider {
      * @param endDate 结束日期
      * @return 市场数据列表
      */
-    List<MarketData> fetchMarketData(String symbol, LocalDate startDate, LocalDate endDate);
+    default List<MarketData> fetchMarketData(String symbol, LocalDate startDate, LocalDate endDate) {
+        return fetchBarSeries(symbol, startDate, endDate).toMarketDataList();
+    }
     
     /**
      * 判断是否支持某个数据源
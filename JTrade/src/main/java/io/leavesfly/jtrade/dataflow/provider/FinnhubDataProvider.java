@@ -3,7 +3,8 @@ package io.leavesfly.jtrade.dataflow.provider;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.leavesfly.jtrade.config.DataSourceConfig;
-import io.leavesfly.jtrade.dataflow.model.MarketData;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
 import io.leavesfly.jtrade.dataflow.model.NewsData;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
@@ -11,7 +12,6 @@ import okhttp3.Request;
 import okhttp3.Response;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,27 +34,24 @@ public class FinnhubDataProvider implements DataProvider {
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
     
-    public FinnhubDataProvider(DataSourceConfig config) {
+    public FinnhubDataProvider(DataSourceConfig config, HttpClientManager httpClientManager) {
         this.config = config;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .build();
+        this.httpClient = httpClientManager.getClient();
         this.objectMapper = new ObjectMapper();
     }
     
     @Override
-    public List<MarketData> fetchMarketData(String symbol, LocalDate startDate, LocalDate endDate) {
+    public BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
         if (!isEnabled()) {
             log.warn("Finnhub数据源未启用");
-            return new ArrayList<>();
+            return BarSeries.empty(symbol);
         }
         
         try {
             String apiKey = config.getFinnhub().getApiKey();
             if (apiKey == null || apiKey.isEmpty()) {
                 log.warn("Finnhub API密钥未配置");
-                return new ArrayList<>();
+                return BarSeries.empty(symbol);
             }
             
             long startTimestamp = startDate.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
@@ -77,7 +74,7 @@ public class FinnhubDataProvider implements DataProvider {
             try (Response response = httpClient.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     log.error("Finnhub API调用失败: {}", response.code());
-                    return new ArrayList<>();
+                    return BarSeries.empty(symbol);
                 }
                 
                 String body = response.body().string();
@@ -85,15 +82,15 @@ public class FinnhubDataProvider implements DataProvider {
                 
                 if (rootNode.get("s").asText().equals("no_data")) {
                     log.warn("Finnhub未返回数据");
-                    return new ArrayList<>();
+                    return BarSeries.empty(symbol);
                 }
                 
                 return parseMarketData(symbol, rootNode);
             }
-            
+        
         } catch (Exception e) {
             log.error("获取Finnhub数据失败", e);
-            return new ArrayList<>();
+            return BarSeries.empty(symbol);
         }
     }
     
@@ -136,16 +133,14 @@ public class FinnhubDataProvider implements DataProvider {
                 
                 return parseNewsData(arrayNode);
             }
-            
+        
         } catch (Exception e) {
             log.error("获取Finnhub新闻失败", e);
             return new ArrayList<>();
         }
     }
     
-    private List<MarketData> parseMarketData(String symbol, JsonNode rootNode) {
-        List<MarketData> dataList = new ArrayList<>();
-        
+    private BarSeries parseMarketData(String symbol, JsonNode rootNode) {
         JsonNode timestamps = rootNode.get("t");
         JsonNode opens = rootNode.get("o");
         JsonNode highs = rootNode.get("h");
@@ -154,31 +149,29 @@ public class FinnhubDataProvider implements DataProvider {
         JsonNode volumes = rootNode.get("v");
         
         if (timestamps == null || !timestamps.isArray()) {
-            return dataList;
+            return BarSeries.empty(symbol);
         }
         
+        BarSeries.Builder builder = BarSeries.builder(symbol, timestamps.size());
         for (int i = 0; i < timestamps.size(); i++) {
             long timestamp = timestamps.get(i).asLong();
             LocalDate date = Instant.ofEpochSecond(timestamp)
                     .atZone(ZoneId.systemDefault())
                     .toLocalDate();
             
-            MarketData data = MarketData.builder()
-                    .symbol(symbol)
-                    .date(date)
-                    .open(new BigDecimal(opens.get(i).asText()))
-                    .high(new BigDecimal(highs.get(i).asText()))
-                    .low(new BigDecimal(lows.get(i).asText()))
-                    .close(new BigDecimal(closes.get(i).asText()))
-                    .volume(volumes.get(i).asLong())
-                    .adjustedClose(new BigDecimal(closes.get(i).asText()))
-                    .build();
-            
-            dataList.add(data);
+            double close = closes.get(i).asDouble();
+            builder.add(date,
+                    opens.get(i).asDouble(),
+                    highs.get(i).asDouble(),
+                    lows.get(i).asDouble(),
+                    close,
+                    close,
+                    volumes.get(i).asLong());
         }
         
-        log.info("从Finnhub获取到 {} 条市场数据", dataList.size());
-        return dataList;
+        BarSeries series = builder.build();
+        log.info("从Finnhub获取到 {} 条市场数据", series.size());
+        return series;
     }
     
     private List<NewsData> parseNewsData(JsonNode arrayNode) {
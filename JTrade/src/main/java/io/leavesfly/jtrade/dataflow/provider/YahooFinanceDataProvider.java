@@ -3,19 +3,17 @@ package io.leavesfly.jtrade.dataflow.provider;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.leavesfly.jtrade.config.DataSourceConfig;
-import io.leavesfly.jtrade.dataflow.model.MarketData;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Yahoo Finance数据提供者
@@ -30,20 +28,17 @@ public class YahooFinanceDataProvider implements DataProvider {
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
     
-    public YahooFinanceDataProvider(DataSourceConfig config) {
+    public YahooFinanceDataProvider(DataSourceConfig config, HttpClientManager httpClientManager) {
         this.config = config;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .build();
+        this.httpClient = httpClientManager.getClient();
         this.objectMapper = new ObjectMapper();
     }
     
     @Override
-    public List<MarketData> fetchMarketData(String symbol, LocalDate startDate, LocalDate endDate) {
+    public BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
         if (!isEnabled()) {
             log.warn("Yahoo Finance数据源未启用");
-            return new ArrayList<>();
+            return BarSeries.empty(symbol);
         }
         
         log.info("从Yahoo Finance获取 {} 的市场数据，时间范围：{} 至 {}", symbol, startDate, endDate);
@@ -68,7 +63,7 @@ public class YahooFinanceDataProvider implements DataProvider {
             try (Response response = httpClient.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     log.error("Yahoo Finance API调用失败: {}", response.code());
-                    return getFallbackData(symbol, startDate, endDate);
+                    return BarSeries.empty(symbol);
                 }
                 
                 String body = response.body().string();
@@ -78,24 +73,22 @@ public class YahooFinanceDataProvider implements DataProvider {
                 JsonNode errorNode = rootNode.path("chart").path("error");
                 if (!errorNode.isNull()) {
                     log.error("Yahoo Finance返回错误: {}", errorNode);
-                    return getFallbackData(symbol, startDate, endDate);
+                    return BarSeries.empty(symbol);
                 }
                 
                 return parseYahooFinanceData(symbol, rootNode);
             }
-            
+        
         } catch (Exception e) {
             log.error("从Yahoo Finance获取数据失败", e);
-            return getFallbackData(symbol, startDate, endDate);
+            return BarSeries.empty(symbol);
         }
     }
     
     /**
      * 解析Yahoo Finance API返回的数据
      */
-    private List<MarketData> parseYahooFinanceData(String symbol, JsonNode rootNode) {
-        List<MarketData> dataList = new ArrayList<>();
-        
+    private BarSeries parseYahooFinanceData(String symbol, JsonNode rootNode) {
         try {
             JsonNode resultNode = rootNode.path("chart").path("result").get(0);
             JsonNode timestamps = resultNode.path("timestamp");
@@ -108,6 +101,7 @@ public class YahooFinanceDataProvider implements DataProvider {
             JsonNode closes = indicators.path("close");
             JsonNode volumes = indicators.path("volume");
             
+            BarSeries.Builder builder = BarSeries.builder(symbol, timestamps.size());
             for (int i = 0; i < timestamps.size(); i++) {
                 // 跳过null值
                 if (opens.get(i).isNull() || closes.get(i).isNull()) {
@@ -119,70 +113,24 @@ public class YahooFinanceDataProvider implements DataProvider {
                         .atZone(ZoneId.systemDefault())
                         .toLocalDate();
                 
-                MarketData data = MarketData.builder()
-                        .symbol(symbol)
-                        .date(date)
-                        .open(new BigDecimal(opens.get(i).asText()))
-                        .high(new BigDecimal(highs.get(i).asText()))
-                        .low(new BigDecimal(lows.get(i).asText()))
-                        .close(new BigDecimal(closes.get(i).asText()))
-                        .volume(volumes.get(i).asLong())
-                        .adjustedClose(adjClose.get(i).isNull() ? 
-                                new BigDecimal(closes.get(i).asText()) : 
-                                new BigDecimal(adjClose.get(i).asText()))
-                        .build();
-                
-                dataList.add(data);
+                double close = closes.get(i).asDouble();
+                builder.add(date,
+                        opens.get(i).asDouble(),
+                        highs.get(i).asDouble(),
+                        lows.get(i).asDouble(),
+                        close,
+                        adjClose.get(i).isNull() ? close : adjClose.get(i).asDouble(),
+                        volumes.get(i).asLong());
             }
             
-            log.info("从Yahoo Finance成功获取 {} 条市场数据", dataList.size());
-            
+            BarSeries series = builder.build();
+            log.info("从Yahoo Finance成功获取 {} 条市场数据", series.size());
+            return series;
+        
         } catch (Exception e) {
             log.error("解析Yahoo Finance数据失败", e);
+            return BarSeries.empty(symbol);
         }
-        
-        return dataList;
-    }
-    
-    /**
-     * 当API调用失败时返回备用数据
-     */
-    private List<MarketData> getFallbackData(String symbol, LocalDate startDate, LocalDate endDate) {
-        log.info("使用模拟数据作为备用");
-        List<MarketData> dataList = new ArrayList<>();
-        
-        // 生成基础价格
-        double basePrice = 150.0 + Math.random() * 50;
-        
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            // 跳过周末
-            if (date.getDayOfWeek().getValue() >= 6) {
-                continue;
-            }
-            
-            // 模拟价格波动
-            double dailyChange = (Math.random() - 0.5) * 10;
-            basePrice += dailyChange;
-            
-            double open = basePrice + (Math.random() - 0.5) * 2;
-            double close = basePrice + (Math.random() - 0.5) * 2;
-            double high = Math.max(open, close) + Math.random() * 3;
-            double low = Math.min(open, close) - Math.random() * 3;
-            
-            MarketData data = MarketData.builder()
-                    .symbol(symbol)
-                    .date(date)
-                    .open(BigDecimal.valueOf(open).setScale(2, BigDecimal.ROUND_HALF_UP))
-                    .high(BigDecimal.valueOf(high).setScale(2, BigDecimal.ROUND_HALF_UP))
-                    .low(BigDecimal.valueOf(low).setScale(2, BigDecimal.ROUND_HALF_UP))
-                    .close(BigDecimal.valueOf(close).setScale(2, BigDecimal.ROUND_HALF_UP))
-                    .volume((long)(1000000 + Math.random() * 5000000))
-                    .adjustedClose(BigDecimal.valueOf(close).setScale(2, BigDecimal.ROUND_HALF_UP))
-                    .build();
-            dataList.add(data);
-        }
-        
-        return dataList;
     }
     
     @Override
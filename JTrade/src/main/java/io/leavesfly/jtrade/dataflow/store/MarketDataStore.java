@@ -0,0 +1,260 @@
+package io.leavesfly.jtrade.dataflow.store;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * 本地行情存储
+ * 
+ * 按股票代码把日线数据以列式二进制格式保存在 dataCacheDir/bars 下，
+ * 同时记录已覆盖的日期区间。查询时只向数据源请求缺失的区间：
+ * 已覆盖区间之前的历史和之后的最新交易日。当天及以后的日期不计入已覆盖区间，
+ * 因此盘中数据会在下次查询时刷新
+ * 
+ * 文件格式（大端，缺失价格为 NaN、缺失成交量为 -1）：
+ * magic(int) version(int) coveredFrom(long) coveredTo(long) count(int)
+ * epochDay[count](int) open/high/low/close/adjustedClose[count](double) volume[count](long)
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class MarketDataStore {
+    
+    private static final int MAGIC = 0x4A544253; // "JTBS"
+    private static final int VERSION = 1;
+    private static final long NONE = Long.MIN_VALUE;
+    
+    private final Path storeDir;
+    private final boolean enabled;
+    private final Map<String, SymbolEntry> entries = new ConcurrentHashMap<>();
+    
+    public MarketDataStore(AppConfig appConfig) {
+        this.storeDir = Paths.get(appConfig.getDataCacheDir(), "bars");
+        this.enabled = appConfig.getDataSource() == null || appConfig.getDataSource().isCacheMarketData();
+    }
+    
+    /**
+     * 获取K线序列，缺失的区间通过 fetcher 增量拉取并落盘
+     * 
+     * @param symbol 股票代码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param fetcher 远程数据获取函数（开始日期, 结束日期）-> K线序列，失败时返回空序列
+     * @return 区间内的K线视图
+     */
+    public BarSeries getBarSeries(String symbol, LocalDate startDate, LocalDate endDate,
+                                  BiFunction<LocalDate, LocalDate, BarSeries> fetcher) {
+        if (!enabled) {
+            return fetcher.apply(startDate, endDate);
+        }
+        
+        SymbolEntry entry = entries.computeIfAbsent(symbol.toUpperCase(), SymbolEntry::new);
+        synchronized (entry) {
+            if (!entry.loaded) {
+                load(entry);
+            }
+            
+            long start = startDate.toEpochDay();
+            long end = endDate.toEpochDay();
+            // 今天的数据可能尚未收盘，不计入已覆盖区间
+            long lastSettled = LocalDate.now().minusDays(1).toEpochDay();
+            boolean changed = false;
+            
+            if (entry.coveredFrom == NONE) {
+                changed = fetchRange(entry, start, end, lastSettled, fetcher);
+            } else {
+                // 从已覆盖区间的边界开始拉取，保证覆盖区间始终连续
+                if (start < entry.coveredFrom) {
+                    changed |= fetchRange(entry, start, entry.coveredFrom - 1, lastSettled, fetcher);
+                }
+                if (end > entry.coveredTo) {
+                    changed |= fetchRange(entry, entry.coveredTo + 1, end, lastSettled, fetcher);
+                }
+            }
+            
+            if (changed) {
+                save(entry);
+            } else {
+                log.debug("{} 的行情 {} 至 {} 命中本地存储", symbol, startDate, endDate);
+            }
+            
+            return entry.bars.slice(startDate, endDate).withSymbol(symbol);
+        }
+    }
+    
+    /**
+     * 删除某个股票的本地数据
+     */
+    public void evict(String symbol) {
+        SymbolEntry entry = entries.remove(symbol.toUpperCase());
+        try {
+            Files.deleteIfExists(fileOf(symbol.toUpperCase()));
+        } catch (IOException e) {
+            log.warn("删除 {} 的本地行情失败: {}", symbol, e.getMessage());
+        }
+        if (entry != null) {
+            synchronized (entry) {
+                entry.bars = BarSeries.empty(entry.symbol);
+                entry.coveredFrom = NONE;
+                entry.coveredTo = NONE;
+            }
+        }
+    }
+    
+    /**
+     * 拉取区间并合并，返回是否有新数据
+     */
+    private boolean fetchRange(SymbolEntry entry, long from, long to, long lastSettled,
+                               BiFunction<LocalDate, LocalDate, BarSeries> fetcher) {
+        LocalDate fromDate = LocalDate.ofEpochDay(from);
+        LocalDate toDate = LocalDate.ofEpochDay(to);
+        log.info("本地行情缺少 {} 的 {} 至 {}，从数据源增量获取", entry.symbol, fromDate, toDate);
+        
+        BarSeries fetched = fetcher.apply(fromDate, toDate);
+        if (fetched == null || fetched.isEmpty()) {
+            // 无法区分休市与请求失败，不扩展已覆盖区间，下次再试
+            return false;
+        }
+        
+        entry.bars = entry.bars.merge(fetched);
+        
+        long settledTo = Math.min(to, lastSettled);
+        if (settledTo >= from) {
+            entry.coveredFrom = entry.coveredFrom == NONE ? from : Math.min(entry.coveredFrom, from);
+            entry.coveredTo = entry.coveredTo == NONE ? settledTo : Math.max(entry.coveredTo, settledTo);
+        }
+        return true;
+    }
+    
+    private void load(SymbolEntry entry) {
+        entry.loaded = true;
+        Path file = fileOf(entry.symbol);
+        if (!Files.exists(file)) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("{} 的本地行情格式不匹配，已忽略", entry.symbol);
+                return;
+            }
+            entry.coveredFrom = in.readLong();
+            entry.coveredTo = in.readLong();
+            entry.bars = readBars(entry.symbol, in);
+            log.debug("加载 {} 的本地行情 {} 条", entry.symbol, entry.bars.size());
+        } catch (IOException e) {
+            log.warn("读取 {} 的本地行情失败，将重新获取: {}", entry.symbol, e.getMessage());
+            entry.bars = BarSeries.empty(entry.symbol);
+            entry.coveredFrom = NONE;
+            entry.coveredTo = NONE;
+        }
+    }
+    
+    private void save(SymbolEntry entry) {
+        Path file = fileOf(entry.symbol);
+        try {
+            Files.createDirectories(storeDir);
+            Path temp = Files.createTempFile(storeDir, entry.symbol, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(entry.coveredFrom);
+                out.writeLong(entry.coveredTo);
+                writeBars(entry.bars, out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存 {} 的本地行情失败: {}", entry.symbol, e.getMessage());
+        }
+    }
+    
+    /**
+     * 按列读取K线
+     */
+    private BarSeries readBars(String symbol, DataInputStream in) throws IOException {
+        int count = in.readInt();
+        int[] epochDays = new int[count];
+        double[][] prices = new double[5][count];
+        for (int i = 0; i < count; i++) {
+            epochDays[i] = in.readInt();
+        }
+        for (double[] column : prices) {
+            for (int i = 0; i < count; i++) {
+                column[i] = in.readDouble();
+            }
+        }
+        
+        BarSeries.Builder builder = BarSeries.builder(symbol, count);
+        for (int i = 0; i < count; i++) {
+            builder.add(LocalDate.ofEpochDay(epochDays[i]),
+                    prices[0][i], prices[1][i], prices[2][i], prices[3][i], prices[4][i], in.readLong());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * 按列写出K线
+     */
+    private void writeBars(BarSeries bars, DataOutputStream out) throws IOException {
+        int count = bars.size();
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt((int) bars.getEpochDay(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(bars.getOpen(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(bars.getHigh(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(bars.getLow(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(bars.getClose(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(bars.getAdjustedClose(i));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeLong(bars.getVolume(i));
+        }
+    }
+    
+    private Path fileOf(String symbol) {
+        return storeDir.resolve(symbol + ".bin");
+    }
+    
+    /**
+     * 单个股票的存储状态
+     */
+    private static class SymbolEntry {
+        private final String symbol;
+        private BarSeries bars;
+        private long coveredFrom = NONE;
+        private long coveredTo = NONE;
+        private boolean loaded;
+        
+        SymbolEntry(String symbol) {
+            this.symbol = symbol;
+            this.bars = BarSeries.empty(symbol);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.leavesfly.jtrade.demo;
 
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.CachingLlmClient;
 import io.leavesfly.jtrade.service.TradingService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +14,7 @@ import org.springframework.context.annotation.ComponentScan;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 批量测试演示
@@ -31,7 +33,7 @@ public class BatchTestDemo {
     }
     
     @Bean
-    public CommandLineRunner batchTest(TradingService tradingService) {
+    public CommandLineRunner batchTest(TradingService tradingService, CachingLlmClient cachingLlmClient) {
         return args -> {
             System.out.println("\n" + "=".repeat(80));
             System.out.println("JTrade 批量测试演示");
@@ -49,45 +51,34 @@ public class BatchTestDemo {
             
             List<TestResult> results = new ArrayList<>();
             long totalStartTime = System.currentTimeMillis();
+            AtomicInteger completed = new AtomicInteger();
             
-            // 执行批量测试
-            for (int i = 0; i < symbols.length; i++) {
-                String symbol = symbols[i];
-                System.out.println("-".repeat(80));
-                System.out.println("测试进度: [" + (i + 1) + "/" + symbols.length + "] " + symbol);
-                System.out.println("-".repeat(80));
-                
-                long startTime = System.currentTimeMillis();
+            // 执行批量测试：各股票并发分析，完成一个输出一个（耗时为该股票自身流程的执行时间）
+            List<AgentState> states = tradingService.analyzeAll(List.of(symbols), date, state -> {
+                boolean success = !"ERROR".equals(state.getFinalSignal());
+                System.out.println("测试进度: [" + completed.incrementAndGet() + "/" + symbols.length + "] "
+                        + state.getCompany() + (success ? " ✓ " : " ✗ ")
+                        + state.getFinalSignal() + " (" + executionMillis(state) + " ms)");
+            });
+            System.out.println();
+            
+            for (AgentState state : states) {
                 TestResult result = new TestResult();
-                result.setSymbol(symbol);
+                result.setSymbol(state.getCompany());
                 result.setDate(date);
+                result.setExecutionTime(executionMillis(state));
+                result.setFinalSignal(state.getFinalSignal());
                 
-                try {
-                    AgentState state = tradingService.executeTradingWorkflow(symbol, date);
-                    long endTime = System.currentTimeMillis();
-                    
+                if ("ERROR".equals(state.getFinalSignal())) {
+                    result.setSuccess(false);
+                    result.setErrorMessage("交易决策流程执行失败");
+                } else {
                     result.setSuccess(true);
-                    result.setExecutionTime(endTime - startTime);
-                    result.setFinalSignal(state.getFinalSignal());
                     result.setAnalystReports(state.getAnalystReports().size());
                     result.setResearcherViewpoints(state.getResearcherViewpoints().size());
-                    
-                    System.out.println("✓ 测试成功");
-                    System.out.println("  执行时间: " + result.getExecutionTime() + " ms");
-                    System.out.println("  最终信号: " + result.getFinalSignal());
-                    
-                } catch (Exception e) {
-                    long endTime = System.currentTimeMillis();
-                    result.setSuccess(false);
-                    result.setExecutionTime(endTime - startTime);
-                    result.setErrorMessage(e.getMessage());
-                    
-                    System.out.println("✗ 测试失败");
-                    System.out.println("  错误信息: " + e.getMessage());
                 }
                 
                 results.add(result);
-                System.out.println();
             }
             
             long totalEndTime = System.currentTimeMillis();
@@ -95,9 +86,23 @@ public class BatchTestDemo {
             
             // 输出测试报告
             printTestReport(results, totalDuration);
+            
+            // 重复运行同一天的批量测试时，LLM调用应全部命中缓存
+            CachingLlmClient.CacheStats cacheStats = cachingLlmClient.getStats();
+            System.out.println("【LLM缓存】");
+            System.out.println("  命中: " + (cacheStats.getMemoryHits() + cacheStats.getDiskHits())
+                    + " (内存 " + cacheStats.getMemoryHits() + " / 磁盘 " + cacheStats.getDiskHits() + ")");
+            System.out.println("  未命中: " + cacheStats.getMisses());
+            System.out.println("  命中率: " + String.format("%.1f%%", cacheStats.getHitRate() * 100));
+            System.out.println();
         };
     }
     
+    private static long executionMillis(AgentState state) {
+        Object millis = state.getMetadata().get(TradingService.EXECUTION_MILLIS_KEY);
+        return millis instanceof Number number ? number.longValue() : 0L;
+    }
+    
     private void printTestReport(List<TestResult> results, long totalDuration) {
         System.out.println("=".repeat(80));
         System.out.println("批量测试报告");
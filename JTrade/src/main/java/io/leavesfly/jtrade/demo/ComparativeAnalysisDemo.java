@@ -52,15 +52,14 @@ public class ComparativeAnalysisDemo {
             
             Map<String, AgentState> results = new HashMap<>();
             
-            // 分析每个股票
-            for (String symbol : techStocks) {
-                System.out.print("  ▸ 分析 " + symbol + "...");
-                try {
-                    AgentState state = tradingService.executeTradingWorkflow(symbol, date);
-                    results.put(symbol, state);
-                    System.out.println(" ✓");
-                } catch (Exception e) {
-                    System.out.println(" ✗ (失败: " + e.getMessage() + ")");
+            // 并发分析所有股票，完成一个输出一个
+            List<AgentState> states = tradingService.analyzeAll(List.of(techStocks), date, state -> {
+                boolean success = !"ERROR".equals(state.getFinalSignal());
+                System.out.println("  ▸ 分析 " + state.getCompany() + (success ? " ✓" : " ✗ (失败)"));
+            });
+            for (AgentState state : states) {
+                if (!"ERROR".equals(state.getFinalSignal())) {
+                    results.put(state.getCompany(), state);
                 }
             }
             
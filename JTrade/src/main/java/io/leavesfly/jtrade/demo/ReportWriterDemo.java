@@ -1,5 +1,6 @@
 package io.leavesfly.jtrade.demo;
 
+import io.leavesfly.jtrade.core.report.ReportWriter;
 import io.leavesfly.jtrade.core.state.AgentState;
 import io.leavesfly.jtrade.service.TradingService;
 import lombok.extern.slf4j.Slf4j;
@@ -20,8 +21,8 @@ import java.util.stream.Stream;
  * 
  * 展示如何将分析结果写入特定目录
  * - 按股票代码组织目录结构
- * - 生成完整的分析报告
- * - 中间结果和最终报告分离
+ * - 每次分析生成一个报告文件（摘要在前、各部分在后）
+ * - 可选按部分拆分为多个文件（jtrade.report.split-files=true）
  * 
  * @author 山泽
  */
@@ -35,7 +36,7 @@ public class ReportWriterDemo {
     }
     
     @Bean
-    public CommandLineRunner demo(TradingService tradingService) {
+    public CommandLineRunner demo(TradingService tradingService, ReportWriter reportWriter) {
         return args -> {
             printBanner();
             
@@ -45,7 +46,8 @@ public class ReportWriterDemo {
             // 演示2：多个股票分析并写入各自目录
             demoMultipleStocks(tradingService);
             
-            // 展示生成的报告结构
+            // 展示生成的报告结构（等待后台写入线程写完）
+            reportWriter.flush();
             displayReportStructure();
         };
     }
@@ -149,6 +151,8 @@ public class ReportWriterDemo {
             
             log.info("=".repeat(80));
             log.info("说明：");
+            log.info("  📊 = 完整报告（最终摘要在前，各部分在后）");
+            log.info("  按部分拆分（split-files=true）时：");
             log.info("  📊 = 最终摘要报告（推荐首先查看）");
             log.info("  📈 = 分析师报告");
             log.info("  💬 = 研究员辩论");
@@ -156,14 +160,14 @@ public class ReportWriterDemo {
             log.info("  ✅ = 决策和计划");
             log.info("  🧠 = 反思记录");
             log.info("=".repeat(80));
-            
+        
         } catch (Exception e) {
             log.error("展示报告结构失败", e);
         }
     }
     
     private String getFileIcon(String fileName) {
-        if (fileName.contains("FINAL_SUMMARY")) {
+        if (fileName.endsWith("_report.txt") || fileName.contains("FINAL_SUMMARY")) {
             return "📊";
         } else if (fileName.contains("analyst_reports")) {
             return "📈";
@@ -196,23 +200,21 @@ public class ReportWriterDemo {
         System.out.println("\n✨ 功能特性：");
         System.out.println("  1. 📁 按股票代码组织目录结构");
         System.out.println("  2. 📅 按日期分离不同时间的分析");
-        System.out.println("  3. 📊 生成完整的最终摘要报告");
-        System.out.println("  4. 📈 分别保存各阶段中间结果");
+        System.out.println("  3. 📊 每次分析生成一个报告文件，最终摘要在前");
+        System.out.println("  4. 📈 可选按部分拆分保存各阶段中间结果");
         System.out.println("  5. 🔍 易于查找和对比不同股票的分析");
         
         System.out.println("\n📂 目录结构示例：");
         System.out.println("  reports/");
         System.out.println("    ├── AAPL/");
         System.out.println("    │   └── 2025-10-30/");
-        System.out.println("    │       ├── 20251030_220000_FINAL_SUMMARY.txt");
-        System.out.println("    │       ├── 20251030_220000_analyst_reports.txt");
-        System.out.println("    │       ├── 20251030_220000_researcher_debate.txt");
-        System.out.println("    │       ├── 20251030_220000_trading_plan.txt");
-        System.out.println("    │       └── ...");
+        System.out.println("    │       ├── 20251030_220000_report.txt");
+        System.out.println("    │       └── 20251030_231500_report.txt");
         System.out.println("    ├── TSLA/");
         System.out.println("    │   └── 2025-10-30/");
-        System.out.println("    └── MSFT/");
-        System.out.println("        └── 2025-10-30/");
+        System.out.println("    ├── MSFT/");
+        System.out.println("    │   └── 2025-10-30/");
+        System.out.println("    └── runs-20251030-215958123.ndjson.gz   # 运行日志，每次启动一个文件");
         System.out.println();
     }
 }
@@ -1,6 +1,7 @@
 package io.leavesfly.jtrade.graph;
 
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.InvestDebateState;
 import io.leavesfly.jtrade.core.state.RiskDebateState;
 
 /**
@@ -22,6 +23,12 @@ public class ConditionalLogic {
             return true;
         }
         
+        // 有辩论状态时按双方已发言次数决定：发言少的一方先说，次数相同时多头先说
+        InvestDebateState debate = state.getInvestDebate();
+        if (debate != null) {
+            return debate.getBullArguments().size() <= debate.getBearArguments().size();
+        }
+        
         // 根据上一次发言者决定
         String lastViewpoint = state.getResearcherViewpoints().get(
             state.getResearcherViewpoints().size() - 1
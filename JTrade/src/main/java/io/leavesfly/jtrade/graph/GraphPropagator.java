@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 图传播器 - 管理状态传播和日志
@@ -18,8 +19,8 @@ import java.util.Map;
 @Slf4j
 public class GraphPropagator {
     
-    // 状态历史记录 - 日期到状态的映射
-    private final Map<LocalDate, AgentState> stateHistory = new HashMap<>();
+    // 状态历史记录 - 日期到状态的映射（回测时多个日期并行写入）
+    private final Map<LocalDate, AgentState> stateHistory = new ConcurrentHashMap<>();
     
     // 当前股票代码
     private String currentSymbol;
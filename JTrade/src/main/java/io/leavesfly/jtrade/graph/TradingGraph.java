@@ -15,15 +15,22 @@ import io.leavesfly.jtrade.agents.risk.ConservativeDebator;
 import io.leavesfly.jtrade.agents.risk.NeutralDebator;
 import io.leavesfly.jtrade.agents.trader.Trader;
 import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
 import io.leavesfly.jtrade.core.reflection.ReflectionService;
 import io.leavesfly.jtrade.config.AppConfig;
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.InvestDebateState;
+import io.leavesfly.jtrade.core.state.RiskDebateState;
+import io.leavesfly.jtrade.core.workflow.ParallelAgentExecutor;
+import io.leavesfly.jtrade.core.workflow.WorkflowEngine;
+import io.leavesfly.jtrade.core.workflow.WorkflowExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 交易图 - 协调所有智能体的主类
@@ -59,17 +66,25 @@ public class TradingGraph {
     // 辅助服务
     private final ReflectionService reflectionService;
     private final MemoryService memoryService;
+    private final SituationMemory situationMemory;
     
     // 应用配置
     private final AppConfig appConfig;
     
+    // 并行执行器
+    private final ParallelAgentExecutor parallelExecutor;
+    private final WorkflowExecutor workflowExecutor;
+    
     // 条件逻辑
     private final ConditionalLogic conditionalLogic;
     
     // 配置
-    private final int maxDebateRounds;
+    private volatile int maxDebateRounds;
     private final int maxRiskDiscussRounds;
     
+    // 风险辩论者（决定发言与合并顺序）
+    private final List<Agent> riskDebators;
+    
     public TradingGraph(
             MarketAnalyst marketAnalyst,
             FundamentalsAnalyst fundamentalsAnalyst,
@@ -86,7 +101,10 @@ public class TradingGraph {
             RiskManager riskManager,
             ReflectionService reflectionService,
             MemoryService memoryService,
-            AppConfig appConfig) {
+            SituationMemory situationMemory,
+            AppConfig appConfig,
+            ParallelAgentExecutor parallelExecutor,
+            WorkflowExecutor workflowExecutor) {
         
         // 初始化分析师团队
         this.analysts.add(marketAnalyst);
@@ -112,11 +130,15 @@ public class TradingGraph {
         this.riskManager = riskManager;
         this.reflectionService = reflectionService;
         this.memoryService = memoryService;
+        this.situationMemory = situationMemory;
         this.appConfig = appConfig;
+        this.parallelExecutor = parallelExecutor;
+        this.workflowExecutor = workflowExecutor;
         
         this.conditionalLogic = new ConditionalLogic();
-        this.maxDebateRounds = 1;
-        this.maxRiskDiscussRounds = 1;
+        this.maxDebateRounds = Math.max(1, appConfig.getDebate().getMaxRounds());
+        this.maxRiskDiscussRounds = Math.max(1, appConfig.getRiskDebate().getMaxRounds());
+        this.riskDebators = List.of(aggressiveDebator, conservativeDebator, neutralDebator);
     }
     
     /**
@@ -127,60 +149,141 @@ public class TradingGraph {
      * @return 最终状态
      */
     public AgentState propagate(String symbol, LocalDate date) {
+        return propagate(AgentState.builder()
+                .company(symbol)
+                .date(date)
+                .build());
+    }
+    
+    /**
+     * 从给定的初始状态执行交易图流程
+     * 
+     * 回测时用于在初始状态的元数据中预置截至当日的行情数据
+     * 
+     * @param initialState 初始状态，至少包含股票代码和日期
+     * @return 最终状态
+     */
+    public AgentState propagate(AgentState initialState) {
+        return propagate(initialState, null);
+    }
+    
+    /**
+     * 从给定的初始状态执行交易图流程，并把各阶段的执行进度通知监听器
+     * 
+     * @param initialState 初始状态，至少包含股票代码和日期
+     * @param listener 阶段进度监听器，可为 null
+     * @return 最终状态
+     */
+    public AgentState propagate(AgentState initialState, WorkflowEngine.NodeListener listener) {
+        return run(initialState, listener, true);
+    }
+    
+    /**
+     * 回放交易图流程
+     * 
+     * 回测使用：不做反思，也不写入决策记忆和情境记忆，模拟决策不会进入后续运行的历史
+     * 
+     * @param initialState 初始状态，元数据中的截止日限制各智能体可见的数据
+     * @return 最终状态
+     */
+    public AgentState replay(AgentState initialState) {
+        return run(initialState, null, false);
+    }
+    
+    private AgentState run(AgentState initialState, WorkflowEngine.NodeListener listener, boolean persist) {
         log.info("=====================================");
         log.info("启动交易图流程");
-        log.info("股票: {} | 日期: {}", symbol, date);
+        log.info("股票: {} | 日期: {}", initialState.getCompany(), initialState.getDate());
         log.info("=====================================");
         
-        // 初始化状态
-        AgentState state = AgentState.builder()
-                .company(symbol)
-                .date(date)
-                .build();
+        AgentState state = initialState;
         
         try {
-            // 阶段1: 分析师团队并行分析
-            state = executeAnalysts(state);
-            
-            // 阶段2: 研究员辩论（带条件判断）
-            state = executeDebate(state);
-            
-            // 阶段3: 研究经理决策
-            state = researchManager.execute(state);
-            
-            // 阶段4: 交易员制定计划
-            state = trader.execute(state);
-            
-            // 阶段5: 风险辩论（带条件判断）
-            state = executeRiskDebate(state);
-            
-            // 阶段6: 风险管理审批
-            state = riskManager.execute(state);
-            
-            // 阶段7: 反思与学习
-            state = executeReflection(state);
-            
-            // 阶段8: 保存记忆
-            memoryService.saveDecision(state);
+            // 按各阶段读写的状态字段构建DAG，互不依赖的阶段（如分析反思与后续辩论）并行执行
+            state = buildWorkflow(persist).withListener(listener).execute(state);
             
             log.info("交易图流程完成，最终信号: {}", state.getFinalSignal());
             
             return state;
-            
+        
         } catch (Exception e) {
             log.error("交易图执行失败", e);
             return state.toBuilder().finalSignal("ERROR").build();
         }
     }
     
+    /**
+     * 构建交易图工作流
+     * 
+     * @param persist 是否反思并保存记忆
+     */
+    private WorkflowEngine buildWorkflow(boolean persist) {
+        WorkflowEngine engine = new WorkflowEngine(workflowExecutor)
+                .failFast(true)
+                // 阶段1: 分析师团队并行分析
+                .addTransformNode("analysts", this::executeAnalysts,
+                        Set.of("company", "date"), Set.of("analystReports"))
+                // 阶段2: 研究员辩论（带条件判断）
+                .addTransformNode("debate", this::executeDebate,
+                        Set.of("analystReports"), Set.of("researcherViewpoints", "investDebate"))
+                // 相似历史情境检索（与辩论并行，供研究经理与交易员参考）
+                .addTransformNode("similar_situations", situationMemory::attachSimilar,
+                        Set.of("analystReports"), Set.of("similarSituations"))
+                // 阶段3: 研究经理决策
+                .addNode("research_manager", researchManager,
+                        Set.of("researcherViewpoints", "similarSituations"), Set.of("researchManagerDecision"))
+                // 阶段4: 交易员制定计划
+                .addNode("trader", trader,
+                        Set.of("researchManagerDecision"), Set.of("tradingPlan"))
+                // 阶段5: 风险辩论（带条件判断）
+                .addTransformNode("risk_debate", this::executeRiskDebate,
+                        Set.of("tradingPlan"), Set.of("riskDebate"))
+                // 阶段6: 风险管理审批
+                .addNode("risk_manager", riskManager,
+                        Set.of("tradingPlan", "riskDebate"), Set.of("riskManagerDecision", "finalSignal"));
+        if (!persist) {
+            return engine;
+        }
+        
+        Set<String> decisionFields = Set.of("analystReports", "researcherViewpoints", "researchManagerDecision",
+                "tradingPlan", "finalSignal");
+        switch (reflectionService.getMode()) {
+            // 后台反思：保存记忆后立即返回，反思完成后补写到记忆
+            case BACKGROUND -> engine.addTransformNode("save_memory", this::saveMemoryAndReflect,
+                    decisionFields, Set.of());
+            // 依次反思：最终信号产生后逐项调用
+            case SEQUENTIAL -> engine
+                    .addTransformNode("reflect", reflectionService::reflect, decisionFields, Set.of("reflections"))
+                    .addTransformNode("save_memory", this::saveMemory, Set.of("reflections"), Set.of());
+            // 阶段7: 反思与学习（分析反思只依赖分析师报告，可与辩论并行）
+            case PARALLEL -> engine
+                    .addTransformNode("reflect_analysis", reflectionService::reflectOnAnalysis,
+                            Set.of("analystReports"), Set.of("reflections"))
+                    .addTransformNode("reflect_decision", reflectionService::reflectOnDecision,
+                            Set.of("researchManagerDecision", "tradingPlan"), Set.of("reflections"))
+                    .addTransformNode("reflect_comprehensive", reflectionService::comprehensiveReflection,
+                            decisionFields, Set.of("reflections"))
+                    // 阶段8: 保存记忆
+                    .addTransformNode("save_memory", this::saveMemory,
+                            Set.of("analystReports", "researcherViewpoints", "researchManagerDecision",
+                                    "tradingPlan", "finalSignal", "reflections"), Set.of());
+        }
+        return engine;
+    }
+    
     /**
      * 执行分析师团队
      */
     private AgentState executeAnalysts(AgentState state) {
         log.info("\n【阶段1：分析师团队】");
         
-        for (Agent analyst : analysts) {
-            state = analyst.execute(state);
+        if (appConfig.getWorkflow().isParallelAnalysts()) {
+            // 各分析师基于同一输入状态并行执行，按分析师顺序合并报告与元数据
+            state = parallelExecutor.executeAll(state, analysts);
+        } else {
+            for (Agent analyst : analysts) {
+                state = analyst.execute(state);
+            }
         }
         
         log.info("分析师报告: {} 份", state.getAnalystReports().size());
@@ -193,53 +296,117 @@ public class TradingGraph {
     private AgentState executeDebate(AgentState state) {
         log.info("\n【阶段2：研究员辩论】");
         
-        int round = 0;
-        while (round < maxDebateRounds * 2) {
-            // 判断下一个发言者
-            if (conditionalLogic.shouldContinueBullFirst(state)) {
-                state = bullResearcher.execute(state);
-                state = bearResearcher.execute(state);
-            } else {
-                state = bearResearcher.execute(state);
-                state = bullResearcher.execute(state);
-            }
-            round += 2;
+        int rounds = maxDebateRounds;
+        state = state.toBuilder()
+                .investDebate(InvestDebateState.builder().maxRounds(rounds).build())
+                .build();
+        
+        // 第一轮：开场陈述只依赖分析师报告，双方可以同时生成
+        if (appConfig.getDebate().isParallelOpening()) {
+            List<AgentState> openings = parallelExecutor.forkAll(state, List.of(bullResearcher, bearResearcher));
+            InvestDebateState debate = state.getInvestDebate()
+                    .addBullArgument(newViewpoints(state, openings.get(0)))
+                    .addBearArgument(newViewpoints(state, openings.get(1)))
+                    .nextRound();
+            state = AgentState.merge(state, openings).toBuilder().investDebate(debate).build();
+        } else {
+            state = debateRound(state);
+        }
+        
+        // 之后的反驳轮：每一方都要回应对方的最新论点，只能按顺序发言
+        while (!state.getInvestDebate().isDebateFinished()) {
+            state = debateRound(state);
         }
         
-        log.info("辩论完成，观点: {} 个", state.getResearcherViewpoints().size());
+        log.info("辩论完成，{} 轮，观点: {} 个", rounds, state.getResearcherViewpoints().size());
         return state;
     }
     
+    /**
+     * 顺序执行一轮多空发言
+     */
+    private AgentState debateRound(AgentState state) {
+        if (conditionalLogic.shouldContinueBullFirst(state)) {
+            state = speak(state, bullResearcher, true);
+            state = speak(state, bearResearcher, false);
+        } else {
+            state = speak(state, bearResearcher, false);
+            state = speak(state, bullResearcher, true);
+        }
+        return state.toBuilder().investDebate(state.getInvestDebate().nextRound()).build();
+    }
+    
+    /**
+     * 执行一位研究员并把新观点记入辩论状态
+     */
+    private AgentState speak(AgentState state, Agent researcher, boolean bull) {
+        AgentState after = researcher.execute(state);
+        String argument = newViewpoints(state, after);
+        InvestDebateState debate = bull
+                ? after.getInvestDebate().addBullArgument(argument)
+                : after.getInvestDebate().addBearArgument(argument);
+        return after.toBuilder().investDebate(debate).build();
+    }
+    
+    /**
+     * 执行前后新增的研究员观点
+     */
+    private String newViewpoints(AgentState before, AgentState after) {
+        List<String> viewpoints = after.getResearcherViewpoints();
+        return String.join("\n\n", viewpoints.subList(before.getResearcherViewpoints().size(), viewpoints.size()));
+    }
+    
     /**
      * 执行风险辩论（带条件判断）
      */
     private AgentState executeRiskDebate(AgentState state) {
         log.info("\n【阶段5：风险辩论】");
         
-        int round = 0;
-        while (round < maxRiskDiscussRounds * 3) {
-            // 按顺序：激进 -> 保守 -> 中立
-            state = aggressiveDebator.execute(state);
-            state = conservativeDebator.execute(state);
-            state = neutralDebator.execute(state);
-            round += 3;
+        state = state.toBuilder()
+                .riskDebate(RiskDebateState.builder().maxRounds(maxRiskDiscussRounds).build())
+                .build();
+        boolean panel = appConfig.getRiskDebate().isParallelPanel();
+        
+        while (!state.getRiskDebate().isDebateFinished()) {
+            RiskDebateState debate;
+            if (panel) {
+                // 三方都回应上一轮结束时的同一份辩论状态，本轮发言一次性合并
+                List<AgentState> branches = parallelExecutor.forkAll(state, riskDebators);
+                debate = RiskDebateState.merge(state.getRiskDebate(),
+                        branches.stream().map(AgentState::getRiskDebate).toList());
+                state = AgentState.merge(state, branches);
+            } else {
+                // 按顺序：激进 -> 保守 -> 中立
+                for (Agent debator : riskDebators) {
+                    state = debator.execute(state);
+                }
+                debate = state.getRiskDebate();
+            }
+            state = state.toBuilder().riskDebate(debate.nextRound()).build();
         }
         
-        log.info("风险辩论完成");
+        log.info("风险辩论完成，{} 轮", maxRiskDiscussRounds);
         return state;
     }
     
     /**
-     * 执行反思
+     * 保存记忆
      */
-    private AgentState executeReflection(AgentState state) {
-        log.info("\n【阶段7：反思与学习】");
-        
-        state = reflectionService.reflectOnAnalysis(state);
-        state = reflectionService.reflectOnDecision(state);
-        state = reflectionService.comprehensiveReflection(state);
-        
+    private AgentState saveMemory(AgentState state) {
         log.info("反思完成: {} 条", state.getReflections().size());
+        memoryService.saveDecision(state);
+        situationMemory.recordAsync(state);
+        return state;
+    }
+    
+    /**
+     * 保存记忆并把反思提交到后台队列
+     */
+    private AgentState saveMemoryAndReflect(AgentState state) {
+        MemoryService.DecisionMemory saved = memoryService.saveDecision(state);
+        situationMemory.recordAsync(state);
+        reflectionService.reflectInBackground(state).thenAccept(reflections ->
+                memoryService.addReflections(saved, reflections));
         return state;
     }
     
@@ -255,5 +422,6 @@ public class TradingGraph {
      */
     public void setMaxDebateRounds(int rounds) {
         log.info("设置最大辩论轮数: {}", rounds);
+        this.maxDebateRounds = Math.max(1, rounds);
     }
 }
@@ -0,0 +1,492 @@
+package io.leavesfly.jtrade.llm.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 带缓存的LLM客户端
+ * 
+ * 包装实际的LLM客户端，以提供服务的提供商与模型、模型参数和消息列表的 SHA-256 作为缓存键：
+ * - 内存层：按访问顺序淘汰的有界 LRU
+ * - 磁盘层：位于 dataCacheDir/llm 下，按有效期和总占用空间淘汰
+ * 
+ * 结果按实际提供服务的提供商写入；查询时依次尝试下游客户端可能使用的各个提供商。
+ * 相同请求并发未命中时只发送一次。重复分析同一股票和日期时直接返回缓存结果，不消耗 Token
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class CachingLlmClient implements LlmClient {
+    
+    private final LlmClient delegate;
+    private final LlmConfig.CacheConfig cacheConfig;
+    private final String provider;
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final ObjectMapper objectMapper;
+    
+    private final Map<String, CacheEntry> memoryCache;
+    private final Map<String, CompletableFuture<LlmResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+    
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public CachingLlmClient(@Qualifier("routingLlmClient") LlmClient delegate,
+                            LlmConfig llmConfig, AppConfig appConfig) {
+        this.delegate = delegate;
+        this.cacheConfig = llmConfig.getCache();
+        this.provider = llmConfig.getProvider();
+        this.cacheDir = Paths.get(appConfig.getDataCacheDir(), "llm");
+        this.ttl = Duration.ofHours(cacheConfig.getTtlHours());
+        this.objectMapper = new ObjectMapper();
+        
+        int maxMemoryEntries = Math.max(1, cacheConfig.getMaxMemoryEntries());
+        this.memoryCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        
+        if (cacheConfig.isEnabled()) {
+            try {
+                Files.createDirectories(cacheDir);
+                diskBytes.set(scanDiskUsage());
+            } catch (IOException e) {
+                log.warn("初始化LLM缓存目录失败: {}", e.getMessage());
+            }
+            log.info("LLM响应缓存已启用: {} (磁盘占用 {} KB)", cacheDir.toAbsolutePath(), diskBytes.get() / 1024);
+        }
+    }
+    
+    @Override
+    public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+        if (!cacheConfig.isEnabled()) {
+            return delegate.chat(messages, config);
+        }
+        
+        List<ServingTarget> targets = servingTargets(config);
+        LlmResponse cached = lookup(messages, config, targets);
+        if (cached != null) {
+            replayToListeners(cached);
+            return cached;
+        }
+        
+        // 相同请求并发未命中时，只有第一个调用方真正发出请求
+        String key = cacheKey(messages, config, targets.get(0));
+        CompletableFuture<LlmResponse> pending = new CompletableFuture<>();
+        CompletableFuture<LlmResponse> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            // 与缓存命中一样，把共享的结果输出给本调用方绑定的监听器
+            LlmResponse shared = existing.join();
+            replayToListeners(shared);
+            return shared;
+        }
+        
+        try {
+            misses.increment();
+            LlmResponse response = delegate.chat(messages, config);
+            store(messages, config, targets, response);
+            pending.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+        if (!cacheConfig.isEnabled()) {
+            return delegate.chatAsync(messages, config);
+        }
+        
+        List<ServingTarget> targets = servingTargets(config);
+        LlmResponse cached = lookup(messages, config, targets);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        misses.increment();
+        return delegate.chatAsync(messages, config).thenApply(response -> {
+            store(messages, config, targets, response);
+            return response;
+        });
+    }
+    
+    @Override
+    public void streamChat(List<LlmMessage> messages, ModelConfig config, StreamCallback callback) {
+        if (!cacheConfig.isEnabled()) {
+            delegate.streamChat(messages, config, callback);
+            return;
+        }
+        
+        List<ServingTarget> targets = servingTargets(config);
+        LlmResponse cached = lookup(messages, config, targets);
+        if (cached != null) {
+            callback.onChunk(cached.getContent());
+            callback.onComplete(cached);
+            return;
+        }
+        
+        misses.increment();
+        delegate.streamChat(messages, config, new StreamCallback() {
+            @Override
+            public void onChunk(String chunk) {
+                callback.onChunk(chunk);
+            }
+            
+            @Override
+            public void onComplete(LlmResponse response) {
+                store(messages, config, targets, response);
+                callback.onComplete(response);
+            }
+        });
+    }
+    
+    @Override
+    public double[] embedText(String text) {
+        return delegate.embedText(text);
+    }
+    
+    /**
+     * 获取缓存统计
+     */
+    public CacheStats getStats() {
+        int memoryEntries;
+        synchronized (memoryCache) {
+            memoryEntries = memoryCache.size();
+        }
+        return CacheStats.builder()
+                .memoryHits(memoryHits.sum())
+                .diskHits(diskHits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .memoryEntries(memoryEntries)
+                .diskBytes(diskBytes.get())
+                .build();
+    }
+    
+    /**
+     * 清空缓存（内存与磁盘）
+     */
+    public void clear() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.filter(Files::isRegularFile).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("清空LLM缓存失败: {}", e.getMessage());
+        }
+        diskBytes.set(0);
+    }
+    
+    @PreDestroy
+    public void logStats() {
+        if (cacheConfig.isEnabled()) {
+            log.info("LLM响应缓存统计: {}", getStats());
+        }
+    }
+    
+    /**
+     * 下游客户端可能使用的提供商与模型，未知时视为主提供商和请求的模型
+     */
+    @Override
+    public List<ServingTarget> servingTargets(ModelConfig config) {
+        List<ServingTarget> targets = delegate.servingTargets(config);
+        return targets.isEmpty() ? List.of(new ServingTarget(provider, config.getModel())) : targets;
+    }
+    
+    /**
+     * 计算缓存键
+     * 
+     * 覆盖提供服务的提供商与模型、其余模型参数与消息的角色和内容
+     */
+    String cacheKey(List<LlmMessage> messages, ModelConfig config, ServingTarget target) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("provider", target.provider());
+        node.put("model", target.model());
+        node.put("temperature", config.getTemperature());
+        node.put("maxTokens", config.getMaxTokens());
+        node.put("topP", config.getTopP());
+        node.put("frequencyPenalty", config.getFrequencyPenalty());
+        node.put("presencePenalty", config.getPresencePenalty());
+        
+        ArrayNode messagesNode = node.putArray("messages");
+        for (LlmMessage message : messages) {
+            messagesNode.addObject()
+                    .put("role", message.getRole())
+                    .put("content", message.getContent());
+        }
+        
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(objectMapper.writeValueAsBytes(node));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("计算缓存键失败", e);
+        }
+    }
+    
+    /**
+     * 按优先顺序查询各个提供商的缓存条目
+     */
+    private LlmResponse lookup(List<LlmMessage> messages, ModelConfig config, List<ServingTarget> targets) {
+        for (ServingTarget target : targets) {
+            LlmResponse response = lookup(cacheKey(messages, config, target));
+            if (response != null) {
+                return response;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 依次查询内存层和磁盘层，磁盘命中会回填内存层
+     */
+    private LlmResponse lookup(String key) {
+        long now = System.currentTimeMillis();
+        
+        synchronized (memoryCache) {
+            CacheEntry entry = memoryCache.get(key);
+            if (entry != null) {
+                if (!isExpired(entry.createdAt(), now)) {
+                    memoryHits.increment();
+                    return entry.response();
+                }
+                memoryCache.remove(key);
+                evictions.increment();
+            }
+        }
+        
+        Path file = diskPath(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        
+        try {
+            JsonNode root = objectMapper.readTree(file.toFile());
+            long createdAt = root.path("createdAt").asLong();
+            if (isExpired(createdAt, now)) {
+                evictDiskEntry(file);
+                return null;
+            }
+            
+            LlmResponse response = objectMapper.treeToValue(root.get("response"), LlmResponse.class);
+            synchronized (memoryCache) {
+                memoryCache.put(key, new CacheEntry(response, createdAt));
+            }
+            diskHits.increment();
+            return response;
+        } catch (IOException e) {
+            log.warn("读取LLM缓存失败，已忽略: {}", file.getFileName());
+            evictDiskEntry(file);
+            return null;
+        }
+    }
+    
+    /**
+     * 以实际提供服务的提供商写入缓存
+     */
+    private void store(List<LlmMessage> messages, ModelConfig config, List<ServingTarget> targets,
+                       LlmResponse response) {
+        if (response == null) {
+            return;
+        }
+        ServingTarget served = targets.stream()
+                .filter(target -> target.provider().equals(response.getProvider()))
+                .findFirst()
+                .orElse(targets.get(0));
+        store(cacheKey(messages, config, served), response);
+    }
+    
+    /**
+     * 写入内存层和磁盘层
+     */
+    private void store(String key, LlmResponse response) {
+        if (response == null || response.getContent() == null || response.getContent().isEmpty()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        synchronized (memoryCache) {
+            memoryCache.put(key, new CacheEntry(response, now));
+        }
+        
+        Path file = diskPath(key);
+        try {
+            ObjectNode root = objectMapper.createObjectNode();
+            root.put("createdAt", now);
+            root.set("response", objectMapper.valueToTree(response));
+            byte[] bytes = objectMapper.writeValueAsBytes(root);
+            
+            // 先写临时文件再原子替换，避免并发读到半个文件
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temp, bytes);
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+            if (diskBytes.addAndGet(bytes.length - previous) > maxDiskBytes()) {
+                evictDisk();
+            }
+        } catch (IOException e) {
+            log.warn("写入LLM缓存失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 磁盘层超出容量时，清理过期条目并按最后修改时间淘汰最旧的条目，直到降至上限的90%
+     */
+    private synchronized void evictDisk() {
+        long target = maxDiskBytes() * 9 / 10;
+        long now = System.currentTimeMillis();
+        
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            List<Path> entries = files
+                    .filter(path -> path.toString().endsWith(".json"))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .toList();
+            
+            for (Path entry : entries) {
+                boolean expired = isExpired(lastModified(entry), now);
+                if (!expired && diskBytes.get() <= target) {
+                    break;
+                }
+                evictDiskEntry(entry);
+            }
+        } catch (IOException e) {
+            log.warn("淘汰LLM磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+    
+    private void evictDiskEntry(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+                evictions.increment();
+            }
+        } catch (IOException e) {
+            log.debug("删除LLM缓存文件失败: {}", file.getFileName());
+        }
+    }
+    
+    private void replayToListeners(LlmResponse response) {
+        StreamCallback listener = StreamListeners.current();
+        if (listener != null) {
+            listener.onChunk(response.getContent());
+            listener.onComplete(response);
+        }
+    }
+    
+    private long scanDiskUsage() throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(Files::isRegularFile).mapToLong(this::sizeOf).sum();
+        }
+    }
+    
+    private Path diskPath(String key) {
+        // 按前两位分桶，避免单目录文件过多
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+    
+    private boolean isExpired(long createdAt, long now) {
+        return now - createdAt > ttl.toMillis();
+    }
+    
+    private long maxDiskBytes() {
+        return cacheConfig.getMaxDiskMb() * 1024 * 1024;
+    }
+    
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("删除LLM缓存文件失败: {}", path.getFileName());
+        }
+    }
+    
+    /**
+     * 缓存条目
+     */
+    private record CacheEntry(LlmResponse response, long createdAt) {
+    }
+    
+    /**
+     * 缓存统计
+     */
+    @Data
+    @Builder
+    public static class CacheStats {
+        private long memoryHits;
+        private long diskHits;
+        private long misses;
+        private long evictions;
+        private int memoryEntries;
+        private long diskBytes;
+        
+        /**
+         * 命中率
+         */
+        public double getHitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0.0 : (double) (memoryHits + diskHits) / total;
+        }
+    }
+}
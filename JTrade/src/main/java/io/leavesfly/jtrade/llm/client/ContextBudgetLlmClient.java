@@ -0,0 +1,160 @@
+package io.leavesfly.jtrade.llm.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.context.ContextCompactor;
+import io.leavesfly.jtrade.llm.context.TokenEstimator;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上下文预算LLM客户端
+ * 
+ * 位于调用链最前端（本类 -> CachingLlmClient -> RoutingLlmClient -> SimpleLlmClient）。每次调用前估算消息的 Token 数，
+ * 超出模型上下文预算（上下文窗口减去输出预留）时用 ContextCompactor 把较早的内容折叠为摘要，
+ * 保留指令和最近的内容。摘要请求经过响应缓存，同一段旧内容只会被摘要一次
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Primary
+@Component
+public class ContextBudgetLlmClient implements LlmClient {
+    
+    private static final String SUMMARY_PROMPT =
+            "请把以下内容压缩为简洁的要点摘要，保留关键数据、结论、交易建议与各方分歧，不要添加新观点：";
+    
+    /**
+     * 预算下限，避免配置错误时把上下文压缩为空
+     */
+    private static final int MIN_BUDGET = 1024;
+    
+    private final LlmClient delegate;
+    private final LlmConfig.ContextConfig contextConfig;
+    private final ContextCompactor compactor;
+    // 异步调用的压缩会同步等待摘要请求，不能占用公共 ForkJoinPool
+    private final ThreadPoolExecutor compactionExecutor;
+    
+    private final LongAdder compactedRequests = new LongAdder();
+    private final LongAdder savedTokens = new LongAdder();
+    
+    public ContextBudgetLlmClient(@Qualifier("cachingLlmClient") LlmClient delegate, LlmConfig llmConfig) {
+        this.delegate = delegate;
+        this.contextConfig = llmConfig.getContext();
+        this.compactor = new ContextCompactor(contextConfig.getSummaryMaxTokens(), contextConfig.getMaxCachedSummaries());
+        int threads = Math.max(1, contextConfig.getCompactionThreads());
+        this.compactionExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                .setNameFormat("jtrade-context-%d")
+                .setDaemon(true)
+                .build());
+        this.compactionExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    @Override
+    public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+        return delegate.chat(fitToBudget(messages, config), config);
+    }
+    
+    @Override
+    public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+        if (!needsCompaction(messages, config)) {
+            return delegate.chatAsync(messages, config);
+        }
+        // 压缩可能需要同步请求摘要，放到压缩线程池执行，不阻塞调用方
+        return CompletableFuture.supplyAsync(() -> fitToBudget(messages, config), compactionExecutor)
+                .thenCompose(compacted -> delegate.chatAsync(compacted, config));
+    }
+    
+    @Override
+    public void streamChat(List<LlmMessage> messages, ModelConfig config, StreamCallback callback) {
+        delegate.streamChat(fitToBudget(messages, config), config, callback);
+    }
+    
+    @Override
+    public double[] embedText(String text) {
+        return delegate.embedText(text);
+    }
+    
+    /**
+     * 被压缩过的请求数
+     */
+    public long getCompactedRequests() {
+        return compactedRequests.sum();
+    }
+    
+    /**
+     * 压缩累计节省的 Token 数（估算值）
+     */
+    public long getSavedTokens() {
+        return savedTokens.sum();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        compactionExecutor.shutdownNow();
+    }
+    
+    /**
+     * 计算请求的输入预算：上下文窗口减去输出预留
+     */
+    int budgetOf(ModelConfig config) {
+        int window = config.getMaxContextTokens() > 0
+                ? config.getMaxContextTokens()
+                : contextConfig.getDefaultMaxContextTokens();
+        return Math.max(MIN_BUDGET, window - config.getMaxTokens());
+    }
+    
+    private boolean needsCompaction(List<LlmMessage> messages, ModelConfig config) {
+        return contextConfig.isEnabled() && TokenEstimator.estimate(messages) > budgetOf(config);
+    }
+    
+    private List<LlmMessage> fitToBudget(List<LlmMessage> messages, ModelConfig config) {
+        if (!needsCompaction(messages, config)) {
+            return messages;
+        }
+        
+        int budget = budgetOf(config);
+        int before = TokenEstimator.estimate(messages);
+        List<LlmMessage> compacted = compactor.compact(messages, budget, text -> summarize(text, config, budget));
+        if (compacted != messages) {
+            compactedRequests.increment();
+            savedTokens.add(Math.max(0, before - TokenEstimator.estimate(compacted)));
+        }
+        return compacted;
+    }
+    
+    /**
+     * 用同一模型生成摘要；原文超出预算时只摘要最近的部分
+     * 
+     * 摘要是内部请求，调用时解除当前线程绑定的流式监听器，不把摘要内容输出给调用方
+     */
+    private String summarize(String text, ModelConfig config, int budget) {
+        String input = text;
+        while (TokenEstimator.estimate(input) > budget && input.length() > 1) {
+            input = input.substring(input.length() / 2);
+        }
+        
+        ModelConfig summaryConfig = ModelConfig.builder()
+                .model(config.getModel())
+                .temperature(0.2)
+                .maxTokens(contextConfig.getSummaryMaxTokens())
+                .maxContextTokens(config.getMaxContextTokens())
+                .build();
+        List<LlmMessage> summaryMessages = List.of(LlmMessage.system(SUMMARY_PROMPT), LlmMessage.user(input));
+        return StreamListeners.with(null, () -> delegate.chat(summaryMessages, summaryConfig)).getContent();
+    }
+}
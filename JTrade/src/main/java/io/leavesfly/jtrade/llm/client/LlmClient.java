@@ -5,6 +5,7 @@ import io.leavesfly.jtrade.llm.model.LlmResponse;
 import io.leavesfly.jtrade.llm.model.ModelConfig;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * LLM客户端接口
@@ -24,9 +25,25 @@ public interface LlmClient {
      */
     LlmResponse chat(List<LlmMessage> messages, ModelConfig config);
     
+    /**
+     * 异步对话
+     * 
+     * 默认实现在公共线程池上调用阻塞的 chat，实现类可覆盖为真正的非阻塞调用
+     * 
+     * @param messages 消息列表
+     * @param config 模型配置
+     * @return 完成时携带LLM响应的 Future
+     */
+    default CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+        return CompletableFuture.supplyAsync(() -> chat(messages, config));
+    }
+    
     /**
      * 流式对话（可选）
      * 
+     * 模型输出的每个增量通过 callback.onChunk 推送，流结束后回调 onComplete；
+     * 方法在流结束前阻塞
+     * 
      * @param messages 消息列表
      * @param config 模型配置
      * @param callback 流式回调
@@ -45,11 +62,35 @@ public interface LlmClient {
         throw new UnsupportedOperationException("Embedding not supported");
     }
     
+    /**
+     * 可能为该请求提供服务的提供商及其模型，按优先顺序排列（可选）
+     * 
+     * 缓存据此区分不同提供商返回的结果；默认返回空列表，表示未知
+     * 
+     * @param config 模型配置
+     * @return 提供商与模型列表
+     */
+    default List<ServingTarget> servingTargets(ModelConfig config) {
+        return List.of();
+    }
+    
+    /**
+     * 提供服务的提供商与发往该提供商的模型名
+     */
+    record ServingTarget(String provider, String model) {
+    }
+    
     /**
      * 流式回调接口
      */
     @FunctionalInterface
     interface StreamCallback {
         void onChunk(String chunk);
+        
+        /**
+         * 流结束时回调，携带拼接后的完整响应
+         */
+        default void onComplete(LlmResponse response) {
+        }
     }
 }
@@ -0,0 +1,509 @@
+package io.leavesfly.jtrade.llm.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.llm.exception.LlmException;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 多提供商路由LLM客户端
+ * 
+ * 位于 CachingLlmClient 与 SimpleLlmClient 之间。主提供商之外，配置了 API Key 的其他提供商
+ * 也会参与路由，每个提供商使用独立的 SimpleLlmClient（独立的调度器与限流桶，共享连接池）。
+ * 
+ * - 选路：主提供商先积累足够样本，之后按滑动窗口内的平均延迟从低到高排序，样本不足的提供商优先以积累数据，
+ *   错误率过高的排在最后；默认关闭（llm.routing.enabled），关闭时只使用主提供商
+ * - 模型映射：深度/快速模型映射为目标提供商的深度/快速模型，其他模型只发往主提供商
+ * - 故障转移：首选提供商重试耗尽后失败，立即改用下一个提供商
+ * - 对冲请求：首选提供商超过其延迟分位数（默认 p95）仍未返回时，向次选提供商发送相同请求，
+ *   取先成功的结果并取消另一个
+ * 
+ * 当前运行绑定了流式监听器（见 {@link StreamListeners}）时不发送对冲请求，避免两路增量同时输出
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class RoutingLlmClient implements LlmClient {
+    
+    private final LlmConfig llmConfig;
+    private final LlmConfig.RoutingConfig routingConfig;
+    private final String primaryProvider;
+    private final List<Route> routes = new ArrayList<>();
+    private final List<SimpleLlmClient> ownedClients = new ArrayList<>();
+    private final ScheduledExecutorService hedgeScheduler;
+    private final LongSupplier clock;
+    
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    
+    @Autowired
+    public RoutingLlmClient(SimpleLlmClient primary, LlmConfig llmConfig,
+                            HttpClientManager httpClientManager, LlmRateLimiter rateLimiter) {
+        this(primary, llmConfig, httpClientManager, rateLimiter, System::nanoTime);
+    }
+    
+    /**
+     * @param clock 测量调用延迟的纳秒时钟，测试时可替换
+     */
+    public RoutingLlmClient(SimpleLlmClient primary, LlmConfig llmConfig,
+                            HttpClientManager httpClientManager, LlmRateLimiter rateLimiter, LongSupplier clock) {
+        this.llmConfig = llmConfig;
+        this.clock = clock;
+        this.routingConfig = llmConfig.getRouting();
+        this.primaryProvider = primary.getProvider();
+        this.routes.add(new Route(primaryProvider, primary, new ProviderStats(routingConfig.getWindowSize())));
+        
+        if (routingConfig.isEnabled()) {
+            for (String name : routingConfig.getProviders()) {
+                String provider = name.toLowerCase();
+                if (provider.equals(primaryProvider) || !isConfigured(provider)
+                        || routes.stream().anyMatch(route -> route.provider().equals(provider))) {
+                    continue;
+                }
+                SimpleLlmClient client = new SimpleLlmClient(llmConfig, httpClientManager, rateLimiter, provider);
+                ownedClients.add(client);
+                routes.add(new Route(provider, client, new ProviderStats(routingConfig.getWindowSize())));
+            }
+        }
+        
+        this.hedgeScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("llm-hedge-%d")
+                .setDaemon(true)
+                .build());
+        
+        log.info("LLM路由提供商: {}", routes.stream().map(Route::provider).toList());
+    }
+    
+    @Override
+    public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+        if (routes.size() == 1) {
+            return chatOn(routes.get(0), messages, config);
+        }
+        // 当前运行绑定了流式监听器时走同步流式调用，只做故障转移
+        if (StreamListeners.isActive()) {
+            return chatWithFailover(messages, config);
+        }
+        try {
+            return route(messages, config).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+    
+    @Override
+    public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+        return route(messages, config);
+    }
+    
+    /**
+     * 流式对话：尚未输出任何增量时失败才会转移到下一个提供商
+     */
+    @Override
+    public void streamChat(List<LlmMessage> messages, ModelConfig config, StreamCallback callback) {
+        RuntimeException lastError = null;
+        for (Route route : rank(config.getModel())) {
+            boolean[] emitted = {false};
+            StreamCallback tracking = new StreamCallback() {
+                @Override
+                public void onChunk(String chunk) {
+                    emitted[0] = true;
+                    callback.onChunk(chunk);
+                }
+                
+                @Override
+                public void onComplete(LlmResponse response) {
+                    callback.onComplete(response);
+                }
+            };
+            long start = clock.getAsLong();
+            try {
+                route.client().streamChat(messages, configFor(route, config), tracking);
+                route.stats().record(elapsedMillis(start), true);
+                return;
+            } catch (RuntimeException e) {
+                route.stats().record(elapsedMillis(start), false);
+                if (emitted[0]) {
+                    throw e;
+                }
+                lastError = e;
+                failovers.increment();
+                log.warn("LLM提供商 {} 流式调用失败，尝试下一个提供商: {}", route.provider(), e.getMessage());
+            }
+        }
+        throw lastError != null ? lastError : new LlmException("No LLM provider available");
+    }
+    
+    @Override
+    public double[] embedText(String text) {
+        return routes.get(0).client().embedText(text);
+    }
+    
+    /**
+     * 可以服务该模型的提供商及映射后的模型，按配置顺序（主提供商在前）
+     */
+    @Override
+    public List<ServingTarget> servingTargets(ModelConfig config) {
+        List<ServingTarget> targets = new ArrayList<>();
+        for (Route route : routes) {
+            if (route.provider().equals(primaryProvider) || mapModel(route.provider(), config.getModel()) != null) {
+                targets.add(new ServingTarget(route.provider(), configFor(route, config).getModel()));
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * 获取各提供商的路由统计
+     */
+    public Map<String, RouteStats> getStats() {
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        for (Route route : routes) {
+            ProviderStats providerStats = route.stats();
+            stats.put(route.provider(), RouteStats.builder()
+                    .samples(providerStats.samples())
+                    .errorRate(providerStats.errorRate())
+                    .meanLatencyMs(providerStats.meanLatency())
+                    .p95LatencyMs(providerStats.quantile(0.95))
+                    .build());
+        }
+        return stats;
+    }
+    
+    public long getHedgedRequests() {
+        return hedgedRequests.sum();
+    }
+    
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+    
+    public long getFailovers() {
+        return failovers.sum();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (routes.size() > 1) {
+            log.info("LLM路由统计: {}，对冲 {} 次（胜出 {} 次），故障转移 {} 次",
+                    getStats(), getHedgedRequests(), getHedgeWins(), getFailovers());
+        }
+        hedgeScheduler.shutdownNow();
+        ownedClients.forEach(SimpleLlmClient::shutdown);
+    }
+    
+    /**
+     * 按延迟与错误率对可用的提供商排序
+     */
+    List<Route> rank(String model) {
+        List<Route> eligible = new ArrayList<>();
+        for (Route route : routes) {
+            if (route.provider().equals(primaryProvider) || mapModel(route.provider(), model) != null) {
+                eligible.add(route);
+            }
+        }
+        int minSamples = routingConfig.getMinSamples();
+        if (eligible.size() <= 1 || eligible.get(0).stats().samples() < minSamples) {
+            // 主提供商（配置顺序第一）样本不足时不探索其他提供商
+            return eligible;
+        }
+        
+        double maxErrorRate = routingConfig.getMaxErrorRate();
+        // 稳定排序：同等条件下保持配置顺序（主提供商在前）
+        eligible.sort(Comparator
+                .comparing((Route route) -> route.stats().samples() >= minSamples)
+                .thenComparing(route -> route.stats().errorRate() > maxErrorRate)
+                .thenComparingDouble(route -> route.stats().samples() < minSamples
+                        ? route.stats().samples()
+                        : route.stats().meanLatency()));
+        return eligible;
+    }
+    
+    private CompletableFuture<LlmResponse> route(List<LlmMessage> messages, ModelConfig config) {
+        List<Route> ranked = rank(config.getModel());
+        RoutedCall call = new RoutedCall(ranked, messages, config);
+        call.launchNext(null);
+        
+        if (routingConfig.isHedgeEnabled() && ranked.size() > 1) {
+            ProviderStats stats = ranked.get(0).stats();
+            if (stats.samples() >= routingConfig.getMinSamples()) {
+                long delay = Math.max(routingConfig.getMinHedgeDelayMs(), stats.quantile(routingConfig.getHedgeQuantile()));
+                hedgeScheduler.schedule(call::hedge, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        return call.result;
+    }
+    
+    private LlmResponse chatWithFailover(List<LlmMessage> messages, ModelConfig config) {
+        RuntimeException lastError = null;
+        for (Route route : rank(config.getModel())) {
+            try {
+                return chatOn(route, messages, config);
+            } catch (RuntimeException e) {
+                lastError = e;
+                failovers.increment();
+                log.warn("LLM提供商 {} 调用失败，尝试下一个提供商: {}", route.provider(), e.getMessage());
+            }
+        }
+        throw lastError != null ? lastError : new LlmException("No LLM provider available");
+    }
+    
+    private LlmResponse chatOn(Route route, List<LlmMessage> messages, ModelConfig config) {
+        long start = clock.getAsLong();
+        try {
+            LlmResponse response = route.client().chat(messages, configFor(route, config));
+            route.stats().record(elapsedMillis(start), true);
+            return response;
+        } catch (RuntimeException e) {
+            route.stats().record(elapsedMillis(start), false);
+            throw e;
+        }
+    }
+    
+    private ModelConfig configFor(Route route, ModelConfig config) {
+        if (route.provider().equals(primaryProvider)) {
+            return config;
+        }
+        return config.toBuilder().model(mapModel(route.provider(), config.getModel())).build();
+    }
+    
+    /**
+     * 把主提供商的模型映射为目标提供商的同级模型，无法映射时返回 null
+     */
+    private String mapModel(String provider, String model) {
+        if (provider.equals(primaryProvider)) {
+            return model;
+        }
+        LlmConfig.ProviderConfig primary = llmConfig.getProviderConfig(primaryProvider);
+        LlmConfig.ProviderConfig target = llmConfig.getProviderConfig(provider);
+        if (model == null) {
+            return null;
+        }
+        if (model.equals(llmConfig.getDeepThinkModelName()) || model.equals(primary.getDeepModel())) {
+            return target.getDeepModel();
+        }
+        if (model.equals(llmConfig.getQuickThinkModelName()) || model.equals(primary.getQuickModel())) {
+            return target.getQuickModel();
+        }
+        return null;
+    }
+    
+    private boolean isConfigured(String provider) {
+        try {
+            LlmConfig.ProviderConfig config = llmConfig.getProviderConfig(provider);
+            return config.getBaseUrl() != null && !config.getBaseUrl().isEmpty()
+                    && config.getApiKey() != null && !config.getApiKey().isEmpty();
+        } catch (IllegalArgumentException e) {
+            log.warn("忽略未知的LLM提供商: {}", provider);
+            return false;
+        }
+    }
+    
+    private long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - startNanos);
+    }
+    
+    /**
+     * 一次路由调用：依次在排好序的提供商上发起尝试，首个成功的结果完成整个调用
+     */
+    private final class RoutedCall {
+        
+        private final List<Route> ranked;
+        private final List<LlmMessage> messages;
+        private final ModelConfig config;
+        private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        private final List<CompletableFuture<LlmResponse>> attempts = new ArrayList<>();
+        private int next;
+        private int pending;
+        private boolean hedged;
+        
+        RoutedCall(List<Route> ranked, List<LlmMessage> messages, ModelConfig config) {
+            this.ranked = ranked;
+            this.messages = messages;
+            this.config = config;
+        }
+        
+        synchronized void hedge() {
+            if (result.isDone() || pending == 0 || next >= ranked.size()) {
+                return;
+            }
+            // 先记录对冲：尝试可能在注册回调前已完成，回调会在当前线程内同步执行
+            hedged = true;
+            hedgedRequests.increment();
+            launchNext("对冲");
+        }
+        
+        synchronized boolean launchNext(String reason) {
+            if (result.isDone() || next >= ranked.size()) {
+                return false;
+            }
+            int index = next++;
+            Route route = ranked.get(index);
+            if (reason != null) {
+                log.info("LLM路由: {}请求发往 {}（模型 {}）", reason, route.provider(), config.getModel());
+            }
+            
+            pending++;
+            long start = clock.getAsLong();
+            CompletableFuture<LlmResponse> attempt;
+            try {
+                attempt = route.client().chatAsync(messages, configFor(route, config));
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            attempts.add(attempt);
+            attempt.whenComplete((response, error) -> onAttemptDone(index, route, start, response, error));
+            return true;
+        }
+        
+        private synchronized void onAttemptDone(int index, Route route, long start,
+                                                LlmResponse response, Throwable error) {
+            pending--;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                return; // 被取消的对冲请求不计入统计
+            }
+            route.stats().record(elapsedMillis(start), cause == null);
+            
+            if (cause == null) {
+                if (!result.isDone()) {
+                    // 计数先于完成结果，调用方拿到结果时统计已可见
+                    if (hedged && index > 0) {
+                        hedgeWins.increment();
+                    }
+                    result.complete(response);
+                    attempts.forEach(other -> other.cancel(false));
+                }
+                return;
+            }
+            
+            log.warn("LLM提供商 {} 调用失败: {}", route.provider(), cause.getMessage());
+            if (result.isDone()) {
+                return;
+            }
+            if (launchNext("故障转移")) {
+                failovers.increment();
+            } else if (pending == 0) {
+                result.completeExceptionally(cause);
+            }
+        }
+    }
+    
+    /**
+     * 路由条目
+     */
+    record Route(String provider, SimpleLlmClient client, ProviderStats stats) {
+    }
+    
+    /**
+     * 提供商的滑动窗口统计（最近 N 次调用的延迟与成败）
+     */
+    static final class ProviderStats {
+        
+        private final long[] latencies;
+        private final boolean[] failures;
+        private int size;
+        private int cursor;
+        
+        ProviderStats(int windowSize) {
+            this.latencies = new long[Math.max(1, windowSize)];
+            this.failures = new boolean[latencies.length];
+        }
+        
+        synchronized void record(long latencyMs, boolean success) {
+            latencies[cursor] = latencyMs;
+            failures[cursor] = !success;
+            cursor = (cursor + 1) % latencies.length;
+            size = Math.min(size + 1, latencies.length);
+        }
+        
+        synchronized int samples() {
+            return size;
+        }
+        
+        synchronized double errorRate() {
+            if (size == 0) {
+                return 0.0;
+            }
+            int failed = 0;
+            for (int i = 0; i < size; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+            return (double) failed / size;
+        }
+        
+        /**
+         * 成功调用的平均延迟（毫秒），没有成功样本时视为无穷大
+         */
+        synchronized double meanLatency() {
+            long total = 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!failures[i]) {
+                    total += latencies[i];
+                    count++;
+                }
+            }
+            return count == 0 ? Double.MAX_VALUE : (double) total / count;
+        }
+        
+        /**
+         * 成功调用的延迟分位数（毫秒）
+         */
+        synchronized long quantile(double q) {
+            long[] sorted = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!failures[i]) {
+                    sorted[count++] = latencies[i];
+                }
+            }
+            if (count == 0) {
+                return 0;
+            }
+            Arrays.sort(sorted, 0, count);
+            int index = (int) Math.ceil(q * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+    
+    /**
+     * 提供商路由统计
+     */
+    @Data
+    @Builder
+    public static class RouteStats {
+        private int samples;
+        private double errorRate;
+        private double meanLatencyMs;
+        private long p95LatencyMs;
+    }
+}
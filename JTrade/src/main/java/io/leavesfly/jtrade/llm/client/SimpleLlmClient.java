@@ -4,20 +4,31 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.llm.context.TokenEstimator;
 import io.leavesfly.jtrade.llm.exception.AuthenticationException;
 import io.leavesfly.jtrade.llm.exception.LlmException;
 import io.leavesfly.jtrade.llm.exception.RateLimitException;
 import io.leavesfly.jtrade.llm.model.LlmMessage;
 import io.leavesfly.jtrade.llm.model.LlmResponse;
 import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -36,31 +47,138 @@ import java.util.concurrent.TimeUnit;
 public class SimpleLlmClient implements LlmClient {
     
     private final LlmConfig llmConfig;
+    private final String provider;
+    private final LlmRateLimiter rateLimiter;
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService retryScheduler;
     
-    public SimpleLlmClient(LlmConfig llmConfig) {
+    @Autowired
+    public SimpleLlmClient(LlmConfig llmConfig, HttpClientManager httpClientManager, LlmRateLimiter rateLimiter) {
+        this(llmConfig, httpClientManager, rateLimiter, llmConfig.getProvider());
+    }
+    
+    /**
+     * 创建访问指定提供商的客户端（多提供商路由使用）
+     */
+    public SimpleLlmClient(LlmConfig llmConfig, HttpClientManager httpClientManager, LlmRateLimiter rateLimiter,
+                           String provider) {
         this.llmConfig = llmConfig;
+        this.provider = provider.toLowerCase();
+        this.rateLimiter = rateLimiter;
         this.objectMapper = new ObjectMapper();
         
-        // 初始化HTTP客户端
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(Duration.ofMillis(llmConfig.getTimeout()))
-                .readTimeout(Duration.ofMillis(llmConfig.getTimeout()))
-                .writeTimeout(Duration.ofMillis(llmConfig.getTimeout()))
-                .build();
+        // 共享连接池，使用独立的调度器限制异步调用的并发
+        this.httpClient = httpClientManager.newClient("llm-" + this.provider,
+                Duration.ofMillis(llmConfig.getTimeout()), llmConfig.getMaxInFlightRequests());
+        
+        // 异步调用的重试通过定时器调度，不占用等待线程
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("llm-retry-" + this.provider + "-%d")
+                .setDaemon(true)
+                .build());
         
-        log.info("SimpleLlmClient initialized with provider: {}", llmConfig.getProvider());
+        log.info("SimpleLlmClient initialized with provider: {}", this.provider);
+    }
+    
+    /**
+     * 获取提供商名称
+     */
+    public String getProvider() {
+        return provider;
+    }
+    
+    @Override
+    public List<ServingTarget> servingTargets(ModelConfig config) {
+        return List.of(new ServingTarget(provider, config.getModel()));
     }
     
     @Override
     public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+        // 当前运行绑定了流式监听器时改走流式接口，结果仍整体返回给调用方
+        StreamCallback listener = StreamListeners.current();
+        if (listener != null) {
+            return executeWithRetry(() -> doStreamChat(messages, config, listener));
+        }
+        return executeWithRetry(() -> doChat(messages, config));
+    }
+    
+    /**
+     * 流式对话
+     * 
+     * 以 SSE 方式调用 /chat/completions，每收到一个增量即回调 onChunk，
+     * 流结束后回调 onComplete。方法在流结束前阻塞；只有在尚未输出任何增量时才会重试
+     */
+    @Override
+    public void streamChat(List<LlmMessage> messages, ModelConfig config, StreamCallback callback) {
+        executeWithRetry(() -> doStreamChat(messages, config, callback));
+    }
+    
+    /**
+     * 文本向量化
+     * 
+     * 调用 OpenAI 兼容的 /embeddings 接口，模型取提供商配置的 embedding-model，
+     * 未配置时抛出 UnsupportedOperationException
+     */
+    @Override
+    public double[] embedText(String text) {
+        String model = llmConfig.getProviderConfig(provider).getEmbeddingModel();
+        if (model == null || model.isEmpty()) {
+            throw new UnsupportedOperationException("Embedding model not configured for provider: " + provider);
+        }
+        return executeWithRetry(() -> doEmbed(text, model));
+    }
+    
+    private double[] doEmbed(String text, String model) throws IOException {
+        LlmConfig.ProviderConfig providerConfig = llmConfig.getProviderConfig(provider);
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", model);
+        requestBody.put("input", text);
+        
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(providerConfig.getBaseUrl() + "/embeddings")
+                .post(RequestBody.create(
+                        objectMapper.writeValueAsString(requestBody),
+                        MediaType.get("application/json; charset=utf-8")
+                ));
+        if (providerConfig.getApiKey() != null && !providerConfig.getApiKey().isEmpty()) {
+            requestBuilder.addHeader("Authorization", "Bearer " + providerConfig.getApiKey());
+        }
+        
+        int tokens = TokenEstimator.estimate(text);
+        rateLimiter.acquire(provider, model, tokens);
+        try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+            rateLimiter.onResponse(provider, model, response::header);
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                handleHttpError(response.code(), responseBody);
+            }
+            
+            JsonNode root = objectMapper.readTree(responseBody);
+            JsonNode embedding = root.path("data").path(0).path("embedding");
+            if (!embedding.isArray() || embedding.isEmpty()) {
+                throw new LlmException("Empty embedding response: " + responseBody);
+            }
+            if (root.has("usage")) {
+                rateLimiter.onUsage(provider, model, tokens, root.get("usage").path("total_tokens").asInt(tokens));
+            }
+            double[] vector = new double[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = embedding.get(i).asDouble();
+            }
+            return vector;
+        }
+    }
+    
+    /**
+     * 带指数退避重试地执行调用
+     */
+    private <T> T executeWithRetry(LlmCall<T> call) {
         int retries = 0;
-        long baseDelay = 1000; // 1秒基础延迟
         
         while (retries <= llmConfig.getMaxRetries()) {
             try {
-                return doChat(messages, config);
+                return call.execute();
             } catch (RateLimitException e) {
                 retries++;
                 if (retries > llmConfig.getMaxRetries()) {
@@ -68,7 +186,7 @@ public class SimpleLlmClient implements LlmClient {
                 }
                 
                 // 指数退避
-                long delay = Math.min(baseDelay * (1L << (retries - 1)), 60000);
+                long delay = backoffDelay(retries);
                 log.warn("Rate limit exceeded, retrying in {}ms (attempt {}/{})", 
                         delay, retries, llmConfig.getMaxRetries());
                 
@@ -84,7 +202,7 @@ public class SimpleLlmClient implements LlmClient {
                     throw new LlmException("Network error after " + retries + " retries", e);
                 }
                 
-                long delay = Math.min(baseDelay * (1L << (retries - 1)), 60000);
+                long delay = backoffDelay(retries);
                 log.warn("Network error, retrying in {}ms (attempt {}/{}): {}", 
                         delay, retries, llmConfig.getMaxRetries(), e.getMessage());
                 
@@ -100,11 +218,223 @@ public class SimpleLlmClient implements LlmClient {
         throw new LlmException("Failed after " + llmConfig.getMaxRetries() + " retries");
     }
     
+    /**
+     * 异步对话
+     * 
+     * 基于 OkHttp 的 enqueue 发送请求，限流和网络错误按指数退避在定时器上重新调度，
+     * 等待期间不阻塞任何线程
+     */
+    @Override
+    public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        
+        Request request;
+        try {
+            request = buildRequest(messages, config);
+        } catch (IOException e) {
+            result.completeExceptionally(new LlmException("Failed to build LLM request", e));
+            return result;
+        }
+        
+        int tokens = estimateTokens(messages, config);
+        sendAsync(request, config.getModel(), tokens, 0, result);
+        return result;
+    }
+    
+    /**
+     * 发送异步请求，限流等待同样在定时器上调度
+     */
+    private void sendAsync(Request request, String model, int tokens, int retries,
+                           CompletableFuture<LlmResponse> result) {
+        if (result.isDone()) {
+            return; // 调用方已取消
+        }
+        
+        long wait = rateLimiter.reserve(provider, model, tokens);
+        if (wait > 0) {
+            retryScheduler.schedule(() -> send(request, model, tokens, retries, result), wait, TimeUnit.MILLISECONDS);
+        } else {
+            send(request, model, tokens, retries, result);
+        }
+    }
+    
+    private void send(Request request, String model, int tokens, int retries, CompletableFuture<LlmResponse> result) {
+        if (result.isDone()) {
+            return;
+        }
+        
+        Call call = httpClient.newCall(request);
+        // 调用方取消（如对冲请求中落败的一方）时同时取消底层 HTTP 请求
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                scheduleRetry(request, model, tokens, retries, result, e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    rateLimiter.onResponse(provider, model, response::header);
+                    String responseBody = response.body() != null ? response.body().string() : "";
+                    
+                    if (!response.isSuccessful()) {
+                        handleHttpError(response.code(), responseBody);
+                    }
+                    
+                    result.complete(recordUsage(model, tokens, parseResponse(responseBody)));
+                } catch (RateLimitException | IOException e) {
+                    scheduleRetry(request, model, tokens, retries, result, e);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * 按指数退避调度异步重试
+     */
+    private void scheduleRetry(Request request, String model, int tokens, int retries,
+                               CompletableFuture<LlmResponse> result, Exception cause) {
+        int attempt = retries + 1;
+        if (attempt > llmConfig.getMaxRetries()) {
+            result.completeExceptionally(cause instanceof LlmException
+                    ? cause
+                    : new LlmException("Network error after " + attempt + " retries", cause));
+            return;
+        }
+        
+        long delay = backoffDelay(attempt);
+        log.warn("Async LLM call failed, retrying in {}ms (attempt {}/{}): {}",
+                delay, attempt, llmConfig.getMaxRetries(), cause.getMessage());
+        
+        retryScheduler.schedule(() -> sendAsync(request, model, tokens, attempt, result), delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 指数退避延迟：1秒起，每次翻倍，上限60秒；在后一半区间内随机抖动，
+     * 避免同时被限流的调用在同一时刻集体重试
+     */
+    private long backoffDelay(int retries) {
+        long delay = Math.min(1000L * (1L << (retries - 1)), 60000);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+    
+    /**
+     * 预估本次调用占用的Token数：输入加最大输出
+     */
+    private int estimateTokens(List<LlmMessage> messages, ModelConfig config) {
+        return TokenEstimator.estimate(messages) + config.getMaxTokens();
+    }
+    
+    /**
+     * 用实际用量校正限流器的Token预估，并在响应上标记提供服务的提供商
+     */
+    private LlmResponse recordUsage(String model, int tokens, LlmResponse response) {
+        if (response.getUsage() != null) {
+            rateLimiter.onUsage(provider, model, tokens, response.getUsage().getTotalTokens());
+        }
+        response.setProvider(provider);
+        return response;
+    }
+    
     /**
      * 执行实际的LLM调用
      */
     private LlmResponse doChat(List<LlmMessage> messages, ModelConfig config) throws IOException {
-        LlmConfig.ProviderConfig providerConfig = llmConfig.getCurrentProviderConfig();
+        Request request = buildRequest(messages, config);
+        int tokens = estimateTokens(messages, config);
+        rateLimiter.acquire(provider, config.getModel(), tokens);
+        
+        // 发送请求
+        try (Response response = httpClient.newCall(request).execute()) {
+            rateLimiter.onResponse(provider, config.getModel(), response::header);
+            String responseBody = response.body() != null ? response.body().string() : "";
+            
+            // 处理HTTP错误
+            if (!response.isSuccessful()) {
+                handleHttpError(response.code(), responseBody);
+            }
+            
+            // 解析响应
+            return recordUsage(config.getModel(), tokens, parseResponse(responseBody));
+        }
+    }
+    
+    /**
+     * 执行流式LLM调用
+     */
+    private LlmResponse doStreamChat(List<LlmMessage> messages, ModelConfig config,
+                                     StreamCallback callback) throws IOException {
+        Request request = buildRequest(messages, config, true);
+        int tokens = estimateTokens(messages, config);
+        rateLimiter.acquire(provider, config.getModel(), tokens);
+        
+        try (Response response = httpClient.newCall(request).execute()) {
+            rateLimiter.onResponse(provider, config.getModel(), response::header);
+            if (!response.isSuccessful()) {
+                handleHttpError(response.code(), response.body() != null ? response.body().string() : "");
+            }
+            if (response.body() == null) {
+                throw new LlmException("Empty stream response");
+            }
+            
+            StreamAccumulator accumulator = new StreamAccumulator();
+            BufferedSource source = response.body().source();
+            
+            try {
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    // SSE 格式：每个事件以 "data: " 开头，空行分隔，"[DONE]" 表示结束
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if ("[DONE]".equals(data)) {
+                        break;
+                    }
+                    
+                    JsonNode chunk = objectMapper.readTree(data);
+                    if (chunk.has("error")) {
+                        // 流中途返回的错误帧，HTTP 状态已是 200
+                        throw new LlmException("Stream error: " + chunk.get("error").path("message").asText(data));
+                    }
+                    String delta = accumulator.accept(chunk);
+                    if (!delta.isEmpty()) {
+                        callback.onChunk(delta);
+                    }
+                }
+            } catch (IOException e) {
+                if (accumulator.hasContent()) {
+                    // 已经输出过增量，重试会导致重复内容
+                    throw new LlmException("Stream interrupted after partial output", e);
+                }
+                throw e;
+            }
+            
+            LlmResponse result = recordUsage(config.getModel(), tokens, accumulator.toResponse());
+            callback.onComplete(result);
+            return result;
+        }
+    }
+    
+    /**
+     * 构建LLM请求
+     */
+    private Request buildRequest(List<LlmMessage> messages, ModelConfig config) throws IOException {
+        return buildRequest(messages, config, false);
+    }
+    
+    /**
+     * 构建LLM请求
+     */
+    private Request buildRequest(List<LlmMessage> messages, ModelConfig config, boolean stream) throws IOException {
+        LlmConfig.ProviderConfig providerConfig = llmConfig.getProviderConfig(provider);
         
         // 构建请求JSON
         ObjectNode requestBody = objectMapper.createObjectNode();
@@ -119,6 +449,9 @@ public class SimpleLlmClient implements LlmClient {
         if (config.getPresencePenalty() != 0.0) {
             requestBody.put("presence_penalty", config.getPresencePenalty());
         }
+        if (stream) {
+            requestBody.put("stream", true);
+        }
         
         // 添加消息
         ArrayNode messagesNode = requestBody.putArray("messages");
@@ -141,22 +474,9 @@ public class SimpleLlmClient implements LlmClient {
             requestBuilder.addHeader("Authorization", "Bearer " + providerConfig.getApiKey());
         }
         
-        Request request = requestBuilder.build();
-        
         log.debug("Sending LLM request to {} with model {}", providerConfig.getBaseUrl(), config.getModel());
         
-        // 发送请求
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
-            
-            // 处理HTTP错误
-            if (!response.isSuccessful()) {
-                handleHttpError(response.code(), responseBody);
-            }
-            
-            // 解析响应
-            return parseResponse(responseBody);
-        }
+        return requestBuilder.build();
     }
     
     /**
@@ -236,9 +556,78 @@ public class SimpleLlmClient implements LlmClient {
                     usage != null ? usage.getTotalTokens() : 0);
             
             return response;
-            
+        
         } catch (Exception e) {
             throw new LlmException("Failed to parse LLM response: " + responseBody, e);
         }
     }
+    
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+    
+    /**
+     * 可抛出IO异常的LLM调用
+     */
+    @FunctionalInterface
+    private interface LlmCall<T> {
+        T execute() throws IOException;
+    }
+    
+    /**
+     * 流式响应累加器
+     * 
+     * 拼接各个 chunk 的 delta 内容，并记录 id、模型、完成原因和用量
+     */
+    private static class StreamAccumulator {
+        private final StringBuilder content = new StringBuilder();
+        private String id;
+        private String model;
+        private String finishReason;
+        private LlmResponse.TokenUsage usage;
+        
+        /**
+         * 处理一个 chunk，返回其中的增量文本
+         */
+        String accept(JsonNode chunk) {
+            if (id == null && chunk.hasNonNull("id")) {
+                id = chunk.get("id").asText();
+            }
+            if (model == null && chunk.hasNonNull("model")) {
+                model = chunk.get("model").asText();
+            }
+            if (chunk.hasNonNull("usage")) {
+                JsonNode usageNode = chunk.get("usage");
+                usage = LlmResponse.TokenUsage.builder()
+                        .promptTokens(usageNode.path("prompt_tokens").asInt())
+                        .completionTokens(usageNode.path("completion_tokens").asInt())
+                        .totalTokens(usageNode.path("total_tokens").asInt())
+                        .build();
+            }
+            
+            JsonNode choice = chunk.path("choices").path(0);
+            if (choice.hasNonNull("finish_reason")) {
+                finishReason = choice.get("finish_reason").asText();
+            }
+            
+            String delta = choice.path("delta").path("content").asText("");
+            content.append(delta);
+            return delta;
+        }
+        
+        boolean hasContent() {
+            return content.length() > 0;
+        }
+        
+        LlmResponse toResponse() {
+            return LlmResponse.builder()
+                    .content(content.toString())
+                    .id(id)
+                    .model(model)
+                    .finishReason(finishReason)
+                    .usage(usage)
+                    .build();
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package io.leavesfly.jtrade.llm.client;
+
+import io.leavesfly.jtrade.llm.client.LlmClient.StreamCallback;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 按运行范围生效的流式监听器
+ * 
+ * 监听器绑定在发起运行的线程上，只有该运行内的 chat 调用才以流式方式执行并把增量转发给监听器，
+ * 其他线程上并发进行的调用（其他交易流程、后台反思、分析任务）不受影响。
+ * 
+ * 运行内分叉到其他线程的步骤（并行智能体、工作流节点）在提交时用 {@link #propagate} 捕获当前监听器，
+ * 在工作线程上重新绑定
+ * 
+ * @author 山泽
+ */
+public final class StreamListeners {
+    
+    private static final ThreadLocal<List<StreamCallback>> CURRENT = new ThreadLocal<>();
+    
+    private StreamListeners() {
+    }
+    
+    /**
+     * 在绑定了给定监听器的范围内执行
+     * 
+     * @param listeners 本次运行的监听器，为空时解除绑定
+     * @param action 要执行的操作
+     * @return 操作结果
+     */
+    public static <T> T with(List<? extends StreamCallback> listeners, Supplier<T> action) {
+        List<StreamCallback> previous = CURRENT.get();
+        if (listeners == null || listeners.isEmpty()) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(List.copyOf(listeners));
+        }
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+    
+    /**
+     * 捕获当前线程的监听器，返回在执行线程上重新绑定它们的操作
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        List<StreamCallback> captured = CURRENT.get();
+        if (captured == null) {
+            return action;
+        }
+        return () -> with(captured, action);
+    }
+    
+    /**
+     * 当前线程是否绑定了监听器
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+    
+    /**
+     * 当前线程的监听器，未绑定时返回 null；返回的回调把增量转发给全部监听器
+     */
+    public static StreamCallback current() {
+        List<StreamCallback> listeners = CURRENT.get();
+        if (listeners == null) {
+            return null;
+        }
+        return new StreamCallback() {
+            @Override
+            public void onChunk(String chunk) {
+                listeners.forEach(listener -> listener.onChunk(chunk));
+            }
+            
+            @Override
+            public void onComplete(LlmResponse response) {
+                listeners.forEach(listener -> listener.onComplete(response));
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package io.leavesfly.jtrade.llm.context;
+
+import com.google.common.hash.Hashing;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 上下文压缩器
+ * 
+ * 消息总量超出预算时，按行从最旧的内容开始折叠为摘要，直到满足预算：
+ * - system 消息原样保留
+ * - 每条消息的第一行（指令或标题）原样保留
+ * - 最后一条消息的最后一行（当前问题）原样保留
+ * - 其余内容按时间先后依次成为压缩候选，越新的内容越晚被压缩
+ * 
+ * 同一段内容的摘要按内容哈希缓存，后续辩论轮次重复出现的旧发言直接复用摘要；
+ * 摘要生成失败时退化为截取开头的片段
+ * 
+ * @author 山泽
+ */
+@Slf4j
+public class ContextCompactor {
+    
+    static final String LINE_SEPARATOR = "\n";
+    static final String SUMMARY_PREFIX = "【前文摘要】";
+    private static final int EXCERPT_CHARS = 200;
+    
+    private final int summaryTokens;
+    private final Map<String, String> summaries;
+    
+    /**
+     * @param summaryTokens 每段摘要预计占用的 Token 数
+     * @param maxCachedSummaries 摘要缓存的最大条目数
+     */
+    public ContextCompactor(int summaryTokens, int maxCachedSummaries) {
+        this.summaryTokens = summaryTokens;
+        int capacity = Math.max(1, maxCachedSummaries);
+        this.summaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    /**
+     * 把消息列表压缩到预算以内
+     * 
+     * @param messages 原始消息
+     * @param budget Token 预算
+     * @param summarizer 摘要函数（原文 -> 摘要），可以抛出运行时异常
+     * @return 未超出预算时返回原列表，否则返回压缩后的新列表
+     */
+    public List<LlmMessage> compact(List<LlmMessage> messages, int budget, Function<String, String> summarizer) {
+        int total = TokenEstimator.estimate(messages);
+        if (total <= budget) {
+            return messages;
+        }
+        
+        List<List<String>> lines = new ArrayList<>(messages.size());
+        List<int[]> candidates = new ArrayList<>();
+        int last = messages.size() - 1;
+        for (int m = 0; m < messages.size(); m++) {
+            LlmMessage message = messages.get(m);
+            List<String> parts = split(message.getContent());
+            lines.add(parts);
+            if ("system".equals(message.getRole())) {
+                continue;
+            }
+            int end = m == last ? parts.size() - 1 : parts.size();
+            for (int i = 1; i < end; i++) {
+                candidates.add(new int[]{m, TokenEstimator.estimate(parts.get(i)) + 1});
+            }
+        }
+        
+        // 从最旧的行开始选择，直到节省量覆盖超出部分以及摘要本身的占用
+        int excess = total - budget;
+        int removed = 0;
+        int selected = 0;
+        Map<Integer, Integer> selectedPerMessage = new LinkedHashMap<>();
+        while (selected < candidates.size() && removed - summaryTokens * selectedPerMessage.size() < excess) {
+            int[] candidate = candidates.get(selected++);
+            selectedPerMessage.merge(candidate[0], 1, Integer::sum);
+            removed += candidate[1];
+        }
+        
+        if (selectedPerMessage.isEmpty()) {
+            log.warn("上下文超出预算（{} > {} tokens），但没有可压缩的内容", total, budget);
+            return messages;
+        }
+        
+        List<LlmMessage> result = new ArrayList<>(messages.size());
+        for (int m = 0; m < messages.size(); m++) {
+            LlmMessage message = messages.get(m);
+            Integer count = selectedPerMessage.get(m);
+            if (count == null) {
+                result.add(message);
+                continue;
+            }
+            
+            List<String> parts = lines.get(m);
+            List<String> kept = new ArrayList<>(parts.size() - count + 1);
+            kept.add(parts.get(0));
+            kept.add(SUMMARY_PREFIX + summarize(String.join(LINE_SEPARATOR, parts.subList(1, 1 + count)), summarizer));
+            kept.addAll(parts.subList(1 + count, parts.size()));
+            result.add(LlmMessage.builder()
+                    .role(message.getRole())
+                    .content(String.join(LINE_SEPARATOR, kept))
+                    .build());
+        }
+        
+        int compacted = TokenEstimator.estimate(result);
+        if (compacted > budget) {
+            log.warn("上下文压缩后仍超出预算: {} -> {} tokens（预算 {}）", total, compacted, budget);
+        } else {
+            log.info("上下文压缩: {} -> {} tokens（预算 {}，折叠 {} 行）", total, compacted, budget, selected);
+        }
+        return result;
+    }
+    
+    /**
+     * 获取摘要，优先使用缓存
+     */
+    private String summarize(String text, Function<String, String> summarizer) {
+        String key = Hashing.sha256().hashString(text, StandardCharsets.UTF_8).toString();
+        synchronized (summaries) {
+            String cached = summaries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        try {
+            String summary = summarizer.apply(text);
+            if (summary != null && !summary.isBlank()) {
+                summary = summary.trim().replace(LINE_SEPARATOR, " ");
+                synchronized (summaries) {
+                    summaries.put(key, summary);
+                }
+                return summary;
+            }
+        } catch (RuntimeException e) {
+            log.warn("生成上下文摘要失败，改用截取片段: {}", e.getMessage());
+        }
+        return excerpt(text);
+    }
+    
+    private static String excerpt(String text) {
+        String flat = text.replace(LINE_SEPARATOR, " ");
+        if (flat.length() <= EXCERPT_CHARS) {
+            return flat;
+        }
+        return flat.substring(0, EXCERPT_CHARS) + "……（省略 " + (flat.length() - EXCERPT_CHARS) + " 字）";
+    }
+    
+    private static List<String> split(String content) {
+        if (content == null) {
+            return List.of("");
+        }
+        return Arrays.asList(content.split(LINE_SEPARATOR, -1));
+    }
+}
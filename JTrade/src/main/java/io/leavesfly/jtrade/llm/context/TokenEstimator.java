@@ -0,0 +1,80 @@
+package io.leavesfly.jtrade.llm.context;
+
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+
+import java.util.List;
+
+/**
+ * Token 数估算
+ * 
+ * 不依赖具体模型的分词器：中日韩字符与全角标点按每字 1 个 Token 计，
+ * 其余字符按每 4 个字符 1 个 Token 计，每条消息另加固定的角色开销。
+ * 估算用于预算控制，偏差在可接受范围内即可
+ * 
+ * @author 山泽
+ */
+public final class TokenEstimator {
+    
+    /**
+     * 每条消息的角色与分隔符开销
+     */
+    private static final int MESSAGE_OVERHEAD = 4;
+    
+    /**
+     * 整个请求的固定开销
+     */
+    private static final int REQUEST_OVERHEAD = 2;
+    
+    private TokenEstimator() {
+    }
+    
+    /**
+     * 估算文本的 Token 数
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int wide = 0;
+        int narrow = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (isWide(codePoint)) {
+                wide++;
+            } else {
+                narrow++;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return wide + (narrow + 3) / 4;
+    }
+    
+    /**
+     * 估算单条消息的 Token 数
+     */
+    public static int estimate(LlmMessage message) {
+        return MESSAGE_OVERHEAD + estimate(message.getContent());
+    }
+    
+    /**
+     * 估算消息列表的 Token 数
+     */
+    public static int estimate(List<LlmMessage> messages) {
+        int total = REQUEST_OVERHEAD;
+        for (LlmMessage message : messages) {
+            total += estimate(message);
+        }
+        return total;
+    }
+    
+    private static boolean isWide(int codePoint) {
+        if ((codePoint >= 0x3000 && codePoint <= 0x303F) || (codePoint >= 0xFF00 && codePoint <= 0xFFEF)) {
+            return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
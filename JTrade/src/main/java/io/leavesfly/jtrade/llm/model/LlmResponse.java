@@ -41,6 +41,11 @@ public class LlmResponse {
      */
     private String finishReason;
     
+    /**
+     * 实际提供服务的提供商
+     */
+    private String provider;
+    
     @Data
     @Builder
     @NoArgsConstructor
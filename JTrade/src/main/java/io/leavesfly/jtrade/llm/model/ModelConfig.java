@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
  * @author 山泽
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ModelConfig {
@@ -50,4 +50,10 @@ public class ModelConfig {
      */
     @Builder.Default
     private double presencePenalty = 0.0;
+    
+    /**
+     * 上下文窗口Token数，0 表示使用 jtrade.llm.context.default-max-context-tokens
+     */
+    @Builder.Default
+    private int maxContextTokens = 0;
 }
@@ -0,0 +1,240 @@
+package io.leavesfly.jtrade.llm.ratelimit;
+
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.exception.LlmException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LLM客户端限流器
+ * 
+ * 按"提供商:模型"维护两个令牌桶：每分钟请求数（RPM）与每分钟Token数（TPM），
+ * 初始限额取自提供商配置。调用前预约令牌，等待时间取两个桶中较长者，
+ * 并发的工作流按到达顺序排队放行，持续贴近服务端限额而不是集体触发 429 后同步退避。
+ * 
+ * 开启自适应时根据响应头实时调整：
+ * - Retry-After / retry-after-ms：在指定时间内暂停该模型的所有调用
+ * - x-ratelimit-limit-*：更新每分钟限额
+ * - x-ratelimit-remaining-* 与 x-ratelimit-reset-*：本地余额高于服务端剩余额度时下调，额度耗尽时暂停到重置时刻
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class LlmRateLimiter {
+    
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    
+    private final LlmConfig llmConfig;
+    private final LongSupplier clock;
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public LlmRateLimiter(LlmConfig llmConfig) {
+        this(llmConfig, System::nanoTime);
+    }
+    
+    /**
+     * @param clock 纳秒时钟，测试时可替换
+     */
+    public LlmRateLimiter(LlmConfig llmConfig, LongSupplier clock) {
+        this.llmConfig = llmConfig;
+        this.clock = clock;
+    }
+    
+    /**
+     * 预约一次调用
+     * 
+     * @param provider 提供商名称
+     * @param model 模型名称
+     * @param tokens 预估Token数（输入加最大输出）
+     * @return 发送前需要等待的毫秒数
+     */
+    public long reserve(String provider, String model, int tokens) {
+        if (!llmConfig.getRateLimit().isEnabled()) {
+            return 0;
+        }
+        Limits entry = limitsOf(provider, model);
+        long now = clock.getAsLong();
+        long waitNanos;
+        synchronized (entry) {
+            waitNanos = Math.max(entry.requests.reserve(1, now), entry.tokens.reserve(tokens, now));
+        }
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999);
+        if (waitMillis > 0) {
+            log.debug("LLM限流: {} 需等待 {}ms", keyOf(provider, model), waitMillis);
+        }
+        return waitMillis;
+    }
+    
+    /**
+     * 预约并阻塞等待，直到可以发送
+     */
+    public void acquire(String provider, String model, int tokens) {
+        long waitMillis = reserve(provider, model, tokens);
+        if (waitMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while waiting for rate limit", e);
+        }
+    }
+    
+    /**
+     * 根据响应头调整限额
+     * 
+     * @param provider 提供商名称
+     * @param model 模型名称
+     * @param headers 响应头读取函数（不存在时返回 null）
+     */
+    public void onResponse(String provider, String model, Function<String, String> headers) {
+        if (!llmConfig.getRateLimit().isEnabled() || !llmConfig.getRateLimit().isAdaptive()) {
+            return;
+        }
+        Limits entry = limitsOf(provider, model);
+        long now = clock.getAsLong();
+        long retryAfter = parseRetryAfter(headers);
+        synchronized (entry) {
+            if (retryAfter > 0) {
+                entry.requests.blockUntil(now + retryAfter);
+                entry.tokens.blockUntil(now + retryAfter);
+                log.warn("LLM限流: {} 服务端要求 {}ms 后重试", keyOf(provider, model), TimeUnit.NANOSECONDS.toMillis(retryAfter));
+            }
+            applyHeaders(entry.requests, "requests", headers, now);
+            applyHeaders(entry.tokens, "tokens", headers, now);
+        }
+    }
+    
+    /**
+     * 用实际Token用量校正预估值，多退少补
+     */
+    public void onUsage(String provider, String model, int estimatedTokens, int actualTokens) {
+        if (!llmConfig.getRateLimit().isEnabled() || actualTokens <= 0) {
+            return;
+        }
+        Limits entry = limitsOf(provider, model);
+        long now = clock.getAsLong();
+        synchronized (entry) {
+            entry.tokens.adjust(estimatedTokens - actualTokens, now);
+        }
+    }
+    
+    /**
+     * 获取模型当前的每分钟限额（请求数、Token数），用于观察自适应调整结果
+     */
+    public long[] getLimits(String provider, String model) {
+        Limits entry = limitsOf(provider, model);
+        synchronized (entry) {
+            return new long[]{entry.requests.getCapacity(), entry.tokens.getCapacity()};
+        }
+    }
+    
+    private Limits limitsOf(String provider, String model) {
+        return limits.computeIfAbsent(keyOf(provider, model), key -> {
+            LlmConfig.ProviderConfig providerConfig = llmConfig.getProviderConfig(provider);
+            long now = clock.getAsLong();
+            return new Limits(new TokenBucket(providerConfig.getRequestsPerMinute(), now),
+                    new TokenBucket(providerConfig.getTokensPerMinute(), now));
+        });
+    }
+    
+    private String keyOf(String provider, String model) {
+        return provider + ":" + model;
+    }
+    
+    private void applyHeaders(TokenBucket bucket, String kind, Function<String, String> headers, long now) {
+        Long limit = parseLong(headers.apply("x-ratelimit-limit-" + kind));
+        if (limit != null) {
+            bucket.setCapacity(limit, now);
+        }
+        Long remaining = parseLong(headers.apply("x-ratelimit-remaining-" + kind));
+        if (remaining != null) {
+            bucket.clampAvailable(remaining, now);
+            if (remaining <= 0) {
+                long reset = parseDuration(headers.apply("x-ratelimit-reset-" + kind));
+                if (reset > 0) {
+                    bucket.blockUntil(now + reset);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 解析 Retry-After（秒）或 retry-after-ms（毫秒），返回纳秒
+     */
+    static long parseRetryAfter(Function<String, String> headers) {
+        String millis = headers.apply("retry-after-ms");
+        if (millis != null) {
+            try {
+                return TimeUnit.MICROSECONDS.toNanos((long) (Double.parseDouble(millis.trim()) * 1000));
+            } catch (NumberFormatException ignored) {
+                // 回退到 Retry-After
+            }
+        }
+        String seconds = headers.apply("Retry-After");
+        if (seconds != null) {
+            try {
+                return (long) (Double.parseDouble(seconds.trim()) * 1_000_000_000L);
+            } catch (NumberFormatException ignored) {
+                // HTTP 日期格式不处理，交给重试退避
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * 解析 "1s"、"6m0s"、"120ms"、"1h2m3.5s" 形式的时长，返回纳秒
+     */
+    static long parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double nanos = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            nanos += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000_000_000L;
+                case "m" -> amount * 60_000_000_000L;
+                case "s" -> amount * 1_000_000_000L;
+                default -> amount * 1_000_000L;
+            };
+        }
+        if (!matched) {
+            Long plainSeconds = parseLong(value);
+            return plainSeconds != null ? TimeUnit.SECONDS.toNanos(plainSeconds) : 0;
+        }
+        return (long) nanos;
+    }
+    
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 单个模型的请求数与Token数令牌桶
+     */
+    private record Limits(TokenBucket requests, TokenBucket tokens) {
+    }
+}
@@ -0,0 +1,103 @@
+package io.leavesfly.jtrade.llm.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶（预约式）
+ * 
+ * 每分钟补充 capacity 个令牌，桶满时最多积攒 capacity 个。取令牌时先扣减再计算等待时间，
+ * 余额不足的部分记为欠额，后到的调用要排在欠额之后，因此并发调用按到达顺序依次放行，
+ * 不会在余额恢复的瞬间一拥而上。capacity 为 0 表示不限流
+ * 
+ * 非线程安全，由 LlmRateLimiter 加锁访问
+ * 
+ * @author 山泽
+ */
+class TokenBucket {
+    
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    
+    private long capacity;
+    private double available;
+    private long lastRefill;
+    private long blockedUntil;
+    
+    TokenBucket(long capacity, long now) {
+        this.capacity = Math.max(0, capacity);
+        this.available = this.capacity;
+        this.lastRefill = now;
+        this.blockedUntil = now;
+    }
+    
+    /**
+     * 预约令牌
+     * 
+     * @return 需要等待的纳秒数
+     */
+    long reserve(long amount, long now) {
+        refill(now);
+        long wait = Math.max(0, blockedUntil - now);
+        if (capacity == 0) {
+            return wait;
+        }
+        
+        // 单次请求超过桶容量时按容量计，避免永远等不到
+        available -= Math.min(amount, capacity);
+        if (available < 0) {
+            wait = Math.max(wait, (long) Math.ceil(-available / ratePerNano()));
+        }
+        return wait;
+    }
+    
+    /**
+     * 归还或补扣令牌（实际用量与预估不同时）
+     */
+    void adjust(long delta, long now) {
+        refill(now);
+        available = Math.min(capacity, available + delta);
+    }
+    
+    /**
+     * 更新每分钟限额，保持当前余额比例
+     */
+    void setCapacity(long newCapacity, long now) {
+        refill(now);
+        if (newCapacity <= 0 || newCapacity == capacity) {
+            return;
+        }
+        available = capacity == 0 ? newCapacity : available * newCapacity / capacity;
+        capacity = newCapacity;
+    }
+    
+    /**
+     * 服务端报告的剩余额度低于本地余额时，以服务端为准
+     */
+    void clampAvailable(long remaining, long now) {
+        refill(now);
+        available = Math.min(available, remaining);
+    }
+    
+    /**
+     * 在指定时刻之前暂停放行
+     */
+    void blockUntil(long until) {
+        blockedUntil = Math.max(blockedUntil, until);
+    }
+    
+    long getCapacity() {
+        return capacity;
+    }
+    
+    private void refill(long now) {
+        if (now > lastRefill) {
+            if (capacity > 0) {
+                available = Math.min(capacity, available + (now - lastRefill) * ratePerNano());
+            }
+            lastRefill = now;
+        }
+    }
+    
+    private double ratePerNano() {
+        return (double) capacity / NANOS_PER_MINUTE;
+    }
+}
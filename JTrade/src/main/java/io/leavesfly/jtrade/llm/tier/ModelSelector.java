@@ -0,0 +1,205 @@
+package io.leavesfly.jtrade.llm.tier;
+
+import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.client.LlmClient.StreamCallback;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 模型选择策略
+ * 
+ * 按智能体类型在深度模型与快速模型之间选择：
+ * 1. 本次运行的覆盖配置（初始状态元数据 model_tiers，键为 AgentType 名称、REFLECTION 或 "*"）
+ * 2. jtrade.llm.tiers.agents 中按类型指定的档位
+ * 3. jtrade.llm.tiers.default-tier
+ * 
+ * 智能体通过 {@link #bind} 得到绑定了自身类型的 LlmClient，请求未指定模型或指定的是
+ * 深度/快速模型名称时替换为所选档位的模型，显式指定的其他模型保持不变。
+ * 运行覆盖保存在线程上下文中，由 WorkflowEngine 与 ParallelAgentExecutor 在执行节点前按状态设置
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Component
+public class ModelSelector {
+    
+    /**
+     * 运行覆盖配置在状态元数据中的键
+     */
+    public static final String RUN_OVERRIDES_KEY = "model_tiers";
+    
+    private static final String REFLECTION_KEY = "REFLECTION";
+    private static final String WILDCARD_KEY = "*";
+    
+    private static final ThreadLocal<Map<String, ModelTier>> RUN_OVERRIDES = new ThreadLocal<>();
+    
+    private final LlmConfig llmConfig;
+    
+    public ModelSelector(LlmConfig llmConfig) {
+        this.llmConfig = llmConfig;
+    }
+    
+    /**
+     * 获取智能体类型对应的档位
+     */
+    public ModelTier tierOf(AgentType type) {
+        ModelTier override = runOverride(type.name());
+        if (override != null) {
+            return override;
+        }
+        LlmConfig.TierConfig tiers = llmConfig.getTiers();
+        return tiers.getAgents().getOrDefault(type, tiers.getDefaultTier());
+    }
+    
+    /**
+     * 获取反思服务使用的档位
+     */
+    public ModelTier reflectionTier() {
+        ModelTier override = runOverride(REFLECTION_KEY);
+        return override != null ? override : llmConfig.getTiers().getReflectionTier();
+    }
+    
+    /**
+     * 获取档位对应的模型名称
+     */
+    public String modelOf(ModelTier tier) {
+        return tier == ModelTier.DEEP ? llmConfig.getDeepThinkModelName() : llmConfig.getQuickThinkModelName();
+    }
+    
+    /**
+     * 获取智能体类型对应的模型名称
+     */
+    public String modelFor(AgentType type) {
+        return modelOf(tierOf(type));
+    }
+    
+    /**
+     * 为智能体绑定按档位选择模型的客户端
+     */
+    public LlmClient bind(LlmClient delegate, AgentType type) {
+        return new TieredLlmClient(delegate, () -> tierOf(type));
+    }
+    
+    /**
+     * 为反思服务绑定按档位选择模型的客户端
+     */
+    public LlmClient bindReflection(LlmClient delegate) {
+        return new TieredLlmClient(delegate, this::reflectionTier);
+    }
+    
+    /**
+     * 在状态携带的运行覆盖配置下执行
+     * 
+     * 状态中没有覆盖配置时沿用当前线程已有的配置
+     */
+    public static <T> T withRunOverrides(AgentState state, Supplier<T> action) {
+        Map<String, ModelTier> overrides = parseOverrides(state);
+        if (overrides == null) {
+            return action.get();
+        }
+        Map<String, ModelTier> previous = RUN_OVERRIDES.get();
+        RUN_OVERRIDES.set(overrides);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                RUN_OVERRIDES.remove();
+            } else {
+                RUN_OVERRIDES.set(previous);
+            }
+        }
+    }
+    
+    private static ModelTier runOverride(String key) {
+        Map<String, ModelTier> overrides = RUN_OVERRIDES.get();
+        if (overrides == null) {
+            return null;
+        }
+        ModelTier tier = overrides.get(key);
+        return tier != null ? tier : overrides.get(WILDCARD_KEY);
+    }
+    
+    /**
+     * 解析元数据中的覆盖配置，支持 Map&lt;String|AgentType, String|ModelTier&gt;
+     */
+    private static Map<String, ModelTier> parseOverrides(AgentState state) {
+        if (state == null || state.getMetadata() == null) {
+            return null;
+        }
+        Object raw = state.getMetadata().get(RUN_OVERRIDES_KEY);
+        if (!(raw instanceof Map<?, ?> map) || map.isEmpty()) {
+            return null;
+        }
+        Map<String, ModelTier> overrides = new HashMap<>();
+        map.forEach((key, value) -> {
+            String name = key instanceof AgentType type ? type.name() : String.valueOf(key).toUpperCase();
+            try {
+                ModelTier tier = value instanceof ModelTier modelTier
+                        ? modelTier
+                        : ModelTier.valueOf(String.valueOf(value).trim().toUpperCase());
+                overrides.put(name, tier);
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略无效的模型档位覆盖: {}={}", key, value);
+            }
+        });
+        return Collections.unmodifiableMap(overrides);
+    }
+    
+    /**
+     * 按档位替换模型名称的客户端包装
+     */
+    private final class TieredLlmClient implements LlmClient {
+        
+        private final LlmClient delegate;
+        private final Supplier<ModelTier> tier;
+        
+        TieredLlmClient(LlmClient delegate, Supplier<ModelTier> tier) {
+            this.delegate = delegate;
+            this.tier = tier;
+        }
+        
+        @Override
+        public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+            return delegate.chat(messages, resolve(config));
+        }
+        
+        @Override
+        public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+            return delegate.chatAsync(messages, resolve(config));
+        }
+        
+        @Override
+        public void streamChat(List<LlmMessage> messages, ModelConfig config, StreamCallback callback) {
+            delegate.streamChat(messages, resolve(config), callback);
+        }
+        
+        @Override
+        public double[] embedText(String text) {
+            return delegate.embedText(text);
+        }
+        
+        private ModelConfig resolve(ModelConfig config) {
+            String requested = config.getModel();
+            if (requested != null && !requested.isEmpty()
+                    && !requested.equals(llmConfig.getDeepThinkModelName())
+                    && !requested.equals(llmConfig.getQuickThinkModelName())) {
+                return config;
+            }
+            String model = modelOf(tier.get());
+            return model == null || model.equals(requested) ? config : config.toBuilder().model(model).build();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.leavesfly.jtrade.llm.tier;
+
+/**
+ * 模型档位
+ * 
+ * @author 山泽
+ */
+public enum ModelTier {
+    
+    /**
+     * 深度思考模型（用于复杂决策）
+     */
+    DEEP,
+    
+    /**
+     * 快速思考模型（用于高频的分析与总结）
+     */
+    QUICK
+}
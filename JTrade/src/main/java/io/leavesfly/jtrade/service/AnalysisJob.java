@@ -0,0 +1,357 @@
+package io.leavesfly.jtrade.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.leavesfly.jtrade.core.state.AgentState;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 分析任务
+ * 
+ * 一个任务对同一日期的一只或多只股票依次运行交易图，
+ * 记录任务状态、每只股票的最终状态以及各阶段的进度事件
+ * 
+ * 进度事件在锁内放入每个订阅者各自的有界队列，由投递线程池在锁外依次送出：
+ * 慢订阅者不会阻塞任务线程；队列溢出或送出失败时取消该订阅并通知其错误回调
+ * 
+ * @author 山泽
+ */
+@Slf4j
+public class AnalysisJob {
+    
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED;
+        
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+    
+    /**
+     * 任务进度事件
+     */
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Event {
+        /**
+         * 事件序号，从 1 开始递增，可作为 SSE 的事件 ID
+         */
+        private long seq;
+        
+        /**
+         * 事件类型: queued, started, node_start, node_complete, node_failed, symbol_complete, succeeded, failed
+         */
+        private String type;
+        
+        private String symbol;
+        
+        private String node;
+        
+        private Integer index;
+        
+        private Integer total;
+        
+        private Long elapsedMs;
+        
+        private String message;
+        
+        private Instant timestamp;
+        
+        public boolean isTerminal() {
+            return "succeeded".equals(type) || "failed".equals(type);
+        }
+    }
+    
+    private final String id;
+    private final List<String> symbols;
+    private final LocalDate date;
+    private final Instant submittedAt = Instant.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    
+    // 以下字段由 this 保护
+    private final Map<String, AgentState> results = new LinkedHashMap<>();
+    private final List<Event> events = new ArrayList<>();
+    private final List<Subscription> subscribers = new ArrayList<>();
+    
+    private final CompletableFuture<AnalysisJob> completion = new CompletableFuture<>();
+    private final Executor deliveryExecutor;
+    private final int subscriberBufferSize;
+    
+    AnalysisJob(String id, List<String> symbols, LocalDate date, Executor deliveryExecutor, int subscriberBufferSize) {
+        this.id = id;
+        this.symbols = List.copyOf(symbols);
+        this.date = date;
+        this.deliveryExecutor = deliveryExecutor;
+        this.subscriberBufferSize = Math.max(1, subscriberBufferSize);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public List<String> getSymbols() {
+        return symbols;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    /**
+     * 任务结束（成功或失败）时完成的 Future
+     */
+    public CompletableFuture<AnalysisJob> getCompletion() {
+        return completion;
+    }
+    
+    /**
+     * 已完成股票的最终状态（按完成顺序）
+     */
+    public synchronized Map<String, AgentState> getResults() {
+        return new LinkedHashMap<>(results);
+    }
+    
+    public synchronized List<Event> getEvents() {
+        return new ArrayList<>(events);
+    }
+    
+    /**
+     * 任务概要，用于状态查询接口
+     */
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", id);
+        summary.put("status", status);
+        summary.put("symbols", symbols);
+        summary.put("date", String.valueOf(date));
+        summary.put("submittedAt", submittedAt.toString());
+        summary.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        summary.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+        summary.put("completedSymbols", new ArrayList<>(results.keySet()));
+        Map<String, String> signals = new LinkedHashMap<>();
+        results.forEach((symbol, state) -> signals.put(symbol, state.getFinalSignal()));
+        summary.put("signals", signals);
+        summary.put("lastEvent", events.isEmpty() ? null : events.get(events.size() - 1));
+        summary.put("error", error);
+        return summary;
+    }
+    
+    /**
+     * 订阅进度事件，投递失败时只记录日志
+     * 
+     * @see #subscribe(Consumer, Consumer)
+     */
+    public Runnable subscribe(Consumer<Event> subscriber) {
+        return subscribe(subscriber, error -> log.debug("任务 {} 的进度订阅者已断开: {}", id, error.getMessage()));
+    }
+    
+    /**
+     * 订阅进度事件
+     * 
+     * 已有事件与之后的事件在同一把锁内放入订阅者的队列，不会遗漏或重复；任务已结束时只回放不登记。
+     * 事件在投递线程上依次送出，订阅者抛出异常（包括回放期间）或处理过慢导致队列溢出时
+     * 取消订阅并调用 onError
+     * 
+     * @return 取消订阅的操作
+     */
+    public Runnable subscribe(Consumer<Event> subscriber, Consumer<Throwable> onError) {
+        Subscription subscription;
+        synchronized (this) {
+            subscription = new Subscription(subscriber, onError, events.size() + subscriberBufferSize);
+            events.forEach(subscription.queue::add);
+            if (!status.isFinished()) {
+                subscribers.add(subscription);
+            }
+        }
+        subscription.schedule();
+        return () -> unsubscribe(subscription);
+    }
+    
+    private void unsubscribe(Subscription subscription) {
+        subscription.cancel();
+        synchronized (this) {
+            subscribers.remove(subscription);
+        }
+    }
+    
+    void markRunning() {
+        synchronized (this) {
+            status = Status.RUNNING;
+            startedAt = Instant.now();
+        }
+        publish(Event.builder().type("started"));
+    }
+    
+    void addResult(String symbol, AgentState state) {
+        synchronized (this) {
+            results.put(symbol, state);
+        }
+        publish(Event.builder().type("symbol_complete").symbol(symbol).message(state.getFinalSignal()));
+    }
+    
+    void markSucceeded() {
+        finish(Status.SUCCEEDED, null);
+    }
+    
+    void markFailed(String error) {
+        finish(Status.FAILED, error);
+    }
+    
+    private void finish(Status finalStatus, String message) {
+        List<Subscription> targets;
+        synchronized (this) {
+            if (status.isFinished()) {
+                return;
+            }
+            status = finalStatus;
+            error = message;
+            finishedAt = Instant.now();
+            targets = enqueue(Event.builder().type(finalStatus == Status.SUCCEEDED ? "succeeded" : "failed").message(message));
+            subscribers.clear();
+        }
+        targets.forEach(Subscription::dispatch);
+        completion.complete(this);
+    }
+    
+    /**
+     * 记录事件并放入各订阅者的队列，在锁外触发投递
+     */
+    void publish(Event.EventBuilder builder) {
+        List<Subscription> targets;
+        synchronized (this) {
+            targets = enqueue(builder);
+        }
+        targets.forEach(Subscription::dispatch);
+    }
+    
+    /**
+     * 追加事件并放入各订阅者的队列，队列已满的订阅者被移除
+     * 
+     * @return 需要在锁外投递或通知溢出的订阅者
+     */
+    private List<Subscription> enqueue(Event.EventBuilder builder) {
+        Event event = builder.seq(events.size() + 1).timestamp(Instant.now()).build();
+        events.add(event);
+        List<Subscription> targets = new ArrayList<>(subscribers);
+        subscribers.removeIf(subscription -> !subscription.offer(event));
+        return targets;
+    }
+    
+    /**
+     * 单个订阅者：有界事件队列，同一时刻最多一个投递任务按顺序送出
+     */
+    private final class Subscription {
+        private final Consumer<Event> subscriber;
+        private final Consumer<Throwable> onError;
+        private final BlockingQueue<Event> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private final AtomicReference<Throwable> overflow = new AtomicReference<>();
+        
+        Subscription(Consumer<Event> subscriber, Consumer<Throwable> onError, int capacity) {
+            this.subscriber = subscriber;
+            this.onError = onError;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+        
+        /**
+         * 放入事件，队列已满时取消订阅并记下溢出错误（由 dispatch 在锁外通知）
+         */
+        boolean offer(Event event) {
+            if (queue.offer(event)) {
+                return true;
+            }
+            overflow.set(new IllegalStateException("订阅者处理过慢，待投递事件超过 " + queue.size() + " 条"));
+            cancelled = true;
+            queue.clear();
+            return false;
+        }
+        
+        void dispatch() {
+            Throwable error = overflow.getAndSet(null);
+            if (error != null) {
+                notifyError(error);
+            } else {
+                schedule();
+            }
+        }
+        
+        void schedule() {
+            if (!cancelled && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            try {
+                Event event;
+                while (!cancelled && (event = queue.poll()) != null) {
+                    subscriber.accept(event);
+                }
+            } catch (Exception e) {
+                fail(e);
+                unsubscribe(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // 送出最后一个事件与释放标记之间可能有新事件入队
+            schedule();
+        }
+        
+        void fail(Throwable error) {
+            if (cancelled) {
+                return;
+            }
+            cancel();
+            notifyError(error);
+        }
+        
+        private void notifyError(Throwable error) {
+            try {
+                onError.accept(error);
+            } catch (Exception e) {
+                log.debug("任务 {} 的进度订阅者错误回调失败: {}", id, e.getMessage());
+            }
+        }
+        
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.leavesfly.jtrade.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.WorkflowEngine;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析任务服务
+ * 
+ * 把分析请求放入有界队列，由固定数量的工作线程执行交易图。
+ * 队列已满时立即拒绝，由调用方（REST 接口）转换为 429 响应，服务关闭后的提交转换为 503；
+ * 进度事件由独立的投递线程池推送给订阅者，不占用工作线程；
+ * 已完成的任务只在内存中保留最近的若干个，供状态查询与结果读取
+ * 
+ * @author 山泽
+ */
+@Slf4j
+@Service
+public class AnalysisJobService {
+    
+    private final TradingGraph tradingGraph;
+    private final AppConfig.JobConfig config;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor deliveryExecutor;
+    
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    
+    // 按完成顺序排列的已完成任务，超出保留数量时从队首淘汰
+    private final Queue<String> finishedJobs = new ConcurrentLinkedQueue<>();
+    
+    public AnalysisJobService(TradingGraph tradingGraph, AppConfig appConfig) {
+        this.tradingGraph = tradingGraph;
+        this.config = appConfig.getJobs();
+        int workers = Math.max(1, config.getWorkers());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-job-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.deliveryExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-job-events-%d").setDaemon(true).build(),
+                // 关闭后在发布线程投递，订阅者仍能收到任务结束事件
+                (task, pool) -> task.run());
+    }
+    
+    /**
+     * 提交分析任务
+     * 
+     * @param symbols 股票代码列表，去重后按给定顺序依次分析
+     * @param date 交易日期，为 null 时使用当天
+     * @return 已入队的任务
+     * @throws IllegalArgumentException 股票列表为空或超出单任务上限
+     * @throws RejectedExecutionException 任务队列已满
+     * @throws IllegalStateException 服务已关闭
+     */
+    public AnalysisJob submit(List<String> symbols, LocalDate date) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        if (symbols != null) {
+            for (String symbol : symbols) {
+                if (symbol != null && !symbol.isBlank()) {
+                    unique.add(symbol.trim().toUpperCase());
+                }
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个股票代码");
+        }
+        if (unique.size() > config.getMaxSymbolsPerJob()) {
+            throw new IllegalArgumentException(
+                    "单个任务最多包含 " + config.getMaxSymbolsPerJob() + " 只股票，实际为 " + unique.size());
+        }
+        
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("分析服务已关闭");
+        }
+        
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), new ArrayList<>(unique),
+                date != null ? date : LocalDate.now(), deliveryExecutor, config.getSubscriberBufferSize());
+        job.publish(AnalysisJob.Event.builder().type("queued").message("等待中的任务: " + executor.getQueue().size()));
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            if (executor.isShutdown()) {
+                throw new IllegalStateException("分析服务已关闭", e);
+            }
+            log.warn("分析任务队列已满（{} 个等待中），拒绝任务: {}", executor.getQueue().size(), job.getSymbols());
+            throw e;
+        }
+        log.info("分析任务已入队: {} {} {}", job.getId(), job.getSymbols(), job.getDate());
+        return job;
+    }
+    
+    public Optional<AnalysisJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+    
+    /**
+     * 当前等待执行的任务数量
+     */
+    public int getQueuedJobs() {
+        return executor.getQueue().size();
+    }
+    
+    /**
+     * 当前正在执行的任务数量
+     */
+    public int getRunningJobs() {
+        return executor.getActiveCount();
+    }
+    
+    public AppConfig.JobConfig getConfig() {
+        return config;
+    }
+    
+    private void run(AnalysisJob job) {
+        job.markRunning();
+        List<String> failed = new ArrayList<>();
+        try {
+            for (String symbol : job.getSymbols()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    job.markFailed("任务被中断");
+                    return;
+                }
+                AgentState initial = AgentState.builder().company(symbol).date(job.getDate()).build();
+                AgentState result = tradingGraph.propagate(initial, progressListener(job, symbol));
+                job.addResult(symbol, result);
+                if ("ERROR".equals(result.getFinalSignal())) {
+                    failed.add(symbol);
+                }
+            }
+            if (failed.isEmpty()) {
+                job.markSucceeded();
+            } else {
+                job.markFailed("以下股票分析失败: " + failed);
+            }
+        } catch (Exception e) {
+            log.error("分析任务 {} 执行失败", job.getId(), e);
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            retire(job);
+        }
+    }
+    
+    /**
+     * 把交易图各阶段的进度转换为任务事件
+     */
+    private static WorkflowEngine.NodeListener progressListener(AnalysisJob job, String symbol) {
+        return new WorkflowEngine.NodeListener() {
+            @Override
+            public void onNodeStart(String node, int index, int total) {
+                job.publish(AnalysisJob.Event.builder()
+                        .type("node_start").symbol(symbol).node(node).index(index).total(total));
+            }
+            
+            @Override
+            public void onNodeComplete(String node, int index, int total, AgentState output, long elapsedMs) {
+                job.publish(AnalysisJob.Event.builder()
+                        .type("node_complete").symbol(symbol).node(node).index(index).total(total)
+                        .elapsedMs(elapsedMs));
+            }
+            
+            @Override
+            public void onNodeFailed(String node, int index, int total, Exception error) {
+                job.publish(AnalysisJob.Event.builder()
+                        .type("node_failed").symbol(symbol).node(node).index(index).total(total)
+                        .message(error.getMessage()));
+            }
+        };
+    }
+    
+    /**
+     * 登记已完成的任务，淘汰超出保留数量的最早任务
+     */
+    private void retire(AnalysisJob job) {
+        finishedJobs.add(job.getId());
+        while (finishedJobs.size() > Math.max(0, config.getRetainedJobs())) {
+            String evicted = finishedJobs.poll();
+            if (evicted == null) {
+                break;
+            }
+            jobs.remove(evicted);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        for (AnalysisJob job : jobs.values()) {
+            if (job.getStatus() == AnalysisJob.Status.QUEUED) {
+                job.markFailed("服务已关闭");
+            }
+        }
+        deliveryExecutor.shutdown();
+    }
+}
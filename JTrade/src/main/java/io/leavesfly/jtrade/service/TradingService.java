@@ -1,26 +1,25 @@
 package io.leavesfly.jtrade.service;
 
-import io.leavesfly.jtrade.agents.analysts.FundamentalsAnalyst;
-import io.leavesfly.jtrade.agents.analysts.MarketAnalyst;
-import io.leavesfly.jtrade.agents.analysts.NewsAnalyst;
-import io.leavesfly.jtrade.agents.analysts.SocialMediaAnalyst;
-import io.leavesfly.jtrade.agents.managers.ResearchManager;
-import io.leavesfly.jtrade.agents.managers.RiskManager;
-import io.leavesfly.jtrade.agents.researchers.BearResearcher;
-import io.leavesfly.jtrade.agents.researchers.BullResearcher;
-import io.leavesfly.jtrade.agents.risk.AggressiveDebator;
-import io.leavesfly.jtrade.agents.risk.ConservativeDebator;
-import io.leavesfly.jtrade.agents.risk.NeutralDebator;
-import io.leavesfly.jtrade.agents.trader.Trader;
-import io.leavesfly.jtrade.core.memory.MemoryService;
-import io.leavesfly.jtrade.core.reflection.ReflectionService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.leavesfly.jtrade.agents.analysts.BatchAnalyst;
+import io.leavesfly.jtrade.config.LlmConfig;
 import io.leavesfly.jtrade.core.report.ReportWriter;
 import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.graph.TradingGraph;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 /**
  * 交易服务
@@ -33,53 +32,28 @@ import java.time.LocalDate;
 @Service
 public class TradingService {
     
-    private final MarketAnalyst marketAnalyst;
-    private final FundamentalsAnalyst fundamentalsAnalyst;
-    private final NewsAnalyst newsAnalyst;
-    private final SocialMediaAnalyst socialMediaAnalyst;
-    private final BullResearcher bullResearcher;
-    private final BearResearcher bearResearcher;
-    private final ResearchManager researchManager;
-    private final Trader trader;
-    private final AggressiveDebator aggressiveDebator;
-    private final ConservativeDebator conservativeDebator;
-    private final NeutralDebator neutralDebator;
-    private final RiskManager riskManager;
-    private final ReflectionService reflectionService;
-    private final MemoryService memoryService;
+    /**
+     * 批量分析时单个股票流程的执行耗时（毫秒）在元数据中的键
+     */
+    public static final String EXECUTION_MILLIS_KEY = "execution_millis";
+    
+    private final TradingGraph tradingGraph;
+    private final BatchAnalyst batchAnalyst;
     private final ReportWriter reportWriter;
+    private final LlmConfig llmConfig;
+    
+    // 按LLM提供商限制批量分析的并发工作流数量
+    private final Map<String, Semaphore> providerPermits = new ConcurrentHashMap<>();
     
     public TradingService(
-            MarketAnalyst marketAnalyst,
-            FundamentalsAnalyst fundamentalsAnalyst,
-            NewsAnalyst newsAnalyst,
-            SocialMediaAnalyst socialMediaAnalyst,
-            BullResearcher bullResearcher,
-            BearResearcher bearResearcher,
-            ResearchManager researchManager,
-            Trader trader,
-            AggressiveDebator aggressiveDebator,
-            ConservativeDebator conservativeDebator,
-            NeutralDebator neutralDebator,
-            RiskManager riskManager,
-            ReflectionService reflectionService,
-            MemoryService memoryService,
-            ReportWriter reportWriter) {
-        this.marketAnalyst = marketAnalyst;
-        this.fundamentalsAnalyst = fundamentalsAnalyst;
-        this.newsAnalyst = newsAnalyst;
-        this.socialMediaAnalyst = socialMediaAnalyst;
-        this.bullResearcher = bullResearcher;
-        this.bearResearcher = bearResearcher;
-        this.researchManager = researchManager;
-        this.trader = trader;
-        this.aggressiveDebator = aggressiveDebator;
-        this.conservativeDebator = conservativeDebator;
-        this.neutralDebator = neutralDebator;
-        this.riskManager = riskManager;
-        this.reflectionService = reflectionService;
-        this.memoryService = memoryService;
+            TradingGraph tradingGraph,
+            BatchAnalyst batchAnalyst,
+            ReportWriter reportWriter,
+            LlmConfig llmConfig) {
+        this.tradingGraph = tradingGraph;
+        this.batchAnalyst = batchAnalyst;
         this.reportWriter = reportWriter;
+        this.llmConfig = llmConfig;
     }
     
     /**
@@ -96,67 +70,16 @@ public class TradingService {
         log.info("交易日期: {}", date);
         log.info("=====================================");
         
-        // 初始化状态
-        AgentState state = AgentState.builder()
-                .company(symbol)
-                .date(date)
-                .build();
+        // 分析、辩论、风险审批、反思与保存记忆均由交易图完成，与 TradingGraph.propagate 的决策一致
+        AgentState state = tradingGraph.propagate(symbol, date);
+        if ("ERROR".equals(state.getFinalSignal())) {
+            return state;
+        }
         
         try {
-            // 第一阶段：分析师团队分析
-            log.info("\n【第一阶段：分析师团队分析】");
-            state = marketAnalyst.execute(state);
-            state = fundamentalsAnalyst.execute(state);
-            state = newsAnalyst.execute(state);
-            state = socialMediaAnalyst.execute(state);
-            log.info("分析师报告数量: {}", state.getAnalystReports().size());
-            
-            // 第二阶段：研究员团队辩论
-            log.info("\n【第二阶段：研究员团队辩论】");
-            state = bullResearcher.execute(state);
-            state = bearResearcher.execute(state);
-            log.info("研究员观点数量: {}", state.getResearcherViewpoints().size());
-            
-            // 第三阶段：研究经理决策
-            log.info("\n【第三阶段：研究经理决策】");
-            state = researchManager.execute(state);
-            log.info("研究经理决策完成");
+            reportWriter.submit(state);
+            Path reportDir = reportWriter.getReportDirectory(symbol, date.toString());
             
-            // 第四阶段：交易员制定计划
-            log.info("\n【第四阶段：交易员制定计划】");
-            state = trader.execute(state);
-            log.info("交易计划制定完成");
-            
-            // 第五阶段：风险辩论（新增）
-            log.info("\n【第五阶段：风险辩论】");
-            state = aggressiveDebator.execute(state);
-            state = conservativeDebator.execute(state);
-            state = neutralDebator.execute(state);
-            log.info("风险辩论完成");
-            
-            // 第六阶段：风险管理审批
-            log.info("\n【第六阶段：风险管理审批】");
-            state = riskManager.execute(state);
-            log.info("风险管理决策完成");
-            
-            // 第七阶段：反思与学习
-            log.info("\n【第七阶段：反思与学习】");
-            state = reflectionService.reflectOnAnalysis(state);
-            state = reflectionService.reflectOnDecision(state);
-            state = reflectionService.comprehensiveReflection(state);
-            log.info("反思完成，反思记录: {} 条", state.getReflections().size());
-            
-            // 第八阶段：保存记忆
-            log.info("\n【第八阶段：保存记忆】");
-            memoryService.saveDecision(state);
-            log.info("记忆保存完成");
-            
-            // 第九阶段：写入报告
-            log.info("\n【第九阶段：写入报告】");
-            Path reportDir = reportWriter.writeFullReport(state);
-            log.info("报告已写入: {}", reportDir.toAbsolutePath());
-            
-            // 输出最终结果
             log.info("\n=====================================" );
             log.info("交易决策流程完成");
             log.info("最终信号: {}", state.getFinalSignal());
@@ -164,7 +87,7 @@ public class TradingService {
             log.info("=====================================");
             
             return state;
-            
+        
         } catch (Exception e) {
             log.error("交易决策流程执行失败", e);
             return state.toBuilder()
@@ -173,6 +96,116 @@ public class TradingService {
         }
     }
     
+    /**
+     * 批量执行多个股票的交易决策流程
+     * 
+     * @param symbols 股票代码列表
+     * @param date 交易日期
+     * @return 各股票的最终状态（与输入顺序一致）
+     */
+    public List<AgentState> analyzeAll(List<String> symbols, LocalDate date) {
+        return analyzeAll(symbols, date, state -> { });
+    }
+    
+    /**
+     * 批量执行多个股票的交易决策流程
+     * 
+     * 每个股票的流程在独立的工作线程上运行，同时运行的流程数受当前LLM提供商的
+     * max-concurrency 限制（同一提供商的多个批次共享该上限）。每个流程完成后立即
+     * 在工作线程上回调 onResult，回调顺序即完成顺序。各流程自身的执行耗时（不含等待
+     * 并发许可的时间）记录在元数据 {@link #EXECUTION_MILLIS_KEY} 中。
+     * 
+     * @param symbols 股票代码列表
+     * @param date 交易日期
+     * @param onResult 单个股票完成时的回调
+     * @return 各股票的最终状态（与输入顺序一致）
+     */
+    public List<AgentState> analyzeAll(List<String> symbols, LocalDate date, Consumer<AgentState> onResult) {
+        if (symbols.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String provider = llmConfig.getProvider().toLowerCase();
+        int maxConcurrency = Math.max(1, llmConfig.getCurrentProviderConfig().getMaxConcurrency());
+        Semaphore permits = providerPermits.computeIfAbsent(provider, k -> new Semaphore(maxConcurrency, true));
+        
+        log.info("开始批量分析 {} 个股票，提供商: {}，并发上限: {}", symbols.size(), provider, maxConcurrency);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(maxConcurrency, symbols.size()),
+                new ThreadFactoryBuilder().setNameFormat("jtrade-batch-%d").setDaemon(true).build());
+        
+        try {
+            List<CompletableFuture<AgentState>> futures = new ArrayList<>();
+            for (String symbol : symbols) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    AgentState state = executeWithPermit(permits, symbol, date);
+                    try {
+                        onResult.accept(state);
+                    } catch (Exception e) {
+                        log.error("批量分析回调失败: {}", symbol, e);
+                    }
+                    return state;
+                }, executor));
+            }
+            
+            List<AgentState> results = new ArrayList<>();
+            for (CompletableFuture<AgentState> future : futures) {
+                results.add(future.join());
+            }
+            
+            log.info("批量分析完成: {} 个股票", results.size());
+            return results;
+        
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * 批量初筛
+     * 
+     * 只运行新闻与社交媒体分析，多只股票打包为一次LLM请求（每批 screening.batch-size 只），
+     * 适合在大范围股票池中筛选出值得运行完整流程的候选股票
+     * 
+     * @param symbols 股票代码列表
+     * @param date 交易日期
+     * @return 各股票的初筛状态（与输入顺序一致），只包含分析师报告
+     */
+    public List<AgentState> preScreen(List<String> symbols, LocalDate date) {
+        if (symbols.isEmpty()) {
+            return new ArrayList<>();
+        }
+        log.info("开始批量初筛 {} 个股票", symbols.size());
+        return batchAnalyst.screen(symbols, date);
+    }
+    
+    /**
+     * 在提供商并发许可内执行单个股票的流程
+     */
+    private AgentState executeWithPermit(Semaphore permits, String symbol, LocalDate date) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待并发许可时被中断: {}", symbol);
+            return AgentState.builder()
+                    .company(symbol)
+                    .date(date)
+                    .finalSignal("ERROR")
+                    .build();
+        }
+        
+        try {
+            // 从取得许可开始计时，不包含排队等待的时间
+            long start = System.nanoTime();
+            AgentState state = executeTradingWorkflow(symbol, date);
+            return state.putMetadata(EXECUTION_MILLIS_KEY, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            permits.release();
+        }
+    }
+    
     /**
      * 打印完整决策报告
      */
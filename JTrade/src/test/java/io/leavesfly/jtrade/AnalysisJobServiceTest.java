@@ -0,0 +1,227 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.api.AnalysisController;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.WorkflowEngine;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import io.leavesfly.jtrade.service.AnalysisJob;
+import io.leavesfly.jtrade.service.AnalysisJobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分析任务队列与 REST 接口测试
+ * 
+ * @author 山泽
+ */
+public class AnalysisJobServiceTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+    
+    private final TradingGraph tradingGraph = mock(TradingGraph.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AppConfig appConfig;
+    private AnalysisJobService jobService;
+    
+    @BeforeEach
+    public void setUp() {
+        appConfig = new AppConfig();
+        appConfig.getJobs().setWorkers(1);
+        appConfig.getJobs().setQueueCapacity(1);
+        
+        // 模拟两个阶段的交易图，等待 release 后才完成，股票代码为 FAIL 时返回 ERROR
+        when(tradingGraph.propagate(any(AgentState.class), any(WorkflowEngine.NodeListener.class))).thenAnswer(call -> {
+            AgentState state = call.getArgument(0);
+            WorkflowEngine.NodeListener listener = call.getArgument(1);
+            listener.onNodeStart("analysts", 1, 2);
+            listener.onNodeComplete("analysts", 1, 2, state, 5);
+            release.await(5, TimeUnit.SECONDS);
+            listener.onNodeStart("trader", 2, 2);
+            listener.onNodeComplete("trader", 2, 2, state, 5);
+            return state.toBuilder()
+                    .finalSignal("FAIL".equals(state.getCompany()) ? "ERROR" : "BUY")
+                    .metadata(Map.of("marketData", new Object()))
+                    .build();
+        });
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        jobService.shutdown();
+    }
+    
+    @Test
+    public void testJobRunsSymbolsAndRecordsProgress() throws Exception {
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        release.countDown();
+        AnalysisJob job = jobService.submit(List.of("aapl", "MSFT", "AAPL"), DATE);
+        assertEquals(List.of("AAPL", "MSFT"), job.getSymbols());
+        
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(AnalysisJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(List.of("AAPL", "MSFT"), List.copyOf(job.getResults().keySet()));
+        assertEquals(DATE, job.getResults().get("MSFT").getDate());
+        
+        List<String> types = job.getEvents().stream().map(AnalysisJob.Event::getType).toList();
+        assertEquals(List.of("queued", "started",
+                "node_start", "node_complete", "node_start", "node_complete", "symbol_complete",
+                "node_start", "node_complete", "node_start", "node_complete", "symbol_complete",
+                "succeeded"), types);
+        assertEquals(types.size(), job.getEvents().get(types.size() - 1).getSeq());
+        
+        // 结果接口不返回流程内部的元数据
+        ResponseEntity<Map<String, Object>> result = new AnalysisController(jobService).result(job.getId());
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        Map<?, ?> states = (Map<?, ?>) result.getBody().get("results");
+        assertTrue(((AgentState) states.get("AAPL")).getMetadata().isEmpty());
+        
+        AnalysisJob failed = jobService.submit(List.of("FAIL"), DATE);
+        failed.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(AnalysisJob.Status.FAILED, failed.getStatus());
+        assertTrue(failed.getError().contains("FAIL"));
+    }
+    
+    @Test
+    public void testFullQueueIsRejectedWith429() throws Exception {
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        AnalysisController controller = new AnalysisController(jobService);
+        AnalysisJob running = jobService.submit(List.of("AAPL"), DATE);
+        awaitStatus(running, AnalysisJob.Status.RUNNING);
+        AnalysisJob queued = jobService.submit(List.of("MSFT"), DATE);
+        
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit(List.of("TSLA"), DATE));
+        AnalysisController.JobRequest request = new AnalysisController.JobRequest();
+        request.setSymbol("TSLA");
+        ResponseEntity<Map<String, Object>> response = controller.submit(request);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("30", response.getHeaders().getFirst("Retry-After"));
+        assertEquals(1, response.getBody().get("queuedJobs"));
+        
+        request.setSymbol(" ");
+        assertEquals(HttpStatus.BAD_REQUEST, controller.submit(request).getStatusCode());
+        
+        // 队列腾出空位后可以再次提交
+        release.countDown();
+        queued.getCompletion().get(5, TimeUnit.SECONDS);
+        request.setSymbol("TSLA");
+        assertEquals(HttpStatus.ACCEPTED, controller.submit(request).getStatusCode());
+    }
+    
+    @Test
+    public void testLongPollAndLateSubscriberReplay() throws Exception {
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        AnalysisController controller = new AnalysisController(jobService);
+        AnalysisJob job = jobService.submit(List.of("AAPL"), DATE);
+        awaitStatus(job, AnalysisJob.Status.RUNNING);
+        
+        DeferredResult<ResponseEntity<Map<String, Object>>> poll = controller.status(job.getId(), 10);
+        assertFalse(poll.hasResult());
+        
+        // 中途订阅先收到已有事件，再收到后续事件，没有遗漏或重复
+        List<Long> received = new CopyOnWriteArrayList<>();
+        job.subscribe(event -> received.add(event.getSeq()));
+        release.countDown();
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((!poll.hasResult() || received.size() < job.getEvents().size())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(poll.hasResult());
+        ResponseEntity<?> response = (ResponseEntity<?>) poll.getResult();
+        assertEquals(AnalysisJob.Status.SUCCEEDED, ((Map<?, ?>) response.getBody()).get("status"));
+        assertEquals(job.getEvents().stream().map(AnalysisJob.Event::getSeq).toList(), received);
+        
+        ResponseEntity<?> missing = (ResponseEntity<?>) controller.status("missing", 0).getResult();
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+    
+    @Test
+    public void testSlowSubscriberDoesNotBlockJob() throws Exception {
+        appConfig.getJobs().setSubscriberBufferSize(2);
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        AnalysisJob job = jobService.submit(List.of("AAPL"), DATE);
+        awaitStatus(job, AnalysisJob.Status.RUNNING);
+        
+        // 订阅者卡在第一个事件上，任务照常完成；积压超出缓冲后订阅者被断开
+        CountDownLatch unblock = new CountDownLatch(1);
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        job.subscribe(event -> {
+            try {
+                unblock.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, error::complete);
+        release.countDown();
+        
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(AnalysisJob.Status.SUCCEEDED, job.getStatus());
+        assertInstanceOf(IllegalStateException.class, error.get(5, TimeUnit.SECONDS));
+        unblock.countDown();
+    }
+    
+    @Test
+    public void testReplayFailureIsReported() throws Exception {
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        release.countDown();
+        AnalysisJob job = jobService.submit(List.of("AAPL"), DATE);
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+        
+        List<Long> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        job.subscribe(event -> {
+            if (event.getSeq() == 3) {
+                throw new UncheckedIOException(new IOException("客户端已断开"));
+            }
+            received.add(event.getSeq());
+        }, error::complete);
+        
+        assertInstanceOf(UncheckedIOException.class, error.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L), received);
+    }
+    
+    @Test
+    public void testSubmitAfterShutdownIsRejectedWith503() {
+        jobService = new AnalysisJobService(tradingGraph, appConfig);
+        jobService.shutdown();
+        
+        assertThrows(IllegalStateException.class, () -> jobService.submit(List.of("AAPL"), DATE));
+        AnalysisController.JobRequest request = new AnalysisController.JobRequest();
+        request.setSymbol("AAPL");
+        ResponseEntity<Map<String, Object>> response = new AnalysisController(jobService).submit(request);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("Retry-After"));
+    }
+    
+    private static void awaitStatus(AnalysisJob job, AnalysisJob.Status status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, job.getStatus());
+    }
+}
@@ -0,0 +1,234 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.analysts.FundamentalsAnalyst;
+import io.leavesfly.jtrade.agents.analysts.MarketAnalyst;
+import io.leavesfly.jtrade.agents.analysts.NewsAnalyst;
+import io.leavesfly.jtrade.agents.analysts.SocialMediaAnalyst;
+import io.leavesfly.jtrade.agents.managers.ResearchManager;
+import io.leavesfly.jtrade.agents.managers.RiskManager;
+import io.leavesfly.jtrade.agents.researchers.BearResearcher;
+import io.leavesfly.jtrade.agents.researchers.BullResearcher;
+import io.leavesfly.jtrade.agents.risk.AggressiveDebator;
+import io.leavesfly.jtrade.agents.risk.ConservativeDebator;
+import io.leavesfly.jtrade.agents.risk.NeutralDebator;
+import io.leavesfly.jtrade.agents.trader.Trader;
+import io.leavesfly.jtrade.backtest.BacktestResult;
+import io.leavesfly.jtrade.backtest.BacktestRunner;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
+import io.leavesfly.jtrade.core.reflection.ReflectionService;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.ParallelAgentExecutor;
+import io.leavesfly.jtrade.core.workflow.WorkflowExecutor;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import io.leavesfly.jtrade.dataflow.model.MarketData;
+import io.leavesfly.jtrade.dataflow.model.NewsData;
+import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
+import io.leavesfly.jtrade.dataflow.provider.DataProvider;
+import io.leavesfly.jtrade.dataflow.provider.FinnhubDataProvider;
+import io.leavesfly.jtrade.dataflow.store.MarketDataStore;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 回测指标计算测试
+ * 
+ * @author 山泽
+ */
+public class BacktestRunnerTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 3, 4);
+    
+    @TempDir
+    Path cacheDir;
+    
+    private BarSeries bars(double... closes) {
+        BarSeries.Builder builder = BarSeries.builder("TEST");
+        for (int i = 0; i < closes.length; i++) {
+            builder.add(START.plusDays(i), closes[i], closes[i], closes[i], closes[i], closes[i], 1000L);
+        }
+        return builder.build();
+    }
+    
+    @Test
+    public void testLongOnlyPnlAndDrawdown() {
+        // 100 -> 110 -> 99 -> 108.9
+        BarSeries series = bars(100, 110, 99, 108.9);
+        Map<LocalDate, String> signals = new HashMap<>();
+        signals.put(START, "BUY");
+        signals.put(START.plusDays(1), "HOLD");
+        signals.put(START.plusDays(2), "SELL");
+        
+        BacktestResult result = BacktestRunner.evaluate("TEST", START, START.plusDays(2), series, signals, false);
+        
+        assertEquals(3, result.getTradingDays());
+        // 持有两天：+10% 再 -10%
+        assertEquals(0.99 - 1, result.getTotalReturn(), 1e-9);
+        assertEquals(0.089, result.getBenchmarkReturn(), 1e-9);
+        assertEquals(0.1, result.getMaxDrawdown(), 1e-9);
+        assertEquals(0.5, result.getHitRate(), 1e-9);
+        assertEquals(2.0, result.getTurnover(), 1e-9);
+        assertEquals(2, result.getTradeCount());
+        assertEquals(0, result.getDays().get(2).getPosition());
+    }
+    
+    @Test
+    public void testShortSellingAndErrorsKeepPosition() {
+        BarSeries series = bars(100, 90, 81, 90);
+        Map<LocalDate, String> signals = new HashMap<>();
+        signals.put(START, "SELL");
+        signals.put(START.plusDays(1), "ERROR");
+        
+        BacktestResult result = BacktestRunner.evaluate("TEST", START, START.plusDays(2), series, signals, true);
+        
+        assertEquals(-1, result.getDays().get(1).getPosition());
+        assertEquals(-1, result.getDays().get(2).getPosition());
+        assertEquals(1.1 * 1.1 * (1 - 90.0 / 81 + 1) - 1, result.getTotalReturn(), 1e-9);
+        assertEquals(2, result.getErrorCount());
+        assertEquals(1, result.getTradeCount());
+        assertEquals(2.0 / 3, result.getHitRate(), 1e-9);
+    }
+    
+    @Test
+    public void testLastDayWithoutNextBarHasNoPnl() {
+        BarSeries series = bars(100, 105);
+        Map<LocalDate, String> signals = Map.of(START, "BUY", START.plusDays(1), "BUY");
+        
+        BacktestResult result = BacktestRunner.evaluate("TEST", START, START.plusDays(1), series, signals, false);
+        
+        assertEquals(0.05, result.getTotalReturn(), 1e-9);
+        assertTrue(Double.isNaN(result.getDays().get(1).getPnl()));
+        assertEquals(1, result.getTradeCount());
+    }
+    
+    @Test
+    public void testReplayHidesDataAfterAsOfDateAndWritesNoMemory() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.setDataCacheDir(cacheDir.toString());
+        appConfig.getDataSource().setOnlineTools(false);
+        HttpClientManager httpClientManager = new HttpClientManager(appConfig);
+        FinnhubDataProvider finnhub = mock(FinnhubDataProvider.class);
+        when(finnhub.isEnabled()).thenReturn(true);
+        // 数据源不按截止日过滤，返回的新闻跨越回放日前后
+        when(finnhub.fetchNews(anyString(), any(LocalDate.class), any(LocalDate.class))).thenAnswer(call -> {
+            LocalDate to = call.getArgument(2);
+            return List.of(news(to.minusDays(1)), news(to.plusDays(3)));
+        });
+        DataAggregator dataAggregator = new DataAggregator(List.of(new DailyProvider()), finnhub,
+                new MarketDataStore(appConfig), httpClientManager);
+        
+        // 每位智能体都尽量请求回放日之后的数据，记录实际看到的最晚日期
+        Queue<String> leaks = new ConcurrentLinkedQueue<>();
+        Queue<LocalDate> replayed = new ConcurrentLinkedQueue<>();
+        Answer<Object> probe = call -> {
+            if (!call.getMethod().getName().equals("execute")) {
+                return Mockito.RETURNS_DEFAULTS.answer(call);
+            }
+            AgentState state = call.getArgument(0);
+            LocalDate asOf = state.getDate();
+            String symbol = state.getCompany();
+            replayed.add(asOf);
+            List<MarketData> bars = dataAggregator.getMarketData(symbol, asOf.minusDays(20), asOf.plusDays(20));
+            LocalDate lastBar = bars.get(bars.size() - 1).getDate();
+            if (lastBar.isAfter(asOf)) {
+                leaks.add("bar " + lastBar + " @ " + asOf);
+            }
+            if (!dataAggregator.getTechnicalIndicators(symbol).equals(dataAggregator.getTechnicalIndicators(symbol, asOf))) {
+                leaks.add("indicators @ " + asOf);
+            }
+            if (!dataAggregator.getTechnicalIndicators(symbol, asOf.plusDays(5))
+                    .equals(dataAggregator.getTechnicalIndicators(symbol, asOf))) {
+                leaks.add("future indicators @ " + asOf);
+            }
+            for (NewsData item : dataAggregator.getNewsData(symbol, 10)) {
+                if (item.getPublishedAt().toLocalDate().isAfter(asOf)) {
+                    leaks.add("news " + item.getPublishedAt() + " @ " + asOf);
+                }
+            }
+            return state;
+        };
+        
+        MemoryService memoryService = mock(MemoryService.class);
+        SituationMemory situationMemory = mock(SituationMemory.class);
+        when(situationMemory.attachSimilar(any())).thenAnswer(call -> call.getArgument(0));
+        ReflectionService reflectionService = mock(ReflectionService.class);
+        ParallelAgentExecutor parallelExecutor = new ParallelAgentExecutor(appConfig);
+        WorkflowExecutor workflowExecutor = new WorkflowExecutor(appConfig);
+        TradingGraph tradingGraph = new TradingGraph(
+                mock(MarketAnalyst.class, probe), mock(FundamentalsAnalyst.class, probe),
+                mock(NewsAnalyst.class, probe), mock(SocialMediaAnalyst.class, probe), null,
+                mock(BullResearcher.class, probe), mock(BearResearcher.class, probe), mock(Trader.class, probe),
+                mock(AggressiveDebator.class, probe), mock(ConservativeDebator.class, probe),
+                mock(NeutralDebator.class, probe), mock(ResearchManager.class, probe), mock(RiskManager.class, probe),
+                reflectionService, memoryService, situationMemory, appConfig, parallelExecutor, workflowExecutor);
+        
+        try {
+            new BacktestRunner(tradingGraph, dataAggregator, appConfig).run("TEST", START, START.plusDays(4));
+        } finally {
+            parallelExecutor.shutdown();
+            workflowExecutor.shutdown();
+            httpClientManager.shutdown();
+        }
+        
+        assertEquals(5, replayed.stream().distinct().count());
+        assertTrue(leaks.isEmpty(), String.join("\n", leaks));
+        verify(memoryService, never()).saveDecision(any());
+        verify(situationMemory, never()).recordAsync(any());
+        verify(reflectionService, never()).reflectInBackground(any());
+    }
+    
+    private static NewsData news(LocalDate date) {
+        return NewsData.builder()
+                .title("news " + date)
+                .summary("summary")
+                .publishedAt(date.atTime(9, 30))
+                .build();
+    }
+    
+    /**
+     * 每个自然日一根K线的数据源
+     */
+    private static class DailyProvider implements DataProvider {
+        
+        @Override
+        public BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
+            BarSeries.Builder builder = BarSeries.builder(symbol);
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                double close = 100 + date.getDayOfYear() % 17;
+                builder.add(date, close, close, close, close, close, 1000L);
+            }
+            return builder.build();
+        }
+        
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+        
+        @Override
+        public String getProviderName() {
+            return "daily";
+        }
+    }
+}
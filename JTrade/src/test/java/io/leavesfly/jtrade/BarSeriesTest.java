@@ -0,0 +1,82 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import io.leavesfly.jtrade.dataflow.model.MarketData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式K线序列测试
+ * 
+ * @author 山泽
+ */
+public class BarSeriesTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    
+    private BarSeries series(int days, double closeOffset) {
+        BarSeries.Builder builder = BarSeries.builder("AAPL");
+        for (int i = 0; i < days; i++) {
+            builder.add(START.plusDays(i), 10, 11, 9, i + closeOffset, i + closeOffset, 100 + i);
+        }
+        return builder.build();
+    }
+    
+    @Test
+    public void testSliceAndTailAreViews() {
+        BarSeries series = series(10, 0);
+        
+        BarSeries slice = series.slice(START.plusDays(3), START.plusDays(6));
+        assertEquals(4, slice.size());
+        assertEquals(START.plusDays(3), slice.getStartDate());
+        assertEquals(6.0, slice.lastClose());
+        
+        BarSeries tail = slice.tail(2);
+        assertEquals(2, tail.size());
+        assertEquals(5.0, tail.getClose(0));
+        
+        assertEquals(6, series.asOf(START.plusDays(5)).size());
+        assertTrue(series.slice(START.plusDays(20), START.plusDays(30)).isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getClose(4));
+    }
+    
+    @Test
+    public void testMergePrefersNewerBars() {
+        BarSeries older = series(5, 0);
+        BarSeries newer = BarSeries.builder("AAPL")
+                .add(START.plusDays(4), 10, 11, 9, 40, 40, 1)
+                .add(START.plusDays(5), 10, 11, 9, 50, 50, 1)
+                .build();
+        
+        BarSeries merged = older.merge(newer);
+        
+        assertEquals(6, merged.size());
+        assertEquals(3.0, merged.getClose(3));
+        assertEquals(40.0, merged.getClose(4));
+        assertEquals(50.0, merged.lastClose());
+    }
+    
+    @Test
+    public void testUnorderedInputIsSortedAndConvertedBack() {
+        List<MarketData> bars = List.of(
+                MarketData.builder().date(START.plusDays(2)).close(BigDecimal.valueOf(3)).volume(7L).build(),
+                MarketData.builder().date(START).close(BigDecimal.valueOf(1)).build());
+        
+        BarSeries series = BarSeries.fromMarketData("MSFT", bars);
+        
+        assertEquals(START, series.getStartDate());
+        assertTrue(Double.isNaN(series.getOpen(0)));
+        assertEquals(-1, series.getVolume(0));
+        
+        List<MarketData> roundTrip = series.toMarketDataList();
+        assertNull(roundTrip.get(0).getOpen());
+        assertNull(roundTrip.get(0).getVolume());
+        assertEquals(7L, roundTrip.get(1).getVolume());
+        assertEquals(3.0, roundTrip.get(1).getClose().doubleValue());
+    }
+}
@@ -0,0 +1,176 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.analysts.BatchAnalyst;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.core.prompt.PromptManager;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.dataflow.model.NewsData;
+import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量分析师测试
+ * 
+ * @author 山泽
+ */
+public class BatchAnalystTest {
+    
+    private static final Pattern SYMBOL_BLOCK = Pattern.compile("=== ([A-Z]+) ===");
+    
+    private final List<String> symbols = List.of("AAPL", "MSFT", "GOOGL", "TSLA", "NVDA");
+    
+    /**
+     * 每次请求包含的股票
+     */
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    
+    private HttpClientManager httpClientManager;
+    private BatchAnalyst batchAnalyst;
+    private Function<List<String>, String> responder;
+    private final AtomicInteger fetching = new AtomicInteger();
+    private final AtomicInteger maxFetching = new AtomicInteger();
+    private final Set<String> fetchThreads = ConcurrentHashMap.newKeySet();
+    
+    @BeforeEach
+    public void setUp() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getScreening().setBatchSize(2);
+        appConfig.getScreening().setFetchConcurrency(2);
+        httpClientManager = new HttpClientManager(appConfig);
+        
+        DataAggregator dataAggregator = new DataAggregator(List.of(), null, null, httpClientManager) {
+            @Override
+            public List<NewsData> getNewsData(String symbol, int limit) {
+                maxFetching.accumulateAndGet(fetching.incrementAndGet(), Math::max);
+                fetchThreads.add(Thread.currentThread().getName());
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    fetching.decrementAndGet();
+                }
+                return List.of(NewsData.builder().title(symbol + " 发布财报").sentimentScore(0.6).build());
+            }
+            
+            @Override
+            public Map<String, Object> getSocialMediaSentiment(String symbol) {
+                return Map.of("symbol", symbol, "overall_sentiment", "positive");
+            }
+        };
+        
+        LlmClient fake = (messages, config) -> {
+            List<String> requested = new ArrayList<>();
+            Matcher matcher = SYMBOL_BLOCK.matcher(messages.get(messages.size() - 1).getContent());
+            while (matcher.find()) {
+                requested.add(matcher.group(1));
+            }
+            requests.add(requested);
+            return LlmResponse.builder().content(responder.apply(requested)).build();
+        };
+        
+        batchAnalyst = new BatchAnalyst(fake, dataAggregator, new PromptManager(), appConfig,
+                new ModelSelector(new LlmConfig()));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        batchAnalyst.shutdown();
+        httpClientManager.shutdown();
+    }
+    
+    @Test
+    public void testSymbolsArePackedIntoBatches() {
+        responder = BatchAnalystTest::sections;
+        
+        Map<String, String> reports = batchAnalyst.analyze(BatchAnalyst.Mode.NEWS, symbols);
+        
+        assertEquals(3, requests.size());
+        assertEquals(symbols, List.copyOf(reports.keySet()));
+        for (String symbol : symbols) {
+            assertEquals("【新闻分析师（批量）】\n" + symbol + " 建议：观望", reports.get(symbol));
+        }
+    }
+    
+    @Test
+    public void testMissingSectionFallsBackToSingleRequest() {
+        // 多股票请求中漏掉 MSFT，单股票请求不带标题直接回答
+        responder = requested -> requested.size() == 1
+                ? "单独分析 " + requested.get(0)
+                : sections(requested.stream().filter(s -> !s.equals("MSFT")).toList());
+        
+        Map<String, String> reports = batchAnalyst.analyze(BatchAnalyst.Mode.SOCIAL, symbols);
+        
+        assertEquals(4, requests.size());
+        assertTrue(requests.contains(List.of("MSFT")));
+        assertEquals("【社交媒体分析师（批量）】\n单独分析 MSFT", reports.get("MSFT"));
+        assertEquals("【社交媒体分析师（批量）】\nAAPL 建议：观望", reports.get("AAPL"));
+    }
+    
+    @Test
+    public void testScreenBuildsStatesWithBothReports() {
+        responder = requested -> requested.size() > 1 ? "无法按格式输出" : sections(requested);
+        
+        List<AgentState> states = batchAnalyst.screen(List.of("AAPL", "MSFT"), LocalDate.of(2024, 1, 2));
+        
+        // 每种模式 1 个批量请求全部解析失败，再各回退 2 个单股票请求
+        assertEquals(6, requests.size());
+        assertEquals(2, states.size());
+        assertEquals("MSFT", states.get(1).getCompany());
+        assertEquals(List.of("【新闻分析师（批量）】\nMSFT 建议：观望", "【社交媒体分析师（批量）】\nMSFT 建议：观望"),
+                List.copyOf(states.get(1).getAnalystReports()));
+    }
+    
+    @Test
+    public void testDataIsFetchedInParallelWithinBound() {
+        responder = BatchAnalystTest::sections;
+        
+        batchAnalyst.analyze(BatchAnalyst.Mode.NEWS, symbols);
+        
+        assertEquals(2, maxFetching.get());
+        assertFalse(fetchThreads.contains(Thread.currentThread().getName()));
+    }
+    
+    @Test
+    public void testSubHeadingsStayInCurrentSection() {
+        responder = requested -> requested.size() == 1
+                ? sections(requested)
+                : "### AAPL\n利好\n### Summary\n整体偏多\n### MSFT\n观望\n";
+        
+        Map<String, String> reports = batchAnalyst.analyze(BatchAnalyst.Mode.NEWS, List.of("AAPL", "MSFT"));
+        
+        assertEquals(1, requests.size());
+        assertEquals("【新闻分析师（批量）】\n利好\n### Summary\n整体偏多", reports.get("AAPL"));
+        assertEquals("【新闻分析师（批量）】\n观望", reports.get("MSFT"));
+    }
+    
+    private static String sections(List<String> requested) {
+        StringBuilder sb = new StringBuilder();
+        for (String symbol : requested) {
+            sb.append("### ").append(symbol).append("\n").append(symbol).append(" 建议：观望\n\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.client.CachingLlmClient;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM响应缓存测试
+ * 
+ * @author 山泽
+ */
+public class CachingLlmClientTest {
+    
+    @TempDir
+    Path cacheDir;
+    
+    private final AtomicInteger calls = new AtomicInteger();
+    
+    private final LlmClient countingClient = (messages, config) -> LlmResponse.builder()
+            .content("reply-" + calls.incrementAndGet())
+            .model(config.getModel())
+            .build();
+    
+    private CachingLlmClient newClient() {
+        return newClient(countingClient);
+    }
+    
+    @Test
+    public void testIdenticalRequestIsServedFromMemory() {
+        CachingLlmClient client = newClient();
+        List<LlmMessage> messages = List.of(LlmMessage.user("分析 AAPL"));
+        ModelConfig config = ModelConfig.builder().model("qwen-turbo").build();
+        
+        LlmResponse first = client.chat(messages, config);
+        LlmResponse second = client.chat(messages, config);
+        
+        assertEquals(first.getContent(), second.getContent());
+        assertEquals(1, calls.get());
+        assertEquals(1, client.getStats().getMemoryHits());
+        assertEquals(1, client.getStats().getMisses());
+    }
+    
+    @Test
+    public void testDiskTierSurvivesRestart() {
+        List<LlmMessage> messages = List.of(LlmMessage.user("分析 TSLA"));
+        ModelConfig config = ModelConfig.builder().model("qwen-turbo").build();
+        
+        String content = newClient().chat(messages, config).getContent();
+        
+        CachingLlmClient restarted = newClient();
+        assertEquals(content, restarted.chat(messages, config).getContent());
+        assertEquals(1, calls.get());
+        assertEquals(1, restarted.getStats().getDiskHits());
+    }
+    
+    @Test
+    public void testModelParametersArePartOfKey() {
+        CachingLlmClient client = newClient();
+        List<LlmMessage> messages = List.of(LlmMessage.user("分析 NVDA"));
+        
+        client.chat(messages, ModelConfig.builder().model("qwen-turbo").temperature(0.7).build());
+        client.chat(messages, ModelConfig.builder().model("qwen-turbo").temperature(0.2).build());
+        client.chat(messages, ModelConfig.builder().model("qwen-plus").temperature(0.7).build());
+        
+        assertEquals(3, calls.get());
+    }
+    
+    @Test
+    public void testEntriesAreKeyedByServingProvider() {
+        List<LlmMessage> messages = List.of(LlmMessage.user("分析 MSFT"));
+        ModelConfig config = ModelConfig.builder().model("qwen-plus").build();
+        LlmClient.ServingTarget qwen = new LlmClient.ServingTarget("qwen", "qwen-plus");
+        LlmClient.ServingTarget deepseek = new LlmClient.ServingTarget("deepseek", "deepseek-reasoner");
+        
+        // 路由把请求交给了次选提供商，结果按 deepseek 写入
+        CachingLlmClient routed = newClient(routingClient(List.of(qwen, deepseek), "deepseek"));
+        String content = routed.chat(messages, config).getContent();
+        assertEquals(content, routed.chat(messages, config).getContent());
+        assertEquals(1, calls.get());
+        
+        // 只使用主提供商时不会取到 deepseek 的结果
+        CachingLlmClient primaryOnly = newClient(routingClient(List.of(qwen), "qwen"));
+        assertNotEquals(content, primaryOnly.chat(messages, config).getContent());
+        assertEquals(2, calls.get());
+    }
+    
+    @Test
+    public void testInFlightFollowerReplaysToItsListeners() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CachingLlmClient client = newClient((messages, config) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LlmResponse.builder().content("reply-" + calls.incrementAndGet()).build();
+        });
+        List<LlmMessage> messages = List.of(LlmMessage.user("分析 AMZN"));
+        ModelConfig config = ModelConfig.builder().model("qwen-turbo").build();
+        
+        CompletableFuture<LlmResponse> leader = CompletableFuture.supplyAsync(() -> client.chat(messages, config));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        
+        // 第二个调用方在首个请求进行中到达，等待共享结果
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        LlmClient.StreamCallback listener = chunks::add;
+        CompletableFuture<LlmResponse> follower = new CompletableFuture<>();
+        Thread followerThread = new Thread(() -> follower.complete(
+                StreamListeners.with(List.of(listener), () -> client.chat(messages, config))));
+        followerThread.start();
+        while (followerThread.getState() != Thread.State.WAITING && !follower.isDone()) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        
+        assertEquals("reply-1", leader.get(5, TimeUnit.SECONDS).getContent());
+        assertEquals("reply-1", follower.get(5, TimeUnit.SECONDS).getContent());
+        assertEquals(1, calls.get());
+        assertEquals(List.of("reply-1"), chunks);
+    }
+    
+    private CachingLlmClient newClient(LlmClient delegate) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.setDataCacheDir(cacheDir.toString());
+        return new CachingLlmClient(delegate, new LlmConfig(), appConfig);
+    }
+    
+    private LlmClient routingClient(List<LlmClient.ServingTarget> targets, String servedBy) {
+        return new LlmClient() {
+            @Override
+            public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+                return LlmResponse.builder()
+                        .content("reply-" + calls.incrementAndGet())
+                        .provider(servedBy)
+                        .build();
+            }
+            
+            @Override
+            public List<ServingTarget> servingTargets(ModelConfig config) {
+                return targets;
+            }
+        };
+    }
+}
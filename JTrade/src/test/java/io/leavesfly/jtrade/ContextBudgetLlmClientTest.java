@@ -0,0 +1,98 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.client.ContextBudgetLlmClient;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上下文预算客户端测试
+ * 
+ * @author 山泽
+ */
+public class ContextBudgetLlmClientTest {
+    
+    private static final ModelConfig CONFIG = ModelConfig.builder()
+            .model("test-model")
+            .maxTokens(100)
+            .maxContextTokens(1200)
+            .build();
+    
+    private final FakeClient delegate = new FakeClient();
+    private final ContextBudgetLlmClient client = new ContextBudgetLlmClient(delegate, new LlmConfig());
+    
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+    }
+    
+    private List<LlmMessage> longPrompt() {
+        List<String> lines = new ArrayList<>();
+        lines.add("基于交易计划与当前辩论内容提出你的主张。");
+        for (int i = 1; i <= 40; i++) {
+            lines.add("【激进观点】第" + i + "轮发言：" + "看涨理由".repeat(50));
+        }
+        lines.add("请给出最终主张。");
+        return List.of(LlmMessage.system("你是风险分析师。"), LlmMessage.user(String.join("\n", lines)));
+    }
+    
+    @Test
+    public void testSummaryIsNotStreamedToBoundListeners() {
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        LlmClient.StreamCallback listener = chunks::add;
+        
+        LlmResponse response = StreamListeners.with(List.of(listener), () -> client.chat(longPrompt(), CONFIG));
+        
+        assertEquals("回答", response.getContent());
+        assertEquals(1, client.getCompactedRequests());
+        assertTrue(delegate.summaries > 0);
+        // 只有最终回答输出到监听器，压缩时的摘要请求不输出
+        assertEquals(List.of("回答"), chunks);
+    }
+    
+    @Test
+    public void testAsyncCompactionRunsOnDedicatedThreads() {
+        LlmResponse response = client.chatAsync(longPrompt(), CONFIG).join();
+        
+        assertEquals("回答", response.getContent());
+        assertFalse(delegate.summaryThreads.isEmpty());
+        for (String thread : delegate.summaryThreads) {
+            assertTrue(thread.startsWith("jtrade-context-"), thread);
+        }
+    }
+    
+    /**
+     * 模拟下游客户端：绑定了流式监听器时与 SimpleLlmClient 一样把内容输出给监听器
+     */
+    private static final class FakeClient implements LlmClient {
+        
+        private volatile int summaries;
+        private final List<String> summaryThreads = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+            boolean summary = messages.get(0).getContent().startsWith("请把以下内容压缩");
+            String content = summary ? "摘要" : "回答";
+            if (summary) {
+                summaries++;
+                summaryThreads.add(Thread.currentThread().getName());
+            }
+            StreamCallback listener = StreamListeners.current();
+            if (listener != null) {
+                listener.onChunk(content);
+            }
+            return LlmResponse.builder().content(content).build();
+        }
+    }
+}
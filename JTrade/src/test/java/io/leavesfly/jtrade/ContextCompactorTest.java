@@ -0,0 +1,81 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.llm.context.ContextCompactor;
+import io.leavesfly.jtrade.llm.context.TokenEstimator;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上下文压缩测试
+ * 
+ * @author 山泽
+ */
+public class ContextCompactorTest {
+    
+    private final AtomicInteger summaries = new AtomicInteger();
+    
+    private final Function<String, String> summarizer = text -> {
+        summaries.incrementAndGet();
+        return "摘要" + text.length();
+    };
+    
+    private List<LlmMessage> debatePrompt(int turns) {
+        List<String> lines = new ArrayList<>();
+        lines.add("基于交易计划与当前辩论内容提出你的主张。");
+        for (int i = 1; i <= turns; i++) {
+            lines.add("【激进观点】第" + i + "轮发言：" + "看涨理由".repeat(50));
+        }
+        lines.add("请给出最终主张。");
+        return List.of(LlmMessage.system("你是风险分析师。"), LlmMessage.user(String.join("\n", lines)));
+    }
+    
+    @Test
+    public void testMessagesWithinBudgetAreUntouched() {
+        List<LlmMessage> messages = debatePrompt(2);
+        ContextCompactor compactor = new ContextCompactor(50, 10);
+        
+        assertSame(messages, compactor.compact(messages, 10_000, summarizer));
+        assertEquals(0, summaries.get());
+    }
+    
+    @Test
+    public void testOlderTurnsAreSummarizedAndRecentKept() {
+        List<LlmMessage> messages = debatePrompt(20);
+        ContextCompactor compactor = new ContextCompactor(50, 10);
+        int budget = TokenEstimator.estimate(messages) / 2;
+        
+        List<LlmMessage> compacted = compactor.compact(messages, budget, summarizer);
+        
+        assertTrue(TokenEstimator.estimate(compacted) <= budget);
+        assertEquals(messages.get(0), compacted.get(0));
+        String content = compacted.get(1).getContent();
+        assertTrue(content.startsWith("基于交易计划与当前辩论内容提出你的主张。\n【前文摘要】摘要"));
+        assertFalse(content.contains("第1轮发言"));
+        assertTrue(content.contains("第20轮发言"));
+        assertTrue(content.endsWith("请给出最终主张。"));
+        
+        // 相同的旧内容再次出现时复用摘要
+        compactor.compact(messages, budget, summarizer);
+        assertEquals(1, summaries.get());
+    }
+    
+    @Test
+    public void testFailedSummaryFallsBackToExcerpt() {
+        List<LlmMessage> messages = debatePrompt(20);
+        ContextCompactor compactor = new ContextCompactor(50, 10);
+        
+        List<LlmMessage> compacted = compactor.compact(messages, TokenEstimator.estimate(messages) / 2, text -> {
+            throw new IllegalStateException("LLM unavailable");
+        });
+        
+        assertTrue(compacted.get(1).getContent().contains("【前文摘要】【激进观点】第1轮发言"));
+        assertTrue(compacted.get(1).getContent().contains("（省略 "));
+    }
+}
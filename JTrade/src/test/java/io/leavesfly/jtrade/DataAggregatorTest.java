@@ -0,0 +1,94 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import io.leavesfly.jtrade.dataflow.provider.DataAggregator;
+import io.leavesfly.jtrade.dataflow.provider.DataProvider;
+import io.leavesfly.jtrade.dataflow.store.MarketDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据聚合器技术指标测试
+ * 
+ * @author 山泽
+ */
+public class DataAggregatorTest {
+    
+    private static final LocalDate EARLY = LocalDate.of(2024, 3, 1);
+    private static final LocalDate LATE = LocalDate.of(2024, 6, 3);
+    
+    @TempDir
+    Path cacheDir;
+    
+    private final List<HttpClientManager> httpClientManagers = new ArrayList<>();
+    
+    @AfterEach
+    public void tearDown() {
+        httpClientManagers.forEach(HttpClientManager::shutdown);
+    }
+    
+    @Test
+    public void testIndicatorsDoNotDependOnQueryOrder() {
+        DataAggregator lateFirst = newAggregator("late-first");
+        Map<String, Double> lateThenLate = lateFirst.getTechnicalIndicators("AAPL", LATE);
+        Map<String, Double> lateThenEarly = lateFirst.getTechnicalIndicators("AAPL", EARLY);
+        
+        DataAggregator earlyFirst = newAggregator("early-first");
+        Map<String, Double> earlyThenEarly = earlyFirst.getTechnicalIndicators("AAPL", EARLY);
+        Map<String, Double> earlyThenLate = earlyFirst.getTechnicalIndicators("AAPL", LATE);
+        
+        assertEquals(earlyThenEarly, lateThenEarly);
+        assertEquals(lateThenLate, earlyThenLate);
+        assertNotEquals(earlyThenEarly.get("RSI"), earlyThenLate.get("RSI"));
+        
+        // 缓存命中返回相同结果，且调用方修改返回值不影响缓存
+        earlyThenLate.put("RSI", -1.0);
+        assertEquals(lateThenLate, earlyFirst.getTechnicalIndicators("AAPL", LATE));
+    }
+    
+    private DataAggregator newAggregator(String name) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.setDataCacheDir(cacheDir.resolve(name).toString());
+        HttpClientManager httpClientManager = new HttpClientManager(appConfig);
+        httpClientManagers.add(httpClientManager);
+        return new DataAggregator(List.of(new SyntheticProvider()), null,
+                new MarketDataStore(appConfig), httpClientManager);
+    }
+    
+    /**
+     * 按日期确定性生成收盘价的数据源
+     */
+    private static class SyntheticProvider implements DataProvider {
+        
+        @Override
+        public BarSeries fetchBarSeries(String symbol, LocalDate startDate, LocalDate endDate) {
+            BarSeries.Builder builder = BarSeries.builder(symbol);
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                double close = 100 + 10 * Math.sin(date.toEpochDay() / 7.0) + (date.toEpochDay() % 30) * 0.2;
+                builder.add(date, close, close, close, close, close, 1000L);
+            }
+            return builder.build();
+        }
+        
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+        
+        @Override
+        public String getProviderName() {
+            return "synthetic";
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.leavesfly.jtrade;
+
+import com.sun.net.httpserver.HttpServer;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共享HTTP客户端测试
+ * 
+ * @author 山泽
+ */
+public class HttpClientManagerTest {
+    
+    private HttpServer server;
+    private HttpClientManager manager;
+    private String url;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        manager = new HttpClientManager(new AppConfig());
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        manager.shutdown();
+        server.stop(0);
+    }
+    
+    @Test
+    public void testDerivedClientsReuseSharedConnections() throws IOException {
+        OkHttpClient llmClient = manager.newClient("llm", Duration.ofSeconds(30), 4);
+        
+        for (int i = 0; i < 3; i++) {
+            call(manager.getClient());
+            call(llmClient);
+        }
+        
+        HttpClientManager.HttpStats stats = manager.getStats();
+        assertEquals(6, stats.getMetrics().getCalls());
+        assertEquals(1, stats.getMetrics().getConnectionsOpened());
+        assertEquals(5, stats.getMetrics().getConnectionsReused());
+        assertEquals(1, stats.getPooledConnections());
+        assertEquals(Duration.ofSeconds(30).toMillis(), llmClient.readTimeoutMillis());
+        assertNotSame(manager.getClient().dispatcher(), llmClient.dispatcher());
+        assertEquals(4, llmClient.dispatcher().getMaxRequestsPerHost());
+    }
+    
+    private void call(OkHttpClient client) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            assertEquals("ok", response.body().string());
+        }
+    }
+}
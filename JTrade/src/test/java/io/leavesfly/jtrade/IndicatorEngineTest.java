@@ -0,0 +1,104 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.dataflow.indicator.IndicatorEngine;
+import io.leavesfly.jtrade.dataflow.indicator.RsiIndicator;
+import io.leavesfly.jtrade.dataflow.indicator.SmaIndicator;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量技术指标测试
+ * 
+ * @author 山泽
+ */
+public class IndicatorEngineTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    
+    private BarSeries series(int days) {
+        BarSeries.Builder builder = BarSeries.builder("AAPL");
+        for (int i = 0; i < days; i++) {
+            double close = 100 + 10 * Math.sin(i / 5.0) + i * 0.1;
+            builder.add(START.plusDays(i), close, close, close, close, close, 1000);
+        }
+        return builder.build();
+    }
+    
+    @Test
+    public void testRollingSmaMatchesDirectComputation() {
+        BarSeries series = series(80);
+        SmaIndicator sma = new SmaIndicator(20);
+        
+        for (int i = 0; i < series.size(); i++) {
+            sma.update(series.getClose(i));
+            
+            int from = Math.max(0, i - 19);
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (int j = from; j <= i; j++) {
+                sum += series.getClose(j);
+            }
+            double mean = sum / (i - from + 1);
+            for (int j = from; j <= i; j++) {
+                sumOfSquares += Math.pow(series.getClose(j) - mean, 2);
+            }
+            
+            assertEquals(mean, sma.value(), 1e-9);
+            assertEquals(Math.sqrt(sumOfSquares / (i - from + 1)), sma.standardDeviation(), 1e-6);
+        }
+    }
+    
+    @Test
+    public void testWilderRsiBounds() {
+        RsiIndicator rsi = new RsiIndicator(14);
+        for (int i = 0; i < 14; i++) {
+            rsi.update(i);
+            assertEquals(50.0, rsi.value());
+        }
+        rsi.update(14);
+        assertEquals(100.0, rsi.value());
+        
+        for (int i = 0; i < 100; i++) {
+            rsi.update(14 - i);
+        }
+        assertTrue(rsi.value() < 5.0);
+    }
+    
+    @Test
+    public void testIncrementalUpdatesMatchReplay() {
+        BarSeries series = series(150);
+        
+        IndicatorEngine incremental = IndicatorEngine.replay(series.view(0, 100));
+        incremental.update(series);
+        IndicatorEngine replayed = IndicatorEngine.replay(series);
+        
+        assertEquals(150, incremental.getBarCount());
+        assertTrue(incremental.isReady());
+        replayed.values().forEach((key, value) ->
+                assertEquals(value, incremental.values().get(key), 1e-9, key));
+    }
+    
+    @Test
+    public void testSnapshotRestore() {
+        BarSeries series = series(120);
+        IndicatorEngine engine = IndicatorEngine.replay(series.view(0, 100));
+        Map<String, Double> before = engine.values();
+        IndicatorEngine.Snapshot snapshot = engine.snapshot();
+        
+        engine.update(series);
+        assertNotEquals(before.get("SMA_20"), engine.values().get("SMA_20"));
+        
+        engine.restore(snapshot);
+        assertEquals(before, engine.values());
+        assertEquals(snapshot.getLastEpochDay(), engine.getLastEpochDay());
+        
+        // 快照恢复后再次推进，结果与首次推进一致
+        engine.update(series);
+        assertEquals(IndicatorEngine.replay(series).values(), engine.values());
+    }
+}
@@ -0,0 +1,83 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM客户端限流测试
+ * 
+ * @author 山泽
+ */
+public class LlmRateLimiterTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    private LlmConfig llmConfig;
+    private LlmRateLimiter limiter;
+    
+    @BeforeEach
+    public void setUp() {
+        llmConfig = new LlmConfig();
+        llmConfig.setProvider("qwen");
+        llmConfig.getQwen().setRequestsPerMinute(60);
+        llmConfig.getQwen().setTokensPerMinute(6000);
+        limiter = new LlmRateLimiter(llmConfig, now::get);
+    }
+    
+    @Test
+    public void testRequestsQueueInArrivalOrder() {
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.reserve("qwen", "qwen-turbo", 10));
+        }
+        assertEquals(1000, limiter.reserve("qwen", "qwen-turbo", 10));
+        assertEquals(2000, limiter.reserve("qwen", "qwen-turbo", 10));
+        
+        // 不同模型互不影响
+        assertEquals(0, limiter.reserve("qwen", "qwen-plus", 10));
+        
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1000, limiter.reserve("qwen", "qwen-turbo", 10));
+    }
+    
+    @Test
+    public void testTokenBudgetIsCorrectedByActualUsage() {
+        assertEquals(0, limiter.reserve("qwen", "qwen-plus", 4000));
+        assertEquals(20_000, limiter.reserve("qwen", "qwen-plus", 4000));
+        
+        // 实际只用了 1000，退还 3000
+        limiter.onUsage("qwen", "qwen-plus", 4000, 1000);
+        assertEquals(30_000, limiter.reserve("qwen", "qwen-plus", 4000));
+    }
+    
+    @Test
+    public void testResponseHeadersAdjustLimits() {
+        limiter.onResponse("qwen", "qwen-plus", Map.of(
+                "Retry-After", "3",
+                "x-ratelimit-limit-requests", "120",
+                "x-ratelimit-limit-tokens", "12000")::get);
+        
+        assertArrayEquals(new long[]{120, 12000}, limiter.getLimits("qwen", "qwen-plus"));
+        assertEquals(3000, limiter.reserve("qwen", "qwen-plus", 10));
+        
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        limiter.onResponse("qwen", "qwen-plus", Map.of(
+                "x-ratelimit-remaining-tokens", "0",
+                "x-ratelimit-reset-tokens", "1m30s")::get);
+        assertEquals(90_000, limiter.reserve("qwen", "qwen-plus", 10));
+    }
+    
+    @Test
+    public void testDisabledLimiterNeverWaits() {
+        llmConfig.getRateLimit().setEnabled(false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.reserve("qwen", "qwen-turbo", 1000));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.dataflow.model.BarSeries;
+import io.leavesfly.jtrade.dataflow.store.MarketDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地行情存储测试
+ * 
+ * @author 山泽
+ */
+public class MarketDataStoreTest {
+    
+    @TempDir
+    Path cacheDir;
+    
+    private final List<LocalDate[]> requests = new ArrayList<>();
+    
+    private final BiFunction<LocalDate, LocalDate, BarSeries> fetcher = (from, to) -> {
+        requests.add(new LocalDate[]{from, to});
+        BarSeries.Builder builder = BarSeries.builder("TEST");
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            builder.add(date, 100, 101, 99, date.getDayOfMonth(), date.getDayOfMonth(), 1000L);
+        }
+        return builder.build();
+    };
+    
+    private MarketDataStore newStore() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.setDataCacheDir(cacheDir.toString());
+        return new MarketDataStore(appConfig);
+    }
+    
+    @Test
+    public void testOnlyMissingRangesAreFetched() {
+        MarketDataStore store = newStore();
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        
+        store.getBarSeries("AAPL", start, start.plusDays(9), fetcher);
+        BarSeries widened = store.getBarSeries("AAPL", start.minusDays(5), start.plusDays(14), fetcher);
+        
+        assertEquals(20, widened.size());
+        assertEquals(3, requests.size());
+        assertArrayEquals(new LocalDate[]{start.minusDays(5), start.minusDays(1)}, requests.get(1));
+        assertArrayEquals(new LocalDate[]{start.plusDays(10), start.plusDays(14)}, requests.get(2));
+    }
+    
+    @Test
+    public void testStoreIsReloadedFromDisk() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        newStore().getBarSeries("MSFT", start, start.plusDays(9), fetcher);
+        
+        BarSeries reloaded = newStore().getBarSeries("MSFT", start.plusDays(2), start.plusDays(4), fetcher);
+        
+        assertEquals(1, requests.size());
+        assertEquals(3, reloaded.size());
+        assertEquals("MSFT", reloaded.getSymbol());
+        assertEquals(start.plusDays(2), reloaded.getDate(0));
+        assertEquals(3.0, reloaded.getClose(0));
+        assertEquals(1000L, reloaded.getVolume(0));
+    }
+    
+    @Test
+    public void testTodayIsRefetched() {
+        MarketDataStore store = newStore();
+        LocalDate today = LocalDate.now();
+        
+        store.getBarSeries("TSLA", today.minusDays(5), today, fetcher);
+        store.getBarSeries("TSLA", today.minusDays(5), today, fetcher);
+        
+        assertEquals(2, requests.size());
+        assertArrayEquals(new LocalDate[]{today, today}, requests.get(1));
+    }
+}
@@ -0,0 +1,146 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.memory.MemoryService.DecisionMemory;
+import io.leavesfly.jtrade.core.state.AgentState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 持久化决策记忆测试
+ * 
+ * @author 山泽
+ */
+public class MemoryServiceTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 2);
+    
+    @TempDir
+    Path tempDir;
+    
+    private AppConfig appConfig;
+    
+    @BeforeEach
+    public void setUp() {
+        appConfig = new AppConfig();
+        appConfig.setDataDir(tempDir.toString());
+        appConfig.getMemory().setMaxPerSymbol(3);
+    }
+    
+    @Test
+    public void testRingBufferKeepsNewestMemories() {
+        MemoryService memoryService = new MemoryService(appConfig);
+        for (int i = 0; i < 5; i++) {
+            memoryService.saveDecision(state("AAPL", START.plusDays(i), i % 2 == 0 ? "BUY" : "SELL"));
+        }
+        
+        List<DecisionMemory> history = memoryService.getHistory("AAPL");
+        assertEquals(3, history.size());
+        assertEquals(START.plusDays(2), history.get(0).getDate());
+        assertEquals(START.plusDays(4), memoryService.getLatestDecision("AAPL").get().getDate());
+        assertTrue(memoryService.getDecision("AAPL", START.plusDays(1)).isEmpty());
+        assertEquals("SELL", memoryService.getDecision("AAPL", START.plusDays(3)).get().getFinalSignal());
+        memoryService.close();
+    }
+    
+    @Test
+    public void testMemoriesSurviveRestart() throws Exception {
+        MemoryService memoryService = new MemoryService(appConfig);
+        memoryService.saveDecision(state("AAPL", START, "BUY").addReflection("反思：估值偏高"));
+        memoryService.saveDecision(state("MSFT", START, "HOLD"));
+        memoryService.saveDecision(state("TSLA", START, "SELL"));
+        memoryService.clearHistory("TSLA");
+        memoryService.close();
+        
+        // 模拟写入中途退出留下的残缺记录
+        Path log = tempDir.resolve("memory").resolve("decisions.log");
+        Files.write(log, new byte[]{0, 0, 1, 0, 1, 2}, StandardOpenOption.APPEND);
+        
+        MemoryService reloaded = new MemoryService(appConfig);
+        assertEquals(Set.of("AAPL", "MSFT"), reloaded.getAllSymbols());
+        DecisionMemory aapl = reloaded.getDecision("AAPL", START).get();
+        assertEquals("BUY", aapl.getFinalSignal());
+        assertEquals(List.of("反思：估值偏高"), aapl.getReflections());
+        
+        // 截断残缺记录后可以继续追加
+        reloaded.saveDecision(state("MSFT", START.plusDays(1), "BUY"));
+        reloaded.close();
+        MemoryService again = new MemoryService(appConfig);
+        assertEquals(2, again.getHistoryCount("MSFT"));
+        again.close();
+    }
+    
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        appConfig.getMemory().setMaxPerSymbol(100);
+        MemoryService memoryService = new MemoryService(appConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            LocalDate date = START.plusDays(i / 4);
+            String symbol = i % 2 == 0 ? "AAPL" : "MSFT";
+            futures.add(CompletableFuture.runAsync(
+                    () -> memoryService.saveDecision(state(symbol, date, "HOLD")), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+        memoryService.close();
+        
+        assertEquals(100, memoryService.getHistoryCount("AAPL"));
+        MemoryService reloaded = new MemoryService(appConfig);
+        assertEquals(100, reloaded.getHistoryCount("AAPL"));
+        assertEquals(100, reloaded.getHistoryCount("MSFT"));
+        reloaded.close();
+    }
+    
+    @Test
+    public void testClearAllDuringWritesMatchesLog() throws Exception {
+        appConfig.getMemory().setMaxPerSymbol(1000);
+        MemoryService memoryService = new MemoryService(appConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int n = i;
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (n % 50 == 49) {
+                    memoryService.clearAllHistory();
+                } else {
+                    memoryService.saveDecision(state(n % 2 == 0 ? "AAPL" : "MSFT", START.plusDays(n), "HOLD"));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        executor.shutdown();
+        memoryService.close();
+        
+        // 回放日志得到的记忆与内存中的一致
+        MemoryService reloaded = new MemoryService(appConfig);
+        for (String symbol : List.of("AAPL", "MSFT")) {
+            assertEquals(memoryService.getHistory(symbol), reloaded.getHistory(symbol));
+        }
+        reloaded.close();
+    }
+    
+    private static AgentState state(String symbol, LocalDate date, String signal) {
+        return AgentState.builder()
+                .company(symbol)
+                .date(date)
+                .finalSignal(signal)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import io.leavesfly.jtrade.llm.tier.ModelTier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型分档测试
+ * 
+ * @author 山泽
+ */
+public class ModelSelectorTest {
+    
+    private ModelSelector selector;
+    
+    /**
+     * 回显请求模型名称的客户端
+     */
+    private final LlmClient echo = (messages, config) -> LlmResponse.builder().content(config.getModel()).build();
+    
+    private final List<LlmMessage> messages = List.of(LlmMessage.user("test"));
+    
+    @BeforeEach
+    public void setUp() {
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.setProvider("qwen");
+        llmConfig.getQwen().setDeepModel("qwen-plus");
+        llmConfig.getQwen().setQuickModel("qwen-turbo");
+        selector = new ModelSelector(llmConfig);
+    }
+    
+    @Test
+    public void testDefaultTiers() {
+        assertEquals(ModelTier.DEEP, selector.tierOf(AgentType.RESEARCH_MANAGER));
+        assertEquals(ModelTier.DEEP, selector.tierOf(AgentType.RISK_MANAGER));
+        assertEquals(ModelTier.QUICK, selector.tierOf(AgentType.SOCIAL_MEDIA_ANALYST));
+        assertEquals(ModelTier.QUICK, selector.reflectionTier());
+        assertEquals("qwen-plus", selector.modelFor(AgentType.RESEARCH_MANAGER));
+        assertEquals("qwen-turbo", selector.modelFor(AgentType.MARKET_ANALYST));
+    }
+    
+    @Test
+    public void testBoundClientReplacesTierModelsOnly() {
+        LlmClient manager = selector.bind(echo, AgentType.RESEARCH_MANAGER);
+        LlmClient analyst = selector.bind(echo, AgentType.MARKET_ANALYST);
+        
+        assertEquals("qwen-plus", manager.chat(messages, ModelConfig.builder().build()).getContent());
+        assertEquals("qwen-turbo", analyst.chat(messages, ModelConfig.builder().model("qwen-plus").build()).getContent());
+        assertEquals("qwen-max", analyst.chat(messages, ModelConfig.builder().model("qwen-max").build()).getContent());
+        assertEquals("qwen-turbo", selector.bindReflection(echo).chat(messages, ModelConfig.builder().build()).getContent());
+    }
+    
+    @Test
+    public void testRunOverridesFromState() {
+        AgentState state = AgentState.builder().company("AAPL").build()
+                .putMetadata(ModelSelector.RUN_OVERRIDES_KEY, Map.of("RESEARCH_MANAGER", "quick", "*", "deep"));
+        LlmClient manager = selector.bind(echo, AgentType.RESEARCH_MANAGER);
+        LlmClient analyst = selector.bind(echo, AgentType.MARKET_ANALYST);
+        ModelConfig config = ModelConfig.builder().build();
+        
+        ModelSelector.withRunOverrides(state, () -> {
+            assertEquals("qwen-turbo", manager.chat(messages, config).getContent());
+            assertEquals("qwen-plus", analyst.chat(messages, config).getContent());
+            assertEquals(ModelTier.DEEP, selector.reflectionTier());
+            return null;
+        });
+        
+        // 覆盖只在本次运行内生效
+        assertEquals("qwen-plus", manager.chat(messages, config).getContent());
+        assertEquals("qwen-turbo", analyst.chat(messages, config).getContent());
+    }
+}
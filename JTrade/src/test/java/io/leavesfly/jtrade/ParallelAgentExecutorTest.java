@@ -0,0 +1,144 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.base.Agent;
+import io.leavesfly.jtrade.agents.base.AgentType;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.ParallelAgentExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行智能体执行器测试
+ * 
+ * 验证合并顺序与完成先后无关，以及单个智能体失败时的行为
+ * 
+ * @author 山泽
+ */
+public class ParallelAgentExecutorTest {
+    
+    private ParallelAgentExecutor executor;
+    
+    @BeforeEach
+    public void setUp() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getWorkflow().setMaxParallelism(4);
+        executor = new ParallelAgentExecutor(appConfig);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+    
+    @Test
+    public void testMergeFollowsAgentOrderNotCompletionOrder() {
+        // 三个智能体互相等待对方开始，只有并行执行才能通过；越靠前的完成越晚
+        CountDownLatch allStarted = new CountDownLatch(3);
+        List<Agent> agents = List.of(
+                agent("market", state -> {
+                    awaitPeers(allStarted);
+                    sleep(80);
+                    return state.addAnalystReport("market");
+                }),
+                agent("news", state -> {
+                    awaitPeers(allStarted);
+                    sleep(40);
+                    return state.addAnalystReport("news");
+                }),
+                agent("social", state -> {
+                    awaitPeers(allStarted);
+                    return state.addAnalystReport("social").putMetadata("social_trace", 1);
+                }));
+        
+        AgentState merged = executor.executeAll(initialState(), agents);
+        assertEquals(List.of("base", "market", "news", "social"), merged.getAnalystReports());
+        assertEquals(1, merged.getMetadata().get("social_trace"));
+        
+        List<AgentState> branches = executor.forkAll(initialState(), agents.subList(0, 1));
+        assertEquals(List.of("base", "market"), branches.get(0).getAnalystReports());
+    }
+    
+    @Test
+    public void testFailureSurfacesAfterSiblingsFinish() {
+        AtomicInteger finished = new AtomicInteger();
+        List<Agent> agents = List.of(
+                agent("ok-1", state -> {
+                    sleep(50);
+                    finished.incrementAndGet();
+                    return state.addAnalystReport("ok-1");
+                }),
+                agent("broken", state -> {
+                    throw new IllegalStateException("数据源不可用");
+                }),
+                agent("ok-2", state -> {
+                    sleep(50);
+                    finished.incrementAndGet();
+                    return state.addAnalystReport("ok-2");
+                }));
+        
+        // 原始异常类型与信息原样抛出，其他分支不会被中断
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> executor.executeAll(initialState(), agents));
+        assertEquals("数据源不可用", error.getMessage());
+        assertEquals(2, finished.get());
+        
+        // 失败不影响后续调用
+        AgentState merged = executor.executeAll(initialState(), List.of(agents.get(0), agents.get(2)));
+        assertEquals(List.of("base", "ok-1", "ok-2"), merged.getAnalystReports());
+    }
+    
+    private static AgentState initialState() {
+        return AgentState.builder()
+                .company("AAPL")
+                .date(LocalDate.of(2024, 5, 10))
+                .build()
+                .addAnalystReport("base");
+    }
+    
+    private static Agent agent(String name, UnaryOperator<AgentState> action) {
+        return new Agent() {
+            @Override
+            public AgentState execute(AgentState state) {
+                return action.apply(state);
+            }
+            
+            @Override
+            public String getName() {
+                return name;
+            }
+            
+            @Override
+            public AgentType getType() {
+                return AgentType.MARKET_ANALYST;
+            }
+        };
+    }
+    
+    private static void awaitPeers(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "智能体未并行执行");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
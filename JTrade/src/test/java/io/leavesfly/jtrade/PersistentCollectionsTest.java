@@ -0,0 +1,90 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.PersistentMap;
+import io.leavesfly.jtrade.core.state.PersistentVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 持久化集合与状态结构共享测试
+ * 
+ * @author 山泽
+ */
+public class PersistentCollectionsTest {
+    
+    @Test
+    public void testVectorMatchesArrayListAndKeepsOldVersions() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.plus(i);
+            expected.add(i);
+            if (i % 1000 == 0) {
+                versions.add(vector);
+            }
+        }
+        
+        assertEquals(expected, vector);
+        for (int v = 0; v < versions.size(); v++) {
+            PersistentVector<Integer> version = versions.get(v);
+            assertEquals(v * 1000 + 1, version.size());
+            assertEquals(v * 1000, version.get(version.size() - 1));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> versions.get(0).get(1));
+    }
+    
+    @Test
+    public void testMapHandlesCollisionsAndOverwrites() {
+        PersistentMap<Object, Object> map = PersistentMap.empty();
+        Map<Object, Object> expected = new HashMap<>();
+        
+        // "Aa" 与 "BB" 哈希相同
+        for (String key : List.of("Aa", "BB", "AaAa", "BBBB", "AaBB")) {
+            map = map.plus(key, key.length());
+            expected.put(key, key.length());
+        }
+        for (int i = 0; i < 5000; i++) {
+            map = map.plus(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        PersistentMap<Object, Object> before = map;
+        map = map.plus("BB", null).plus(42, "changed");
+        expected.put("BB", null);
+        expected.put(42, "changed");
+        
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+        assertTrue(map.containsKey("BB"));
+        assertNull(map.get("BB"));
+        assertEquals(2, before.get("BB"));
+        assertEquals("v42", before.get(42));
+        assertThrows(UnsupportedOperationException.class, () -> before.put("x", 1));
+    }
+    
+    @Test
+    public void testAgentStateAppendsDoNotAffectEarlierStates() {
+        AgentState base = AgentState.builder().company("AAPL").build()
+                .addAnalystReport("r1")
+                .putMetadata("trace", "t1");
+        AgentState next = base.addAnalystReport("r2").putMetadata("trace", "t2");
+        
+        assertEquals(List.of("r1"), base.getAnalystReports());
+        assertEquals("t1", base.getMetadata().get("trace"));
+        assertEquals(List.of("r1", "r2"), next.getAnalystReports());
+        assertEquals("t2", next.getMetadata().get("trace"));
+        
+        AgentState merged = AgentState.merge(base, List.of(next, base.addReflection("x")));
+        assertEquals(List.of("r1", "r2"), merged.getAnalystReports());
+        assertEquals(List.of("x"), merged.getReflections());
+        assertEquals("t2", merged.getMetadata().get("trace"));
+    }
+}
@@ -0,0 +1,82 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.prompt.CompiledPrompt;
+import io.leavesfly.jtrade.core.prompt.PromptManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prompt 模板预编译与热加载测试
+ * 
+ * @author 山泽
+ */
+public class PromptManagerTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void testCompiledRenderingMatchesReplace() {
+        String template = "分析 {symbol} 在 {date} 的数据：{symbol}\nAction Input: {\"symbol\": \"X\"} {json} {}";
+        CompiledPrompt prompt = CompiledPrompt.compile(template);
+        Map<String, String> variables = Map.of("symbol", "AAPL", "date", "2024-01-02", "unused", "x");
+        
+        assertEquals(Set.of("symbol", "date", "json"), prompt.getVariables());
+        assertEquals("分析 AAPL 在 2024-01-02 的数据：AAPL\nAction Input: {\"symbol\": \"X\"} {json} {}",
+                prompt.render(variables));
+        assertEquals(List.of("json"), prompt.missingVariables(variables));
+        assertThrows(IllegalArgumentException.class, () -> prompt.renderStrict(variables));
+        
+        // 变量值中的占位符不会被再次替换
+        assertEquals("{date}", CompiledPrompt.compile("{symbol}").render(Map.of("symbol", "{date}", "date", "x")));
+    }
+    
+    @Test
+    public void testTemplatesAreCompiledOnce() {
+        PromptManager promptManager = new PromptManager();
+        
+        assertSame(promptManager.getNewsAnalystPrompt(), promptManager.getNewsAnalystPrompt());
+        assertTrue(promptManager.getNewsAnalystPrompt().getSystemPrompt().startsWith("你是一位资深的新闻分析师"));
+        String prompt = promptManager.getNewsAnalystPrompt()
+                .buildUserPrompt(Map.of("symbol", "AAPL", "newsList", "1. 新品发布"));
+        assertTrue(prompt.startsWith("请分析以下关于 AAPL 的最新新闻：\n\n1. 新品发布"));
+    }
+    
+    @Test
+    public void testReloadSwapsTemplates() throws Exception {
+        Path file = tempDir.resolve("prompts.properties");
+        Files.writeString(file, "trader.system=交易员 v1\ntrader.prompt=为 {symbol} 制定计划\n", StandardCharsets.UTF_8);
+        AppConfig appConfig = new AppConfig();
+        appConfig.getPrompts().setFile(file.toString());
+        PromptManager promptManager = new PromptManager(appConfig);
+        
+        PromptManager.PromptTemplate v1 = promptManager.getTraderPrompt();
+        assertEquals("交易员 v1", v1.getSystemPrompt());
+        
+        Files.writeString(file, "trader.system=交易员 v2\ntrader.prompt=为 {symbol} 在 {date} 制定计划\n",
+                StandardCharsets.UTF_8);
+        assertTrue(promptManager.reload());
+        
+        PromptManager.PromptTemplate v2 = promptManager.getTraderPrompt();
+        assertEquals("交易员 v2", v2.getSystemPrompt());
+        assertEquals("为 AAPL 在 2024-01-02 制定计划",
+                v2.buildUserPrompt(Map.of("symbol", "AAPL", "date", "2024-01-02")));
+        // 已取得的旧模板不受影响
+        assertEquals("为 AAPL 制定计划", v1.buildUserPrompt(Map.of("symbol", "AAPL")));
+        
+        // 文件不可读时保留当前模板
+        Files.delete(file);
+        assertFalse(promptManager.reload());
+        assertEquals("交易员 v2", promptManager.getTraderPrompt().getSystemPrompt());
+    }
+}
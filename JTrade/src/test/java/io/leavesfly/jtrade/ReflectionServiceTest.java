@@ -0,0 +1,166 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.memory.MemoryService.DecisionMemory;
+import io.leavesfly.jtrade.core.reflection.ReflectionMode;
+import io.leavesfly.jtrade.core.reflection.ReflectionService;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.tier.ModelSelector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 反思服务执行方式测试
+ * 
+ * @author 山泽
+ */
+public class ReflectionServiceTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+    
+    @TempDir
+    Path tempDir;
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private AppConfig appConfig;
+    
+    /**
+     * 每次调用耗时约 100ms，按系统提示词返回反思内容，并记录同时进行的调用数
+     */
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return LlmResponse.builder().content(messages.get(0).getContent().substring(0, 6)).build();
+        }
+        
+        @Override
+        public CompletableFuture<LlmResponse> chatAsync(List<LlmMessage> messages, ModelConfig config) {
+            return CompletableFuture.supplyAsync(() -> chat(messages, config), executor);
+        }
+    };
+    
+    @BeforeEach
+    public void setUp() {
+        appConfig = new AppConfig();
+        appConfig.setDataDir(tempDir.toString());
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testParallelReflectionKeepsOrder() {
+        AgentState parallel = service(ReflectionMode.PARALLEL).reflect(decidedState());
+        assertEquals(3, maxInFlight.get());
+        
+        maxInFlight.set(0);
+        AgentState sequential = service(ReflectionMode.SEQUENTIAL).reflect(decidedState());
+        assertEquals(1, maxInFlight.get());
+        
+        assertEquals(sequential.getReflections(), parallel.getReflections());
+        assertTrue(parallel.getReflections().get(0).startsWith("【分析反思】"));
+        assertTrue(parallel.getReflections().get(1).startsWith("【决策反思】"));
+        assertTrue(parallel.getReflections().get(2).startsWith("【综合反思】"));
+    }
+    
+    @Test
+    public void testSkipsReflectionsWithoutInput() {
+        AgentState state = AgentState.builder().company("AAPL").date(DATE).finalSignal("HOLD").build();
+        AgentState reflected = service(ReflectionMode.PARALLEL).reflect(state);
+        assertEquals(1, reflected.getReflections().size());
+        assertTrue(reflected.getReflections().get(0).startsWith("【综合反思】"));
+    }
+    
+    @Test
+    public void testBackgroundReflectionIsAttachedToMemory() throws Exception {
+        ReflectionService reflectionService = service(ReflectionMode.BACKGROUND);
+        MemoryService memoryService = new MemoryService(appConfig);
+        AgentState state = decidedState().addReflection("已有反思");
+        DecisionMemory saved = memoryService.saveDecision(state);
+        
+        CountDownLatch attached = new CountDownLatch(1);
+        reflectionService.reflectInBackground(state).thenAccept(reflections -> {
+            memoryService.addReflections(saved, reflections);
+            attached.countDown();
+        });
+        // 提交后立即返回，记忆中暂时只有已有的反思
+        assertEquals(1, memoryService.getDecision("AAPL", DATE).get().getReflections().size());
+        
+        assertTrue(attached.await(5, TimeUnit.SECONDS));
+        assertEquals(4, memoryService.getDecision("AAPL", DATE).get().getReflections().size());
+        memoryService.close();
+        reflectionService.shutdown();
+        
+        // 补写的反思替换原记录，重启后不会出现重复的决策
+        MemoryService reloaded = new MemoryService(appConfig);
+        assertEquals(1, reloaded.getHistoryCount("AAPL"));
+        assertEquals(4, reloaded.getDecision("AAPL", DATE).get().getReflections().size());
+        reloaded.close();
+    }
+    
+    @Test
+    public void testReflectionsAttachToTheirOwnDecision() {
+        MemoryService memoryService = new MemoryService(appConfig);
+        DecisionMemory first = memoryService.saveDecision(decidedState());
+        DecisionMemory second = memoryService.saveDecision(decidedState().toBuilder().finalSignal("SELL").build());
+        
+        // 同一交易日期再次决策后，第一次决策的反思仍补写到第一条记录
+        assertTrue(memoryService.addReflections(first, List.of("第一次的反思")));
+        List<DecisionMemory> history = memoryService.getHistory("AAPL");
+        assertEquals(List.of("第一次的反思"), history.get(0).getReflections());
+        assertEquals(List.of(), history.get(1).getReflections());
+        assertEquals("SELL", memoryService.getDecision("AAPL", DATE).get().getFinalSignal());
+        
+        memoryService.clearHistory("AAPL");
+        assertFalse(memoryService.addReflections(second, List.of("清空后的反思")));
+        memoryService.close();
+    }
+    
+    private ReflectionService service(ReflectionMode mode) {
+        appConfig.getReflection().setMode(mode);
+        return new ReflectionService(llmClient, new ModelSelector(new LlmConfig()), appConfig);
+    }
+    
+    private static AgentState decidedState() {
+        return AgentState.builder()
+                .company("AAPL")
+                .date(DATE)
+                .researchManagerDecision("买入")
+                .tradingPlan("分批建仓")
+                .finalSignal("BUY")
+                .build()
+                .addAnalystReport("营收增长");
+    }
+}
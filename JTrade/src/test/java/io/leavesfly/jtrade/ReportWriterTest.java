@@ -0,0 +1,155 @@
+package io.leavesfly.jtrade;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.report.ReportWriter;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.RiskDebateState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 报告写入测试
+ * 
+ * @author 山泽
+ */
+public class ReportWriterTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void testSingleReportFileContainsAllSections() throws Exception {
+        ReportWriter reportWriter = new ReportWriter(tempDir.toString(), config(false));
+        Path reportDir = reportWriter.writeFullReport(state("AAPL", "BUY"));
+        reportWriter.shutdown();
+        
+        List<Path> files = list(reportDir);
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().endsWith("_report.txt"));
+        
+        String content = Files.readString(files.get(0), StandardCharsets.UTF_8);
+        int summary = content.indexOf("【最终交易决策】");
+        int analysts = content.indexOf("【分析师报告 1】");
+        int debate = content.indexOf("【第 1 轮 - 空头研究员】");
+        int reflections = content.indexOf("【反思 1】");
+        assertTrue(summary >= 0 && summary < analysts && analysts < debate && debate < reflections);
+        assertTrue(content.contains("【保守风险分析】"));
+        assertTrue(content.trim().endsWith("=".repeat(80)));
+    }
+    
+    @Test
+    public void testSplitFilesLayout() throws Exception {
+        AppConfig.ReportConfig config = config(false);
+        config.setSplitFiles(true);
+        ReportWriter reportWriter = new ReportWriter(tempDir.toString(), config);
+        Path reportDir = reportWriter.writeFullReport(state("AAPL", "BUY"));
+        reportWriter.shutdown();
+        
+        List<String> suffixes = list(reportDir).stream()
+                .map(file -> file.getFileName().toString().substring(16))
+                .toList();
+        assertEquals(List.of("FINAL_SUMMARY.txt", "analyst_reports.txt", "reflections.txt",
+                "research_manager_decision.txt", "researcher_debate.txt", "risk_debate.txt",
+                "risk_manager_decision.txt", "trading_plan.txt"), suffixes);
+    }
+    
+    @Test
+    public void testAsyncSubmitsWriteCompressedRunLogPerProcess() throws Exception {
+        ReportWriter reportWriter = new ReportWriter(tempDir.toString(), config(true));
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(reportWriter.submit(state("S" + i, i % 2 == 0 ? "BUY" : "SELL")));
+        }
+        // flush 返回时已提交的报告都已写完
+        reportWriter.flush();
+        assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+        reportWriter.shutdown();
+        
+        // 重新打开后写入新的 gzip 文件，不向上次进程的文件追加
+        ReportWriter reopened = new ReportWriter(tempDir.toString(), config(true));
+        reopened.submit(state("LAST", "HOLD")).join();
+        reopened.flush();
+        reopened.shutdown();
+        
+        List<Path> runLogs;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            runLogs = files.filter(file -> file.getFileName().toString().endsWith(".ndjson.gz")).toList();
+        }
+        assertEquals(2, runLogs.size());
+        
+        List<List<JsonNode>> records = new ArrayList<>();
+        for (Path runLog : runLogs) {
+            records.add(readRunLog(runLog));
+        }
+        records.sort((a, b) -> b.size() - a.size());
+        assertEquals(20, records.get(0).size());
+        assertEquals(1, records.get(1).size());
+        assertEquals("LAST", records.get(1).get(0).get("symbol").asText());
+        assertEquals("HOLD", records.get(1).get(0).get("finalSignal").asText());
+        assertEquals("2024-01-02", records.get(0).get(0).get("date").asText());
+        assertEquals(2, records.get(0).get(0).get("analystReports").size());
+        assertTrue(Files.isDirectory(tempDir.resolve("S19").resolve("2024-01-02")));
+    }
+    
+    private static List<JsonNode> readRunLog(Path file) throws Exception {
+        List<JsonNode> records = new ArrayList<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                records.add(objectMapper.readTree(line));
+            }
+        }
+        return records;
+    }
+    
+    private static AppConfig.ReportConfig config(boolean runLog) {
+        AppConfig.ReportConfig config = new AppConfig.ReportConfig();
+        config.setRunLog(runLog);
+        return config;
+    }
+    
+    private static List<Path> list(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+    
+    private static AgentState state(String symbol, String signal) {
+        return AgentState.builder()
+                .company(symbol)
+                .date(DATE)
+                .researchManagerDecision("研究经理：" + signal)
+                .tradingPlan("分批建仓")
+                .riskDebate(RiskDebateState.builder().maxRounds(1).build()
+                        .addAggressiveStrategy("加仓")
+                        .addConservativeStrategy("减仓"))
+                .riskManagerDecision("批准")
+                .finalSignal(signal)
+                .build()
+                .addAnalystReport("市场分析")
+                .addAnalystReport("新闻分析")
+                .addResearcherViewpoint("看多")
+                .addResearcherViewpoint("看空")
+                .addReflection("反思");
+    }
+}
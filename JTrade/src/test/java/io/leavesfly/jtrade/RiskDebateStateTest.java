@@ -0,0 +1,49 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.core.state.RiskDebateState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 风险辩论面板合并测试
+ * 
+ * @author 山泽
+ */
+public class RiskDebateStateTest {
+    
+    @Test
+    public void testPanelRoundMergesAllSpeakersInOrder() {
+        RiskDebateState base = RiskDebateState.builder().maxRounds(2).build()
+                .addAggressiveStrategy("A1")
+                .addConservativeStrategy("C1")
+                .addNeutralStrategy("N1")
+                .nextRound();
+        
+        RiskDebateState merged = RiskDebateState.merge(base, List.of(
+                base.addAggressiveStrategy("A2"),
+                base.addConservativeStrategy("C2"),
+                base.addNeutralStrategy("N2")));
+        
+        assertEquals(List.of("A1", "A2"), merged.getAggressiveStrategies());
+        assertEquals(List.of("C1", "C2"), merged.getConservativeStrategies());
+        assertEquals(List.of("N1", "N2"), merged.getNeutralStrategies());
+        assertEquals("NEUTRAL", merged.getLastSpeaker());
+        assertEquals(1, merged.getCurrentRound());
+        assertTrue(merged.nextRound().isDebateFinished());
+    }
+    
+    @Test
+    public void testSilentBranchDoesNotBecomeLastSpeaker() {
+        RiskDebateState base = RiskDebateState.builder().build();
+        
+        RiskDebateState merged = RiskDebateState.merge(base, List.of(
+                base.addAggressiveStrategy("A1"),
+                base));
+        
+        assertEquals("AGGRESSIVE", merged.getLastSpeaker());
+        assertTrue(merged.getNeutralStrategies().isEmpty());
+    }
+}
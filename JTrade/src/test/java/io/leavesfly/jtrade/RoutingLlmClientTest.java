@@ -0,0 +1,207 @@
+package io.leavesfly.jtrade;
+
+import com.sun.net.httpserver.HttpServer;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.client.RoutingLlmClient;
+import io.leavesfly.jtrade.llm.client.SimpleLlmClient;
+import io.leavesfly.jtrade.llm.exception.LlmException;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多提供商路由测试
+ * 
+ * @author 山泽
+ */
+public class RoutingLlmClientTest {
+    
+    private final List<LlmMessage> messages = List.of(LlmMessage.user("分析AAPL"));
+    private final ModelConfig deepConfig = ModelConfig.builder().model("qwen-plus").build();
+    
+    private FakeProvider qwen;
+    private FakeProvider deepseek;
+    private HttpClientManager httpClientManager;
+    private SimpleLlmClient primary;
+    private RoutingLlmClient client;
+    // 路由测量延迟用的时钟，只由模拟服务端按设定的延迟推进
+    private final AtomicLong clock = new AtomicLong();
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        qwen = new FakeProvider("qwen", clock);
+        deepseek = new FakeProvider("deepseek", clock);
+        
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.setProvider("qwen");
+        llmConfig.setMaxRetries(0);
+        configure(llmConfig.getQwen(), qwen, "qwen-plus", "qwen-turbo");
+        configure(llmConfig.getDeepseek(), deepseek, "deepseek-reasoner", "deepseek-chat");
+        llmConfig.getRouting().setEnabled(true);
+        llmConfig.getRouting().setMinSamples(2);
+        llmConfig.getRouting().setMinHedgeDelayMs(50);
+        
+        httpClientManager = new HttpClientManager(new AppConfig());
+        LlmRateLimiter rateLimiter = new LlmRateLimiter(llmConfig);
+        primary = new SimpleLlmClient(llmConfig, httpClientManager, rateLimiter);
+        client = new RoutingLlmClient(primary, llmConfig, httpClientManager, rateLimiter, clock::get);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+        primary.shutdown();
+        httpClientManager.shutdown();
+        qwen.stop();
+        deepseek.stop();
+    }
+    
+    @Test
+    public void testPrimaryIsSampledBeforeExploring() {
+        client.chat(messages, deepConfig);
+        client.chat(messages, deepConfig);
+        assertEquals(2, qwen.calls.get());
+        assertEquals(0, deepseek.calls.get());
+        
+        // 主提供商样本足够后才把样本不足的提供商排在前面
+        assertEquals("from-deepseek", client.chat(messages, deepConfig).getContent());
+        assertEquals(List.of(new LlmClient.ServingTarget("qwen", "qwen-plus"),
+                new LlmClient.ServingTarget("deepseek", "deepseek-reasoner")), client.servingTargets(deepConfig));
+    }
+    
+    @Test
+    public void testRoutingIsOffByDefault() {
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.setProvider("qwen");
+        configure(llmConfig.getQwen(), qwen, "qwen-plus", "qwen-turbo");
+        configure(llmConfig.getDeepseek(), deepseek, "deepseek-reasoner", "deepseek-chat");
+        RoutingLlmClient defaults = new RoutingLlmClient(primary, llmConfig, httpClientManager,
+                new LlmRateLimiter(llmConfig));
+        try {
+            assertEquals(List.of("qwen"), List.copyOf(defaults.getStats().keySet()));
+        } finally {
+            defaults.shutdown();
+        }
+    }
+    
+    @Test
+    public void testSlowPrimaryIsHedgedToSecondProvider() {
+        qwen.latencyMs.set(20);
+        deepseek.latencyMs.set(150);
+        for (int i = 0; i < 4; i++) {
+            client.chat(messages, deepConfig);
+        }
+        assertEquals(2, client.getStats().get("qwen").getSamples());
+        assertEquals(2, client.getStats().get("deepseek").getSamples());
+        assertEquals(20.0, client.getStats().get("qwen").getMeanLatencyMs());
+        assertEquals(150.0, client.getStats().get("deepseek").getMeanLatencyMs());
+        
+        // 主提供商实际变慢，超过对冲延迟（p95 与最小对冲延迟的较大者）后对冲到次选提供商
+        qwen.delayMs.set(3000);
+        long start = System.nanoTime();
+        String content = client.chat(messages, deepConfig).getContent();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        assertEquals("from-deepseek", content);
+        assertEquals("deepseek-reasoner", deepseek.lastModel.get());
+        assertTrue(elapsedMs < 2000, "elapsed " + elapsedMs);
+        assertEquals(1, client.getHedgedRequests());
+        assertEquals(1, client.getHedgeWins());
+    }
+    
+    @Test
+    public void testFailingPrimaryFailsOver() {
+        qwen.status.set(500);
+        
+        assertEquals("from-deepseek", client.chatAsync(messages, deepConfig).join().getContent());
+        assertEquals(1, client.getFailovers());
+        assertEquals(1.0, client.getStats().get("qwen").getErrorRate());
+    }
+    
+    @Test
+    public void testUnmappedModelStaysOnPrimary() {
+        qwen.status.set(500);
+        ModelConfig custom = ModelConfig.builder().model("qwen-max").build();
+        
+        assertThrows(LlmException.class, () -> client.chat(messages, custom));
+        assertEquals(0, deepseek.calls.get());
+    }
+    
+    private static void configure(LlmConfig.ProviderConfig config, FakeProvider provider,
+                                  String deepModel, String quickModel) {
+        config.setApiKey("test-key");
+        config.setBaseUrl(provider.baseUrl());
+        config.setDeepModel(deepModel);
+        config.setQuickModel(quickModel);
+    }
+    
+    /**
+     * 模拟的 OpenAI 兼容服务端
+     */
+    private static final class FakeProvider {
+        
+        private final HttpServer server;
+        private final AtomicLong delayMs = new AtomicLong();
+        private final AtomicLong latencyMs = new AtomicLong();
+        private final AtomicInteger status = new AtomicInteger(200);
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicReference<String> lastModel = new AtomicReference<>();
+        
+        /**
+         * @param clock 每次请求按 latencyMs 推进的测量时钟；delayMs 为实际等待时间
+         */
+        FakeProvider(String name, AtomicLong clock) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/chat/completions", exchange -> {
+                calls.incrementAndGet();
+                String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                lastModel.set(request.replaceAll(".*\"model\":\"([^\"]+)\".*", "$1"));
+                clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMs.get()));
+                try {
+                    Thread.sleep(delayMs.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = ("{\"id\":\"1\",\"model\":\"m\",\"choices\":[{\"message\":{\"content\":\"from-"
+                        + name + "\"},\"finish_reason\":\"stop\"}]}").getBytes(StandardCharsets.UTF_8);
+                try {
+                    exchange.sendResponseHeaders(status.get(), body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } catch (IOException e) {
+                    // 被取消的对冲请求可能已断开
+                }
+            });
+            server.start();
+        }
+        
+        String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+        
+        void stop() {
+            server.stop(0);
+        }
+    }
+}
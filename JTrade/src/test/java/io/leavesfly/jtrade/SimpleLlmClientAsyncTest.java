@@ -0,0 +1,178 @@
+package io.leavesfly.jtrade;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.llm.client.SimpleLlmClient;
+import io.leavesfly.jtrade.llm.exception.AuthenticationException;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SimpleLlmClient 异步调用测试
+ * 
+ * 使用本地 HTTP 服务模拟 OpenAI 兼容接口
+ * 
+ * @author 山泽
+ */
+public class SimpleLlmClientAsyncTest {
+    
+    private static final List<LlmMessage> MESSAGES = List.of(LlmMessage.user("你好"));
+    private static final ModelConfig CONFIG = ModelConfig.builder().model("test-model").maxTokens(100).build();
+    
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClientManager httpClientManager;
+    private SimpleLlmClient client;
+    
+    // 依次返回的状态码，用完后返回 200
+    private final Queue<Integer> statusCodes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/chat/completions", this::handle);
+        server.start();
+        
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.setMaxRetries(2);
+        llmConfig.getCurrentProviderConfig().setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        httpClientManager = new HttpClientManager(new AppConfig());
+        client = new SimpleLlmClient(llmConfig, httpClientManager, new LlmRateLimiter(llmConfig));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        client.shutdown();
+        httpClientManager.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+    
+    @Test
+    public void testReturnsBeforeResponseArrives() throws Exception {
+        release = new CountDownLatch(1);
+        
+        CompletableFuture<LlmResponse> future = client.chatAsync(MESSAGES, CONFIG);
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+        
+        release.countDown();
+        LlmResponse response = future.get(5, TimeUnit.SECONDS);
+        assertEquals("reply-1", response.getContent());
+        assertEquals(15, response.getUsage().getTotalTokens());
+    }
+    
+    @Test
+    public void testConcurrentCallsDoNotBlockCaller() throws Exception {
+        release = new CountDownLatch(1);
+        
+        long start = System.nanoTime();
+        List<CompletableFuture<LlmResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(client.chatAsync(MESSAGES, CONFIG));
+        }
+        // 20 个请求都在服务端挂起，提交线程没有等待任何响应
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(futures.stream().noneMatch(CompletableFuture::isDone));
+        
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(20, requests.get());
+    }
+    
+    @Test
+    public void testCancelAbortsHttpCall() throws Exception {
+        release = new CountDownLatch(1);
+        
+        CompletableFuture<LlmResponse> future = client.chatAsync(MESSAGES, CONFIG);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requests.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, httpClientManager.getStats().getRunningCalls());
+        
+        // 服务端仍未返回，取消 Future 后底层 HTTP 请求随之结束
+        assertTrue(future.cancel(false));
+        awaitRunningCalls(0);
+        assertEquals(1, requests.get());
+    }
+    
+    @Test
+    public void testRateLimitIsRetried() throws Exception {
+        statusCodes.add(429);
+        
+        LlmResponse response = client.chatAsync(MESSAGES, CONFIG).get(10, TimeUnit.SECONDS);
+        assertEquals("reply-2", response.getContent());
+        assertEquals(2, requests.get());
+    }
+    
+    @Test
+    public void testAuthenticationErrorIsNotRetried() {
+        statusCodes.add(401);
+        
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> client.chatAsync(MESSAGES, CONFIG).join());
+        assertInstanceOf(AuthenticationException.class, error.getCause());
+        assertEquals(1, requests.get());
+    }
+    
+    private void awaitRunningCalls(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (httpClientManager.getStats().getRunningCalls() != expected) {
+            assertTrue(System.currentTimeMillis() < deadline,
+                    "running calls: " + httpClientManager.getStats().getRunningCalls());
+            Thread.sleep(10);
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        int request = requests.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Integer status = statusCodes.poll();
+        String body = status == null
+                ? "{\"id\":\"r" + request + "\",\"model\":\"test-model\",\"choices\":[{\"message\":"
+                + "{\"content\":\"reply-" + request + "\"},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":5,\"total_tokens\":15}}"
+                : "{\"error\":{\"message\":\"status " + status + "\"}}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status == null ? 200 : status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package io.leavesfly.jtrade;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.http.HttpClientManager;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.WorkflowEngine;
+import io.leavesfly.jtrade.core.workflow.WorkflowExecutor;
+import io.leavesfly.jtrade.llm.client.LlmClient.StreamCallback;
+import io.leavesfly.jtrade.llm.client.SimpleLlmClient;
+import io.leavesfly.jtrade.llm.client.StreamListeners;
+import io.leavesfly.jtrade.llm.exception.LlmException;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import io.leavesfly.jtrade.llm.ratelimit.LlmRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SimpleLlmClient 流式调用测试
+ * 
+ * 本地 HTTP 服务分段写出 SSE 响应，验证解析与监听器的作用范围
+ * 
+ * @author 山泽
+ */
+public class SimpleLlmClientStreamTest {
+    
+    private static final List<LlmMessage> MESSAGES = List.of(LlmMessage.user("你好"));
+    private static final ModelConfig CONFIG = ModelConfig.builder().model("test-model").maxTokens(100).build();
+    
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClientManager httpClientManager;
+    private SimpleLlmClient client;
+    
+    // 流式请求的响应，按片段逐个写出并刷新
+    private volatile List<byte[]> streamParts = List.of();
+    private volatile CountDownLatch plainReleased = new CountDownLatch(0);
+    private final CountDownLatch plainArrived = new CountDownLatch(1);
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/chat/completions", this::handle);
+        server.start();
+        
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.setMaxRetries(0);
+        llmConfig.getCurrentProviderConfig().setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        httpClientManager = new HttpClientManager(new AppConfig());
+        client = new SimpleLlmClient(llmConfig, httpClientManager, new LlmRateLimiter(llmConfig));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        plainReleased.countDown();
+        client.shutdown();
+        httpClientManager.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+    
+    @Test
+    public void testChunksSplitMidLineAndMidCharacter() {
+        byte[] event = utf8(chunk("你好") + chunk("世界"));
+        // 在“好”字的 UTF-8 字节中间和第二个事件的 JSON 中间切开
+        int midChar = utf8(chunk("你")).length + 1;
+        int midLine = utf8(chunk("你好")).length + 20;
+        streamParts = List.of(
+                utf8(": keep-alive\n\n"),
+                Arrays.copyOfRange(event, 0, midChar),
+                Arrays.copyOfRange(event, midChar, midLine),
+                Arrays.copyOfRange(event, midLine, event.length),
+                utf8(usageFrame() + "data: [DONE]\n\n"));
+        
+        RecordingListener listener = new RecordingListener();
+        LlmResponse response = StreamListeners.with(List.of(listener), () -> client.chat(MESSAGES, CONFIG));
+        
+        assertEquals(List.of("你好", "世界"), listener.chunks);
+        assertEquals("你好世界", response.getContent());
+        assertEquals("stop", response.getFinishReason());
+        assertEquals(15, response.getUsage().getTotalTokens());
+        assertSame(response, listener.completed);
+    }
+    
+    @Test
+    public void testDoneStopsParsing() {
+        streamParts = List.of(utf8(chunk("完成") + "data: [DONE]\n\n" + chunk("多余")));
+        
+        RecordingListener listener = new RecordingListener();
+        LlmResponse response = StreamListeners.with(List.of(listener), () -> client.chat(MESSAGES, CONFIG));
+        
+        assertEquals("完成", response.getContent());
+        assertEquals(List.of("完成"), listener.chunks);
+    }
+    
+    @Test
+    public void testErrorFrameFailsTheCall() {
+        streamParts = List.of(utf8(chunk("部分") + "data: {\"error\":{\"message\":\"context overflow\"}}\n\n"));
+        
+        RecordingListener listener = new RecordingListener();
+        LlmException error = assertThrows(LlmException.class,
+                () -> StreamListeners.with(List.of(listener), () -> client.chat(MESSAGES, CONFIG)));
+        
+        assertTrue(error.getMessage().contains("context overflow"));
+        assertNull(listener.completed);
+    }
+    
+    @Test
+    public void testListenersOnlySeeTheirOwnRun() throws Exception {
+        streamParts = List.of(utf8(chunk("本次运行") + "data: [DONE]\n\n"));
+        plainReleased = new CountDownLatch(1);
+        
+        // 另一个线程上未绑定监听器的调用在监听期间进行，走非流式接口且不会输出到监听器
+        CompletableFuture<LlmResponse> other = CompletableFuture.supplyAsync(() -> client.chat(MESSAGES, CONFIG));
+        assertTrue(plainArrived.await(5, TimeUnit.SECONDS));
+        
+        RecordingListener listener = new RecordingListener();
+        StreamListeners.with(List.of(listener), () -> client.chat(MESSAGES, CONFIG));
+        plainReleased.countDown();
+        
+        assertEquals("其他运行", other.get(5, TimeUnit.SECONDS).getContent());
+        assertEquals(List.of("本次运行"), listener.chunks);
+        assertFalse(StreamListeners.isActive());
+    }
+    
+    @Test
+    public void testListenersFollowWorkflowNodesToWorkerThreads() {
+        streamParts = List.of(utf8(chunk("节点输出") + "data: [DONE]\n\n"));
+        
+        WorkflowExecutor workflowExecutor = new WorkflowExecutor(new AppConfig());
+        WorkflowEngine engine = new WorkflowEngine(workflowExecutor)
+                .addTransformNode("analyst", state -> state.addAnalystReport(client.chat(MESSAGES, CONFIG).getContent()),
+                        Set.of("company"), Set.of("analystReports"));
+        AgentState initial = AgentState.builder().company("AAPL").date(LocalDate.of(2024, 5, 10)).build();
+        
+        RecordingListener listener = new RecordingListener();
+        AgentState result;
+        try {
+            result = StreamListeners.with(List.of(listener), () -> engine.execute(initial));
+        } finally {
+            workflowExecutor.shutdown();
+        }
+        
+        assertEquals(List.of("节点输出"), result.getAnalystReports());
+        assertEquals(List.of("节点输出"), listener.chunks);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (!request.contains("\"stream\":true")) {
+            plainArrived.countDown();
+            try {
+                plainReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = utf8("{\"id\":\"plain\",\"model\":\"test-model\",\"choices\":[{\"message\":"
+                    + "{\"content\":\"其他运行\"},\"finish_reason\":\"stop\"}]}");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+        
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (byte[] part : streamParts) {
+                out.write(part);
+                out.flush();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+    
+    private static String chunk(String content) {
+        return "data: {\"id\":\"s1\",\"model\":\"test-model\",\"choices\":[{\"delta\":{\"content\":\""
+                + content + "\"}}]}\n\n";
+    }
+    
+    private static String usageFrame() {
+        return "data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":5,\"total_tokens\":15}}\n\n";
+    }
+    
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static class RecordingListener implements StreamCallback {
+        private final List<String> chunks = new CopyOnWriteArrayList<>();
+        private volatile LlmResponse completed;
+        
+        @Override
+        public void onChunk(String chunk) {
+            chunks.add(chunk);
+        }
+        
+        @Override
+        public void onComplete(LlmResponse response) {
+            completed = response;
+        }
+    }
+}
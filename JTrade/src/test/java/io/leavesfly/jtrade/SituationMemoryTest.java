@@ -0,0 +1,140 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
+import io.leavesfly.jtrade.core.memory.SituationMemory.SimilarSituation;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.llm.client.LlmClient;
+import io.leavesfly.jtrade.llm.model.LlmMessage;
+import io.leavesfly.jtrade.llm.model.LlmResponse;
+import io.leavesfly.jtrade.llm.model.ModelConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相似历史情境检索测试
+ * 
+ * @author 山泽
+ */
+public class SituationMemoryTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 2);
+    private static final String[] KEYWORDS = {"上涨", "下跌", "震荡", "放量"};
+    
+    @TempDir
+    Path tempDir;
+    
+    private AppConfig appConfig;
+    private LlmConfig llmConfig;
+    private final AtomicInteger embedCalls = new AtomicInteger();
+    
+    /**
+     * 按关键词出现次数生成向量的假客户端
+     */
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public LlmResponse chat(List<LlmMessage> messages, ModelConfig config) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public double[] embedText(String text) {
+            embedCalls.incrementAndGet();
+            double[] vector = new double[KEYWORDS.length];
+            for (int i = 0; i < KEYWORDS.length; i++) {
+                vector[i] = text.split(KEYWORDS[i], -1).length - 1;
+            }
+            return vector;
+        }
+    };
+    
+    @BeforeEach
+    public void setUp() {
+        appConfig = new AppConfig();
+        appConfig.setDataDir(tempDir.toString());
+        appConfig.getMemory().setMinSimilarity(0.5);
+        llmConfig = new LlmConfig();
+        llmConfig.getProviderConfig(llmConfig.getProvider()).setEmbeddingModel("text-embedding-v2");
+    }
+    
+    @Test
+    public void testTopKAcrossSymbols() {
+        SituationMemory memory = new SituationMemory(llmClient, appConfig, llmConfig);
+        memory.record(state("AAPL", START, "BUY", "放量上涨 上涨"));
+        memory.record(state("MSFT", START.plusDays(1), "HOLD", "区间震荡"));
+        memory.record(state("TSLA", START.plusDays(2), "BUY", "上涨 放量上涨 上涨"));
+        memory.record(state("NVDA", START.plusDays(3), "SELL", "下跌"));
+        
+        AgentState query = state("AMD", START.plusDays(10), null, "上涨 放量");
+        List<SimilarSituation> similar = memory.findSimilar(query, 2);
+        assertEquals(List.of("AAPL", "TSLA"), similar.stream().map(SimilarSituation::getSymbol).toList());
+        assertTrue(similar.get(0).getScore() >= similar.get(1).getScore());
+        assertEquals("BUY", similar.get(0).getSignal());
+        
+        AgentState attached = memory.attachSimilar(query);
+        assertTrue(SituationMemory.promptSection(attached).contains("AAPL " + START));
+        assertEquals("", SituationMemory.promptSection(query));
+        memory.close();
+    }
+    
+    @Test
+    public void testExcludesFutureAndCurrentRun() {
+        SituationMemory memory = new SituationMemory(llmClient, appConfig, llmConfig);
+        memory.record(state("AAPL", START, "BUY", "上涨"));
+        memory.record(state("AAPL", START.plusDays(5), "SELL", "上涨"));
+        
+        // 回测回放到 START+5 时只能看到更早的情境
+        List<SimilarSituation> similar = memory.findSimilar(state("AAPL", START.plusDays(5), null, "上涨"), 3);
+        assertEquals(1, similar.size());
+        assertEquals(START, similar.get(0).getDate());
+        
+        // 同一股票同一日期重新记录时原位替换
+        memory.record(state("AAPL", START, "HOLD", "上涨"));
+        assertEquals(2, memory.size());
+        assertEquals("HOLD", memory.findSimilar(state("MSFT", START.plusDays(1), null, "上涨"), 3).get(0).getSignal());
+        memory.close();
+    }
+    
+    @Test
+    public void testIndexSurvivesRestartAndRingOverwrites() {
+        appConfig.getMemory().setMaxSituations(3);
+        appConfig.getMemory().setMinSimilarity(0);
+        SituationMemory memory = new SituationMemory(llmClient, appConfig, llmConfig);
+        for (int i = 0; i < 5; i++) {
+            memory.record(state("S" + i, START.plusDays(i), "BUY", "上涨 " + "震荡 ".repeat(i)));
+        }
+        assertEquals(3, memory.size());
+        memory.close();
+        
+        SituationMemory reloaded = new SituationMemory(llmClient, appConfig, llmConfig);
+        assertEquals(3, reloaded.size());
+        List<SimilarSituation> similar = reloaded.findSimilar(state("X", START.plusDays(30), null, "上涨"), 5);
+        assertEquals(List.of("S2", "S3", "S4"), similar.stream().map(SimilarSituation::getSymbol).toList());
+        reloaded.close();
+        
+        // 更换向量化模型后使用新的索引
+        llmConfig.getProviderConfig(llmConfig.getProvider()).setEmbeddingModel("other-model");
+        SituationMemory otherModel = new SituationMemory(llmClient, appConfig, llmConfig);
+        assertEquals(0, otherModel.size());
+        otherModel.close();
+    }
+    
+    private static AgentState state(String symbol, LocalDate date, String signal, String report) {
+        return AgentState.builder()
+                .company(symbol)
+                .date(date)
+                .finalSignal(signal)
+                .researchManagerDecision("决策：" + signal)
+                .build()
+                .addAnalystReport(report);
+    }
+}
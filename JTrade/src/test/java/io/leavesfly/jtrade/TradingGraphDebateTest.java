@@ -0,0 +1,170 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.analysts.FundamentalsAnalyst;
+import io.leavesfly.jtrade.agents.analysts.MarketAnalyst;
+import io.leavesfly.jtrade.agents.analysts.NewsAnalyst;
+import io.leavesfly.jtrade.agents.analysts.SocialMediaAnalyst;
+import io.leavesfly.jtrade.agents.managers.ResearchManager;
+import io.leavesfly.jtrade.agents.managers.RiskManager;
+import io.leavesfly.jtrade.agents.researchers.BearResearcher;
+import io.leavesfly.jtrade.agents.researchers.BullResearcher;
+import io.leavesfly.jtrade.agents.risk.AggressiveDebator;
+import io.leavesfly.jtrade.agents.risk.ConservativeDebator;
+import io.leavesfly.jtrade.agents.risk.NeutralDebator;
+import io.leavesfly.jtrade.agents.trader.Trader;
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.memory.MemoryService;
+import io.leavesfly.jtrade.core.memory.SituationMemory;
+import io.leavesfly.jtrade.core.reflection.ReflectionService;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.state.InvestDebateState;
+import io.leavesfly.jtrade.core.workflow.ParallelAgentExecutor;
+import io.leavesfly.jtrade.core.workflow.WorkflowExecutor;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 研究员辩论调度测试
+ * 
+ * 智能体以桩代替，验证开场陈述并行、反驳轮顺序执行以及辩论轮数配置
+ * 
+ * @author 山泽
+ */
+public class TradingGraphDebateTest {
+    
+    private final AppConfig appConfig = new AppConfig();
+    private final Queue<String> speeches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger speaking = new AtomicInteger();
+    private final AtomicInteger maxSpeaking = new AtomicInteger();
+    private volatile CountDownLatch openingStarted = new CountDownLatch(0);
+    
+    private ParallelAgentExecutor parallelExecutor;
+    private WorkflowExecutor workflowExecutor;
+    
+    @AfterEach
+    public void tearDown() {
+        parallelExecutor.shutdown();
+        workflowExecutor.shutdown();
+    }
+    
+    @Test
+    public void testOpeningsRunConcurrentlyAndRebuttalsInTurn() {
+        appConfig.getDebate().setMaxRounds(3);
+        openingStarted = new CountDownLatch(2);
+        
+        AgentState result = newGraph().replay(initialState());
+        
+        // 开场陈述互相等待对方开始，只有并行执行才能完成；双方都没有看到对方的论点
+        assertTrue(speeches.containsAll(List.of("bull r0 saw 0", "bear r0 saw 0")), speeches.toString());
+        // 之后每一轮发言都能看到对方上一轮的论点
+        for (String speech : speeches) {
+            String[] parts = speech.split(" ");
+            int round = Integer.parseInt(parts[1].substring(1));
+            assertTrue(Integer.parseInt(parts[3]) >= round, speech);
+        }
+        
+        InvestDebateState debate = result.getInvestDebate();
+        assertEquals(3, debate.getMaxRounds());
+        assertEquals(3, debate.getBullArguments().size());
+        assertEquals(3, debate.getBearArguments().size());
+        assertEquals("bull r2", debate.getBullArguments().get(2));
+        assertEquals(6, result.getResearcherViewpoints().size());
+    }
+    
+    @Test
+    public void testSequentialOpeningWhenDisabled() {
+        appConfig.getDebate().setMaxRounds(2);
+        appConfig.getDebate().setParallelOpening(false);
+        
+        AgentState result = newGraph().replay(initialState());
+        
+        assertEquals(1, maxSpeaking.get());
+        assertEquals(4, speeches.size());
+        assertEquals(2, result.getInvestDebate().getBullArguments().size());
+        assertEquals(2, result.getInvestDebate().getBearArguments().size());
+    }
+    
+    @Test
+    public void testSetMaxDebateRoundsTakesEffect() {
+        TradingGraph graph = newGraph();
+        graph.setMaxDebateRounds(4);
+        
+        AgentState result = graph.replay(initialState());
+        
+        assertEquals(4, result.getInvestDebate().getMaxRounds());
+        assertEquals(8, speeches.size());
+    }
+    
+    private TradingGraph newGraph() {
+        appConfig.getDataSource().setOnlineTools(false);
+        parallelExecutor = new ParallelAgentExecutor(appConfig);
+        workflowExecutor = new WorkflowExecutor(appConfig);
+        
+        SituationMemory situationMemory = mock(SituationMemory.class);
+        when(situationMemory.attachSimilar(any())).thenAnswer(call -> call.getArgument(0));
+        Answer<Object> passThrough = call -> call.getMethod().getName().equals("execute")
+                ? call.getArgument(0)
+                : Mockito.RETURNS_DEFAULTS.answer(call);
+        
+        return new TradingGraph(
+                mock(MarketAnalyst.class, passThrough), mock(FundamentalsAnalyst.class, passThrough),
+                mock(NewsAnalyst.class, passThrough), mock(SocialMediaAnalyst.class, passThrough), null,
+                mock(BullResearcher.class, researcher("bull")), mock(BearResearcher.class, researcher("bear")),
+                mock(Trader.class, passThrough), mock(AggressiveDebator.class, passThrough),
+                mock(ConservativeDebator.class, passThrough), mock(NeutralDebator.class, passThrough),
+                mock(ResearchManager.class, passThrough), mock(RiskManager.class, passThrough),
+                mock(ReflectionService.class), mock(MemoryService.class), situationMemory,
+                appConfig, parallelExecutor, workflowExecutor);
+    }
+    
+    /**
+     * 研究员桩：记录发言轮次和发言时已看到的对方论点数量
+     */
+    private Answer<Object> researcher(String side) {
+        return call -> {
+            if (!call.getMethod().getName().equals("execute")) {
+                return Mockito.RETURNS_DEFAULTS.answer(call);
+            }
+            AgentState state = call.getArgument(0);
+            InvestDebateState debate = state.getInvestDebate();
+            int round = debate.getCurrentRound();
+            int opponent = side.equals("bull") ? debate.getBearArguments().size() : debate.getBullArguments().size();
+            
+            maxSpeaking.accumulateAndGet(speaking.incrementAndGet(), Math::max);
+            try {
+                if (round == 0) {
+                    openingStarted.countDown();
+                    assertTrue(openingStarted.await(5, TimeUnit.SECONDS), "开场陈述未并行执行");
+                }
+                Thread.sleep(20);
+            } finally {
+                speaking.decrementAndGet();
+            }
+            speeches.add(side + " r" + round + " saw " + opponent);
+            return state.addResearcherViewpoint(side + " r" + round);
+        };
+    }
+    
+    private static AgentState initialState() {
+        return AgentState.builder()
+                .company("AAPL")
+                .date(LocalDate.of(2024, 5, 10))
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.agents.analysts.BatchAnalyst;
+import io.leavesfly.jtrade.config.LlmConfig;
+import io.leavesfly.jtrade.core.report.ReportWriter;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.graph.TradingGraph;
+import io.leavesfly.jtrade.service.TradingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量分析测试
+ * 
+ * 单个股票的流程以固定耗时代替，验证并发上限、结果顺序与单股执行耗时
+ * 
+ * @author 山泽
+ */
+public class TradingServiceBatchTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+    private static final long RUN_MILLIS = 100;
+    
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private TradingService tradingService;
+    
+    @BeforeEach
+    public void setUp() {
+        LlmConfig llmConfig = new LlmConfig();
+        llmConfig.getCurrentProviderConfig().setMaxConcurrency(2);
+        TradingService service = new TradingService(
+                mock(TradingGraph.class), mock(BatchAnalyst.class), mock(ReportWriter.class), llmConfig);
+        
+        tradingService = spy(service);
+        doAnswer(call -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(RUN_MILLIS);
+            } finally {
+                running.decrementAndGet();
+            }
+            String symbol = call.getArgument(0);
+            return AgentState.builder()
+                    .company(symbol)
+                    .date(call.getArgument(1))
+                    .finalSignal(symbol.startsWith("X") ? "ERROR" : "BUY")
+                    .build();
+        }).when(tradingService).executeTradingWorkflow(anyString(), any(LocalDate.class));
+    }
+    
+    @Test
+    public void testResultsKeepInputOrderWithinConcurrencyCap() {
+        List<String> completed = new CopyOnWriteArrayList<>();
+        List<String> symbols = List.of("AAPL", "TSLA", "XERR", "NVDA", "MSFT");
+        
+        List<AgentState> results = tradingService.analyzeAll(symbols, DATE,
+                state -> completed.add(state.getCompany()));
+        
+        assertEquals(symbols, results.stream().map(AgentState::getCompany).toList());
+        assertEquals("ERROR", results.get(2).getFinalSignal());
+        assertEquals(symbols.size(), completed.size());
+        assertEquals(2, maxRunning.get());
+    }
+    
+    @Test
+    public void testExecutionTimeExcludesWaitingForPermit() {
+        // 并发上限为 2，五只股票需要三轮；每只股票记录的仍是自身约 100ms 的执行时间
+        List<AgentState> results = tradingService.analyzeAll(List.of("A", "B", "C", "D", "E"), DATE);
+        
+        for (AgentState state : results) {
+            long millis = ((Number) state.getMetadata().get(TradingService.EXECUTION_MILLIS_KEY)).longValue();
+            assertTrue(millis >= RUN_MILLIS && millis < 2 * RUN_MILLIS,
+                    state.getCompany() + " 执行耗时 " + millis + " ms");
+        }
+    }
+    
+    @Test
+    public void testConcurrentBatchesShareProviderCap() {
+        CompletableFuture<List<AgentState>> first = CompletableFuture.supplyAsync(
+                () -> tradingService.analyzeAll(List.of("A1", "A2", "A3"), DATE));
+        CompletableFuture<List<AgentState>> second = CompletableFuture.supplyAsync(
+                () -> tradingService.analyzeAll(List.of("B1", "B2", "B3"), DATE));
+        
+        assertEquals(3, first.join().size());
+        assertEquals(3, second.join().size());
+        assertEquals(2, maxRunning.get());
+    }
+    
+    @Test
+    public void testWorkflowDelegatesToTradingGraph() {
+        TradingGraph tradingGraph = mock(TradingGraph.class);
+        ReportWriter reportWriter = mock(ReportWriter.class);
+        TradingService service = new TradingService(tradingGraph, mock(BatchAnalyst.class), reportWriter, new LlmConfig());
+        AgentState decided = AgentState.builder().company("AAPL").date(DATE).finalSignal("BUY").build();
+        AgentState failed = AgentState.builder().company("TSLA").date(DATE).finalSignal("ERROR").build();
+        when(tradingGraph.propagate("AAPL", DATE)).thenReturn(decided);
+        when(tradingGraph.propagate("TSLA", DATE)).thenReturn(failed);
+        when(reportWriter.getReportDirectory(anyString(), anyString())).thenReturn(Path.of("reports"));
+        
+        assertSame(decided, service.executeTradingWorkflow("AAPL", DATE));
+        verify(reportWriter).submit(decided);
+        
+        // 交易图执行失败时不写入报告
+        assertSame(failed, service.executeTradingWorkflow("TSLA", DATE));
+        verify(reportWriter, never()).submit(failed);
+    }
+}
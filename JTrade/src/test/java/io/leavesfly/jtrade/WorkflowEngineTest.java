@@ -0,0 +1,162 @@
+package io.leavesfly.jtrade;
+
+import io.leavesfly.jtrade.config.AppConfig;
+import io.leavesfly.jtrade.core.state.AgentState;
+import io.leavesfly.jtrade.core.workflow.WorkflowEngine;
+import io.leavesfly.jtrade.core.workflow.WorkflowExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作流引擎测试
+ * 
+ * 验证DAG调度的并行执行与确定性合并
+ * 
+ * @author 山泽
+ */
+public class WorkflowEngineTest {
+    
+    private WorkflowExecutor workflowExecutor;
+    
+    @BeforeEach
+    public void setUp() {
+        workflowExecutor = new WorkflowExecutor(new AppConfig());
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        workflowExecutor.shutdown();
+    }
+    
+    private AgentState initialState() {
+        return AgentState.builder()
+                .company("AAPL")
+                .date(LocalDate.of(2024, 5, 10))
+                .build();
+    }
+    
+    @Test
+    public void testIndependentNodesRunConcurrentlyAndMergeInOrder() {
+        // 两个节点互相等待对方开始，只有并行执行才能通过
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        
+        WorkflowEngine engine = new WorkflowEngine(workflowExecutor)
+                .failFast(true)
+                .addTransformNode("slow", state -> {
+                    awaitPeer(bothStarted);
+                    sleep(50);
+                    return state.addAnalystReport("slow").putMetadata("slow_trace", 1);
+                }, Set.of("company"), Set.of("analystReports"))
+                .addTransformNode("fast", state -> {
+                    awaitPeer(bothStarted);
+                    return state.addAnalystReport("fast").putMetadata("fast_trace", 2);
+                }, Set.of("company"), Set.of("analystReports"))
+                .addTransformNode("summary", state -> state.toBuilder()
+                        .tradingPlan(String.join(",", state.getAnalystReports()))
+                        .build(), Set.of("analystReports"), Set.of("tradingPlan"));
+        
+        AgentState result = engine.execute(initialState());
+        
+        // 合并顺序遵循节点添加顺序，而不是完成顺序
+        assertEquals(List.of("slow", "fast"), result.getAnalystReports());
+        assertEquals("slow,fast", result.getTradingPlan());
+        assertEquals(1, result.getMetadata().get("slow_trace"));
+        assertEquals(2, result.getMetadata().get("fast_trace"));
+    }
+    
+    @Test
+    public void testJoinNodeWaitsForUpstreamBranches() {
+        WorkflowEngine engine = new WorkflowEngine(workflowExecutor)
+                .addTransformNode("bull", state -> state.addResearcherViewpoint("bull"),
+                        Set.of("analystReports"), Set.of("researcherViewpoints"))
+                .addTransformNode("bear", state -> state.addResearcherViewpoint("bear"),
+                        Set.of("analystReports"), Set.of("researcherViewpoints"))
+                .addJoinNode("debate_join", "bull", "bear")
+                .addTransformNode("manager", state -> state.toBuilder()
+                        .researchManagerDecision("views=" + state.getResearcherViewpoints().size())
+                        .build(), Set.of("researcherViewpoints"), Set.of("researchManagerDecision"));
+        
+        AgentState result = engine.execute(initialState());
+        
+        assertEquals(List.of("bull", "bear"), result.getResearcherViewpoints());
+        assertEquals("views=2", result.getResearchManagerDecision());
+    }
+    
+    @Test
+    public void testUndeclaredNodesKeepSequentialSemantics() {
+        WorkflowEngine engine = new WorkflowEngine(workflowExecutor)
+                .addTransformNode("first", state -> state.addReflection("1"))
+                .addTransformNode("second", state -> state.addReflection("2:" + state.getReflections().size()))
+                .addTransformNode("failing", state -> {
+                    throw new IllegalStateException("boom");
+                })
+                .addTransformNode("third", state -> state.addReflection("3:" + state.getReflections().size()));
+        
+        AgentState result = engine.execute(initialState());
+        
+        assertEquals(List.of("1", "2:1", "3:2"), result.getReflections());
+    }
+    
+    @Test
+    public void testSharedExecutorBoundsConcurrentNodes() throws Exception {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getWorkflow().setNodeThreads(2);
+        WorkflowExecutor boundedExecutor = new WorkflowExecutor(appConfig);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        
+        // 四个工作流同时执行，每个有三个可并行的节点，同一时刻最多只有两个节点在运行
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<AgentState>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WorkflowEngine engine = new WorkflowEngine(boundedExecutor);
+            for (String name : List.of("a", "b", "c")) {
+                engine.addTransformNode(name, state -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(20);
+                    running.decrementAndGet();
+                    return state.addAnalystReport(name);
+                }, Set.of("company"), Set.of("analystReports"));
+            }
+            results.add(callers.submit(() -> engine.execute(initialState())));
+        }
+        for (Future<AgentState> result : results) {
+            assertEquals(List.of("a", "b", "c"), result.get(5, TimeUnit.SECONDS).getAnalystReports());
+        }
+        assertEquals(2, maxRunning.get());
+        callers.shutdownNow();
+        boundedExecutor.shutdown();
+    }
+    
+    private void awaitPeer(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "节点未并行执行");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+    
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}